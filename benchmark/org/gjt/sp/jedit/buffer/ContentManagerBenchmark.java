@@ -0,0 +1,149 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.Segment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Compares the gap buffer {@link ContentManager} with the
+ * {@link PieceTableContentManager} on scattered edits, like the ones
+ * done by multiple carets or a replace all, and on typing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentManagerBenchmark
+{
+	static final int TEXT_LENGTH = 8 * 1024 * 1024;
+	private static final int CARETS = 64;
+
+	@Param({"gap", "pieceTable"})
+	public String implementation;
+
+	private char[] text;
+	private ContentManager contentManager;
+	private Random random;
+	private final Segment segment = new Segment();
+
+	//{{{ setUp() method
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		text = createText(TEXT_LENGTH);
+		random = new Random(1L);
+	} //}}}
+
+	//{{{ reset() method
+	@Setup(Level.Iteration)
+	public void reset()
+	{
+		contentManager = "gap".equals(implementation)
+			? new ContentManager() : new PieceTableContentManager();
+		contentManager._setContent(text.clone(), text.length);
+	} //}}}
+
+	//{{{ randomEdit() method
+	/**
+	 * One insert and one remove at random offsets, so that the length
+	 * of the text stays the same.
+	 */
+	@Benchmark
+	public int randomEdit()
+	{
+		int offset = random.nextInt(contentManager.getLength());
+		contentManager.insert(offset, "inserted");
+		offset = random.nextInt(contentManager.getLength() - 8);
+		contentManager.remove(offset, 8);
+		return contentManager.getLength();
+	} //}}}
+
+	//{{{ multipleCarets() method
+	/**
+	 * Types and deletes a character at every caret.
+	 */
+	@Benchmark
+	public int multipleCarets()
+	{
+		int spacing = contentManager.getLength() / CARETS;
+		int column = random.nextInt(spacing - 1);
+		// carets are updated from the last one so that offsets
+		// of the previous ones stay valid
+		for (int caret = CARETS - 1; caret >= 0; caret--)
+			contentManager.insert(caret * spacing + column, "x");
+		for (int caret = CARETS - 1; caret >= 0; caret--)
+			contentManager.remove(caret * spacing + caret + column, 1);
+		return contentManager.getLength();
+	} //}}}
+
+	//{{{ typing() method
+	/**
+	 * Types a word and deletes it again at the same place.
+	 */
+	@Benchmark
+	public int typing()
+	{
+		int offset = TEXT_LENGTH / 2;
+		for (int i = 0; i < 8; i++)
+			contentManager.insert(offset + i, "w");
+		contentManager.remove(offset, 8);
+		return contentManager.getLength();
+	} //}}}
+
+	//{{{ getText() method
+	@Benchmark
+	public int getText()
+	{
+		contentManager.getText(random.nextInt(TEXT_LENGTH - 4096), 4096, segment);
+		return segment.count;
+	} //}}}
+
+	//{{{ createText() method
+	static char[] createText(int length)
+	{
+		char[] text = new char[length];
+		String line = "2026-01-01 12:00:00 INFO [main] some log line of a generated file\n";
+		for (int i = 0; i < length; i++)
+			text[i] = line.charAt(i % line.length());
+		return text;
+	} //}}}
+}
@@ -0,0 +1,127 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.gjt.sp.util.IntegerArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Measures the {@link LineManager} updates done on each edit, and the
+ * offset to line lookups done when painting and moving the caret.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineManagerBenchmark
+{
+	private static final int LINE_LENGTH = 40;
+
+	@Param({"10000", "1000000"})
+	public int lineCount;
+
+	private LineManager lineManager;
+	private Random random;
+	private final IntegerArray noNewLine = new IntegerArray();
+	private final IntegerArray oneNewLine = new IntegerArray();
+
+	//{{{ reset() method
+	@Setup(Level.Iteration)
+	public void reset()
+	{
+		IntegerArray endOffsets = new IntegerArray(lineCount);
+		for (int i = 1; i <= lineCount; i++)
+			endOffsets.add(i * LINE_LENGTH);
+		lineManager = new LineManager();
+		lineManager._contentInserted(endOffsets);
+		random = new Random(1L);
+		oneNewLine.clear();
+		oneNewLine.add(1);
+	} //}}}
+
+	//{{{ typing() method
+	/**
+	 * Inserts and removes one character on a random line.
+	 */
+	@Benchmark
+	public int typing()
+	{
+		int line = random.nextInt(lineCount - 1);
+		int offset = line * LINE_LENGTH + 1;
+		lineManager.contentInserted(line, offset, 0, 1, noNewLine);
+		lineManager.contentRemoved(line, offset, 0, 1);
+		return lineManager.getLineEndOffset(lineCount - 1);
+	} //}}}
+
+	//{{{ splitLine() method
+	/**
+	 * Inserts and removes a newline on a random line.
+	 */
+	@Benchmark
+	public int splitLine()
+	{
+		int line = random.nextInt(lineCount - 1);
+		int offset = line * LINE_LENGTH + 1;
+		lineManager.contentInserted(line, offset, 1, 1, oneNewLine);
+		lineManager.contentRemoved(line, offset, 1, 1);
+		return lineManager.getLineCount();
+	} //}}}
+
+	//{{{ getLineOfOffset() method
+	@Benchmark
+	public int getLineOfOffset()
+	{
+		return lineManager.getLineOfOffset(random.nextInt(lineCount * LINE_LENGTH));
+	} //}}}
+
+	//{{{ getLineOfOffsetNearby() method
+	/**
+	 * Looks up offsets on consecutive lines, like painting does.
+	 */
+	@Benchmark
+	public int getLineOfOffsetNearby()
+	{
+		int line = random.nextInt(lineCount - 64);
+		int sum = 0;
+		for (int i = 0; i < 64; i++)
+			sum += lineManager.getLineOfOffset((line + i) * LINE_LENGTH + 3);
+		return sum;
+	} //}}}
+}
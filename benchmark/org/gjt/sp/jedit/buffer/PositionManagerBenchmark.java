@@ -0,0 +1,93 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.swing.text.Position;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Measures the {@link PositionManager} updates done on each edit, when
+ * typing at the start of a buffer with a position on each line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionManagerBenchmark
+{
+	private static final int LINE_LENGTH = 40;
+
+	@Param({"1000", "100000"})
+	public int positionCount;
+
+	private PositionManager positionManager;
+	/** Keeps the positions referenced, or they are removed. */
+	private List<Position> positions;
+
+	//{{{ reset() method
+	@Setup(Level.Iteration)
+	public void reset()
+	{
+		positionManager = new PositionManager();
+		positions = new ArrayList<>(positionCount);
+		for (int i = 0; i < positionCount; i++)
+			positions.add(positionManager.createPosition(i * LINE_LENGTH));
+	} //}}}
+
+	//{{{ typingAtFirstLine() method
+	/**
+	 * Inserts and removes one character on the first line.
+	 */
+	@Benchmark
+	public int typingAtFirstLine()
+	{
+		positionManager.contentInserted(1, 1);
+		positionManager.contentRemoved(1, 1);
+		return positions.get(positionCount - 1).getOffset();
+	} //}}}
+
+	//{{{ getOffset() method
+	@Benchmark
+	public int getOffset()
+	{
+		return positions.get(positionCount / 2).getOffset();
+	} //}}}
+}
@@ -0,0 +1,113 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+//{{{ Imports
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Compares the {@link BoyerMooreSearchMatcher} with the
+ * {@link PatternSearchMatcher} finding all the occurrences of a literal
+ * string in a large text, like a HyperSearch does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchMatcherBenchmark
+{
+	private static final int TEXT_LENGTH = 8 * 1024 * 1024;
+	private static final String PATTERN = "OutOfMemoryError";
+
+	@Param({"false", "true"})
+	public boolean ignoreCase;
+
+	private char[] text;
+	private SearchMatcher boyerMoore;
+	private SearchMatcher regexp;
+
+	//{{{ setUp() method
+	@Setup
+	public void setUp()
+	{
+		StringBuilder builder = new StringBuilder(TEXT_LENGTH);
+		for (int line = 0; builder.length() < TEXT_LENGTH; line++)
+		{
+			if (line % 1000 == 999)
+				builder.append("2026-01-01 12:00:00 ERROR [main] java.lang.OutOfMemoryError\n");
+			else
+				builder.append("2026-01-01 12:00:00 INFO [main] some log line of a generated file\n");
+		}
+		text = builder.toString().toCharArray();
+		boyerMoore = new BoyerMooreSearchMatcher(PATTERN, ignoreCase);
+		regexp = new PatternSearchMatcher(PATTERN, ignoreCase);
+	} //}}}
+
+	//{{{ boyerMoore() method
+	@Benchmark
+	public int boyerMoore() throws InterruptedException
+	{
+		return countMatches(boyerMoore);
+	} //}}}
+
+	//{{{ regexp() method
+	@Benchmark
+	public int regexp() throws InterruptedException
+	{
+		return countMatches(regexp);
+	} //}}}
+
+	//{{{ countMatches() method
+	private int countMatches(SearchMatcher matcher) throws InterruptedException
+	{
+		int count = 0;
+		int offset = 0;
+		boolean firstTime = true;
+		while (true)
+		{
+			CharSequence rest = CharBuffer.wrap(text, offset, text.length - offset).slice();
+			SearchMatcher.Match match = matcher.nextMatch(rest,
+				offset == 0, true, firstTime, false);
+			if (match == null)
+				return count;
+			count++;
+			offset += match.end;
+			firstTime = false;
+		}
+	} //}}}
+}
@@ -0,0 +1,152 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.gjt.sp.jedit.Mode;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+//}}}
+
+/**
+ * Loads the bundled edit modes and the sample files tokenized by the
+ * benchmarks, without starting jEdit.<p>
+ *
+ * The modes are read from the directory of the <code>jedit.modes.dir</code>
+ * system property, and the samples from the directory of the
+ * <code>jedit.benchmark.dir</code> one, both set by the
+ * <code>benchmark</code> target.
+ */
+public class BenchmarkModes
+{
+	/** A sample file in the jEdit tree for some edit modes. */
+	private static final Map<String, String> SAMPLES = new HashMap<>();
+
+	static
+	{
+		SAMPLES.put("java", "org/gjt/sp/jedit/buffer/JEditBuffer.java");
+		SAMPLES.put("xml", "ivy.xml");
+		SAMPLES.put("ant", "build.xml");
+		SAMPLES.put("html", "doc/welcome.html");
+		SAMPLES.put("properties", "org/gjt/sp/jedit/jedit.props");
+		SAMPLES.put("beanshell", "startup/startup.bsh");
+		SAMPLES.put("python", "misc/indentation_problems/02.py");
+		SAMPLES.put("shellscript", "misc/indentation_problems/05.sh");
+		SAMPLES.put("c++", "misc/indentation_problems/01.cpp");
+	}
+
+	private static boolean loaded;
+
+	//{{{ getMode() method
+	/**
+	 * Returns a bundled edit mode, loading the mode catalog the first time.
+	 * @param name the mode name
+	 */
+	public static synchronized Mode getMode(String name) throws Exception
+	{
+		if (!loaded)
+		{
+			loadCatalog(new File(System.getProperty("jedit.modes.dir", "modes")));
+			loaded = true;
+		}
+		Mode mode = ModeProvider.instance.getMode(name);
+		if (mode == null)
+			throw new IllegalArgumentException("No such mode: " + name);
+		return mode;
+	} //}}}
+
+	//{{{ hasSample() method
+	/**
+	 * @return true if there is a sample file for the mode
+	 */
+	public static boolean hasSample(String mode)
+	{
+		return SAMPLES.containsKey(mode);
+	} //}}}
+
+	//{{{ getSample() method
+	/**
+	 * Returns the text of a file of the jEdit tree using a mode, repeated
+	 * up to the given number of lines.
+	 * @param mode the mode name
+	 * @param lineCount the minimum number of lines
+	 */
+	public static String getSample(String mode, int lineCount) throws IOException
+	{
+		String path = SAMPLES.get(mode);
+		if (path == null)
+			throw new IllegalArgumentException("No sample for mode " + mode);
+		File file = new File(System.getProperty("jedit.benchmark.dir", "."), path);
+		String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+			.replace("\r\n", "\n");
+		if (!text.endsWith("\n"))
+			text += '\n';
+		int sampleLines = (int) text.chars().filter(c -> c == '\n').count();
+		StringBuilder sample = new StringBuilder();
+		for (int lines = 0; lines < lineCount; lines += sampleLines)
+			sample.append(text);
+		return sample.toString();
+	} //}}}
+
+	//{{{ loadCatalog() method
+	private static void loadCatalog(File directory) throws Exception
+	{
+		DefaultHandler handler = new DefaultHandler()
+		{
+			@Override
+			public InputSource resolveEntity(String publicId, String systemId)
+			{
+				// catalog.dtd has no default values
+				return new InputSource(new StringReader(""));
+			}
+
+			@Override
+			public void startElement(String uri, String localName, String qName,
+				Attributes attrs)
+			{
+				if (!"MODE".equals(qName))
+					return;
+				Mode mode = new Mode(attrs.getValue("NAME"));
+				mode.setProperty("file", new File(directory, attrs.getValue("FILE")).getPath());
+				if (attrs.getValue("FILE_NAME_GLOB") != null)
+					mode.setProperty("filenameGlob", attrs.getValue("FILE_NAME_GLOB"));
+				if (attrs.getValue("FIRST_LINE_GLOB") != null)
+					mode.setProperty("firstlineGlob", attrs.getValue("FIRST_LINE_GLOB"));
+				mode.init();
+				ModeProvider.instance.addMode(mode);
+			}
+		};
+		SAXParserFactory.newInstance().newSAXParser().parse(
+			new File(directory, "catalog"), handler);
+	} //}}}
+}
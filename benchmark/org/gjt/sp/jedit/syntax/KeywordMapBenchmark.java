@@ -0,0 +1,140 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.Segment;
+
+import org.gjt.sp.util.IntegerArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Looks up the words of a sample file in the keywords of its mode, most
+ * of them are identifiers that are not keywords, like in real code.<p>
+ *
+ * Modes without a sample file are the ones with thousands of keywords,
+ * the looked up words are then their keywords and as many misses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordMapBenchmark
+{
+	private static final int WORDS = 4096;
+
+	@Param({"java", "c++", "python", "shellscript", "pl-sql", "php", "stata", "apdl"})
+	public String mode;
+
+	private KeywordMap keywords;
+	private final Segment text = new Segment();
+	private final int[] wordStarts = new int[WORDS];
+	private final int[] wordLengths = new int[WORDS];
+
+	//{{{ setUp() method
+	@Setup
+	public void setUp() throws Exception
+	{
+		// the rule set with the most keywords, not always the main one
+		for (ParserRuleSet rules : BenchmarkModes.getMode(mode).getTokenMarker().getRuleSets())
+		{
+			KeywordMap map = rules.getKeywords();
+			if (map != null && (keywords == null
+				|| map.getKeywords().length > keywords.getKeywords().length))
+			{
+				keywords = map;
+			}
+		}
+		String sample;
+		if (BenchmarkModes.hasSample(mode))
+			sample = BenchmarkModes.getSample(mode, WORDS);
+		else
+		{
+			StringBuilder builder = new StringBuilder();
+			for (String keyword : keywords.getKeywords())
+			{
+				// a miss that would be in the same bucket of the
+				// former hash on first and last characters
+				builder.append(keyword).append(' ')
+					.append(keyword.charAt(0)).append('_').append(keyword).append(' ');
+			}
+			sample = builder.toString();
+		}
+		text.array = sample.toCharArray();
+		text.offset = 0;
+		text.count = text.array.length;
+
+		IntegerArray starts = new IntegerArray();
+		IntegerArray lengths = new IntegerArray();
+		int start = -1;
+		for (int i = 0; i <= text.count && starts.getSize() < WORDS; i++)
+		{
+			boolean word = i < text.count && !Character.isWhitespace(text.array[i])
+				&& (Character.isLetterOrDigit(text.array[i])
+					|| keywords.getNonAlphaNumericChars().indexOf(text.array[i]) != -1);
+			if (word && start == -1)
+				start = i;
+			else if (!word && start != -1)
+			{
+				starts.add(start);
+				lengths.add(i - start);
+				start = -1;
+			}
+		}
+		// the sample is repeated if it has less words than needed
+		for (int i = 0; i < WORDS; i++)
+		{
+			wordStarts[i] = starts.get(i % starts.getSize());
+			wordLengths[i] = lengths.get(i % lengths.getSize());
+		}
+	} //}}}
+
+	//{{{ lookup() method
+	@Benchmark
+	@OperationsPerInvocation(WORDS)
+	public int lookup()
+	{
+		int found = 0;
+		for (int i = 0; i < WORDS; i++)
+		{
+			if (keywords.lookup(text, wordStarts[i], wordLengths[i]) != Token.NULL)
+				found++;
+		}
+		return found;
+	} //}}}
+}
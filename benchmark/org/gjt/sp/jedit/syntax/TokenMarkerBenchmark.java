@@ -0,0 +1,120 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.Segment;
+
+import org.gjt.sp.util.IntegerArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Tokenizes some files of the jEdit tree with the bundled edit modes,
+ * from the first line to the last one like when a buffer is loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenMarkerBenchmark
+{
+	static final int LINE_COUNT = 10000;
+
+	@Param({"java", "xml", "ant", "html", "properties", "beanshell",
+		"python", "shellscript", "c++"})
+	public String mode;
+
+	private TokenMarker tokenMarker;
+	private char[] text;
+	private int[] lineStarts;
+	private final Segment segment = new Segment();
+	private final DefaultTokenHandler tokenHandler = new DefaultTokenHandler();
+
+	//{{{ setUp() method
+	@Setup
+	public void setUp() throws Exception
+	{
+		tokenMarker = BenchmarkModes.getMode(mode).getTokenMarker();
+		text = BenchmarkModes.getSample(mode, LINE_COUNT).toCharArray();
+		IntegerArray starts = new IntegerArray();
+		starts.add(0);
+		for (int i = 0; i < text.length; i++)
+		{
+			if (text[i] == '\n')
+				starts.add(i + 1);
+		}
+		lineStarts = new int[starts.getSize()];
+		System.arraycopy(starts.getArray(), 0, lineStarts, 0, lineStarts.length);
+		segment.array = text;
+	} //}}}
+
+	//{{{ markTokens() method
+	/**
+	 * Tokenizes all the lines, creating the tokens like painting does.
+	 */
+	@Benchmark
+	public TokenMarker.LineContext markTokens()
+	{
+		TokenMarker.LineContext context = null;
+		for (int line = 0; line < lineStarts.length - 1; line++)
+		{
+			segment.offset = lineStarts[line];
+			segment.count = lineStarts[line + 1] - lineStarts[line] - 1;
+			tokenHandler.init();
+			context = tokenMarker.markTokens(context, tokenHandler, segment);
+		}
+		return context;
+	} //}}}
+
+	//{{{ markTokensContextOnly() method
+	/**
+	 * Tokenizes all the lines, keeping only the line contexts like the
+	 * background tokenizer does.
+	 */
+	@Benchmark
+	public TokenMarker.LineContext markTokensContextOnly()
+	{
+		TokenMarker.LineContext context = null;
+		for (int line = 0; line < lineStarts.length - 1; line++)
+		{
+			segment.offset = lineStarts[line];
+			segment.count = lineStarts[line + 1] - lineStarts[line] - 1;
+			context = tokenMarker.markTokens(context, DummyTokenHandler.INSTANCE, segment);
+		}
+		return context;
+	} //}}}
+}
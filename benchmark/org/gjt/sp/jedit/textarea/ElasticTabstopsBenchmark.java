@@ -0,0 +1,140 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+//{{{ Imports
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.buffer.KillRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+//}}}
+
+/**
+ * Measures the {@link ColumnBlockManager} updates done when typing in a
+ * TSV file using elastic tabstops, with the tab stops of a screen of lines
+ * computed again after each edit, as the painter does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElasticTabstopsBenchmark
+{
+	private static final int COLUMNS = 8;
+	private static final int VISIBLE_LINES = 50;
+	/** A fixed width font. */
+	private static final ColumnBlockManager.Measurer MEASURER = text -> text.count * 7f;
+
+	@Param({"1000", "100000"})
+	public int lineCount;
+
+	private JEditBuffer buffer;
+	private ColumnBlockManager columnBlockManager;
+	private int line;
+	private int offset;
+
+	//{{{ reset() method
+	@Setup(Level.Iteration)
+	public void reset()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < lineCount; i++)
+		{
+			for (int column = 0; column < COLUMNS; column++)
+				text.append("cell").append((i * 31 + column) % 1000).append('\t');
+			text.append("last\n");
+		}
+		buffer = new JEditBuffer(new HashMap<>());
+		buffer.insert(0, text.toString());
+		buffer.indentUsingElasticTabstops();
+		buffer.setElasticTabstopsOn(true);
+		columnBlockManager = buffer.getColumnBlockManager();
+
+		line = lineCount / 2;
+		// in the middle cell
+		offset = buffer.getLineStartOffset(line)
+			+ buffer.getLineText(line).indexOf('\t') * COLUMNS / 2;
+		paint();
+	} //}}}
+
+	//{{{ typingInCell() method
+	/**
+	 * Inserts and removes one character in a cell in the middle of the
+	 * buffer.
+	 */
+	@Benchmark
+	public float typingInCell()
+	{
+		buffer.insert(offset, "x");
+		float width = paint();
+		buffer.remove(offset, 1);
+		return width + paint();
+	} //}}}
+
+	//{{{ typingNewLine() method
+	/**
+	 * Inserts and removes a line break in a cell in the middle of the
+	 * buffer, which splits all the column blocks.
+	 */
+	@Benchmark
+	public float typingNewLine()
+	{
+		buffer.insert(offset, "\n");
+		float width = paint();
+		buffer.remove(offset, 1);
+		return width + paint();
+	} //}}}
+
+	//{{{ paint() method
+	/**
+	 * Gets the tab stops of the lines around the edited one.
+	 */
+	private float paint()
+	{
+		float width = 0;
+		int start = Math.max(0, line - VISIBLE_LINES / 2);
+		int end = Math.min(buffer.getLineCount(), start + VISIBLE_LINES);
+		for (int i = start; i < end; i++)
+		{
+			String text = buffer.getLineText(i);
+			for (int j = text.indexOf('\t'); j != -1; j = text.indexOf('\t', j + 1))
+				width += columnBlockManager.getTabWidth(i, j, MEASURER);
+		}
+		return width;
+	} //}}}
+}
@@ -98,7 +98,7 @@ class Autosave implements ActionListener
 			.forEach(Buffer::autosave);
 
 		// flush log
-		Log.flushStream();
+		Log.flushStreamLater();
 	} //}}}
 
 	//{{{ Private members
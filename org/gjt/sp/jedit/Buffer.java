@@ -38,6 +38,7 @@ import org.gjt.sp.jedit.buffer.BufferUndoListener;
 import org.gjt.sp.jedit.buffer.FoldHandler;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 import org.gjt.sp.jedit.buffer.WordWrap;
+import org.gjt.sp.jedit.bufferio.AutosaveJournal;
 import org.gjt.sp.jedit.bufferio.BufferAutosaveRequest;
 import org.gjt.sp.jedit.bufferio.BufferIORequest;
 import org.gjt.sp.jedit.bufferio.MarkersSaveRequest;
@@ -218,6 +219,7 @@ public class Buffer extends JEditBuffer
 			EditBus.send(new BufferUpdate(this,view,BufferUpdate.LOAD_STARTED));
 
 		final boolean loadAutosave;
+		final AutosaveJournal.Recovery recovery;
 
 		boolean autosaveUntitled = jEdit.getBooleanProperty("autosaveUntitled");
 
@@ -228,12 +230,13 @@ public class Buffer extends JEditBuffer
 				modTime = file.lastModified();
 
 			// Only on initial load
-			if(!reload && autosaveFile != null && autosaveFile.exists())
-				loadAutosave = recoverAutosave(view);
+			recovery = reload || autosaveFile == null ? null
+				: AutosaveJournal.getRecovery(autosaveFile, isUntitled() ? null : file);
+			if(recovery != null)
+				loadAutosave = recoverAutosave(view, recovery);
 			else
 			{
-				if(autosaveFile != null)
-					autosaveFile.delete();
+				deleteAutosaveFile(true);
 				loadAutosave = false;
 			}
 
@@ -260,7 +263,10 @@ public class Buffer extends JEditBuffer
 			}
 		}
 		else
+		{
 			loadAutosave = false;
+			recovery = null;
+		}
 
 		//{{{ Do some stuff once loading is finished
 		Runnable runnable = new Runnable()
@@ -276,6 +282,13 @@ public class Buffer extends JEditBuffer
 					getProperty(BufferIORequest.END_OFFSETS);
 
 				loadText(seg,endOffsets);
+				if(loadAutosave)
+				{
+					// the edits of the journal are not undoable,
+					// and written again by the next autosave
+					recovery.replay(Buffer.this);
+					journal.invalidate();
+				}
 
 				unsetProperty(BufferIORequest.LOAD_DATA);
 				unsetProperty(BufferIORequest.END_OFFSETS);
@@ -284,6 +297,14 @@ public class Buffer extends JEditBuffer
 				undoMgr.clear();
 				undoMgr.setLimit(jEdit.getIntegerProperty(
 					"buffer.undoCount",100));
+				undoMgr.setMemoryLimit(jEdit.getIntegerProperty(
+					"buffer.undoMemory",16) * 1024L * 1024L);
+				String settings = jEdit.getSettingsDirectory();
+				if(settings != null)
+				{
+					undoMgr.setJournalDirectory(new File(
+						MiscUtilities.constructPath(settings, "undo")));
+				}
 
 				// If the buffer is temporary, we don't need to
 				// call finishLoading() because it sets the FoldHandler
@@ -399,14 +420,14 @@ public class Buffer extends JEditBuffer
 
 		// if autosave path settings changed, delete the old file
 		if(autosaveFile != null && !autosaveFileOriginal.toString().equals(autosaveFile.toString())) {
-			autosaveFileOriginal.delete();
+			journal.delete(autosaveFileOriginal, false);
 		}
 
 		setFlag(AUTOSAVE_DIRTY,false);
 
 		ThreadUtilities.runInBackground(new BufferAutosaveRequest(
 			null,this,null,VFSManager.getFileVFS(),
-			autosaveFile.getPath()));
+			autosaveFile.getPath(),journal));
 	} //}}}
 
 	//{{{ saveAs() method
@@ -835,7 +856,7 @@ public class Buffer extends JEditBuffer
 	{
 		if (autosaveFile != null)
 		{
-			autosaveFile.delete();
+			deleteAutosaveFile(false);
 			setFlag(AUTOSAVE_DIRTY,true);
 		}
 	} //}}}
@@ -991,8 +1012,7 @@ public class Buffer extends JEditBuffer
 		{
 			setFlag(AUTOSAVE_DIRTY,false);
 
-			if(autosaveFile != null)
-				autosaveFile.delete();
+			deleteAutosaveFile(true);
 		}
 
 		if(d != old_d && editable)
@@ -1107,6 +1127,7 @@ public class Buffer extends JEditBuffer
 			setAutoReloadDialog(jEdit.getBooleanProperty("autoReloadDialog"));
 			setAutoReload(jEdit.getBooleanProperty("autoReload"));
 		}
+		updateAutosaveJournal();
 		if (!isTemporary())
 			EditBus.send(new BufferUpdate(this,null,BufferUpdate.PROPERTIES_CHANGED));
 	} //}}}
@@ -1799,6 +1820,7 @@ public class Buffer extends JEditBuffer
 	void commitTemporary()
 	{
 		setFlag(TEMPORARY,false);
+		updateAutosaveJournal();
 
 		finishLoading();
 	} //}}}
@@ -1822,8 +1844,8 @@ public class Buffer extends JEditBuffer
 		setFlag(CLOSED,true);
                 boolean autosaveUntitled = jEdit.getBooleanProperty("autosaveUntitled");
 
-		if(autosaveFile != null && (doNotSave || !(isUntitled() && autosaveUntitled)))
-			autosaveFile.delete();
+		if(doNotSave || !(isUntitled() && autosaveUntitled))
+			deleteAutosaveFile(true);
 
 		// close az untitled buffer, but need to autosavesave
 		// except we close it manually and do not want to save
@@ -1995,6 +2017,10 @@ public class Buffer extends JEditBuffer
 	private String directory;
 	private File file;
 	private File autosaveFile;
+	/** The edits since the last autosave, deleted with the autosave file. */
+	private final AutosaveJournal journal = new AutosaveJournal();
+	/** True if the journal is a buffer listener. */
+	private boolean journalAttached;
 	private long modTime;
 	private byte[] md5hash;
 	private int initialLength;
@@ -2035,8 +2061,7 @@ public class Buffer extends JEditBuffer
 			symlinkPath = MiscUtilities.resolveSymlinks(path);
 			// if we don't do this, the autosave file won't be
 			// deleted after a save as
-			if(autosaveFile != null)
-				autosaveFile.delete();
+			deleteAutosaveFile(false);
 
 			setAutosaveFile();
 		}
@@ -2048,6 +2073,7 @@ public class Buffer extends JEditBuffer
 			autosaveFile = null;
 			symlinkPath = path;
 		}
+		updateAutosaveJournal();
 	} //}}}
 
 	//{{{ setAutosaveFile() method
@@ -2061,10 +2087,39 @@ public class Buffer extends JEditBuffer
 		autosaveFile = new File(autosaveDir,'#' + name + '#');
 	} //}}}
 
+	//{{{ updateAutosaveJournal() method
+	/**
+	 * Records the edits in the autosave journal only if this buffer is
+	 * autosaved. When it is not, the journal is invalidated, and the next
+	 * autosave writes a snapshot.
+	 */
+	private void updateAutosaveJournal()
+	{
+		boolean autosaved = autosaveFile != null && !isTemporary()
+			&& jEdit.getIntegerProperty("autosave",0) != 0
+			&& (!isUntitled() || jEdit.getBooleanProperty("autosaveUntitled"));
+		if(autosaved == journalAttached)
+			return;
+
+		journalAttached = autosaved;
+		if(autosaved)
+			addBufferListener(journal);
+		else
+		{
+			removeBufferListener(journal);
+			journal.invalidate();
+		}
+	} //}}}
+
 	//{{{ recoverAutosave() method
-	private boolean recoverAutosave(final View view)
+	/**
+	 * Loads what an autosave left, the edits of its journal are replayed
+	 * once it is loaded.
+	 */
+	private boolean recoverAutosave(final View view, AutosaveJournal.Recovery recovery)
 	{
-		if(!autosaveFile.canRead())
+		String recoverPath = recovery.getFile().getPath();
+		if(!recovery.getFile().canRead())
 			return false;
 
 		// this method might get called at startup
@@ -2072,12 +2127,13 @@ public class Buffer extends JEditBuffer
 
 		boolean autosaveUntitled = jEdit.getBooleanProperty("autosaveUntitled");
 
-		final Object[] args = { autosaveFile.getPath() };
+		File found = recovery.getJournal() == null ? autosaveFile : recovery.getJournal();
+		final Object[] args = { found.getPath() };
 
 		int result;
 		// if it was an untitled autosave, recover without question
 		if (isUntitled() && autosaveUntitled) {
-			VFSManager.getFileVFS().load(view,this,autosaveFile.getPath(), isUntitled());
+			VFSManager.getFileVFS().load(view,this,recoverPath, isUntitled());
 			return true;
 		} else {
 			result = GUIUtilities.confirm(view,"autosave-found",args,
@@ -2086,7 +2142,7 @@ public class Buffer extends JEditBuffer
 
 		if(result == JOptionPane.YES_OPTION)
 		{
-			VFSManager.getFileVFS().load(view,this,autosaveFile.getPath(), isUntitled());
+			VFSManager.getFileVFS().load(view,this,recoverPath, isUntitled());
 
 			// show this message when all I/O requests are
 			// complete
@@ -2098,6 +2154,17 @@ public class Buffer extends JEditBuffer
 			return false;
 	} //}}}
 
+	//{{{ deleteAutosaveFile() method
+	/**
+	 * Deletes the autosave file and its journal.
+	 * @param clean true if the buffer is the same as its file
+	 */
+	private void deleteAutosaveFile(boolean clean)
+	{
+		if(autosaveFile != null)
+			journal.delete(autosaveFile, clean);
+	} //}}}
+
 	//{{{ checkFileForLoad() method
 	private boolean checkFileForLoad(View view, VFS vfs, String path)
 	{
@@ -2326,8 +2393,7 @@ public class Buffer extends JEditBuffer
 				{
 					writeLock();
 
-					if(autosaveFile != null)
-						autosaveFile.delete();
+					deleteAutosaveFile(true);
 
 					setFlag(AUTOSAVE_DIRTY,false);
 					setFileReadOnly(false);
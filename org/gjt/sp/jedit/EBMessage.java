@@ -71,6 +71,20 @@ public abstract class EBMessage
 		return source;
 	} //}}}
 
+	//{{{ getCoalescingKey() method
+	/**
+	 * Returns the key of the messages that this message makes redundant.
+	 * When this message is sent with {@link EditBus#sendCoalesced}, a
+	 * message of the same class and key that is not delivered yet is
+	 * replaced by this one.
+	 * @return the key, or null if this message never replaces another
+	 * @since jEdit 5.7pre1
+	 */
+	public Object getCoalescingKey()
+	{
+		return null;
+	} //}}}
+
 	//{{{ toString() method
 	/**
 	 * Returns a string representation of this message.
@@ -24,10 +24,14 @@ package org.gjt.sp.jedit;
 
 import java.awt.*;
 import java.lang.annotation.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.gjt.sp.util.Log;
 import org.gjt.sp.util.ThreadUtilities;
@@ -227,8 +231,44 @@ public class EditBus
 		EventQueue.invokeLater(new SendMessage(message));
 	} //}}}
 
+	//{{{ sendCoalesced() method
+	/**
+	 * Schedules a message to be sent on the edit bus as soon as
+	 * the AWT thread is done processing current events, like
+	 * {@link #sendAsync(EBMessage)}. If a message with the same
+	 * {@link EBMessage#getCoalescingKey() coalescing key} is still
+	 * waiting, it is replaced by this one, so that the handlers receive
+	 * only the last of several redundant messages.<p>
+	 *
+	 * The handlers receive the message later, so this is only for the
+	 * messages that no handler expects during the change they report.
+	 * The core messages, like {@link org.gjt.sp.jedit.msg.BufferUpdate},
+	 * are sent with {@link #send(EBMessage)}.
+	 *
+	 * @param message The message
+	 *
+	 * @since jEdit 5.7pre1
+	 */
+	public static void sendCoalesced(EBMessage message)
+	{
+		Object key = message.getCoalescingKey();
+		synchronized (coalesced)
+		{
+			if (coalesced.isEmpty())
+				EventQueue.invokeLater(EditBus::sendWaitingMessages);
+			// a message replaces the waiting one at its place
+			coalesced.put(key == null ? new Object()
+				: Arrays.asList(message.getClass(), key), message);
+		}
+	} //}}}
+
 	//{{{ Private members
 	private static final HandlerList components = new HandlerList();
+	/** The messages of sendCoalesced() not sent yet, by coalescing key. */
+	private static final Map<Object, EBMessage> coalesced = new LinkedHashMap<>();
+	/** The type of the handlers once adapted by HandlerList. */
+	private static final MethodType HANDLER_TYPE = MethodType.methodType(
+		void.class, Object.class, EBMessage.class);
 
 	// can't create new instances
 	private EditBus() {}
@@ -236,9 +276,11 @@ public class EditBus
 	//{{{ dispatch() method
 	private static void dispatch(EBMessageHandler emh,
 				     EBMessage msg)
-		throws Exception
+		throws Throwable
 	{
-		if (emh.handler != null && emh.comp != null)
+		if (emh.handle != null)
+			emh.handle.invokeExact(emh.comp, msg);
+		else if (emh.handler != null)
 			emh.handler.invoke(emh.comp, msg);
 		else
 		{
@@ -250,53 +292,52 @@ public class EditBus
 	//{{{ sendImpl() method
 	private static void sendImpl(EBMessage message)
 	{
-		boolean isExact = true;
-		Class<?> type = message.getClass();
-		while (!type.equals(Object.class))
+		for (EBMessageHandler emh : components.getHandlers(message.getClass()))
 		{
-			List<EBMessageHandler> handlers = components.get(type);
-			if (handlers != null)
+			try
 			{
-				try
+				if(Debug.EB_TIMER)
 				{
-					for (EBMessageHandler emh : handlers)
+					long start = System.nanoTime();
+					dispatch(emh, message);
+					long time = System.nanoTime() - start;
+					if(time >= 1000000)
 					{
-						if (!isExact &&
-						    emh.source != null &&
-						    emh.source.exact())
-						{
-							continue;
-						}
-						if(Debug.EB_TIMER)
-						{
-							long start = System.nanoTime();
-							dispatch(emh, message);
-							long time = System.nanoTime() - start;
-							if(time >= 1000000)
-							{
-								Log.log(Log.DEBUG,EditBus.class,emh.comp + ": " + time + " ns");
-							}
-						}
-						else
-							dispatch(emh, message);
+						Log.log(Log.DEBUG,EditBus.class,emh.comp + ": " + time + " ns");
 					}
 				}
-				catch (InvocationTargetException t)
-				{
-					Log.log(Log.ERROR,EditBus.class,"Exception"
-						+ " while sending message on EditBus:");
-					Log.log(Log.ERROR, EditBus.class, t.getCause());
-				}
-				catch(Throwable t)
-				{
-					Log.log(Log.ERROR,EditBus.class,"Exception"
-						+ " while sending message on EditBus:");
-					Log.log(Log.ERROR,EditBus.class,t);
-				}
+				else
+					dispatch(emh, message);
+			}
+			catch (InvocationTargetException t)
+			{
+				Log.log(Log.ERROR,EditBus.class,"Exception"
+					+ " while sending message on EditBus:");
+				Log.log(Log.ERROR, EditBus.class, t.getCause());
 			}
-			type = type.getSuperclass();
-			isExact = false;
+			catch(Throwable t)
+			{
+				Log.log(Log.ERROR,EditBus.class,"Exception"
+					+ " while sending message on EditBus:");
+				Log.log(Log.ERROR,EditBus.class,t);
+			}
+		}
+	} //}}}
+
+	//{{{ sendWaitingMessages() method
+	/**
+	 * Sends the messages of {@link #sendCoalesced(EBMessage)}.
+	 */
+	private static void sendWaitingMessages()
+	{
+		List<EBMessage> messages;
+		synchronized (coalesced)
+		{
+			messages = new ArrayList<>(coalesced.values());
+			coalesced.clear();
 		}
+		for (EBMessage message : messages)
+			new SendMessage(message).run();
 	} //}}}
 
 	//}}}
@@ -312,72 +353,82 @@ public class EditBus
 			this.comp = comp;
 			this.handler = handler;
 			this.source = source;
+			MethodHandle handle = null;
+			if (handler != null)
+			{
+				try
+				{
+					handle = MethodHandles.publicLookup().unreflect(handler)
+						.asType(HANDLER_TYPE);
+				}
+				catch (IllegalAccessException e)
+				{
+					// the method is invoked by reflection,
+					// which reports the error
+				}
+			}
+			this.handle = handle;
 		}
 
-		Object comp;
-		Method handler;
-		EBHandler source;
+		final Object comp;
+		final Method handler;
+		/** The handler method with the type (Object,EBMessage)void. */
+		final MethodHandle handle;
+		final EBHandler source;
 	} //}}}
 
 	//{{{ HandlerList class
 	/**
-	 * A "special" hash map that has some optimizations for use by
-	 * the EditBus. Notably, it allows setting a "read only" mode
-	 * where modifications to the map are postponed until the map
-	 * is unlocked.
+	 * The handlers of the components on the bus. The handlers of a
+	 * message type are computed when a message of that type is first
+	 * sent, they are then found without locking. The arrays of handlers
+	 * are never modified, a message is sent to the handlers that were
+	 * on the bus when it was sent even if components are added or
+	 * removed meanwhile.
 	 */
-	private static class HandlerList extends HashMap<Class<?>, List<EBMessageHandler>>
+	private static class HandlerList
 	{
-		public List<EBMessageHandler> safeGet(Class<?> type)
-		{
-			return computeIfAbsent(type, k -> new LinkedList<>());
-		}
-
-		public synchronized void lock()
-		{
-			lock++;
-		}
-
-		public synchronized void unlock()
+		//{{{ getHandlers() method
+		/**
+		 * @return the handlers receiving the messages of a type, in
+		 * the order they are called
+		 */
+		EBMessageHandler[] getHandlers(Class<?> type)
 		{
-			lock--;
-			if (lock == 0)
+			EBMessageHandler[] handlers = byMessage.get(type);
+			if (handlers == null)
 			{
-				for (Object comp : add)
-					addComponent(comp);
-				for (Object comp : remove)
-					removeComponent(comp);
-				add.clear();
-				remove.clear();
+				synchronized (this)
+				{
+					handlers = collect(type);
+					byMessage.put(type, handlers);
+				}
 			}
-		}
+			return handlers;
+		} //}}}
 
-		public synchronized void removeComponent(Object comp)
+		//{{{ removeComponent() method
+		synchronized void removeComponent(Object comp)
 		{
-			if (lock != 0)
+			Iterator<Map.Entry<Class<?>, EBMessageHandler[]>> iter =
+				byParameter.entrySet().iterator();
+			while (iter.hasNext())
 			{
-				remove.add(comp);
-				return;
+				Map.Entry<Class<?>, EBMessageHandler[]> entry = iter.next();
+				EBMessageHandler[] handlers = Arrays.stream(entry.getValue())
+					.filter(emh -> emh.comp != comp)
+					.toArray(EBMessageHandler[]::new);
+				if (handlers.length == 0)
+					iter.remove();
+				else
+					entry.setValue(handlers);
 			}
+			byMessage.clear();
+		} //}}}
 
-			for (Map.Entry<Class<?>, List<EBMessageHandler>> entry: entrySet())
-			{
-				Class<?> msg = entry.getKey();
-				List<EBMessageHandler> handlers = entry.getValue();
-				if (handlers == null)
-					continue;
-				handlers.removeIf(emh -> emh.comp == comp);
-			}
-		}
-
-		public synchronized void addComponent(Object comp)
+		//{{{ addComponent() method
+		synchronized void addComponent(Object comp)
 		{
-			if (lock != 0)
-			{
-				add.add(comp);
-				return;
-			}
-
 			for (Method m : comp.getClass().getMethods())
 			{
 				EBHandler source = m.getAnnotation(EBHandler.class);
@@ -404,10 +455,7 @@ public class EditBus
 					continue;
 				}
 
-				synchronized (components)
-				{
-					safeGet(params[0]).add(new EBMessageHandler(comp, m, source));
-				}
+				add(params[0], new EBMessageHandler(comp, m, source));
 			}
 
 			/*
@@ -415,12 +463,58 @@ public class EditBus
 			 * default handler for backwards compatibility.
 			 */
 			if (comp instanceof EBComponent)
-				safeGet(EBMessage.class).add(new EBMessageHandler(comp, null, null));
-		}
+				add(EBMessage.class, new EBMessageHandler(comp, null, null));
+			byMessage.clear();
+		} //}}}
+
+		//{{{ Private members
+		/** The handlers of each parameter type, in the order they were added. */
+		private final Map<Class<?>, EBMessageHandler[]> byParameter = new HashMap<>();
+		/** The handlers of each message type that was sent. */
+		private final Map<Class<?>, EBMessageHandler[]> byMessage = new ConcurrentHashMap<>();
+
+		//{{{ add() method
+		private void add(Class<?> type, EBMessageHandler emh)
+		{
+			EBMessageHandler[] handlers = byParameter.get(type);
+			if (handlers == null)
+				handlers = new EBMessageHandler[] { emh };
+			else
+			{
+				handlers = Arrays.copyOf(handlers, handlers.length + 1);
+				handlers[handlers.length - 1] = emh;
+			}
+			byParameter.put(type, handlers);
+		} //}}}
 
-		private int lock;
-		private final List<Object> add = new LinkedList<>();
-		private final List<Object> remove = new LinkedList<>();
+		//{{{ collect() method
+		/**
+		 * @return the handlers of a message type: those of the type
+		 * first, then those of its super types that do not require an
+		 * exact type
+		 */
+		private EBMessageHandler[] collect(Class<?> type)
+		{
+			List<EBMessageHandler> handlers = new ArrayList<>();
+			boolean isExact = true;
+			while (!type.equals(Object.class))
+			{
+				EBMessageHandler[] handlersOfType = byParameter.get(type);
+				if (handlersOfType != null)
+				{
+					for (EBMessageHandler emh : handlersOfType)
+					{
+						if (isExact || emh.source == null || !emh.source.exact())
+							handlers.add(emh);
+					}
+				}
+				type = type.getSuperclass();
+				isExact = false;
+			}
+			return handlers.toArray(new EBMessageHandler[0]);
+		} //}}}
+
+		//}}}
 	} //}}}
 
 	//{{{ SendMessage class
@@ -435,16 +529,7 @@ public class EditBus
 		public void run()
 		{
 			Log.log(Log.DEBUG,EditBus.class,message.toString());
-
-			components.lock();
-			try
-			{
-				sendImpl(message);
-			}
-			finally
-			{
-				components.unlock();
-			}
+			sendImpl(message);
 		}
 
 		private final EBMessage message;
@@ -0,0 +1,275 @@
+/*
+ * PluginCache.java - Summaries of all the plugin JARs in one file
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit;
+
+//{{{ Imports
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gjt.sp.jedit.PluginJAR.PluginCacheEntry;
+import org.gjt.sp.util.Log;
+//}}}
+
+/**
+ * The summaries of all the plugin JARs loaded at startup, in a single file
+ * that is read at once, instead of one summary file per JAR.<p>
+ *
+ * The summaries are found by JAR path, and are only used if the size and
+ * the modification time of the JAR did not change. They can be read from
+ * several threads at the same time. The summaries put in the cache are
+ * written when {@link #save()} is called, if they differ from the file.
+ *
+ * @since jEdit 5.7pre1
+ */
+class PluginCache
+{
+	//{{{ PluginCache constructor
+	/**
+	 * Reads the cache file, the cache is empty if it cannot be read.<p>
+	 *
+	 * The file is read in memory rather than mapped, so that it can be
+	 * replaced by {@link #save()}, which fails on Windows while a mapping
+	 * is open.
+	 * @param file the cache file
+	 */
+	PluginCache(File file)
+	{
+		this.file = file;
+		if(!file.exists())
+			return;
+
+		try
+		{
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			ByteBuffer header = buffer.duplicate();
+			DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+			if(in.readInt() != MAGIC || !jEdit.getBuild().equals(in.readUTF()))
+				return;
+			int count = in.readInt();
+			for(int i = 0; i < count; i++)
+			{
+				Record record = new Record(in.readLong(), in.readLong(),
+					in.readInt(), in.readInt());
+				records.put(in.readUTF(), record);
+			}
+			// the summaries follow the header
+			data = buffer.position(header.position()).slice();
+		}
+		catch(IOException | RuntimeException e)
+		{
+			Log.log(Log.WARNING, this, "Cannot read " + file + ": " + e);
+			records.clear();
+		}
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Reads the summary of a JAR. This method is thread-safe.
+	 * @param jar the JAR
+	 * @return the summary, or null if it is not in the cache or outdated
+	 */
+	PluginCacheEntry get(PluginJAR jar)
+	{
+		Record record = records.get(jar.getPath());
+		File jarFile = jar.getFile();
+		if(record == null || record.size != jarFile.length()
+			|| record.modTime != jarFile.lastModified())
+		{
+			return null;
+		}
+
+		ByteBuffer buffer = data.duplicate();
+		buffer.position(record.offset).limit(record.offset + record.length);
+		PluginCacheEntry cache = new PluginCacheEntry();
+		cache.plugin = jar;
+		cache.modTime = record.modTime;
+		try
+		{
+			if(cache.read(new DataInputStream(new ByteBufferInputStream(buffer))))
+				return cache;
+		}
+		catch(IOException | RuntimeException e)
+		{
+			Log.log(Log.WARNING, this, "Cannot read the summary of " + jar + ": " + e);
+		}
+		return null;
+	} //}}}
+
+	//{{{ put() method
+	/**
+	 * Adds the summary of a JAR to the saved ones.
+	 * @param jar the JAR
+	 * @param cache the summary, read from this cache or not
+	 */
+	void put(PluginJAR jar, PluginCacheEntry cache)
+	{
+		entries.put(jar, cache);
+	} //}}}
+
+	//{{{ save() method
+	/**
+	 * Writes the summaries that were put, unless they are the ones of the
+	 * file.
+	 */
+	void save()
+	{
+		if(!isChanged())
+			return;
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try
+		{
+			ByteArrayOutputStream blobs = new ByteArrayOutputStream();
+			Map<String, Record> saved = new LinkedHashMap<>();
+			for(Map.Entry<PluginJAR, PluginCacheEntry> entry : entries.entrySet())
+			{
+				PluginCacheEntry cache = entry.getValue();
+				int offset = blobs.size();
+				cache.write(new DataOutputStream(blobs));
+				saved.put(entry.getKey().getPath(), new Record(entry.getKey().getFile().length(),
+					cache.modTime, offset, blobs.size() - offset));
+			}
+
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(header);
+			out.writeInt(MAGIC);
+			out.writeUTF(jEdit.getBuild());
+			out.writeInt(saved.size());
+			for(Map.Entry<String, Record> entry : saved.entrySet())
+			{
+				Record record = entry.getValue();
+				out.writeLong(record.size);
+				out.writeLong(record.modTime);
+				out.writeInt(record.offset);
+				out.writeInt(record.length);
+				out.writeUTF(entry.getKey());
+			}
+
+			try(DataOutputStream stream = new DataOutputStream(
+				Files.newOutputStream(tmp.toPath())))
+			{
+				header.writeTo(stream);
+				blobs.writeTo(stream);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Log.log(Log.DEBUG, this, "Wrote " + saved.size() + " summaries to " + file);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			// the old file is kept, it is written again by the
+			// next startup that finds it outdated
+			Log.log(Log.WARNING, this, "Cannot write " + file + ": " + e);
+			tmp.delete();
+		}
+	} //}}}
+
+	//{{{ Private members
+	private static final int MAGIC = 0xB7A2E425;
+
+	private final File file;
+	/** The records of the file, by JAR path. */
+	private final Map<String, Record> records = new HashMap<>();
+	private ByteBuffer data;
+	/** The summaries to save. */
+	private final Map<PluginJAR, PluginCacheEntry> entries = new LinkedHashMap<>();
+
+	//{{{ isChanged() method
+	/**
+	 * @return true if the summaries to save are not the ones of the file
+	 */
+	private boolean isChanged()
+	{
+		if(entries.size() != records.size())
+			return true;
+		for(Map.Entry<PluginJAR, PluginCacheEntry> entry : entries.entrySet())
+		{
+			PluginJAR jar = entry.getKey();
+			Record record = records.get(jar.getPath());
+			if(record == null || record.modTime != entry.getValue().modTime
+				|| record.size != jar.getFile().length())
+			{
+				return true;
+			}
+		}
+		return false;
+	} //}}}
+
+	//}}}
+
+	//{{{ Record class
+	/**
+	 * The position of a summary in the file, and the JAR it was made from.
+	 */
+	private static class Record
+	{
+		final long size;
+		final long modTime;
+		final int offset;
+		final int length;
+
+		Record(long size, long modTime, int offset, int length)
+		{
+			this.size = size;
+			this.modTime = modTime;
+			this.offset = offset;
+			this.length = length;
+		}
+	} //}}}
+
+	//{{{ ByteBufferInputStream class
+	private static class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	} //}}}
+}
@@ -52,6 +52,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -535,7 +536,7 @@ public class PluginJAR
 		return browserActions;
 	} //}}}
 
-	//{{{ checkDependencies() method
+	//{{{ checkDependencies() methods
 	/**
 	 * Returns true if all dependencies are satisified, false otherwise.
 	 * Also if dependencies are not satisfied, the plugin is marked as
@@ -543,6 +544,22 @@ public class PluginJAR
 	 *
 	 */
 	public boolean checkDependencies()
+	{
+		return checkDependencies(jEdit::getPluginJAR,
+			name -> jEdit.getPlugin(name, false));
+	}
+
+	/**
+	 * Same as {@link #checkDependencies()}, but the JARs and the plugins are
+	 * found by the given functions, so that the dependencies of all the
+	 * plugins can be checked without going through the plugin list for
+	 * each dependency.
+	 * @param jarsByPath finds a JAR by path
+	 * @param pluginsByName finds a plugin by class name
+	 * @since jEdit 5.7pre1
+	 */
+	boolean checkDependencies(Function<String, PluginJAR> jarsByPath,
+		Function<String, EditPlugin> pluginsByName)
 	{
 		if(plugin == null)
 			return true;
@@ -601,7 +618,7 @@ public class PluginJAR
 				String currVersion = jEdit.getProperty("plugin."
 					+ pluginName + ".version");
 
-				EditPlugin editPlugin = jEdit.getPlugin(pluginName, false);
+				EditPlugin editPlugin = pluginsByName.apply(pluginName);
 				if(editPlugin == null)
 				{
 					if(!pluginDepends.optional)
@@ -679,7 +696,7 @@ public class PluginJAR
 
 		for(String jarPath: jarsPaths)
 		{
-			PluginJAR jar = jEdit.getPluginJAR(jarPath);
+			PluginJAR jar = jarsByPath.apply(jarPath);
 			if(jar == null)
 			{
 				String[] args = { jarPath };
@@ -1257,10 +1274,21 @@ public class PluginJAR
 		actions = new ActionSet();
 	} //}}}
 
-	//{{{ init() method
+	//{{{ init() methods
 	public boolean init()
 	{
-		PluginCacheEntry cache = getPluginCache(this);
+		return init(getPluginCache(this), null);
+	}
+
+	/**
+	 * Loads the plugin from a summary read beforehand, or from the JAR if
+	 * there is none.
+	 * @param cache the summary, or null
+	 * @param pluginCache the startup cache, the summary is put in it
+	 * @since jEdit 5.7pre1
+	 */
+	boolean init(PluginCacheEntry cache, PluginCache pluginCache)
+	{
 		if(cache != null)
 		{
 			if (!loadCache(cache))
@@ -1294,6 +1322,8 @@ public class PluginJAR
 				uninit(false);
 			}
 		}
+		if(pluginCache != null && cache != null)
+			pluginCache.put(this, cache);
 		return true;
 	} //}}}
 
@@ -587,6 +587,7 @@ public class VFSFileChooserDialog extends EnhancedDialog
 			this.session = session;
 			this.path    = path;
 			this.type    = type;
+			setPriority(Priority.INTERACTIVE_IO);
 		}
 
 		@Override
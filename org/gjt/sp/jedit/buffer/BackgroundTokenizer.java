@@ -0,0 +1,140 @@
+/*
+ * BackgroundTokenizer.java - Updates line contexts in the background
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import org.gjt.sp.util.Log;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * Tokenizes the lines of a buffer with an invalid context in the
+ * background, so that painting a line far from the last edit does not
+ * block the dispatch thread.<p>
+ *
+ * The lines are tokenized by steps, holding the buffer read lock only
+ * for one step at a time. Buffers are tokenized in background tasks of
+ * the {@link org.gjt.sp.util.TaskScheduler}, several buffers can be
+ * tokenized at the same time even if they use the same mode.
+ *
+ * @see JEditBuffer#markDisplayTokens(int, org.gjt.sp.jedit.syntax.TokenHandler)
+ * @since jEdit 5.7pre1
+ */
+class BackgroundTokenizer implements Runnable
+{
+	/**
+	 * Above this number of lines to tokenize before the painted one, the
+	 * contexts are updated in the background.
+	 */
+	static final int MAX_SYNC_LINES = 4096;
+
+	//{{{ BackgroundTokenizer constructor
+	BackgroundTokenizer(JEditBuffer buffer)
+	{
+		this.buffer = buffer;
+	} //}}}
+
+	//{{{ tokenizeUpTo() method
+	/**
+	 * Requests the contexts to be updated up to a line, painted with
+	 * an outdated context in the meantime.
+	 * @param line the painted line
+	 */
+	synchronized void tokenizeUpTo(int line)
+	{
+		// a little ahead, since the next lines will be painted too
+		targetLine = Math.max(targetLine, line + LOOKAHEAD_LINES);
+		if(firstStaleLine == -1 || line < firstStaleLine)
+			firstStaleLine = line;
+		lastStaleLine = Math.max(lastStaleLine, line);
+		if(!scheduled)
+		{
+			scheduled = true;
+			ThreadUtilities.runInBackground(this);
+		}
+	} //}}}
+
+	//{{{ run() method
+	@Override
+	public void run()
+	{
+		while(true)
+		{
+			int target;
+			synchronized(this)
+			{
+				target = targetLine;
+			}
+
+			try
+			{
+				if(!buffer.updateLineContexts(target, LINES_PER_STEP))
+					continue;
+			}
+			catch(RuntimeException e)
+			{
+				// painting will request the lines again
+				Log.log(Log.ERROR, this, e);
+			}
+
+			int start;
+			int end;
+			synchronized(this)
+			{
+				if(target != targetLine)
+					continue;
+				start = firstStaleLine;
+				end = lastStaleLine;
+				targetLine = firstStaleLine = lastStaleLine = -1;
+				scheduled = false;
+			}
+			ThreadUtilities.runInDispatchThread(() ->
+			{
+				int lastLine = buffer.getLineCount() - 1;
+				if(start <= lastLine)
+					buffer.fireLineContextsChanged(start, Math.min(end, lastLine));
+			});
+			return;
+		}
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public String toString()
+	{
+		return "Tokenizing " + buffer;
+	} //}}}
+
+	//{{{ Private members
+	private static final int LINES_PER_STEP = 1024;
+	private static final int LOOKAHEAD_LINES = 256;
+
+	private final JEditBuffer buffer;
+
+	// guarded by this
+	private int targetLine = -1;
+	private int firstStaleLine = -1;
+	private int lastStaleLine = -1;
+	private boolean scheduled;
+	//}}}
+}
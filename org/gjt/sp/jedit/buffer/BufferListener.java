@@ -55,6 +55,21 @@ public interface BufferListener
 	void foldLevelChanged(JEditBuffer buffer, int startLine, int endLine);
 	//}}}
 
+	//{{{ lineContextsChanged() method
+	/**
+	 * Called in the dispatch thread when the contexts of lines painted
+	 * with outdated syntax tokens were updated in the background, see
+	 * {@link JEditBuffer#markDisplayTokens(int, org.gjt.sp.jedit.syntax.TokenHandler)}.
+	 * @param buffer The buffer in question
+	 * @param startLine The start line number
+	 * @param endLine The end line number
+	 * @since jEdit 5.7pre1
+	 */
+	default void lineContextsChanged(JEditBuffer buffer, int startLine, int endLine)
+	{
+	}
+	//}}}
+
 	//{{{ contentInserted() method
 	/**
 	 * Called when text is inserted into the buffer.
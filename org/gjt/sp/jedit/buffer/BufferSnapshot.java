@@ -0,0 +1,252 @@
+/*
+ * BufferSnapshot.java - An immutable view of a buffer
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import java.util.Arrays;
+import javax.swing.text.Segment;
+
+/**
+ * An immutable view of the text and lines of a buffer, as they were at a
+ * given edit version.<p>
+ *
+ * A snapshot is obtained with {@link JEditBuffer#snapshot()}. Unlike the
+ * buffer, it can be read from any thread without taking the buffer lock,
+ * and it never changes, so long running readers do not block the edits
+ * made in the meantime.
+ *
+ * @since jEdit 5.7pre1
+ */
+public final class BufferSnapshot implements CharSequence
+{
+	//{{{ BufferSnapshot constructor
+	BufferSnapshot(long version, Segment[] pieces, int[] lineEndOffsets)
+	{
+		this.version = version;
+		this.pieces = pieces;
+		this.lineEndOffsets = lineEndOffsets;
+		pieceStarts = new int[pieces.length];
+		int length = 0;
+		for(int i = 0; i < pieces.length; i++)
+		{
+			pieceStarts[i] = length;
+			length += pieces[i].count;
+		}
+		this.length = length;
+	} //}}}
+
+	//{{{ getVersion() method
+	/**
+	 * @return the edit version of the buffer when the snapshot was taken
+	 * @see JEditBuffer#getVersion()
+	 */
+	public long getVersion()
+	{
+		return version;
+	} //}}}
+
+	//{{{ length() method
+	@Override
+	public int length()
+	{
+		return length;
+	} //}}}
+
+	//{{{ charAt() method
+	@Override
+	public char charAt(int index)
+	{
+		if(index < 0 || index >= length)
+			throw new ArrayIndexOutOfBoundsException(index);
+		int piece = getPiece(index);
+		return pieces[piece].array[pieces[piece].offset + index - pieceStarts[piece]];
+	} //}}}
+
+	//{{{ subSequence() method
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return getText(start, end - start);
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public String toString()
+	{
+		return getText(0, length);
+	} //}}}
+
+	//{{{ getText() methods
+	/**
+	 * Returns the specified text range.
+	 * @param start The start offset
+	 * @param len The number of characters to get
+	 */
+	public String getText(int start, int len)
+	{
+		Segment seg = new Segment();
+		getText(start, len, seg);
+		return seg.toString();
+	}
+
+	/**
+	 * Returns the specified text range in a segment, without copying it
+	 * unless the range spans several pieces of the buffer text. The
+	 * segment must not be modified.
+	 * @param start The start offset
+	 * @param len The number of characters to get
+	 * @param seg The segment
+	 */
+	public void getText(int start, int len, Segment seg)
+	{
+		if(start < 0 || len < 0 || start + len > length)
+			throw new ArrayIndexOutOfBoundsException(start + ":" + len);
+
+		if(len == 0)
+		{
+			seg.array = EMPTY_TEXT;
+			seg.offset = seg.count = 0;
+			return;
+		}
+
+		int index = getPiece(start);
+		Segment piece = pieces[index];
+		int offset = start - pieceStarts[index];
+		if(offset + len <= piece.count)
+		{
+			seg.array = piece.array;
+			seg.offset = piece.offset + offset;
+			seg.count = len;
+			return;
+		}
+
+		char[] text = new char[len];
+		int copied = 0;
+		while(copied < len)
+		{
+			piece = pieces[index++];
+			int count = Math.min(piece.count - offset, len - copied);
+			System.arraycopy(piece.array, piece.offset + offset, text, copied, count);
+			copied += count;
+			offset = 0;
+		}
+		seg.array = text;
+		seg.offset = 0;
+		seg.count = len;
+	} //}}}
+
+	//{{{ getLineCount() method
+	/**
+	 * @return the number of lines
+	 */
+	public int getLineCount()
+	{
+		return lineEndOffsets.length;
+	} //}}}
+
+	//{{{ getLineOfOffset() method
+	/**
+	 * Returns the line containing the specified offset.
+	 * @param offset The offset
+	 */
+	public int getLineOfOffset(int offset)
+	{
+		if(offset < 0 || offset > length)
+			throw new ArrayIndexOutOfBoundsException(offset);
+		int line = Arrays.binarySearch(lineEndOffsets, offset);
+		// the end offset of a line is the start offset of the next one
+		return line >= 0 ? line + 1 : -line - 1;
+	} //}}}
+
+	//{{{ getLineStartOffset() method
+	/**
+	 * Returns the start offset of the specified line.
+	 * @param line The line
+	 */
+	public int getLineStartOffset(int line)
+	{
+		return line == 0 ? 0 : lineEndOffsets[line - 1];
+	} //}}}
+
+	//{{{ getLineEndOffset() method
+	/**
+	 * Returns the end offset of the specified line, after the newline
+	 * character, like {@link JEditBuffer#getLineEndOffset(int)}.
+	 * @param line The line
+	 */
+	public int getLineEndOffset(int line)
+	{
+		return lineEndOffsets[line];
+	} //}}}
+
+	//{{{ getLineLength() method
+	/**
+	 * Returns the length of the specified line, without the newline.
+	 * @param line The line
+	 */
+	public int getLineLength(int line)
+	{
+		return getLineEndOffset(line) - getLineStartOffset(line) - 1;
+	} //}}}
+
+	//{{{ getLineText() methods
+	/**
+	 * Returns the text on the specified line, without the newline.
+	 * @param line The line
+	 */
+	public String getLineText(int line)
+	{
+		return getText(getLineStartOffset(line), getLineLength(line));
+	}
+
+	/**
+	 * Returns the text on the specified line, without the newline, in a
+	 * segment that must not be modified.
+	 * @param line The line
+	 * @param seg The segment
+	 */
+	public void getLineText(int line, Segment seg)
+	{
+		getText(getLineStartOffset(line), getLineLength(line), seg);
+	} //}}}
+
+	//{{{ Private members
+	private static final char[] EMPTY_TEXT = new char[0];
+
+	private final long version;
+	private final Segment[] pieces;
+	/** Offset of each piece in the text. */
+	private final int[] pieceStarts;
+	private final int[] lineEndOffsets;
+	private final int length;
+
+	//{{{ getPiece() method
+	private int getPiece(int offset)
+	{
+		if(pieces.length == 1)
+			return 0;
+		int index = Arrays.binarySearch(pieceStarts, offset);
+		return index >= 0 ? index : -index - 2;
+	} //}}}
+
+	//}}}
+}
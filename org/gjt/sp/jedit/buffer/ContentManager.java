@@ -29,7 +29,11 @@ import javax.swing.text.Segment;
  * directly. To improve performance, none of the methods in this class
  * check for out of bounds access, nor are they thread-safe. The
  * <code>Buffer</code> class, through which these methods must be
- * called through, implements such protection.
+ * called through, implements such protection.<p>
+ *
+ * This implementation keeps the text in a single array with a gap at the
+ * last edit position, see {@link PieceTableContentManager} for the one
+ * used with large buffers.
  *
  * @author Slava Pestov
  * @version $Id$
@@ -38,7 +42,7 @@ import javax.swing.text.Segment;
 class ContentManager
 {
 	//{{{ getLength() method
-	public final int getLength()
+	public int getLength()
 	{
 		return length;
 	} //}}}
@@ -176,6 +180,20 @@ class ContentManager
 		length -= len;
 	} //}}}
 
+	//{{{ getSnapshot() method
+	/**
+	 * Returns the text as segments that will never change, for a
+	 * {@link BufferSnapshot}. The text is copied, since the gap moves
+	 * over it.
+	 */
+	Segment[] getSnapshot()
+	{
+		char[] copy = new char[length];
+		System.arraycopy(text,0,copy,0,gapStart);
+		System.arraycopy(text,gapEnd(),copy,gapStart,length - gapStart);
+		return new Segment[] { new Segment(copy,0,length) };
+	} //}}}
+
 	//{{{ Private members
 	private static final char[] EMPTY_TEXT = new char[0];
 	private char[] text = EMPTY_TEXT;
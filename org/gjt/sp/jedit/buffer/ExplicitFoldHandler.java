@@ -58,43 +58,76 @@ public class ExplicitFoldHandler extends FoldHandler
 		else
 		{
 			int foldLevel = buffer.getFoldLevel(lineIndex - 1);
-
 			buffer.getLineText(lineIndex - 1,seg);
+			return getNextFoldLevel(seg,foldLevel);
+		}
+	} //}}}
 
-			int offset = seg.offset;
-			int count = seg.count;
+	//{{{ getFoldLevels() method
+	/**
+	 * Returns the fold levels of consecutive lines, the level of each line
+	 * following from the markers on the line before.
+	 * @since jEdit 5.7pre1
+	 */
+	@Override
+	public int getFoldLevels(JEditBuffer buffer, int startLine,
+		int previousLevel, int[] levels, int count, Segment seg)
+	{
+		int foldLevel = previousLevel;
+		for(int i = 0; i < count; i++)
+		{
+			int lineIndex = startLine + i;
+			if(lineIndex == 0)
+				foldLevel = 0;
+			else
+			{
+				buffer.getLineText(lineIndex - 1,seg);
+				foldLevel = getNextFoldLevel(seg,foldLevel);
+			}
+			levels[i] = foldLevel;
+		}
+		return count;
+	} //}}}
 
-			int openingBrackets = 0, closingBrackets = 0;
-			for(int i = 0; i < count; i++)
+	//{{{ getNextFoldLevel() method
+	/**
+	 * @return the fold level of the line after the given one
+	 */
+	private static int getNextFoldLevel(Segment seg, int foldLevel)
+	{
+		int offset = seg.offset;
+		int count = seg.count;
+
+		int openingBrackets = 0, closingBrackets = 0;
+		for(int i = 0; i < count; i++)
+		{
+			switch(seg.array[offset + i])
 			{
-				switch(seg.array[offset + i])
+			case '{':
+				closingBrackets = 0;
+				openingBrackets++;
+				if(openingBrackets == 3)
 				{
-				case '{':
-					closingBrackets = 0;
-					openingBrackets++;
-					if(openingBrackets == 3)
-					{
-						foldLevel++;
-						openingBrackets = 0;
-					}
-					break;
-				case '}':
+					foldLevel++;
 					openingBrackets = 0;
-					closingBrackets++;
-					if(closingBrackets == 3)
-					{
-						if(foldLevel > 0)
-							foldLevel--;
-						closingBrackets = 0;
-					}
-					break;
-				default:
-					closingBrackets = openingBrackets = 0;
-					break;
 				}
+				break;
+			case '}':
+				openingBrackets = 0;
+				closingBrackets++;
+				if(closingBrackets == 3)
+				{
+					if(foldLevel > 0)
+						foldLevel--;
+					closingBrackets = 0;
+				}
+				break;
+			default:
+				closingBrackets = openingBrackets = 0;
+				break;
 			}
-
-			return foldLevel;
 		}
+
+		return foldLevel;
 	} //}}}
 }
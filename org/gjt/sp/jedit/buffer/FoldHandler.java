@@ -72,6 +72,39 @@ public abstract class FoldHandler
 	public abstract int getFoldLevel(JEditBuffer buffer, int lineIndex, Segment seg);
 	//}}}
 
+	//{{{ getFoldLevels() method
+	/**
+	 * Returns the fold levels of consecutive lines, knowing the fold level
+	 * of the line before them. Fold handlers implementing it compute the
+	 * levels without allocating and without calling
+	 * {@link JEditBuffer#getFoldLevel(int)}, so that the levels of a large
+	 * buffer can also be computed ahead in a background thread, the buffer
+	 * being read locked.<p>
+	 *
+	 * The default implementation returns 0, the fold levels are then
+	 * obtained with {@link #getFoldLevel(JEditBuffer,int,Segment)}, line by
+	 * line, in the event dispatch thread.
+	 * @param buffer The buffer in question
+	 * @param startLine The first line index
+	 * @param previousLevel The fold level of the line before
+	 * <code>startLine</code>, 0 for the first line
+	 * @param levels Receives the fold levels, from index 0
+	 * @param count The number of lines, at most the length of
+	 * <code>levels</code>
+	 * @param seg A segment the fold handler can use to obtain any
+	 * text from the buffer
+	 * @return The number of fold levels stored, between 1 and
+	 * <code>count</code>, or 0 if this fold handler does not compute fold
+	 * levels this way
+	 * @since jEdit 5.7pre1
+	 */
+	public int getFoldLevels(JEditBuffer buffer, int startLine,
+		int previousLevel, int[] levels, int count, Segment seg)
+	{
+		return 0;
+	}
+	//}}}
+
 	//{{{ getPrecedingFoldLevels() method
 	/**
 	 * Returns the fold levels of the lines preceding the specified line,
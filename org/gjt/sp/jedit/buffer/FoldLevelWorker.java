@@ -0,0 +1,148 @@
+/*
+ * FoldLevelWorker.java - Computes fold levels ahead in the background
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import javax.swing.text.Segment;
+
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * Computes the invalid fold levels of a buffer after the ones requested by
+ * the display, with {@link FoldHandler#getFoldLevels}.<p>
+ *
+ * The levels are computed by steps, holding the buffer read lock only for
+ * one step at a time, and given to the buffer in the dispatch thread after
+ * each step, so that the display is updated as they arrive. The worker
+ * stops as soon as the buffer is edited or its fold levels are invalidated;
+ * the buffer starts a new one when the display requests fold levels again.
+ *
+ * @see JEditBuffer#getFoldLevel(int)
+ * @since jEdit 5.7pre1
+ */
+class FoldLevelWorker extends Task
+{
+	//{{{ FoldLevelWorker constructor
+	/**
+	 * @param buffer the buffer
+	 * @param foldHandler its fold handler
+	 * @param version the version of the buffer
+	 * @param generation the fold level generation of the buffer
+	 * @param start the first invalid fold level
+	 * @param previousLevel the fold level of the line before
+	 */
+	FoldLevelWorker(JEditBuffer buffer, FoldHandler foldHandler, long version,
+		int generation, int start, int previousLevel)
+	{
+		this.buffer = buffer;
+		this.foldHandler = foldHandler;
+		this.version = version;
+		this.generation = generation;
+		this.start = start;
+		this.previousLevel = previousLevel;
+		setLabel("Computing the fold levels of " + buffer);
+		setPriority(Priority.IDLE);
+	} //}}}
+
+	//{{{ isComputing() method
+	/**
+	 * @return true if the worker is still computing the fold levels of
+	 * this version and generation
+	 */
+	boolean isComputing(long version, int generation)
+	{
+		return !done && this.version == version
+			&& this.generation == generation;
+	} //}}}
+
+	//{{{ _run() method
+	@Override
+	public void _run()
+	{
+		try
+		{
+			Segment seg = new Segment();
+			int[] levels = new int[LINES_PER_STEP];
+			boolean first = true;
+			setMaximum(buffer.getLineCount());
+			while(!done && !Thread.currentThread().isInterrupted())
+			{
+				int count;
+				buffer.readLock();
+				try
+				{
+					if(buffer.getVersion() != version)
+						return;
+					count = Math.min(LINES_PER_STEP,
+						buffer.getLineCount() - start);
+					if(count <= 0)
+						return;
+					count = foldHandler.getFoldLevels(buffer, start,
+						previousLevel, levels, count, seg);
+					if(count <= 0)
+						return;
+				}
+				finally
+				{
+					buffer.readUnlock();
+				}
+
+				int stepStart = start;
+				int step = count;
+				boolean firstStep = first;
+				// waits, so that the dispatch thread is not flooded
+				// and the levels array can be reused
+				ThreadUtilities.runInDispatchThreadAndWait(() ->
+				{
+					if(!buffer.foldLevelsComputed(version, generation,
+						stepStart, levels, step, firstStep))
+					{
+						done = true;
+					}
+				});
+				first = false;
+				previousLevel = levels[count - 1];
+				start += count;
+				setValue(start);
+			}
+		}
+		finally
+		{
+			done = true;
+		}
+	} //}}}
+
+	//{{{ Private members
+	private static final int LINES_PER_STEP = 4096;
+
+	private final JEditBuffer buffer;
+	private final FoldHandler foldHandler;
+	private final long version;
+	private final int generation;
+	private int start;
+	private int previousLevel;
+	private volatile boolean done;
+	//}}}
+}
@@ -100,6 +100,56 @@ public class IndentFoldHandler extends FoldHandler
 		return prevLevel;
 	} //}}}
 
+	//{{{ getFoldLevels() method
+	/**
+	 * Returns the fold levels of consecutive lines, like
+	 * {@link #getFoldLevel(JEditBuffer,int,Segment)}. The next
+	 * non-whitespace line is looked for once for all the whitespace-only
+	 * lines before it.
+	 * @since jEdit 5.7pre1
+	 */
+	@Override
+	public int getFoldLevels(JEditBuffer buffer, int startLine,
+		int previousLevel, int[] levels, int count, Segment seg)
+	{
+		int tabSize = buffer.getTabSize();
+		int lineCount = buffer.getLineCount();
+		int prevLevel = previousLevel;
+		// the next non-whitespace line after whitespace-only lines, and
+		// its leading whitespace, or (-1) if there is none
+		int nextLine = -1;
+		int nextWhitespace = -1;
+		for(int i = 0; i < count; i++)
+		{
+			int lineIndex = startLine + i;
+			buffer.getLineText(lineIndex,seg);
+			int whitespace = getLeadingWhitespaceWidth(seg,tabSize);
+			int foldLevel;
+			if(whitespace >= 0)
+				foldLevel = whitespace;
+			else if(lineIndex == 0)
+				foldLevel = 0;
+			else
+			{
+				if(nextLine <= lineIndex)
+				{
+					nextWhitespace = -1;
+					for(nextLine = lineIndex + 1; nextLine < lineCount; nextLine++)
+					{
+						buffer.getLineText(nextLine,seg);
+						nextWhitespace = getLeadingWhitespaceWidth(seg,tabSize);
+						if(nextWhitespace >= 0)
+							break;
+					}
+				}
+				foldLevel = Math.max(nextWhitespace, prevLevel);
+			}
+			levels[i] = foldLevel;
+			prevLevel = foldLevel;
+		}
+		return count;
+	} //}}}
+
 	//{{{ getPrecedingFoldLevels() method
 	/**
 	 * Returns the fold levels of the lines preceding the specified line,
@@ -28,16 +28,16 @@ import org.gjt.sp.jedit.*;
 import org.gjt.sp.jedit.indent.IndentAction;
 import org.gjt.sp.jedit.indent.IndentRule;
 import org.gjt.sp.jedit.syntax.*;
-import org.gjt.sp.jedit.textarea.ColumnBlock;
-import org.gjt.sp.jedit.textarea.ColumnBlockLine;
-import org.gjt.sp.jedit.textarea.Node;
+import org.gjt.sp.jedit.textarea.ColumnBlockManager;
 import org.gjt.sp.jedit.textarea.Selection;
 import org.gjt.sp.jedit.textarea.TextArea;
 import org.gjt.sp.util.IntegerArray;
 import org.gjt.sp.util.Log;
 import org.gjt.sp.util.StandardUtilities;
+import org.gjt.sp.util.ThreadUtilities;
 
 import javax.annotation.Nonnull;
+import java.awt.EventQueue;
 import javax.swing.text.Position;
 import javax.swing.text.Segment;
 import java.util.*;
@@ -95,13 +95,19 @@ public class JEditBuffer
 	 */
 	public static final String LARGE_MODE_FILE = "largefilemode";
 
+	/**
+	 * The maximum number of fold levels computed at once by
+	 * {@link FoldHandler#getFoldLevels}.
+	 */
+	static final int FOLD_LEVEL_BATCH = 256;
+
 	//{{{ JEditBuffer constructors
 	{
 		bufferListeners = new Vector<>();
 		lock = new ReentrantReadWriteLock();
 		contentMgr = new ContentManager();
 		lineMgr = new LineManager();
-		positionMgr = new PositionManager(this);
+		positionMgr = new PositionManager();
 		undoMgr = new UndoManager(this);
 		integerArray = new IntegerArray();
 		propertyLock = new Object();
@@ -184,6 +190,8 @@ public class JEditBuffer
 	public void setElasticTabstopsOn(boolean elasticTabstopsOn)
 	{
 		this.elasticTabstopsOn = elasticTabstopsOn;
+		if(!elasticTabstopsOn)
+			columnBlockManager = null;
 	} //}}}
 
 	//{{{ isPerformingIO() method
@@ -325,6 +333,52 @@ public class JEditBuffer
 		lock.writeLock().unlock();
 	} //}}}
 
+	//{{{ getVersion() method
+	/**
+	 * Returns the edit version of the buffer, incremented by every change
+	 * of its content. This method is thread-safe.
+	 * @since jEdit 5.7pre1
+	 */
+	public long getVersion()
+	{
+		return version;
+	} //}}}
+
+	//{{{ snapshot() method
+	/**
+	 * Returns an immutable view of the current text and lines of the
+	 * buffer, that can then be read from any thread without locking.
+	 * The snapshot is shared until the next edit. Taking it copies the
+	 * text, unless the buffer is in a long buffer
+	 * {@link org.gjt.sp.jedit.LargeFileMode} where the pieces of text
+	 * are shared. This method is thread-safe.
+	 * @since jEdit 5.7pre1
+	 */
+	public BufferSnapshot snapshot()
+	{
+		BufferSnapshot snapshot = this.snapshot;
+		if(snapshot != null && snapshot.getVersion() == version)
+			return snapshot;
+
+		try
+		{
+			readLock();
+			snapshot = this.snapshot;
+			if(snapshot == null || snapshot.getVersion() != version)
+			{
+				snapshot = new BufferSnapshot(version,
+					contentMgr.getSnapshot(),
+					lineMgr.getLineEndOffsets());
+				this.snapshot = snapshot;
+			}
+			return snapshot;
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
 	//}}}
 
 	//{{{ Line offset methods
@@ -754,6 +808,7 @@ public class JEditBuffer
 			if(offset < 0 || offset > contentMgr.getLength())
 				throw new ArrayIndexOutOfBoundsException(offset);
 
+			contentChanged();
 			contentMgr.insert(offset,seq);
 
 			integerArray.clear();
@@ -813,8 +868,11 @@ public class JEditBuffer
 
 			firePreContentRemoved(startLine,offset,numLines,length);
 
+			contentChanged();
 			contentMgr.remove(offset,length);
 			lineMgr.contentRemoved(startLine,offset,numLines,length);
+			if(columnBlockManager != null)
+				columnBlockManager.contentRemoved(startLine,numLines);
 			positionMgr.contentRemoved(offset,length);
 
 			setDirty(true);
@@ -834,6 +892,116 @@ public class JEditBuffer
 		}
 	} //}}}
 
+	//{{{ replace() method
+	/**
+	 * Replaces several ranges of the buffer in one edit, as done by
+	 * replace all. The text from the start of the first range to the
+	 * end of the last one is rebuilt in one pass, with its line ends,
+	 * and replaced at once: the listeners are told about one removal
+	 * and one insertion, and the undo manager records one edit keeping
+	 * only the replaced ranges. The positions are moved as if each range
+	 * was replaced by {@link #remove} and {@link #insert}.
+	 * @param offsets the start offsets of the ranges, in increasing order
+	 * @param lengths the lengths of the ranges, which must not overlap
+	 * @param replacements the text replacing each range
+	 * @since jEdit 5.7pre1
+	 */
+	public void replace(int[] offsets, int[] lengths, String[] replacements)
+	{
+		int count = offsets.length;
+		if(lengths.length != count || replacements.length != count)
+			throw new IllegalArgumentException("Different numbers of ranges and replacements");
+		if(count == 0)
+			return;
+
+		try
+		{
+			transaction = true;
+
+			writeLock();
+
+			int spanStart = offsets[0];
+			int spanEnd = offsets[count - 1] + lengths[count - 1];
+			if(spanStart < 0 || spanEnd > contentMgr.getLength())
+				throw new ArrayIndexOutOfBoundsException(spanStart + ":" + spanEnd);
+			int spanLength = spanEnd - spanStart;
+
+			//{{{ Rebuild the text of the ranges and between them
+			CharSequence oldText = contentMgr.getSegment(spanStart, spanLength);
+			int newLength = spanLength;
+			for(int i = 0; i < count; i++)
+				newLength += replacements[i].length() - lengths[i];
+			StringBuilder newText = new StringBuilder(newLength);
+			String[] removed = new String[count];
+			int end = spanStart;
+			for(int i = 0; i < count; i++)
+			{
+				int offset = offsets[i];
+				if(offset < end || lengths[i] < 0)
+					throw new IllegalArgumentException("Overlapping range " + offset + ":" + lengths[i]);
+				newText.append(oldText, end - spanStart, offset - spanStart);
+				end = offset + lengths[i];
+				removed[i] = oldText.subSequence(offset - spanStart, end - spanStart).toString();
+				newText.append(replacements[i]);
+			}
+
+			integerArray.clear();
+			for(int i = 0; i < newLength; i++)
+			{
+				if(newText.charAt(i) == '\n')
+					integerArray.add(i + 1);
+			} //}}}
+
+			int startLine = lineMgr.getLineOfOffset(spanStart);
+			int removedLines = lineMgr.getLineOfOffset(spanEnd) - startLine;
+			int insertedLines = integerArray.getSize();
+
+			if(!undoInProgress)
+				undoMgr.contentReplaced(offsets, removed, replacements, !dirty);
+
+			firePreContentRemoved(startLine,spanStart,removedLines,spanLength);
+
+			contentChanged();
+			contentMgr.remove(spanStart,spanLength);
+			lineMgr.contentRemoved(startLine,spanStart,removedLines,spanLength);
+			if(columnBlockManager != null)
+				columnBlockManager.contentRemoved(startLine,removedLines);
+
+			fireContentRemoved(startLine,spanStart,removedLines,spanLength);
+
+			contentMgr.insert(spanStart,newText);
+
+			firePreContentInserted(startLine,spanStart,insertedLines,newLength);
+
+			lineMgr.contentInserted(startLine,spanStart,insertedLines,newLength,
+				integerArray);
+			if(columnBlockManager != null)
+				columnBlockManager.contentInserted(startLine,insertedLines);
+			// each range keeps the positions before and after it
+			int delta = 0;
+			for(int i = 0; i < count; i++)
+			{
+				int offset = offsets[i] + delta;
+				positionMgr.contentRemoved(offset,lengths[i]);
+				positionMgr.contentInserted(offset,replacements[i].length());
+				delta += replacements[i].length() - lengths[i];
+			}
+
+			setDirty(true);
+
+			fireContentInserted(startLine,spanStart,insertedLines,newLength);
+
+			if(!undoInProgress && !insideCompoundEdit())
+				fireTransactionComplete();
+		}
+		finally
+		{
+			transaction = false;
+
+			writeUnlock();
+		}
+	} //}}}
+
 	//}}}
 
 	//{{{ Indentation
@@ -1373,53 +1541,26 @@ loop:		for(int i = 0; i < seg.count; i++)
 	 */
 	public void markTokens(int lineIndex, TokenHandler tokenHandler)
 	{
-		Segment seg = new Segment();
-
-		if(lineIndex < 0 || lineIndex >= lineMgr.getLineCount())
-			throw new ArrayIndexOutOfBoundsException(lineIndex);
-
-		int firstInvalidLineContext = lineMgr.getFirstInvalidLineContext();
-		int start;
-		if(contextInsensitive || firstInvalidLineContext == -1)
-		{
-			start = lineIndex;
-		}
-		else
-		{
-			start = Math.min(firstInvalidLineContext,
-				lineIndex);
-		}
-
-		if(Debug.TOKEN_MARKER_DEBUG)
-			Log.log(Log.DEBUG,this,"tokenize from " + start + " to " + lineIndex);
-		TokenMarker.LineContext oldContext = null;
-		TokenMarker.LineContext context = null;
-		for(int i = start; i <= lineIndex; i++)
-		{
-			getLineText(i,seg);
-
-			oldContext = getLineContext(i);
-
-			TokenMarker.LineContext prevContext = (
-				(i == 0 || contextInsensitive) ? null
-				: getLineContext(i - 1)
-			);
-
-			TokenHandler _tokenHandler = i == lineIndex ? tokenHandler : DummyTokenHandler.INSTANCE;
-			context = markTokens(seg, prevContext, _tokenHandler);
-			lineMgr.setLineContext(i,context);
-		}
+		markTokens(lineIndex, tokenHandler, false);
+	} //}}}
 
-		int lineCount = lineMgr.getLineCount();
-		if(lineCount - 1 == lineIndex)
-			lineMgr.setFirstInvalidLineContext(-1);
-		else if(oldContext != context)
-			lineMgr.setFirstInvalidLineContext(lineIndex + 1);
-		else if(firstInvalidLineContext != -1)
-		{
-			lineMgr.setFirstInvalidLineContext(Math.max(
-				firstInvalidLineContext,lineIndex + 1));
-		}
+	//{{{ markDisplayTokens() method
+	/**
+	 * Returns the syntax tokens for the specified line, to paint it.
+	 * Unlike {@link #markTokens(int, TokenHandler)}, if many lines before
+	 * this one need to be tokenized again, this is done in the background,
+	 * and meanwhile the line is tokenized from the possibly outdated
+	 * context of the previous line. Once the contexts are up to date,
+	 * the {@link BufferListener#lineContextsChanged(JEditBuffer, int, int)}
+	 * event is sent for the lines marked with an outdated context.
+	 * @param lineIndex The line number
+	 * @param tokenHandler The token handler that will receive the syntax
+	 * tokens
+	 * @since jEdit 5.7pre1
+	 */
+	public void markDisplayTokens(int lineIndex, TokenHandler tokenHandler)
+	{
+		markTokens(lineIndex, tokenHandler, true);
 	} //}}}
 
 	//{{{ getTokenMarker() method
@@ -1579,6 +1720,9 @@ loop:		for(int i = 0; i < seg.count; i++)
 	public void close()
 	{
 		closed = true;
+		// deletes the temporary file of the undo journal
+		if (undoMgr != null)
+			undoMgr.clear();
 	} //}}}
 
 	//{{{ hasProperty() method
@@ -1870,6 +2014,7 @@ loop:		for(int i = 0; i < seg.count; i++)
 			unsetProperty(LARGE_MODE_FILE);
 		else
 			setProperty(LARGE_MODE_FILE, largeFileMode.name());
+		updateContentManager();
 	}
 
 	//{{{ getRuleSetAtOffset() method
@@ -2018,6 +2163,7 @@ loop:		for(int i = 0; i < seg.count; i++)
 	 */
 	public void invalidateCachedFoldLevels()
 	{
+		foldLevelGeneration++;
 		lineMgr.setFirstInvalidFoldLevel(0);
 		fireFoldLevelChanged(0,getLineCount());
 	} //}}}
@@ -2046,46 +2192,39 @@ loop:		for(int i = 0; i < seg.count; i++)
 			if(Debug.FOLD_DEBUG)
 				Log.log(Log.DEBUG,this,"Invalid fold levels from " + firstInvalidFoldLevel + " to " + line);
 
-			int newFoldLevel = 0;
+			Segment seg = new Segment();
+			int[] levels = new int[Math.min(FOLD_LEVEL_BATCH,
+				line + 1 - firstInvalidFoldLevel)];
+			int lineCount = lineMgr.getLineCount();
 			boolean changed = false;
+			boolean batch = true;
 			int firstUpdatedFoldLevel = firstInvalidFoldLevel;
 
-			for(int i = firstInvalidFoldLevel; i <= line; i++)
+			for(int i = firstInvalidFoldLevel; i <= line;)
 			{
-				Segment seg = new Segment();
-				newFoldLevel = foldHandler.getFoldLevel(this,i,seg);
-				if(newFoldLevel != lineMgr.getFoldLevel(i))
+				int count = Math.min(levels.length, line + 1 - i);
+				int previousLevel = i == 0 ? 0 : lineMgr.getFoldLevel(i - 1);
+				int computed = foldHandler.getFoldLevels(this, i,
+					previousLevel, levels, count, seg);
+				if(computed <= 0)
+				{
+					// the fold handler may call getFoldLevel()
+					// for the previous lines, which are valid
+					batch = false;
+					levels[0] = foldHandler.getFoldLevel(this,i,seg);
+					computed = 1;
+				}
+				int updated = setFoldLevels(i, levels, 0, computed,
+					i == firstInvalidFoldLevel, seg);
+				if(updated != -1)
 				{
-					if(Debug.FOLD_DEBUG)
-						Log.log(Log.DEBUG,this,i + " fold level changed");
 					changed = true;
-					// Update preceding fold levels if necessary
-					if (i == firstInvalidFoldLevel)
-					{
-						List<Integer> precedingFoldLevels =
-							foldHandler.getPrecedingFoldLevels(
-								this,i,seg,newFoldLevel);
-						if (precedingFoldLevels != null)
-						{
-							int j = i;
-							for (Integer foldLevel: precedingFoldLevels)
-							{
-								j--;
-								lineMgr.setFoldLevel(j, foldLevel);
-							}
-							if (j < firstUpdatedFoldLevel)
-								firstUpdatedFoldLevel = j;
-						}
-					}
+					firstUpdatedFoldLevel = Math.min(firstUpdatedFoldLevel, updated);
 				}
-				lineMgr.setFoldLevel(i,newFoldLevel);
+				i += computed;
+				lineMgr.setFirstInvalidFoldLevel(i == lineCount ? -1 : i);
 			}
 
-			if(line == lineMgr.getLineCount() - 1)
-				lineMgr.setFirstInvalidFoldLevel(-1);
-			else
-				lineMgr.setFirstInvalidFoldLevel(line + 1);
-
 			if(changed)
 			{
 				if(Debug.FOLD_DEBUG)
@@ -2093,8 +2232,119 @@ loop:		for(int i = 0; i < seg.count; i++)
 				fireFoldLevelChanged(firstUpdatedFoldLevel,line);
 			}
 
-			return newFoldLevel;
+			if(batch && lineMgr.getFirstInvalidFoldLevel() != -1)
+				computeFoldLevelsAhead();
+
+			return lineMgr.getFoldLevel(line);
+		}
+	} //}}}
+
+	//{{{ foldLevelsComputed() method
+	/**
+	 * Called in the dispatch thread by the {@link FoldLevelWorker} with
+	 * the fold levels it computed ahead, which are used unless the buffer
+	 * or its fold levels were invalidated since.
+	 * @param version the version of the buffer when the levels were
+	 * computed
+	 * @param generation the fold level generation when the worker started
+	 * @param start the first line
+	 * @param levels the fold levels
+	 * @param count the number of lines
+	 * @param first true for the first lines computed by the worker
+	 * @return false if the worker must stop
+	 */
+	boolean foldLevelsComputed(long version, int generation, int start,
+		int[] levels, int count, boolean first)
+	{
+		if(version != this.version || generation != foldLevelGeneration
+			|| closed)
+		{
+			return false;
+		}
+		int firstInvalidFoldLevel = lineMgr.getFirstInvalidFoldLevel();
+		int end = start + count;
+		if(firstInvalidFoldLevel == -1 || firstInvalidFoldLevel < start)
+			return false;
+		if(firstInvalidFoldLevel >= end)
+		{
+			// computed meanwhile by getFoldLevel()
+			return true;
+		}
+
+		int updated = setFoldLevels(firstInvalidFoldLevel, levels,
+			firstInvalidFoldLevel - start, end - firstInvalidFoldLevel,
+			first && firstInvalidFoldLevel == start, new Segment());
+		int lineCount = lineMgr.getLineCount();
+		lineMgr.setFirstInvalidFoldLevel(end == lineCount ? -1 : end);
+		if(updated != -1)
+			fireFoldLevelChanged(updated,end - 1);
+		return end != lineCount;
+	} //}}}
+
+	//{{{ setFoldLevels() method
+	/**
+	 * Stores computed fold levels, updating the levels of the lines
+	 * before them if the fold handler requires it.
+	 * @return the first line whose fold level changed, or -1
+	 */
+	private int setFoldLevels(int start, int[] levels, int offset, int count,
+		boolean updatePreceding, Segment seg)
+	{
+		int firstUpdated = -1;
+		for(int i = start; i < start + count; i++)
+		{
+			int newFoldLevel = levels[offset + i - start];
+			if(newFoldLevel != lineMgr.getFoldLevel(i))
+			{
+				if(Debug.FOLD_DEBUG)
+					Log.log(Log.DEBUG,this,i + " fold level changed");
+				if(firstUpdated == -1)
+					firstUpdated = i;
+				// Update preceding fold levels if necessary
+				if (updatePreceding && i == start)
+				{
+					List<Integer> precedingFoldLevels =
+						foldHandler.getPrecedingFoldLevels(
+							this,i,seg,newFoldLevel);
+					if (precedingFoldLevels != null)
+					{
+						int j = i;
+						for (Integer foldLevel: precedingFoldLevels)
+						{
+							j--;
+							lineMgr.setFoldLevel(j, foldLevel);
+						}
+						if (j < firstUpdated)
+							firstUpdated = j;
+					}
+				}
+			}
+			lineMgr.setFoldLevel(i,newFoldLevel);
+		}
+		return firstUpdated;
+	} //}}}
+
+	//{{{ computeFoldLevelsAhead() method
+	/**
+	 * Starts computing the invalid fold levels after the last requested
+	 * one in the background, unless it is already being done, so that
+	 * collapsing the folds or going to the end of a large buffer does not
+	 * compute them all at once.
+	 */
+	private void computeFoldLevelsAhead()
+	{
+		if(!EventQueue.isDispatchThread() || closed || isLoading())
+			return;
+		if(foldLevelWorker != null && foldLevelWorker.isComputing(version,
+			foldLevelGeneration))
+		{
+			return;
 		}
+		int start = lineMgr.getFirstInvalidFoldLevel();
+		foldLevelWorker = new FoldLevelWorker(this, foldHandler, version,
+			foldLevelGeneration, start,
+			start == 0 ? 0 : lineMgr.getFoldLevel(start - 1));
+		ThreadUtilities.runInBackground(foldLevelWorker);
 	} //}}}
 
 	//{{{ getFoldAtLine() method
@@ -2182,6 +2432,7 @@ loop:		for(int i = 0; i < seg.count; i++)
 
 		this.foldHandler = foldHandler;
 
+		foldLevelGeneration++;
 		lineMgr.setFirstInvalidFoldLevel(0);
 
 		fireFoldHandlerChanged();
@@ -2560,6 +2811,24 @@ loop:		for(int i = 0; i < seg.count; i++)
 		}
 	} //}}}
 
+	//{{{ fireLineContextsChanged() method
+	void fireLineContextsChanged(int start, int end)
+	{
+		for(int i = 0; i < bufferListeners.size(); i++)
+		{
+			BufferListener listener = getListener(i);
+			try
+			{
+				listener.lineContextsChanged(this,start,end);
+			}
+			catch(Throwable t)
+			{
+				Log.log(Log.ERROR,this,"Exception while sending buffer event to "+ listener +" :");
+				Log.log(Log.ERROR,this,t);
+			}
+		}
+	} //}}}
+
 	//{{{ fireContentInserted() method
 	protected void fireContentInserted(int startLine, int offset,
 		int numLines, int length)
@@ -2751,9 +3020,12 @@ loop:		for(int i = 0; i < seg.count; i++)
 			firePreContentRemoved(0,0,getLineCount()
 				- 1,length);
 
+			contentChanged();
 			contentMgr.remove(0,length);
-			lineMgr.contentRemoved(0,0,getLineCount()
-				- 1,length);
+			int removedLines = getLineCount() - 1;
+			lineMgr.contentRemoved(0,0,removedLines,length);
+			if(columnBlockManager != null)
+				columnBlockManager.contentRemoved(0,removedLines);
 			positionMgr.contentRemoved(0,length);
 			fireContentRemoved(0,0,getLineCount()
 				- 1,length);
@@ -2765,6 +3037,8 @@ loop:		for(int i = 0; i < seg.count; i++)
 			contentMgr._setContent(seg.array,seg.count);
 
 			lineMgr._contentInserted(endOffsets);
+			if(columnBlockManager != null)
+				columnBlockManager.contentInserted(0,endOffsets.getSize() - 1);
 			positionMgr.contentInserted(0,seg.count);
 
 			fireContentInserted(0,0,
@@ -2777,9 +3051,49 @@ loop:		for(int i = 0; i < seg.count; i++)
 		}
 	} //}}}
 
+	//{{{ updateContentManager() method
+	/**
+	 * Switches to a piece table if the buffer is in a long buffer mode,
+	 * since moving the gap of the default content manager becomes too
+	 * expensive with very large texts, and back to the gap buffer
+	 * otherwise.
+	 */
+	private void updateContentManager()
+	{
+		boolean pieceTable = getLargeFileMode().isLongBufferMode();
+		if (pieceTable == contentMgr instanceof PieceTableContentManager)
+			return;
+
+		try
+		{
+			writeLock();
+			int length = contentMgr.getLength();
+			Segment seg = new Segment();
+			contentMgr.getText(0, length, seg);
+			char[] text = seg.array;
+			// the gap buffer changes its array in place, while the
+			// original array of the piece table may still be read by
+			// snapshots
+			if (seg.offset != 0 || !pieceTable)
+			{
+				text = new char[length];
+				System.arraycopy(seg.array, seg.offset, text, 0, length);
+			}
+			ContentManager newContentMgr = pieceTable ?
+				new PieceTableContentManager() : new ContentManager();
+			newContentMgr._setContent(text, length);
+			contentMgr = newContentMgr;
+		}
+		finally
+		{
+			writeUnlock();
+		}
+	} //}}}
+
 	//{{{ invalidateFoldLevels() method
 	protected void invalidateFoldLevels()
 	{
+		foldLevelGeneration++;
 		lineMgr.setFirstInvalidFoldLevel(0);
 	} //}}}
 
@@ -2817,6 +3131,35 @@ loop:		for(int i = 0; i < seg.count; i++)
 		return context;
 	} //}}}
 
+	//{{{ updateLineContexts() method
+	/**
+	 * Tokenizes the lines with an invalid context, in the background.
+	 * @param lastLine the last line to tokenize
+	 * @param maxLines the maximum number of lines to tokenize
+	 * @return true if there is nothing more to do up to the last line
+	 */
+	boolean updateLineContexts(int lastLine, int maxLines)
+	{
+		readLock();
+		try
+		{
+			synchronized(tokenLock)
+			{
+				if(isLoading() || closed)
+					return true;
+				lastLine = Math.min(lastLine, lineMgr.getLineCount() - 1);
+				int firstInvalid = lineMgr.getFirstInvalidLineContext();
+				updateLineContexts(Math.min(lastLine, firstInvalid + maxLines - 1));
+				firstInvalid = lineMgr.getFirstInvalidLineContext();
+				return firstInvalid == -1 || firstInvalid > lastLine;
+			}
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
 	//{{{ Used to store property values
 	protected static class PropValue
 	{
@@ -2851,8 +3194,16 @@ loop:		for(int i = 0; i < seg.count; i++)
 	private final List<Listener> bufferListeners;
 	private boolean closed;
 	private final ReentrantReadWriteLock lock;
-	private final ContentManager contentMgr;
+	private ContentManager contentMgr;
 	private final LineManager lineMgr;
+	/** Guards the line contexts, taken after the buffer read lock. */
+	private final Object tokenLock = new Object();
+	private volatile long version;
+	private volatile BufferSnapshot snapshot;
+	private BackgroundTokenizer tokenizer;
+	/** Incremented when all the fold levels are invalidated. */
+	private volatile int foldLevelGeneration;
+	private FoldLevelWorker foldLevelWorker;
 	private final PositionManager positionMgr;
 	@Nonnull
 	private FoldHandler foldHandler;
@@ -2871,7 +3222,19 @@ loop:		for(int i = 0; i < seg.count; i++)
 	  * when efficiency matters. */
 	// synchronization done in TextArea.propertiesChanged()
 	public boolean elasticTabstopsOn;
-	private ColumnBlock columnBlock;
+	// updated with the line manager, in the write lock
+	private volatile ColumnBlockManager columnBlockManager;
+
+	//{{{ contentChanged() method
+	/**
+	 * Called in the write lock before the content changes.
+	 */
+	private void contentChanged()
+	{
+		version++;
+		// release the text of the outdated snapshot
+		snapshot = null;
+	} //}}}
 
 	//{{{ getListener() method
 	private BufferListener getListener(int index)
@@ -2897,6 +3260,8 @@ loop:		for(int i = 0; i < seg.count; i++)
 
 			lineMgr.contentInserted(startLine,offset,numLines,length,
 				endOffsets);
+			if(columnBlockManager != null)
+				columnBlockManager.contentInserted(startLine,numLines);
 			positionMgr.contentInserted(offset,length);
 
 			setDirty(true);
@@ -2996,6 +3361,74 @@ loop:		for(int i = 0; i < seg.count; i++)
 		}
 	} //}}}
 
+	//{{{ markTokens() method
+	private void markTokens(int lineIndex, TokenHandler tokenHandler, boolean display)
+	{
+		if(lineIndex < 0 || lineIndex >= lineMgr.getLineCount())
+			throw new ArrayIndexOutOfBoundsException(lineIndex);
+
+		// the read lock is taken first, like the background tokenizer
+		// does, so that waiting writers cannot cause a deadlock
+		readLock();
+		try
+		{
+			synchronized(tokenLock)
+			{
+				int firstInvalidLineContext = lineMgr.getFirstInvalidLineContext();
+				if(!contextInsensitive && firstInvalidLineContext != -1
+					&& firstInvalidLineContext < lineIndex)
+				{
+					if(display && lineIndex - firstInvalidLineContext
+						> BackgroundTokenizer.MAX_SYNC_LINES)
+					{
+						if(tokenizer == null)
+							tokenizer = new BackgroundTokenizer(this);
+						tokenizer.tokenizeUpTo(lineIndex);
+						Segment seg = new Segment();
+						getLineText(lineIndex, seg);
+						markTokens(seg, lineMgr.getLineContext(lineIndex - 1), tokenHandler);
+						return;
+					}
+					if(Debug.TOKEN_MARKER_DEBUG)
+						Log.log(Log.DEBUG,this,"tokenize from " + firstInvalidLineContext + " to " + lineIndex);
+					updateLineContexts(lineIndex - 1);
+				}
+
+				Segment seg = new Segment();
+				getLineText(lineIndex, seg);
+				TokenMarker.LineContext prevContext = (
+					(lineIndex == 0 || contextInsensitive) ? null
+					: getLineContext(lineIndex - 1)
+				);
+				lineMgr.updateLineContext(lineIndex,
+					markTokens(seg, prevContext, tokenHandler));
+			}
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
+	//{{{ updateLineContexts() method
+	/**
+	 * Tokenizes the lines with an invalid context, up to the given line
+	 * or to the line from where the old contexts are valid again.
+	 */
+	private void updateLineContexts(int lastLine)
+	{
+		Segment seg = new Segment();
+		int line;
+		while((line = lineMgr.getFirstInvalidLineContext()) != -1 && line <= lastLine)
+		{
+			getLineText(line, seg);
+			TokenMarker.LineContext prevContext = line == 0 ? null
+				: getLineContext(line - 1);
+			lineMgr.updateLineContext(line,
+				markTokens(seg, prevContext, DummyTokenHandler.INSTANCE));
+		}
+	} //}}}
+
 	//{{{ getIndentRules() method
 	private List<IndentRule> getIndentRules(int line)
 	{
@@ -3008,69 +3441,41 @@ loop:		for(int i = 0; i < seg.count; i++)
 		return ModeProvider.instance.getMode(modeName).getIndentRules();
 	} //}}}
 
-	//{{{ updateColumnBlocks() method
-	public void updateColumnBlocks(int startLine,int endLine,int startColumn, Node parent)
+	//{{{ indentUsingElasticTabstops() method
+	/**
+	 * Finds the column blocks of the buffer again.
+	 */
+	public void indentUsingElasticTabstops()
 	{
-		if (parent != null && startLine >= 0 && endLine >= 0 && startLine <= endLine)
+		try
 		{
-			int currentLine = startLine;
-			int colBlockWidth=0;
-			Vector<ColumnBlockLine> columnBlockLines = new Vector<>();
-			//while(currentLine<=endLine)
-			ColumnBlock parentColumnBlock = (ColumnBlock) parent;
-			for(int ik=startLine- parentColumnBlock.getStartLine();currentLine<=endLine;ik++)
-			{
-				Segment seg = new Segment();
-				int actualStart =  startColumn;
-				if(!parentColumnBlock.getLines().isEmpty())
-				{
-					ColumnBlockLine line =
-						parentColumnBlock.getLines().elementAt(ik);
-					if(currentLine!=line.getLine())
-					{
-						throw new IllegalArgumentException();
-					}
-					actualStart = line.getColumnEndIndex()+1;
-				}
-				getLineText(currentLine, actualStart, seg);
-				int tabPos = getTabStopPosition(seg);
-				if(tabPos>=0)
-				{
-					columnBlockLines.add(new ColumnBlockLine(currentLine, actualStart, actualStart+tabPos));
-					if(tabPos>colBlockWidth)
-					{
-						colBlockWidth =  tabPos;
-					}
-				}
-				if (tabPos < 0 && !columnBlockLines.isEmpty()
-				    || !columnBlockLines.isEmpty() && currentLine == endLine)
-				{
-					ColumnBlock  block = new ColumnBlock(this,
-									     columnBlockLines.elementAt(0).getLine(),
-									     startColumn+colBlockWidth,
-									     columnBlockLines.elementAt(columnBlockLines.size()-1).getLine(),
-									     startColumn+colBlockWidth);
-					block.setLines(columnBlockLines);
-					block.setParent(parent);
-					block.setWidth(colBlockWidth);
-					block.setTabSizeDirtyStatus(true,false);
-					//block.populateTabSizes();
-					parent.addChild(block);
-					colBlockWidth=0;
-					columnBlockLines = new Vector<ColumnBlockLine>();
-					updateColumnBlocks(block.getStartLine(), block.getEndLine(), startColumn+block.getColumnWidth()+1, block);
-				}
-				currentLine++;
-			}
+			writeLock();
+			columnBlockManager = new ColumnBlockManager(this);
 		}
-		else
+		finally
 		{
-			throw new IllegalArgumentException();
+			writeUnlock();
 		}
-	}
-	//}}}
+	} //}}}
+
+	//{{{ getColumnBlockManager() method
+	/**
+	 * @return the column blocks of elastic tabstops, or null if they are
+	 * not used
+	 * @since jEdit 5.7pre1
+	 */
+	public ColumnBlockManager getColumnBlockManager()
+	{
+		return columnBlockManager;
+	} //}}}
 
 	//{{{ getTabStopPosition() method
+	/**
+	 * @return the index of the first tab of the segment, or -5 if there
+	 * is none
+	 * @deprecated no longer used
+	 */
+	@Deprecated
 	public int getTabStopPosition(Segment seg)
 	{
 		for (int i = 0; i < seg.count; i++)
@@ -3081,27 +3486,7 @@ loop:		for(int i = 0; i < seg.count; i++)
 			}
 		}
 		return -5;
-	}
-	 //}}}
-
-	public final Object columnBlockLock = new Object();
-
-	//{{{ indentUsingElasticTabstops() method
-	public void indentUsingElasticTabstops()
-	{
-		synchronized(columnBlockLock)
-		{
-			columnBlock = new ColumnBlock(this,0,getLineCount()-1);
-			updateColumnBlocks(0, lineMgr.getLineCount()-1, 0, columnBlock);
-		}
-	}
-	 //}}}
+	} //}}}
 
-	//{{{ getColumnBlock() method
-	public ColumnBlock getColumnBlock()
-	{
-		return columnBlock;
-	}
-	 //}}}
 //}}}
 }
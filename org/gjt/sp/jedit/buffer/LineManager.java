@@ -125,6 +125,23 @@ public class LineManager
 			return endOffsets[line];
 	} //}}}
 
+	//{{{ getLineEndOffsets() method
+	/**
+	 * @return a copy of the end offsets of the lines
+	 * @since jEdit 5.7pre1
+	 */
+	public int[] getLineEndOffsets()
+	{
+		int[] offsets = new int[lineCount];
+		System.arraycopy(endOffsets,0,offsets,0,lineCount);
+		if(gapLine != -1)
+		{
+			for(int i = gapLine; i < lineCount; i++)
+				offsets[i] += gapWidth;
+		}
+		return offsets;
+	} //}}}
+
 	//{{{ getFoldLevel() method
 	public final int getFoldLevel(int line)
 	{
@@ -168,10 +185,46 @@ public class LineManager
 		lineContext[line] = context;
 	} //}}}
 
+	//{{{ updateLineContext() method
+	/**
+	 * Sets the context of a line tokenized from the valid context of the
+	 * previous line, and updates the first invalid line context.
+	 * If the first invalid line is after the edited lines and its context
+	 * did not change, the contexts of the following lines are still
+	 * valid up to the lines that were already invalid before the edits.
+	 * @param line the line
+	 * @param context the new context of the line
+	 * @since jEdit 5.7pre1
+	 */
+	public void updateLineContext(int line, TokenMarker.LineContext context)
+	{
+		TokenMarker.LineContext oldContext = lineContext[line];
+		lineContext[line] = context;
+		if(firstInvalidLineContext == -1 || line < firstInvalidLineContext)
+		{
+			if(oldContext != context)
+				setFirstInvalidLineContext(line + 1 == lineCount ? -1 : line + 1);
+			return;
+		}
+		if(line != firstInvalidLineContext)
+			return;
+
+		int next = line + 1;
+		// the last edited line keeps the context the next line was
+		// computed from
+		if(oldContext == context && line >= dirtyLineContextEnd - 1
+			&& line < trustedLineContextEnd)
+		{
+			next = trustedLineContextEnd;
+		}
+		firstInvalidLineContext = next >= lineCount ? -1 : next;
+	} //}}}
+
 	//{{{ setFirstInvalidLineContext() method
 	public void setFirstInvalidLineContext(int firstInvalidLineContext)
 	{
 		this.firstInvalidLineContext = firstInvalidLineContext;
+		dirtyLineContextEnd = trustedLineContextEnd = firstInvalidLineContext;
 	} //}}}
 
 	//{{{ getFirstInvalidLineContext() method
@@ -186,6 +239,7 @@ public class LineManager
 		gapLine = -1;
 		gapWidth = 0;
 		firstInvalidLineContext = firstInvalidFoldLevel = 0;
+		dirtyLineContextEnd = trustedLineContextEnd = 0;
 		lineCount = endOffsets.getSize();
 		this.endOffsets = endOffsets.getArray();
 		foldLevels = new short[lineCount];
@@ -250,8 +304,7 @@ public class LineManager
 			}
 		} //}}}
 
-		if(firstInvalidLineContext == -1 || firstInvalidLineContext > startLine)
-			firstInvalidLineContext = startLine;
+		invalidateLineContexts(startLine, numLines + 1, numLines);
 
 		if(firstInvalidFoldLevel == -1 || firstInvalidFoldLevel > startLine)
 			firstInvalidFoldLevel = startLine;
@@ -284,8 +337,7 @@ public class LineManager
 				startLine,lineCount - startLine);
 		} //}}}
 
-		if(firstInvalidLineContext == -1 || firstInvalidLineContext > startLine)
-			firstInvalidLineContext = startLine;
+		invalidateLineContexts(startLine, 1, -numLines);
 
 		if(firstInvalidFoldLevel == -1 || firstInvalidFoldLevel > startLine)
 			firstInvalidFoldLevel = startLine;
@@ -315,6 +367,20 @@ public class LineManager
 	 */
 	private int firstInvalidLineContext;
 
+	/**
+	 * The lines from firstInvalidLineContext to this one were edited, or
+	 * are between edited lines.
+	 */
+	private int dirtyLineContextEnd;
+
+	/**
+	 * The lines from dirtyLineContextEnd to this one still have the
+	 * contexts computed before the edits, each one from the context of
+	 * the previous line: if the previous line gets the same context
+	 * again, the following ones are valid.
+	 */
+	private int trustedLineContextEnd;
+
 	/**
 	 * If -1, all fold levels are valid. Otherwise, all lines after this
 	 * have an invalid fold level.
@@ -327,6 +393,33 @@ public class LineManager
 	private int getLineOfOffsetLine = -1;
 	//}}}
 
+	//{{{ invalidateLineContexts() method
+	/**
+	 * Updates the invalid line contexts after an edit.
+	 * @param startLine the first edited line
+	 * @param editedLines the number of edited lines, after the edit
+	 * @param delta the number of inserted lines, negative if lines were
+	 * removed
+	 */
+	private void invalidateLineContexts(int startLine, int editedLines, int delta)
+	{
+		int editedEnd = startLine + editedLines;
+		if(firstInvalidLineContext == -1)
+		{
+			firstInvalidLineContext = startLine;
+			dirtyLineContextEnd = editedEnd;
+			trustedLineContextEnd = lineCount;
+			return;
+		}
+
+		if(trustedLineContextEnd > startLine)
+			trustedLineContextEnd = Math.max(trustedLineContextEnd + delta, editedEnd);
+		if(dirtyLineContextEnd > startLine)
+			dirtyLineContextEnd += delta;
+		dirtyLineContextEnd = Math.max(dirtyLineContextEnd, editedEnd);
+		firstInvalidLineContext = Math.min(firstInvalidLineContext, startLine);
+	} //}}}
+
 	//{{{ setLineEndOffset() method
 	private void setLineEndOffset(int line, int end)
 	{
@@ -0,0 +1,508 @@
+/*
+ * PieceTableContentManager.java - Manages text content as a piece table
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import javax.swing.text.Segment;
+
+/**
+ * A {@link ContentManager} storing the text as a piece table.<p>
+ *
+ * The loaded text is kept untouched in the <i>original</i> array, inserted
+ * text is appended to the <i>add</i> array, and the document is the
+ * sequence of pieces referencing ranges of those two arrays. Pieces are
+ * kept in a treap ordered by position and indexed by subtree length, so
+ * inserting or removing text anywhere costs O(log n) instead of moving a
+ * gap across the whole buffer.<p>
+ *
+ * It is used for buffers opened in a long buffer
+ * {@link org.gjt.sp.jedit.LargeFileMode}. Like its parent class, it is
+ * neither thread-safe nor checks bounds.
+ *
+ * @since jEdit 5.7pre1
+ */
+class PieceTableContentManager extends ContentManager
+{
+	//{{{ getLength() method
+	@Override
+	public int getLength()
+	{
+		return size(root);
+	} //}}}
+
+	//{{{ getText() methods
+	@Override
+	public String getText(int start, int len)
+	{
+		Piece piece = findSinglePiece(start, len);
+		if (piece != null)
+			return new String(array(piece), piece.start + pieceOffset, len);
+		char[] chars = new char[len];
+		copy(root, start, len, chars, 0);
+		return new String(chars);
+	}
+
+	@Override
+	public void getText(int start, int len, Segment seg)
+	{
+		Piece piece = findSinglePiece(start, len);
+		if (piece != null)
+		{
+			seg.array = array(piece);
+			seg.offset = piece.start + pieceOffset;
+			seg.count = len;
+		}
+		else
+		{
+			seg.array = new char[len];
+			copy(root, start, len, seg.array, 0);
+			seg.offset = 0;
+			seg.count = len;
+		}
+	} //}}}
+
+	//{{{ getSegment() method
+	@Override
+	public CharSequence getSegment(int start, int len)
+	{
+		if (len == 0)
+			return new BufferSegment(original, 0, 0);
+		return segment(root, start, len, null);
+	} //}}}
+
+	//{{{ insert() methods
+	@Override
+	public void insert(int start, String str)
+	{
+		int len = str.length();
+		int addStart = prepareAdd(len);
+		str.getChars(0, len, add, addStart);
+		insertPiece(start, addStart, len);
+	}
+
+	@Override
+	public void insert(int start, CharSequence str)
+	{
+		int len = str.length();
+		int addStart = prepareAdd(len);
+		for (int i = 0; i < len; i++)
+			add[addStart + i] = str.charAt(i);
+		insertPiece(start, addStart, len);
+	}
+
+	@Override
+	public void insert(int start, Segment seg)
+	{
+		int addStart = prepareAdd(seg.count);
+		System.arraycopy(seg.array, seg.offset, add, addStart, seg.count);
+		insertPiece(start, addStart, seg.count);
+	} //}}}
+
+	//{{{ _setContent() method
+	@Override
+	public void _setContent(char[] text, int length)
+	{
+		assert text != null;
+		assert text.length >= length;
+		original = text;
+		add = EMPTY_TEXT;
+		addLength = 0;
+		root = length == 0 ? null : new Piece(false, 0, length, nextPriority());
+	} //}}}
+
+	//{{{ remove() method
+	@Override
+	public void remove(int start, int len)
+	{
+		if (len == 0)
+			return;
+		split(root, start);
+		Piece left = splitLeft;
+		split(splitRight, len);
+		root = merge(left, splitRight);
+		splitLeft = splitRight = null;
+	} //}}}
+
+	//{{{ getSnapshot() method
+	/**
+	 * Returns the pieces without copying the text: the original array is
+	 * never modified, and the add array only ever gets text appended
+	 * after the pieces referencing it.
+	 */
+	@Override
+	Segment[] getSnapshot()
+	{
+		Segment[] pieces = new Segment[count(root)];
+		collect(root, pieces, 0);
+		return pieces;
+	} //}}}
+
+	//{{{ getPieceCount() method
+	/**
+	 * @return the number of pieces the text is currently split into
+	 */
+	int getPieceCount()
+	{
+		return count(root);
+	} //}}}
+
+	//{{{ Private members
+	private static final char[] EMPTY_TEXT = new char[0];
+
+	private char[] original = EMPTY_TEXT;
+	private char[] add = EMPTY_TEXT;
+	private int addLength;
+	private Piece root;
+	private int seed = 0x2545F491;
+
+	/** Results of {@link #split(Piece, int)}. */
+	private Piece splitLeft;
+	private Piece splitRight;
+
+	/** Offset inside the piece returned by {@link #findSinglePiece(int, int)}. */
+	private int pieceOffset;
+
+	//{{{ array() method
+	private char[] array(Piece piece)
+	{
+		return piece.added ? add : original;
+	} //}}}
+
+	//{{{ prepareAdd() method
+	/**
+	 * Makes room for <code>len</code> characters at the end of the add
+	 * array and returns the offset where they must be written.
+	 * The array is append only, so pieces and segments already
+	 * referencing it stay valid when it is reallocated.
+	 */
+	private int prepareAdd(int len)
+	{
+		int addStart = addLength;
+		if (addStart + len > add.length)
+		{
+			char[] addN = new char[Math.max(1024, (addStart + len) * 2)];
+			System.arraycopy(add, 0, addN, 0, addStart);
+			add = addN;
+		}
+		addLength += len;
+		return addStart;
+	} //}}}
+
+	//{{{ insertPiece() method
+	private void insertPiece(int start, int addStart, int len)
+	{
+		if (len == 0)
+			return;
+		// typing appends to the add array right after the previous
+		// insertion, so the piece before the caret can simply grow
+		if (start != 0 && extendPiece(start, addStart, len))
+			return;
+		split(root, start);
+		Piece left = splitLeft;
+		Piece right = splitRight;
+		splitLeft = splitRight = null;
+		Piece piece = new Piece(true, addStart, len, nextPriority());
+		root = merge(merge(left, piece), right);
+	} //}}}
+
+	//{{{ extendPiece() method
+	/**
+	 * Extends the piece ending at <code>offset</code> if it ends exactly
+	 * where the newly added text starts in the add array.
+	 */
+	private boolean extendPiece(int offset, int addStart, int len)
+	{
+		Piece node = root;
+		int pos = offset - 1;
+		while (node != null)
+		{
+			int leftSize = size(node.left);
+			if (pos < leftSize)
+				node = node.left;
+			else if (pos >= leftSize + node.len)
+			{
+				pos -= leftSize + node.len;
+				node = node.right;
+			}
+			else
+			{
+				if (!node.added
+					|| pos != leftSize + node.len - 1
+					|| node.start + node.len != addStart)
+					return false;
+				break;
+			}
+		}
+		if (node == null)
+			return false;
+
+		// second pass to update the subtree sizes along the path
+		Piece target = node;
+		node = root;
+		pos = offset - 1;
+		while (node != target)
+		{
+			node.size += len;
+			int leftSize = size(node.left);
+			if (pos < leftSize)
+				node = node.left;
+			else
+			{
+				pos -= leftSize + node.len;
+				node = node.right;
+			}
+		}
+		target.len += len;
+		target.size += len;
+		return true;
+	} //}}}
+
+	//{{{ findSinglePiece() method
+	/**
+	 * Returns the piece containing the whole given range, or null if the
+	 * range spans several pieces. The offset of the range inside the
+	 * piece is stored in {@link #pieceOffset}.
+	 */
+	private Piece findSinglePiece(int start, int len)
+	{
+		Piece node = root;
+		int pos = start;
+		while (node != null)
+		{
+			int leftSize = size(node.left);
+			if (pos < leftSize)
+				node = node.left;
+			else if (pos >= leftSize + node.len)
+			{
+				pos -= leftSize + node.len;
+				node = node.right;
+			}
+			else
+			{
+				pos -= leftSize;
+				if (pos + len > node.len)
+					return null;
+				pieceOffset = pos;
+				return node;
+			}
+		}
+		if (len == 0)
+		{
+			pieceOffset = 0;
+			return EMPTY_PIECE;
+		}
+		return null;
+	} //}}}
+
+	//{{{ copy() method
+	private void copy(Piece node, int start, int len, char[] dest, int destOffset)
+	{
+		while (node != null && len > 0)
+		{
+			int leftSize = size(node.left);
+			if (start < leftSize)
+			{
+				int leftLen = Math.min(len, leftSize - start);
+				copy(node.left, start, leftLen, dest, destOffset);
+				destOffset += leftLen;
+				len -= leftLen;
+				start = leftSize;
+			}
+			if (len == 0)
+				return;
+			int inPiece = start - leftSize;
+			if (inPiece < node.len)
+			{
+				int pieceLen = Math.min(len, node.len - inPiece);
+				System.arraycopy(array(node), node.start + inPiece,
+					dest, destOffset, pieceLen);
+				destOffset += pieceLen;
+				len -= pieceLen;
+				start += pieceLen;
+			}
+			// continue in the right subtree without recursing
+			start -= leftSize + node.len;
+			node = node.right;
+		}
+	} //}}}
+
+	//{{{ segment() method
+	/**
+	 * Builds a linked {@link BufferSegment} for the given range of the
+	 * subtree, walking it from right to left so that each segment can
+	 * be prepended to <code>next</code>.
+	 */
+	private BufferSegment segment(Piece node, int start, int len, BufferSegment next)
+	{
+		if (node == null || len <= 0)
+			return next;
+		int leftSize = size(node.left);
+		int end = start + len;
+		int pieceEnd = leftSize + node.len;
+		if (end > pieceEnd)
+		{
+			int rightStart = Math.max(0, start - pieceEnd);
+			next = segment(node.right, rightStart, end - pieceEnd - rightStart, next);
+		}
+		int from = Math.max(start, leftSize);
+		int to = Math.min(end, pieceEnd);
+		if (from < to)
+		{
+			next = new BufferSegment(array(node), node.start + from - leftSize,
+				to - from, next);
+		}
+		if (start < leftSize)
+			next = segment(node.left, start, Math.min(end, leftSize) - start, next);
+		return next;
+	} //}}}
+
+	//{{{ collect() method
+	private int collect(Piece node, Segment[] pieces, int index)
+	{
+		while (node != null)
+		{
+			index = collect(node.left, pieces, index);
+			pieces[index++] = new Segment(array(node), node.start, node.len);
+			node = node.right;
+		}
+		return index;
+	} //}}}
+
+	//{{{ split() method
+	/**
+	 * Splits the subtree so that {@link #splitLeft} holds the first
+	 * <code>offset</code> characters and {@link #splitRight} the rest,
+	 * cutting a piece in two if needed.
+	 */
+	private void split(Piece node, int offset)
+	{
+		if (node == null)
+		{
+			splitLeft = splitRight = null;
+			return;
+		}
+		int leftSize = size(node.left);
+		if (offset <= leftSize)
+		{
+			split(node.left, offset);
+			node.left = splitRight;
+			node.update();
+			splitRight = node;
+		}
+		else if (offset >= leftSize + node.len)
+		{
+			split(node.right, offset - leftSize - node.len);
+			node.right = splitLeft;
+			node.update();
+			splitLeft = node;
+		}
+		else
+		{
+			int cut = offset - leftSize;
+			Piece tail = new Piece(node.added, node.start + cut,
+				node.len - cut, nextPriority());
+			Piece right = node.right;
+			node.len = cut;
+			node.right = null;
+			node.update();
+			splitLeft = node;
+			splitRight = merge(tail, right);
+		}
+	} //}}}
+
+	//{{{ merge() method
+	private static Piece merge(Piece left, Piece right)
+	{
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.priority > right.priority)
+		{
+			left.right = merge(left.right, right);
+			left.update();
+			return left;
+		}
+		else
+		{
+			right.left = merge(left, right.left);
+			right.update();
+			return right;
+		}
+	} //}}}
+
+	//{{{ nextPriority() method
+	private int nextPriority()
+	{
+		// xorshift, we only need cheap and well spread priorities
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed = x;
+		return x;
+	} //}}}
+
+	//{{{ size() method
+	private static int size(Piece piece)
+	{
+		return piece == null ? 0 : piece.size;
+	} //}}}
+
+	//{{{ count() method
+	private static int count(Piece piece)
+	{
+		return piece == null ? 0 : 1 + count(piece.left) + count(piece.right);
+	} //}}}
+
+	private static final Piece EMPTY_PIECE = new Piece(false, 0, 0, 0);
+
+	//{{{ Piece class
+	private static class Piece
+	{
+		/** true if the piece references the add array, false for the original one */
+		final boolean added;
+		final int start;
+		int len;
+		final int priority;
+		/** number of characters in this subtree */
+		int size;
+		Piece left;
+		Piece right;
+
+		Piece(boolean added, int start, int len, int priority)
+		{
+			this.added = added;
+			this.start = start;
+			this.len = len;
+			this.priority = priority;
+			size = len;
+		}
+
+		void update()
+		{
+			size = len + size(left) + size(right);
+		}
+	} //}}}
+
+	//}}}
+}
@@ -20,13 +20,12 @@
  * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
  */
 
+
 package org.gjt.sp.jedit.buffer;
 
 //{{{ Imports
-import javax.annotation.Nonnull;
 import javax.swing.text.Position;
-import java.util.*;
-import org.gjt.sp.util.Log;
+import java.util.Random;
 import org.jedit.util.CleanerService;
 //}}}
 
@@ -37,6 +36,11 @@ import org.jedit.util.CleanerService;
  * there are no more references to it. For this implicit removal to work
  * a top (referenced outside) and a bottom half (referenced internally)
  * of the position are implemented separately.
+ * <p>The bottom halves are the nodes of a treap sorted by offset. An edit
+ * does not update the following positions one by one, it splits the
+ * tree at the edit offset and records the change on the root of the
+ * second part, it is applied to the subtrees when they are visited. So
+ * an edit takes a logarithmic time whatever the number of positions.
  *
  * @author Slava Pestov
  * @version $Id$
@@ -44,12 +48,6 @@ import org.jedit.util.CleanerService;
  */
 class PositionManager
 {
-	//{{{ PositionManager constructor
-	PositionManager(JEditBuffer buffer)
-	{
-		this.buffer = buffer;
-	} //}}}
-	
 	//{{{ createPosition() method
 	/** No explicit removal is required. Unreferencing is enough. */
 	public Position createPosition(int offset)
@@ -58,13 +56,14 @@ class PositionManager
 		Position posTopHalf;
 		synchronized (this)
 		{
-			PosBottomHalf bh = new PosBottomHalf(offset);
-			existing = positions.get(bh);
-			if(existing == null)
-			{
-				positions.put(bh,bh);
-				existing = bh;
-			}
+			PosBottomHalf left = split(root, offset);
+			PosBottomHalf middle = split(splitRight, offset + 1);
+			PosBottomHalf right = splitRight;
+			if(middle == null)
+				middle = new PosBottomHalf(offset, random.nextInt());
+			// any position at this offset can be shared
+			existing = middle;
+			root = merge(merge(left, middle), right);
 
 			posTopHalf = new PosTopHalf(existing);
 			existing.ref();
@@ -77,53 +76,144 @@ class PositionManager
 	//{{{ contentInserted() method
 	public synchronized void contentInserted(int offset, int length)
 	{
-		if(positions.isEmpty())
+		if(root == null)
 			return;
 
-		/* get all positions from offset to the end, inclusive */
-		Iterator<PosBottomHalf> iter = positions.tailMap(new PosBottomHalf(offset))
-			.keySet().iterator();
-
-		iteration = true;
-		while(iter.hasNext())
-		{
-			iter.next().contentInserted(offset,length);
-		}
-		iteration = false;
+		/* move all positions from offset to the end, inclusive */
+		PosBottomHalf left = split(root, offset);
+		PosBottomHalf right = splitRight;
+		if(right != null)
+			right.apply(length, NO_FLOOR);
+		root = merge(left, right);
 	} //}}}
 
 	//{{{ contentRemoved() method
 	public synchronized void contentRemoved(int offset, int length)
 	{
-		if(positions.isEmpty())
+		if(root == null)
 			return;
 
-		/* get all positions from offset to the end, inclusive */
-		Iterator<PosBottomHalf> iter = positions.tailMap(new PosBottomHalf(offset))
-			.keySet().iterator();
+		/* move all positions from offset to the end, inclusive,
+		 * the removed ones end up at offset */
+		PosBottomHalf left = split(root, offset);
+		PosBottomHalf right = splitRight;
+		if(right != null)
+			right.apply(-length, offset);
+		root = merge(left, right);
+	} //}}}
+
+	//{{{ getPositionCount() method
+	synchronized int getPositionCount()
+	{
+		return count(root);
+	} //}}}
 
-		iteration = true;
-		while(iter.hasNext())
+	//{{{ Private members
+	/** The floor of a change that does not have one. */
+	private static final int NO_FLOOR = Integer.MIN_VALUE;
+
+	private final Random random = new Random();
+	private PosBottomHalf root;
+	/** The second tree of the last split. */
+	private PosBottomHalf splitRight;
+
+	//{{{ unref() method
+	private synchronized void unref(PosBottomHalf posBottomHalf)
+	{
+		posBottomHalf.unref();
+	} //}}}
+
+	//{{{ split() method
+	/**
+	 * Splits a tree in two trees, the positions before an offset
+	 * are returned, the other ones are put in {@link #splitRight}.
+	 */
+	private PosBottomHalf split(PosBottomHalf node, int offset)
+	{
+		if(node == null)
 		{
-			iter.next().contentRemoved(offset,length);
+			splitRight = null;
+			return null;
 		}
-		iteration = false;
 
+		node.pushDown();
+		if(node.offset < offset)
+		{
+			node.setRight(split(node.right, offset));
+			node.parent = null;
+			return node;
+		}
+		else
+		{
+			PosBottomHalf left = split(node.left, offset);
+			node.setLeft(splitRight);
+			node.parent = null;
+			splitRight = node;
+			return left;
+		}
 	} //}}}
 
-	private void unref(PosBottomHalf posBottomHalf)
+	//{{{ merge() method
+	/**
+	 * Merges two trees, all the positions of the first one being before
+	 * the ones of the second one.
+	 */
+	private static PosBottomHalf merge(PosBottomHalf left, PosBottomHalf right)
 	{
-		synchronized (this)
+		if(left == null)
+			return right;
+		if(right == null)
+			return left;
+
+		if(left.priority > right.priority)
 		{
-			posBottomHalf.unref();
+			left.pushDown();
+			left.setRight(merge(left.right, right));
+			return left;
 		}
-	}
+		else
+		{
+			right.pushDown();
+			right.setLeft(merge(left, right.left));
+			return right;
+		}
+	} //}}}
 
-	boolean iteration;
+	//{{{ remove() method
+	private void remove(PosBottomHalf node)
+	{
+		pushDownFrom(node.parent);
+		node.pushDown();
+
+		PosBottomHalf parent = node.parent;
+		PosBottomHalf replacement = merge(node.left, node.right);
+		if(replacement != null)
+			replacement.parent = parent;
+		if(parent == null)
+			root = replacement;
+		else if(parent.left == node)
+			parent.left = replacement;
+		else
+			parent.right = replacement;
+		node.left = node.right = node.parent = null;
+	} //}}}
+
+	//{{{ pushDownFrom() method
+	/** Applies the pending changes from the root down to a node. */
+	private static void pushDownFrom(PosBottomHalf node)
+	{
+		if(node == null)
+			return;
+		pushDownFrom(node.parent);
+		node.pushDown();
+	} //}}}
+
+	//{{{ count() method
+	private static int count(PosBottomHalf node)
+	{
+		return node == null ? 0 : 1 + count(node.left) + count(node.right);
+	} //}}}
 
-	//{{{ Private members
-	private final JEditBuffer buffer;
-	private final SortedMap<PosBottomHalf, PosBottomHalf> positions = new TreeMap<>();
 	//}}}
 
 	//{{{ Inner classes
@@ -156,22 +246,41 @@ class PositionManager
 	//{{{ PosBottomHalf class
 	/** 'bottom' means the part
 	  * that is not visible outside and stays only here in
-	  * <code>positions</code> map.*/
-	class PosBottomHalf implements Comparable<PosBottomHalf>
+	  * the tree of positions.
+	  * <p>The offset of a node is up to date for the changes applied
+	  * to it, the changes applied to one of its ancestors after that
+	  * are pending in the ancestor. A change moves the offsets x to
+	  * max(x + add, floor), two changes can be combined in one. */
+	class PosBottomHalf
 	{
 		private int offset;
 		private int ref;
 
+		private final int priority;
+		private PosBottomHalf parent;
+		private PosBottomHalf left;
+		private PosBottomHalf right;
+		/** The change pending for the children. */
+		private int add;
+		private int floor = NO_FLOOR;
+
 		//{{{ PosBottomHalf constructor
-		PosBottomHalf(int offset)
+		PosBottomHalf(int offset, int priority)
 		{
 			this.offset = offset;
+			this.priority = priority;
 		} //}}}
 
 		//{{{ getOffset() method
 		public int getOffset()
 		{
-			return offset;
+			synchronized (PositionManager.this)
+			{
+				int offset = this.offset;
+				for(PosBottomHalf node = parent; node != null; node = node.parent)
+					offset = Math.max(offset + node.add, node.floor);
+				return offset;
+			}
 		} //}}}
 
 		//{{{ ref() method
@@ -184,54 +293,49 @@ class PositionManager
 		void unref()
 		{
 			if(--ref == 0)
-				positions.remove(this);
-		} //}}}
-
-		//{{{ contentInserted() method
-		void contentInserted(int offset, int length)
-		{
-			if(offset > this.offset)
-				throw new ArrayIndexOutOfBoundsException(offset);
-			this.offset += length;
-			checkInvariants();
+				remove(this);
 		} //}}}
 
-		//{{{ contentRemoved() method
-		void contentRemoved(int offset, int length)
+		//{{{ apply() method
+		/** Moves this position and the ones of its subtrees. */
+		void apply(int add, int floor)
 		{
-			if(offset > this.offset)
-				throw new ArrayIndexOutOfBoundsException(offset);
-			if(this.offset <= offset + length)
-				this.offset = offset;
+			offset = Math.max(offset + add, floor);
+			if(this.floor != NO_FLOOR)
+				this.floor = Math.max(this.floor + add, floor);
 			else
-				this.offset -= length;
-			checkInvariants();
+				this.floor = floor;
+			this.add += add;
 		} //}}}
 
-		//{{{ equals() method
-		@Override
-		public boolean equals(Object o)
+		//{{{ pushDown() method
+		/** Applies the pending change to the children. */
+		void pushDown()
 		{
-			if(!(o instanceof PosBottomHalf))
-				return false;
-
-			return ((PosBottomHalf)o).offset == offset;
+			if(add == 0 && floor == NO_FLOOR)
+				return;
+			if(left != null)
+				left.apply(add, floor);
+			if(right != null)
+				right.apply(add, floor);
+			add = 0;
+			floor = NO_FLOOR;
 		} //}}}
 
-		//{{{ compareTo() method
-		@Override
-		public int compareTo(@Nonnull PosBottomHalf posBottomHalf)
+		//{{{ setLeft() method
+		void setLeft(PosBottomHalf left)
 		{
-			if(iteration)
-				Log.log(Log.ERROR,this,"Consistency failure");
-			return offset - posBottomHalf.offset;
+			this.left = left;
+			if(left != null)
+				left.parent = this;
 		} //}}}
-		
-		//{{{ checkInvariants() method
-		private void checkInvariants()
+
+		//{{{ setRight() method
+		void setRight(PosBottomHalf right)
 		{
-			if(offset < 0 || offset > buffer.getLength())
-				throw new ArrayIndexOutOfBoundsException(offset);
+			this.right = right;
+			if(right != null)
+				right.parent = this;
 		} //}}}
 	} //}}}
 
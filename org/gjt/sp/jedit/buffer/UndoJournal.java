@@ -0,0 +1,696 @@
+/*
+ * UndoJournal.java - Storage of the old edits of the undo history
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.gjt.sp.util.Log;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * A temporary file storing the packed edits of an {@link UndoManager}.<p>
+ *
+ * The records are packed, compressed and appended to the file by a
+ * background task, one at a time, and read back in the calling thread.
+ * Until a record is written, its {@link Packer} keeps the edits in memory.
+ * If the file cannot be written, the records are never written and the
+ * edits stay in memory.<p>
+ *
+ * The records of the edits dropped from the undo history are released.
+ * When most of the file is released records, the others are copied to a
+ * new file, and the file is deleted when it has no record left. The file
+ * is locked while it is used, so that the files left by a crash can be
+ * told apart and deleted with {@link #deleteOrphans(File)}.
+ *
+ * @since jEdit 5.7pre1
+ */
+class UndoJournal
+{
+	//{{{ UndoJournal constructor
+	/**
+	 * @param directory the directory of the temporary file, or null for
+	 * the default temporary directory
+	 */
+	UndoJournal(File directory)
+	{
+		this.directory = directory;
+	} //}}}
+
+	//{{{ Packer interface
+	/**
+	 * Writes the content of a record, in the background task.
+	 */
+	interface Packer
+	{
+		/**
+		 * Writes the content of the record.
+		 * @param out the stream compressing the record in the file
+		 */
+		void pack(DataOutputStream out) throws IOException;
+
+		/**
+		 * Called once the record is in the file, so that its content
+		 * can be forgotten.
+		 */
+		void written();
+	} //}}}
+
+	//{{{ write() method
+	/**
+	 * Adds a record, which is written later by the background task.
+	 * @param packer writes the content of the record
+	 * @return the record, to read it again
+	 */
+	Record write(Packer packer)
+	{
+		Record record = new Record(packer);
+		synchronized(lock)
+		{
+			if(writeFailed || closed)
+			{
+				record.state = FAILED;
+				return record;
+			}
+			pending.add(record);
+			startWriter();
+		}
+		return record;
+	} //}}}
+
+	//{{{ read() method
+	/**
+	 * Reads a record, waiting for it to be written if it is not yet.
+	 * @param record a record returned by {@link #write(Packer)}
+	 * @return the record content
+	 * @throws IOException if the record was not or cannot be read
+	 */
+	DataInputStream read(Record record) throws IOException
+	{
+		byte[] data;
+		synchronized(lock)
+		{
+			boolean interrupted = false;
+			while(record.state == PENDING)
+			{
+				try
+				{
+					lock.wait();
+				}
+				catch(InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if(interrupted)
+				Thread.currentThread().interrupt();
+			if(record.state != WRITTEN)
+				throw new IOException("The record is not in the undo journal");
+
+			data = new byte[record.length];
+			readFully(channel, record.position, data);
+		}
+		return new DataInputStream(new InflaterInputStream(
+			new ByteArrayInputStream(data)));
+	} //}}}
+
+	//{{{ release() method
+	/**
+	 * Releases a record which will not be read anymore.
+	 * @param record a record returned by {@link #write(Packer)}
+	 */
+	void release(Record record)
+	{
+		synchronized(lock)
+		{
+			if(record.state == PENDING)
+			{
+				pending.remove(record);
+				record.state = RELEASED;
+				record.packer = null;
+				lock.notifyAll();
+			}
+			else if(record.state == WRITTEN)
+			{
+				record.state = RELEASED;
+				inFile.remove(record);
+				releasedSize += record.length;
+				if(inFile.isEmpty() || isCompactionNeeded())
+					startWriter();
+			}
+		}
+	} //}}}
+
+	//{{{ getFileSize() method
+	/**
+	 * @return the length of the temporary file
+	 */
+	long getFileSize()
+	{
+		synchronized(lock)
+		{
+			return fileSize;
+		}
+	} //}}}
+
+	//{{{ waitForWriter() method
+	/**
+	 * Waits until the background task has written the records and
+	 * compacted or deleted the file.
+	 */
+	void waitForWriter() throws InterruptedException
+	{
+		synchronized(lock)
+		{
+			while(writerRunning)
+				lock.wait();
+		}
+	} //}}}
+
+	//{{{ close() method
+	/**
+	 * Forgets the records and deletes the temporary file, after the record
+	 * being written if there is one. The records cannot be read anymore.
+	 */
+	void close()
+	{
+		synchronized(lock)
+		{
+			closed = true;
+			for(Record record : pending)
+			{
+				record.state = RELEASED;
+				record.packer = null;
+			}
+			pending.clear();
+			for(Record record : inFile)
+				record.state = RELEASED;
+			inFile.clear();
+			lock.notifyAll();
+			// otherwise the writer deletes it when it stops
+			if(!writerRunning)
+				deleteFile();
+		}
+	} //}}}
+
+	//{{{ deleteOrphans() method
+	/**
+	 * Deletes the journal files left in a directory by a jEdit instance
+	 * which was not closed properly. The files locked by a running
+	 * instance are kept.
+	 * @param directory the directory of the journals
+	 */
+	static void deleteOrphans(File directory)
+	{
+		File[] files = directory.listFiles((dir, name) ->
+			name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+		if(files == null)
+			return;
+
+		for(File orphan : files)
+		{
+			try(FileChannel channel = FileChannel.open(orphan.toPath(),
+				StandardOpenOption.WRITE))
+			{
+				FileLock lock = channel.tryLock();
+				if(lock == null)
+					continue;
+				lock.release();
+			}
+			catch(OverlappingFileLockException e)
+			{
+				// used by this instance
+				continue;
+			}
+			catch(IOException e)
+			{
+				Log.log(Log.WARNING, UndoJournal.class, "Cannot lock " + orphan, e);
+				continue;
+			}
+			Log.log(Log.DEBUG, UndoJournal.class, "Deleting " + orphan);
+			if(!orphan.delete())
+				Log.log(Log.WARNING, UndoJournal.class, "Cannot delete " + orphan);
+		}
+	} //}}}
+
+	//{{{ Record class
+	/**
+	 * A record, waiting to be written or in the temporary file.
+	 */
+	static class Record
+	{
+		/** Writes the record until it is written, then null. */
+		private Packer packer;
+		private int state = PENDING;
+		private long position;
+		private int length;
+
+		//{{{ Record constructor
+		Record(Packer packer)
+		{
+			this.packer = packer;
+		} //}}}
+	} //}}}
+
+	//{{{ Private members
+	/** The file is not compacted for fewer released bytes. */
+	private static final long MIN_COMPACTED_SIZE = 1024L * 1024L;
+	private static final String PREFIX = "undo";
+	private static final String SUFFIX = ".journal";
+	private static final int BUFFER_SIZE = 8192;
+
+	// states of the records
+	private static final int PENDING = 0;
+	private static final int WRITTEN = 1;
+	private static final int FAILED = 2;
+	private static final int RELEASED = 3;
+
+	private final File directory;
+	/**
+	 * Guards the fields below. The background task holds it only to take
+	 * a record and to publish what it wrote, never while it writes.
+	 */
+	private final Object lock = new Object();
+	private final Queue<Record> pending = new ArrayDeque<>();
+	private final Set<Record> inFile = new LinkedHashSet<>();
+	/** The bytes of the file used by released records. */
+	private long releasedSize;
+	private long fileSize;
+	private File path;
+	private FileChannel channel;
+	private boolean writerRunning;
+	private boolean writeFailed;
+	private boolean compactFailed;
+	private boolean closed;
+
+	//{{{ startWriter() method
+	/**
+	 * Starts the background task if it is not running. Called with the
+	 * lock held.
+	 */
+	private void startWriter()
+	{
+		if(writerRunning)
+			return;
+		writerRunning = true;
+		ThreadUtilities.runInBackground(new Writer());
+	} //}}}
+
+	//{{{ isCompactionNeeded() method
+	/**
+	 * Called with the lock held.
+	 */
+	private boolean isCompactionNeeded()
+	{
+		return releasedSize >= MIN_COMPACTED_SIZE
+			&& releasedSize > fileSize / 2 && !compactFailed;
+	} //}}}
+
+	//{{{ append() method
+	/**
+	 * Packs a record at the end of the file. Called in the background task
+	 * without the lock, the file being only written by this task.
+	 * @return the length of the record in the file
+	 */
+	private int append(FileChannel channel, long position, Packer packer)
+		throws IOException
+	{
+		channel.position(position);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try
+		{
+			// the channel is not closed with the streams
+			OutputStream file = new BufferedOutputStream(
+				Channels.newOutputStream(channel), BUFFER_SIZE);
+			DeflaterOutputStream compressed = new DeflaterOutputStream(file,
+				deflater, BUFFER_SIZE);
+			DataOutputStream out = new DataOutputStream(compressed);
+			packer.pack(out);
+			out.flush();
+			compressed.finish();
+			file.flush();
+		}
+		finally
+		{
+			deflater.end();
+		}
+		long length = channel.position() - position;
+		if(length > Integer.MAX_VALUE)
+			throw new IOException("Record too long: " + length);
+		return (int)length;
+	} //}}}
+
+	//{{{ compact() method
+	/**
+	 * Copies the records which are not released to a new file. Called in
+	 * the background task.
+	 */
+	private void compact()
+	{
+		List<Record> records;
+		FileChannel oldChannel;
+		synchronized(lock)
+		{
+			records = new ArrayList<>(inFile);
+			oldChannel = channel;
+		}
+
+		File newPath = null;
+		FileChannel newChannel = null;
+		try
+		{
+			newPath = createFile(path.getParentFile());
+			newChannel = open(newPath);
+			long[] positions = new long[records.size()];
+			long position = 0L;
+			for(int i = 0; i < records.size(); i++)
+			{
+				Record record = records.get(i);
+				ByteBuffer data = ByteBuffer.allocate(record.length);
+				readFully(oldChannel, record.position, data.array());
+				while(data.hasRemaining())
+					newChannel.write(data);
+				positions[i] = position;
+				position += record.length;
+			}
+
+			synchronized(lock)
+			{
+				// the records are moved only once they were all
+				// copied, some of them were released meanwhile
+				long released = 0L;
+				for(int i = 0; i < records.size(); i++)
+				{
+					Record record = records.get(i);
+					record.position = positions[i];
+					if(record.state == RELEASED)
+						released += record.length;
+				}
+				closeFile();
+				path = newPath;
+				channel = newChannel;
+				fileSize = position;
+				releasedSize = released;
+			}
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, "Cannot compact the undo journal", e);
+			synchronized(lock)
+			{
+				compactFailed = true;
+			}
+			if(newChannel != null)
+			{
+				try
+				{
+					newChannel.close();
+				}
+				catch(IOException e2)
+				{
+					Log.log(Log.ERROR, this, e2);
+				}
+			}
+			if(newPath != null && !newPath.delete())
+				Log.log(Log.WARNING, this, "Cannot delete " + newPath);
+		}
+	} //}}}
+
+	//{{{ readFully() method
+	private static void readFully(FileChannel channel, long position, byte[] data)
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		while(buffer.hasRemaining())
+		{
+			if(channel.read(buffer, position + buffer.position()) == -1)
+				throw new EOFException();
+		}
+	} //}}}
+
+	//{{{ createFile() method
+	private static File createFile(File directory) throws IOException
+	{
+		File path = File.createTempFile(PREFIX, SUFFIX, directory);
+		path.deleteOnExit();
+		return path;
+	} //}}}
+
+	//{{{ open() method
+	/**
+	 * Opens a journal file and locks it, to show it is used.
+	 */
+	private FileChannel open(File path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path.toPath(),
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			if(channel.tryLock() == null)
+				Log.log(Log.WARNING, this, "Cannot lock " + path);
+		}
+		catch(IOException e)
+		{
+			// not supported by every file system
+			Log.log(Log.WARNING, this, "Cannot lock " + path, e);
+		}
+		return channel;
+	} //}}}
+
+	//{{{ closeFile() method
+	/**
+	 * Closes and deletes the temporary file.
+	 */
+	private void closeFile()
+	{
+		try
+		{
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, e);
+		}
+		if(!path.delete())
+			Log.log(Log.WARNING, this, "Cannot delete " + path);
+	} //}}}
+
+	//{{{ deleteFile() method
+	/**
+	 * Deletes the temporary file, a new one is created by the next
+	 * write. Called with the lock held.
+	 */
+	private void deleteFile()
+	{
+		if(channel != null)
+		{
+			closeFile();
+			channel = null;
+			path = null;
+		}
+		fileSize = 0L;
+		releasedSize = 0L;
+	} //}}}
+
+	//}}}
+
+	//{{{ Writer class
+	/**
+	 * Writes the pending records one at a time, then compacts or deletes
+	 * the file if needed.
+	 */
+	private class Writer extends Task
+	{
+		Writer()
+		{
+			setLabel("Writing the undo journal");
+			setPriority(Priority.BACKGROUND_IO);
+			// an interrupt would close the channel
+			setCancellable(false);
+		}
+
+		@Override
+		public void _run()
+		{
+			while(true)
+			{
+				Record record;
+				Packer packer;
+				FileChannel channel;
+				long position;
+				synchronized(lock)
+				{
+					record = pending.peek();
+					if(record == null)
+					{
+						if(!maintain())
+						{
+							writerRunning = false;
+							lock.notifyAll();
+							return;
+						}
+						continue;
+					}
+					packer = record.packer;
+					channel = getChannel();
+					if(channel == null)
+						continue;
+					position = fileSize;
+				}
+
+				int length;
+				try
+				{
+					length = append(channel, position, packer);
+				}
+				catch(IOException | RuntimeException e)
+				{
+					Log.log(Log.ERROR, UndoJournal.this, "Cannot write the undo journal", e);
+					synchronized(lock)
+					{
+						failPending();
+					}
+					continue;
+				}
+
+				boolean written;
+				synchronized(lock)
+				{
+					// the file is only compacted or deleted by
+					// this task, the record was added at its end
+					fileSize = position + length;
+					pending.remove(record);
+					written = record.state == PENDING;
+					if(written)
+					{
+						record.state = WRITTEN;
+						record.position = position;
+						record.length = length;
+						record.packer = null;
+						inFile.add(record);
+					}
+					else
+						releasedSize += length;
+					lock.notifyAll();
+				}
+				if(written)
+					packer.written();
+			}
+		}
+
+		/**
+		 * Opens the file if needed. Called with the lock held.
+		 * @return the file, or null if it cannot be opened
+		 */
+		private FileChannel getChannel()
+		{
+			if(channel != null)
+				return channel;
+			try
+			{
+				if(directory != null && !directory.exists() && !directory.mkdirs())
+					Log.log(Log.WARNING, UndoJournal.this, "Cannot create " + directory);
+				path = createFile(directory != null && directory.isDirectory()
+					? directory : null);
+				channel = open(path);
+				return channel;
+			}
+			catch(IOException e)
+			{
+				Log.log(Log.ERROR, UndoJournal.this, "Cannot create the undo journal", e);
+				if(path != null && !path.delete())
+					Log.log(Log.WARNING, UndoJournal.this, "Cannot delete " + path);
+				path = null;
+				failPending();
+				return null;
+			}
+		}
+
+		/**
+		 * The pending records stay in memory, and the next ones too.
+		 * Called with the lock held.
+		 */
+		private void failPending()
+		{
+			writeFailed = true;
+			for(Record record : pending)
+			{
+				record.state = FAILED;
+				record.packer = null;
+			}
+			pending.clear();
+			lock.notifyAll();
+		}
+
+		/**
+		 * Deletes the file if it has no record, or compacts it. Called
+		 * with the lock held, which is released while compacting.
+		 * @return true if the file was compacted, and the pending records
+		 * have to be checked again
+		 */
+		private boolean maintain()
+		{
+			if(channel == null)
+				return false;
+			if(closed || inFile.isEmpty())
+			{
+				deleteFile();
+				return false;
+			}
+			if(!isCompactionNeeded())
+				return false;
+			compact();
+			return true;
+		}
+
+		@Override
+		public String toString()
+		{
+			return getLabel();
+		}
+	} //}}}
+}
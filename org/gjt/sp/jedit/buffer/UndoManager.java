@@ -23,6 +23,15 @@
 package org.gjt.sp.jedit.buffer;
 
 //{{{ Imports
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.gjt.sp.util.IntegerArray;
 import org.gjt.sp.util.Log;
 import org.gjt.sp.jedit.textarea.Selection;
@@ -34,6 +43,11 @@ import org.gjt.sp.jedit.textarea.Selection;
  * check for out of bounds access, nor are they thread-safe. The
  * <code>Buffer</code> class, through which these methods must be
  * called through, implements such protection.
+ * <p>The text of the edits is kept in memory up to the memory limit.
+ * Above it, the oldest edits are packed in an {@link UndoJournal} by a
+ * background task, and read back from it when they are undone or redone.
+ * The most recent edits are never packed, and an edit stays in memory
+ * until it is written.
  *
  * @author Slava Pestov
  * @version $Id$
@@ -53,11 +67,75 @@ public class UndoManager
 		this.limit = limit;
 	} //}}}
 
+	//{{{ setMemoryLimit() method
+	/**
+	 * Sets the number of bytes the text of the edits can use in memory.
+	 * Above it, the oldest edits are written to a temporary file, except
+	 * the most recent ones.
+	 * @param memoryLimit the memory limit in bytes
+	 * @since jEdit 5.7pre1
+	 */
+	public void setMemoryLimit(long memoryLimit)
+	{
+		this.memoryLimit = memoryLimit;
+	} //}}}
+
+	//{{{ setJournalDirectory() method
+	/**
+	 * Sets the directory of the temporary file of the packed edits.
+	 * @param journalDirectory the directory, or null for the default
+	 * temporary directory
+	 * @since jEdit 5.7pre1
+	 */
+	public void setJournalDirectory(File journalDirectory)
+	{
+		this.journalDirectory = journalDirectory;
+	} //}}}
+
+	//{{{ deleteJournals() method
+	/**
+	 * Deletes the temporary files of the packed edits left in a
+	 * directory by a jEdit instance which was not closed properly.
+	 * @param journalDirectory the directory of the temporary files
+	 * @since jEdit 5.7pre1
+	 */
+	public static void deleteJournals(File journalDirectory)
+	{
+		UndoJournal.deleteOrphans(journalDirectory);
+	} //}}}
+
+	//{{{ getMemorySize() method
+	/**
+	 * @return the approximate number of bytes used by the edits not
+	 * packed in the journal
+	 */
+	long getMemorySize()
+	{
+		return memorySize;
+	} //}}}
+
+	//{{{ waitForJournal() method
+	/**
+	 * Waits until the packed edits are written to the journal.
+	 */
+	void waitForJournal() throws InterruptedException
+	{
+		if(journal != null)
+			journal.waitForWriter();
+	} //}}}
+
 	//{{{ clear() method
 	public void clear()
 	{
 		undosFirst = undosLast = redosFirst = null;
 		undoCount = 0;
+		memorySize = 0;
+		spillFrom = null;
+		if(journal != null)
+		{
+			journal.close();
+			journal = null;
+		}
 	} //}}}
 
 	//{{{ canUndo() method
@@ -175,11 +253,13 @@ public class UndoManager
 			if(ins.offset == offset)
 			{
 				ins.str = text.concat(ins.str);
+				merged(text);
 				return;
 			}
 			else if(ins.offset + ins.str.length() == offset)
 			{
 				ins.str = ins.str.concat(text);
+				merged(text);
 				return;
 			}
 		}
@@ -188,7 +268,7 @@ public class UndoManager
 
 		if(clearDirty)
 		{
-			redoClearDirty = getLastEdit();
+			setRedoClearDirty(getLastEdit());
 			undoClearDirty = ins;
 		}
 
@@ -215,6 +295,7 @@ public class UndoManager
 				String newStr = rem.str.concat(text);
 				KillRing.getInstance().changed(rem.str, newStr);
 				rem.str = newStr;
+				merged(text);
 				return;
 			}
 			else if(offset + length == rem.offset)
@@ -223,6 +304,7 @@ public class UndoManager
 				KillRing.getInstance().changed(rem.str, newStr);
  				rem.offset = offset;
 				rem.str = newStr;
+				merged(text);
 				return;
 			}
 		}
@@ -233,7 +315,7 @@ public class UndoManager
 
 		if(clearDirty)
 		{
-			redoClearDirty = getLastEdit();
+			setRedoClearDirty(getLastEdit());
 			undoClearDirty = rem;
 		}
 
@@ -248,14 +330,48 @@ public class UndoManager
 		KillRing.getInstance().add(rem.str);
 	} //}}}
 
+	//{{{ contentReplaced() method
+	/**
+	 * Records the replacement of several ranges by
+	 * {@link JEditBuffer#replace(int[],int[],String[])}.
+	 * @param offsets the start offsets of the ranges
+	 * @param removed the text of each range
+	 * @param inserted the text replacing each range
+	 * @param clearDirty true if the buffer was not dirty
+	 * @since jEdit 5.7pre1
+	 */
+	public void contentReplaced(int[] offsets, String[] removed, String[] inserted,
+		boolean clearDirty)
+	{
+		BulkReplace rep = new BulkReplace(offsets, removed, inserted);
+
+		if(clearDirty)
+		{
+			setRedoClearDirty(getLastEdit());
+			undoClearDirty = rep;
+		}
+
+		if(compoundEdit != null)
+			compoundEdit.add(this, rep);
+		else
+		{
+			reviseUndoId();
+			addEdit(rep);
+		}
+	} //}}}
+
 	//{{{ resetClearDirty method
 	public void resetClearDirty()
 	{
-		redoClearDirty = getLastEdit();
+		setRedoClearDirty(getLastEdit());
 		if(redosFirst instanceof CompoundEdit)
 			undoClearDirty = ((CompoundEdit)redosFirst).first;
 		else
+		{
 			undoClearDirty = redosFirst;
+			if(redosFirst instanceof SpilledEdit)
+				((SpilledEdit)redosFirst).undoLeaf = 0;
+		}
 	} //}}}
 
 	//{{{ Private members
@@ -276,11 +392,30 @@ public class UndoManager
 	private CompoundEdit compoundEdit;
 	private Edit undoClearDirty, redoClearDirty;
 	private Object undoId;
+
+	/** The most recent edits, which are never packed. */
+	private static final int RECENT_EDITS = 16;
+
+	private long memoryLimit = Long.MAX_VALUE;
+	// bytes used by the edits of both queues
+	private long memorySize;
+	// the edits before this one are packed, or cannot be
+	private Edit spillFrom;
+	private File journalDirectory;
+	private UndoJournal journal;
 	//}}}
 
 	//{{{ addEdit() method
 	private void addEdit(Edit edit)
 	{
+		for(Edit redo = redosFirst; redo != null; redo = redo.next)
+		{
+			memorySize -= redo.getSize();
+			if(redo == spillFrom)
+				spillFrom = null;
+			dropped(redo);
+		}
+
 		if(undosFirst == null)
 			undosFirst = undosLast = edit;
 		else
@@ -293,10 +428,15 @@ public class UndoManager
 		redosFirst = null;
 
 		undoCount++;
+		memorySize += edit.getSize();
 
 		while(undoCount > limit)
 		{
 			undoCount--;
+			memorySize -= undosFirst.getSize();
+			if(undosFirst == spillFrom)
+				spillFrom = null;
+			dropped(undosFirst);
 
 			if(undosFirst == undosLast)
 				undosFirst = undosLast = null;
@@ -306,6 +446,272 @@ public class UndoManager
 				undosFirst = undosFirst.next;
 			}
 		}
+
+		if(memorySize > memoryLimit)
+			spill();
+	} //}}}
+
+	//{{{ dropped() method
+	/**
+	 * Called when an edit is removed from the history, to release its
+	 * record in the journal.
+	 */
+	private void dropped(Edit edit)
+	{
+		if(edit instanceof SpilledEdit)
+			journal.release(((SpilledEdit)edit).record);
+	} //}}}
+
+	//{{{ merged() method
+	/**
+	 * Called when some text was merged with an existing edit.
+	 */
+	private void merged(String text)
+	{
+		// the compound edit is counted when it is added
+		if(compoundEdit == null)
+			memorySize += 2L * text.length();
+	} //}}}
+
+	//{{{ spill() method
+	/**
+	 * Packs the oldest edits in the journal until the other ones fit in
+	 * the memory limit, keeping the most recent ones. Called when an edit
+	 * is added, so there are no redos.
+	 */
+	private void spill()
+	{
+		Edit recent = undosLast;
+		for(int i = 1; i < RECENT_EDITS && recent != null; i++)
+			recent = recent.prev;
+		if(recent == null)
+			return;
+
+		Edit edit = spillFrom == null ? undosFirst : spillFrom;
+		while(edit != recent && memorySize > memoryLimit)
+		{
+			if(!(edit instanceof SpilledEdit))
+				edit = spill(edit);
+			spillFrom = edit;
+			edit = edit.next;
+		}
+	} //}}}
+
+	//{{{ spill() method
+	/**
+	 * Replaces an edit by its packed version, which keeps it until it is
+	 * written to the journal.
+	 * @return the packed edit
+	 */
+	private Edit spill(Edit edit)
+	{
+		List<Edit> leaves = new ArrayList<>();
+		leaves(edit, leaves);
+
+		if(journal == null)
+			journal = new UndoJournal(journalDirectory);
+		SpilledEdit spilled = new SpilledEdit(edit, leaves.size());
+		spilled.record = journal.write(spilled);
+		for(int i = 0; i < leaves.size(); i++)
+		{
+			if(leaves.get(i) == undoClearDirty)
+			{
+				undoClearDirty = spilled;
+				spilled.undoLeaf = i;
+			}
+			if(leaves.get(i) == redoClearDirty)
+			{
+				redoClearDirty = spilled;
+				spilled.redoLeaf = i;
+			}
+		}
+
+		spilled.prev = edit.prev;
+		spilled.next = edit.next;
+		if(edit.prev != null)
+			edit.prev.next = spilled;
+		if(edit.next != null)
+			edit.next.prev = spilled;
+		if(undosFirst == edit)
+			undosFirst = spilled;
+		if(undosLast == edit)
+			undosLast = spilled;
+		if(redosFirst == edit)
+			redosFirst = spilled;
+
+		memorySize += spilled.getSize() - edit.getSize();
+		return spilled;
+	} //}}}
+
+	//{{{ leaves() method
+	/**
+	 * Adds the edits of an edit, compound edits being flattened, in the
+	 * order of {@link #unpack(DataInputStream,List)}.
+	 */
+	private static void leaves(Edit edit, List<Edit> leaves)
+	{
+		if(edit instanceof CompoundEdit)
+		{
+			for(Edit child = ((CompoundEdit)edit).first; child != null; child = child.next)
+				leaves(child, leaves);
+		}
+		else
+			leaves.add(edit);
+	} //}}}
+
+	//{{{ pack() method
+	/**
+	 * Writes an edit, in the background task of the journal. The fields
+	 * which are written are not changed by undo and redo, and only the
+	 * most recent edit is changed when some text is merged with it.
+	 */
+	private static void pack(Edit edit, DataOutputStream out)
+		throws IOException
+	{
+		if(edit instanceof CompoundEdit)
+		{
+			int count = 0;
+			for(Edit child = ((CompoundEdit)edit).first; child != null; child = child.next)
+				count++;
+			out.writeByte(COMPOUND);
+			out.writeInt(count);
+			for(Edit child = ((CompoundEdit)edit).first; child != null; child = child.next)
+				pack(child, out);
+			return;
+		}
+
+		if(edit instanceof Insert)
+		{
+			Insert ins = (Insert)edit;
+			out.writeByte(INSERT);
+			out.writeInt(ins.offset);
+			writeString(out, ins.str);
+		}
+		else if(edit instanceof Remove)
+		{
+			Remove rem = (Remove)edit;
+			out.writeByte(REMOVE);
+			out.writeInt(rem.offset);
+			writeString(out, rem.str);
+		}
+		else if(edit instanceof BulkReplace)
+		{
+			BulkReplace rep = (BulkReplace)edit;
+			out.writeByte(BULK_REPLACE);
+			out.writeInt(rep.strings.length);
+			for(String str : rep.strings)
+				writeString(out, str);
+			out.writeInt(rep.offsets.length);
+			for(int i = 0; i < rep.offsets.length; i++)
+			{
+				out.writeInt(rep.offsets[i]);
+				out.writeInt(rep.removed[i]);
+				out.writeInt(rep.inserted[i]);
+			}
+		}
+		else if(edit instanceof CompressedReplace)
+		{
+			CompressedReplace rep = (CompressedReplace)edit;
+			out.writeByte(COMPRESSED_REPLACE);
+			writeString(out, rep.strRemove);
+			writeString(out, rep.strInsert);
+			out.writeInt(rep.offsets.getSize());
+			for(int i = 0; i < rep.offsets.getSize(); i++)
+				out.writeInt(rep.offsets.get(i));
+		}
+		else
+		{
+			Replace rep = (Replace)edit;
+			out.writeByte(REPLACE);
+			out.writeInt(rep.offset);
+			writeString(out, rep.strRemove);
+			writeString(out, rep.strInsert);
+		}
+	} //}}}
+
+	//{{{ unpack() method
+	private static Edit unpack(DataInputStream in, List<Edit> leaves)
+		throws IOException
+	{
+		byte type = in.readByte();
+		if(type == COMPOUND)
+		{
+			CompoundEdit compound = new CompoundEdit();
+			int count = in.readInt();
+			for(int i = 0; i < count; i++)
+				compound._add(unpack(in, leaves));
+			return compound;
+		}
+
+		Edit edit;
+		switch(type)
+		{
+		case INSERT:
+			edit = new Insert(in.readInt(), readString(in));
+			break;
+		case REMOVE:
+			edit = new Remove(in.readInt(), readString(in));
+			break;
+		case REPLACE:
+			edit = new Replace(in.readInt(), readString(in), readString(in));
+			break;
+		case COMPRESSED_REPLACE:
+			String strRemove = readString(in);
+			String strInsert = readString(in);
+			int count = in.readInt();
+			CompressedReplace rep = new CompressedReplace(
+				new Replace(in.readInt(), strRemove, strInsert));
+			for(int i = 1; i < count; i++)
+				rep.offsets.add(in.readInt());
+			edit = rep;
+			break;
+		case BULK_REPLACE:
+			String[] strings = new String[in.readInt()];
+			for(int i = 0; i < strings.length; i++)
+				strings[i] = readString(in);
+			int ranges = in.readInt();
+			int[] offsets = new int[ranges];
+			int[] removed = new int[ranges];
+			int[] inserted = new int[ranges];
+			for(int i = 0; i < ranges; i++)
+			{
+				offsets[i] = in.readInt();
+				removed[i] = in.readInt();
+				inserted[i] = in.readInt();
+			}
+			edit = new BulkReplace(offsets, removed, inserted, strings);
+			break;
+		default:
+			throw new IOException("Unknown edit type " + type);
+		}
+		leaves.add(edit);
+		return edit;
+	} //}}}
+
+	//{{{ writeString() method
+	private static void writeString(DataOutputStream out, String str)
+		throws IOException
+	{
+		out.writeInt(str.length());
+		out.writeChars(str);
+	} //}}}
+
+	//{{{ readString() method
+	private static String readString(DataInputStream in) throws IOException
+	{
+		char[] chars = new char[in.readInt()];
+		for(int i = 0; i < chars.length; i++)
+			chars[i] = in.readChar();
+		return new String(chars);
+	} //}}}
+
+	//{{{ setRedoClearDirty() method
+	private void setRedoClearDirty(Edit edit)
+	{
+		redoClearDirty = edit;
+		// the last edit of a compound edit
+		if(edit instanceof SpilledEdit)
+			((SpilledEdit)edit).redoLeaf = ((SpilledEdit)edit).leafCount - 1;
 	} //}}}
 
 	//{{{ getMergeEdit() method
@@ -402,11 +808,29 @@ public class UndoManager
 
 	//{{{ Inner classes
 
+	// types of the packed edits
+	private static final byte INSERT = 0;
+	private static final byte REMOVE = 1;
+	private static final byte REPLACE = 2;
+	private static final byte COMPRESSED_REPLACE = 3;
+	private static final byte COMPOUND = 4;
+	private static final byte BULK_REPLACE = 5;
+
+	// approximate memory used by an edit without its text
+	private static final long EDIT_SIZE = 48;
+
 	//{{{ Edit class
 	private abstract static class Edit
 	{
 		Edit prev, next;
 
+		//{{{ getSize() method
+		/**
+		 * Returns the approximate number of bytes used by this edit.
+		 */
+		abstract long getSize();
+		//}}}
+
 		//{{{ undo() method
 		/**
 		 * Returns the selection that should be active after performing
@@ -467,6 +891,13 @@ public class UndoManager
 			return new Selection[] { new Selection.Range(caret, caret) };
 		} //}}}
 
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			return EDIT_SIZE + 2L * str.length();
+		} //}}}
+
 		int offset;
 		String str;
 	} //}}}
@@ -503,6 +934,13 @@ public class UndoManager
 			return new Selection[] { new Selection.Range(offset, offset) };
 		} //}}}
 
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			return EDIT_SIZE + 2L * str.length();
+		} //}}}
+
 		int offset;
 		String str;
 	} //}}}
@@ -542,6 +980,13 @@ public class UndoManager
 			return new Selection[] { new Selection.Range(caret, caret) };
 		} //}}}
 
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			return EDIT_SIZE + 2L * (strRemove.length() + strInsert.length());
+		} //}}}
+
 		int offset;
 		String strRemove, strInsert;
 	} //}}}
@@ -594,9 +1039,128 @@ public class UndoManager
 			return s;
 		} //}}}
 
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			return super.getSize() + 4L * offsets.getSize();
+		} //}}}
+
 		IntegerArray offsets;
 	} //}}}
 
+	//{{{ BulkReplace class
+	/**
+	 * Several ranges replaced at once. The texts are kept once in a
+	 * table, since replace all usually removes and inserts the same
+	 * ones again and again.
+	 */
+	private static class BulkReplace extends Edit
+	{
+		//{{{ BulkReplace constructor
+		BulkReplace(int[] offsets, String[] removed, String[] inserted)
+		{
+			this.offsets = offsets.clone();
+			this.removed = new int[offsets.length];
+			this.inserted = new int[offsets.length];
+			Map<String, Integer> indexes = new HashMap<>();
+			List<String> table = new ArrayList<>();
+			for(int i = 0; i < offsets.length; i++)
+			{
+				this.removed[i] = indexOf(removed[i], indexes, table);
+				this.inserted[i] = indexOf(inserted[i], indexes, table);
+			}
+			strings = table.toArray(new String[0]);
+		} //}}}
+
+		//{{{ BulkReplace constructor
+		BulkReplace(int[] offsets, int[] removed, int[] inserted, String[] strings)
+		{
+			this.offsets = offsets;
+			this.removed = removed;
+			this.inserted = inserted;
+			this.strings = strings;
+		} //}}}
+
+		//{{{ undo() method
+		@Override
+		Selection[] undo(UndoManager mgr)
+		{
+			int count = offsets.length;
+			int[] newOffsets = new int[count];
+			int[] lengths = new int[count];
+			String[] replacements = new String[count];
+			int delta = 0;
+			for(int i = 0; i < count; i++)
+			{
+				newOffsets[i] = offsets[i] + delta;
+				lengths[i] = strings[inserted[i]].length();
+				replacements[i] = strings[removed[i]];
+				delta += lengths[i] - replacements[i].length();
+			}
+			mgr.buffer.replace(newOffsets, lengths, replacements);
+			if(mgr.undoClearDirty == this)
+				mgr.buffer.setDirty(false);
+			return new Selection[] {
+				new Selection.Range(offsets[0],
+					offsets[count - 1] + replacements[count - 1].length())
+			};
+		} //}}}
+
+		//{{{ redo() method
+		@Override
+		Selection[] redo(UndoManager mgr)
+		{
+			int count = offsets.length;
+			int[] lengths = new int[count];
+			String[] replacements = new String[count];
+			int delta = 0;
+			for(int i = 0; i < count; i++)
+			{
+				lengths[i] = strings[removed[i]].length();
+				replacements[i] = strings[inserted[i]];
+				delta += replacements[i].length() - lengths[i];
+			}
+			mgr.buffer.replace(offsets, lengths, replacements);
+			if(mgr.redoClearDirty == this)
+				mgr.buffer.setDirty(false);
+			int caret = offsets[count - 1] + lengths[count - 1] + delta;
+			return new Selection[] { new Selection.Range(caret, caret) };
+		} //}}}
+
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			long size = EDIT_SIZE + 12L * offsets.length;
+			for(String str : strings)
+				size += 2L * str.length();
+			return size;
+		} //}}}
+
+		//{{{ indexOf() method
+		private static int indexOf(String str, Map<String, Integer> indexes,
+			List<String> table)
+		{
+			Integer index = indexes.get(str);
+			if(index == null)
+			{
+				index = table.size();
+				indexes.put(str, index);
+				table.add(str);
+			}
+			return index;
+		} //}}}
+
+		/** The start offsets of the ranges before they were replaced. */
+		final int[] offsets;
+		/** The indexes in strings of the texts of the ranges. */
+		final int[] removed;
+		/** The indexes in strings of the texts replacing them. */
+		final int[] inserted;
+		final String[] strings;
+	} //}}}
+
 	//{{{ CompoundEdit class
 	private static class CompoundEdit extends Edit
 	{
@@ -628,6 +1192,16 @@ public class UndoManager
 			return retVal;
 		} //}}}
 
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			long size = EDIT_SIZE;
+			for(Edit edit = first; edit != null; edit = edit.next)
+				size += edit.getSize();
+			return size;
+		} //}}}
+
 		//{{{ _add() method
 		private void _add(Edit edit)
 		{
@@ -698,6 +1272,103 @@ public class UndoManager
 		Edit first, last;
 	} //}}}
 
+	//{{{ SpilledEdit class
+	/**
+	 * An edit packed in the journal. The edit is kept until it is written,
+	 * or forever if the journal cannot be written. If the dirty flag is
+	 * cleared by one of its edits, undoClearDirty or redoClearDirty is this
+	 * edit, and undoLeaf or redoLeaf is the index of the edit, a compound
+	 * edit being flattened.
+	 */
+	private static class SpilledEdit extends Edit implements UndoJournal.Packer
+	{
+		//{{{ SpilledEdit constructor
+		SpilledEdit(Edit edit, int leafCount)
+		{
+			this.edit = edit;
+			this.leafCount = leafCount;
+		} //}}}
+
+		//{{{ pack() method
+		@Override
+		public void pack(DataOutputStream out) throws IOException
+		{
+			UndoManager.pack(edit, out);
+		} //}}}
+
+		//{{{ written() method
+		@Override
+		public void written()
+		{
+			edit = null;
+		} //}}}
+
+		//{{{ undo() method
+		@Override
+		Selection[] undo(UndoManager mgr)
+		{
+			return perform(mgr, true);
+		} //}}}
+
+		//{{{ redo() method
+		@Override
+		Selection[] redo(UndoManager mgr)
+		{
+			return perform(mgr, false);
+		} //}}}
+
+		//{{{ getSize() method
+		@Override
+		long getSize()
+		{
+			return EDIT_SIZE;
+		} //}}}
+
+		//{{{ perform() method
+		private Selection[] perform(UndoManager mgr, boolean undo)
+		{
+			List<Edit> leaves = new ArrayList<>(leafCount);
+			Edit edit = this.edit;
+			if(edit != null)
+				leaves(edit, leaves);
+			else
+			{
+				try(DataInputStream in = mgr.journal.read(record))
+				{
+					edit = unpack(in, leaves);
+				}
+				catch(IOException e)
+				{
+					throw new IllegalStateException("Cannot read the undo journal", e);
+				}
+			}
+
+			boolean undoClearDirty = mgr.undoClearDirty == this;
+			boolean redoClearDirty = mgr.redoClearDirty == this;
+			if(undoClearDirty)
+				mgr.undoClearDirty = leaves.get(undoLeaf);
+			if(redoClearDirty)
+				mgr.redoClearDirty = leaves.get(redoLeaf);
+			try
+			{
+				return undo ? edit.undo(mgr) : edit.redo(mgr);
+			}
+			finally
+			{
+				if(undoClearDirty)
+					mgr.undoClearDirty = this;
+				if(redoClearDirty)
+					mgr.redoClearDirty = this;
+			}
+		} //}}}
+
+		UndoJournal.Record record;
+		/** The edit, until it is written. */
+		private volatile Edit edit;
+		private final int leafCount;
+		int undoLeaf, redoLeaf;
+	} //}}}
+
 	//}}}
 
 	//}}}
@@ -0,0 +1,683 @@
+/*
+ * AutosaveJournal.java - The edits of a buffer since its last autosave
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bufferio;
+
+//{{{ Imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import org.gjt.sp.jedit.buffer.BufferAdapter;
+import org.gjt.sp.jedit.buffer.BufferSnapshot;
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.util.IOUtilities;
+import org.gjt.sp.util.Log;
+//}}}
+
+/**
+ * Records the edits of a buffer, so that an autosave only appends the
+ * edits made since the previous one to a journal file, instead of writing
+ * the whole buffer.<p>
+ *
+ * The journal starts from the file of the buffer, as it was loaded or
+ * saved. When this file cannot be used, because the buffer is untitled or
+ * the file changed on disk, or when the journal becomes larger than the
+ * buffer, a snapshot of the buffer is written to the autosave file and the
+ * journal starts again from it. After a crash, the edits of the journal
+ * are replayed onto the file it starts from, see {@link #getRecovery}.<p>
+ *
+ * The edits are recorded as a {@link org.gjt.sp.jedit.buffer.BufferListener}
+ * of the buffer, and written by {@link BufferAutosaveRequest} in a
+ * background thread.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class AutosaveJournal extends BufferAdapter
+{
+	//{{{ getFile() method
+	/**
+	 * @param autosaveFile the autosave file of a buffer
+	 * @return the journal file of the buffer
+	 */
+	public static File getFile(File autosaveFile)
+	{
+		return new File(autosaveFile.getParentFile(),
+			autosaveFile.getName() + "journal#");
+	} //}}}
+
+	//{{{ contentInserted() method
+	@Override
+	public void contentInserted(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		if(buffer.isLoading())
+			return;
+		synchronized(this)
+		{
+			if(snapshotNeeded)
+				return;
+			if(bytes.size() + 2L * length > MAX_PENDING_SIZE)
+			{
+				// a snapshot is written instead
+				dropEdits();
+				snapshotNeeded = true;
+				return;
+			}
+			try
+			{
+				edits.writeByte(INSERT);
+				edits.writeInt(offset);
+				edits.writeInt(length);
+				edits.writeChars(buffer.getText(offset, length));
+			}
+			catch(IOException e)
+			{
+				throw new AssertionError(e);
+			}
+			editCount++;
+			delta += length;
+		}
+	} //}}}
+
+	//{{{ contentRemoved() method
+	@Override
+	public void contentRemoved(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		if(buffer.isLoading())
+			return;
+		synchronized(this)
+		{
+			if(snapshotNeeded)
+				return;
+			try
+			{
+				edits.writeByte(REMOVE);
+				edits.writeInt(offset);
+				edits.writeInt(length);
+			}
+			catch(IOException e)
+			{
+				throw new AssertionError(e);
+			}
+			editCount++;
+			delta -= length;
+		}
+	} //}}}
+
+	//{{{ delete() method
+	/**
+	 * Deletes the autosave file and the journal.
+	 * @param autosaveFile the autosave file
+	 * @param clean true if the buffer is the same as its file, the journal
+	 * then starts again from this file, otherwise the next autosave writes
+	 * a snapshot
+	 */
+	public void delete(File autosaveFile, boolean clean)
+	{
+		synchronized(this)
+		{
+			dropEdits();
+			// a journal being written is deleted once written
+			generation++;
+			started = false;
+			snapshotNeeded = !clean;
+		}
+		autosaveFile.delete();
+		getFile(autosaveFile).delete();
+	} //}}}
+
+	//{{{ invalidate() method
+	/**
+	 * Forgets the edits, the next autosave writes a snapshot. The files
+	 * are kept until then.
+	 */
+	public synchronized void invalidate()
+	{
+		dropEdits();
+		started = false;
+		snapshotNeeded = true;
+	} //}}}
+
+	//{{{ SnapshotWriter interface
+	/**
+	 * Writes a snapshot of a buffer the way it is saved.
+	 */
+	public interface SnapshotWriter
+	{
+		void write(BufferSnapshot snapshot, OutputStream out)
+			throws IOException, InterruptedException;
+	} //}}}
+
+	//{{{ save() method
+	/**
+	 * Writes the edits made since the previous call to the journal, or a
+	 * snapshot of the buffer to the autosave file. The buffer is read
+	 * locked only while the edits are taken, and while the snapshot is
+	 * taken when one is needed. This method is called in a background
+	 * thread.
+	 * @param buffer the buffer
+	 * @param autosaveFile the autosave file
+	 * @param original the file the buffer was loaded from or last saved
+	 * to, or null if the buffer is untitled or the file changed since
+	 * @param writer writes the snapshot
+	 * @return true if a snapshot was written
+	 * @throws IOException if a file cannot be written, the next call then
+	 * writes a snapshot
+	 * @throws InterruptedException if the thread is interrupted while
+	 * writing the snapshot
+	 */
+	public boolean save(JEditBuffer buffer, File autosaveFile, File original,
+		SnapshotWriter writer) throws IOException, InterruptedException
+	{
+		long originalModTime = original == null ? 0L : original.lastModified();
+		long originalLength = original == null ? 0L : original.length();
+
+		synchronized(fileLock)
+		{
+			byte[] data;
+			int count;
+			int length;
+			int baseLength;
+			long gen;
+			boolean snapshot;
+			BufferSnapshot text = null;
+			try
+			{
+				buffer.readLock();
+				synchronized(this)
+				{
+					if(!snapshotNeeded && started && editCount == 0)
+						return false;
+					gen = generation;
+					data = bytes.toByteArray();
+					count = editCount;
+					length = buffer.getLength();
+					baseLength = length - delta;
+					dropEdits();
+
+					if(snapshotNeeded || original == null && !(started && base == SNAPSHOT))
+						snapshot = true;
+					else if(!started)
+						snapshot = false;
+					else if(base == ORIGINAL && (originalModTime != baseModTime
+						|| originalLength != baseFileLength))
+					{
+						// the file changed on disk
+						snapshot = true;
+					}
+					else
+					{
+						// replaying the journal would take longer
+						// than loading a snapshot
+						snapshot = journalSize + data.length
+							> Math.max(MIN_SNAPSHOT_SIZE, 2L * length);
+					}
+					snapshotNeeded = false;
+				}
+				if(snapshot)
+					text = buffer.snapshot();
+			}
+			finally
+			{
+				buffer.readUnlock();
+			}
+
+			File journal = getFile(autosaveFile);
+			try
+			{
+				Header header;
+				long size;
+				if(snapshot)
+				{
+					File tmp = new File(autosaveFile.getParentFile(),
+						autosaveFile.getName() + "tmp#");
+					OutputStream out = new FileOutputStream(tmp);
+					try
+					{
+						writer.write(text, out);
+					}
+					finally
+					{
+						IOUtilities.closeQuietly(out);
+					}
+					move(tmp, autosaveFile);
+					header = new Header(SNAPSHOT, autosaveFile.lastModified(),
+						autosaveFile.length(), text.length());
+					size = writeJournal(journal, header, null, 0);
+				}
+				else if(!started)
+				{
+					// a snapshot left from before would be
+					// recovered instead of the journal
+					autosaveFile.delete();
+					header = new Header(ORIGINAL, originalModTime,
+						originalLength, baseLength);
+					size = writeJournal(journal, header, data, count);
+				}
+				else
+				{
+					header = null;
+					size = journalSize + appendBatch(journal, data, count);
+				}
+
+				synchronized(this)
+				{
+					if(gen != generation)
+					{
+						// deleted meanwhile, the buffer was saved
+						autosaveFile.delete();
+						journal.delete();
+					}
+					else
+					{
+						if(header != null)
+						{
+							started = true;
+							base = header.base;
+							baseModTime = header.modTime;
+							baseFileLength = header.fileLength;
+						}
+						journalSize = size;
+					}
+				}
+				return snapshot;
+			}
+			catch(IOException | InterruptedException | RuntimeException e)
+			{
+				// the edits taken are lost
+				invalidate();
+				throw e;
+			}
+		}
+	} //}}}
+
+	//{{{ getRecovery() method
+	/**
+	 * Finds what an autosave left, when a buffer is loaded.
+	 * @param autosaveFile the autosave file of the buffer
+	 * @param original the file of the buffer, or null if it is untitled
+	 * @return the recovery, or null if there is nothing to recover
+	 */
+	public static Recovery getRecovery(File autosaveFile, File original)
+	{
+		File journal = getFile(autosaveFile);
+		Header header = journal.exists() ? readHeader(journal) : null;
+		if(header != null && header.base == SNAPSHOT && header.matches(autosaveFile))
+			return new Recovery(autosaveFile, journal, header);
+		// a snapshot with the journal of the previous one, the
+		// snapshot was written when jEdit stopped
+		if(autosaveFile.canRead())
+			return new Recovery(autosaveFile, null, null);
+		if(header != null && header.base == ORIGINAL && original != null
+			&& header.matches(original))
+		{
+			return new Recovery(original, journal, header);
+		}
+		return null;
+	} //}}}
+
+	//{{{ Recovery class
+	/**
+	 * The file to load to recover a buffer, and the journal to replay
+	 * onto it.
+	 */
+	public static class Recovery
+	{
+		//{{{ getFile() method
+		/**
+		 * @return the file to load, the autosave file or the file of
+		 * the buffer
+		 */
+		public File getFile()
+		{
+			return file;
+		} //}}}
+
+		//{{{ getJournal() method
+		/**
+		 * @return the journal, or null if the autosave file is loaded
+		 * alone
+		 */
+		public File getJournal()
+		{
+			return journal;
+		} //}}}
+
+		//{{{ replay() method
+		/**
+		 * Replays the edits of the journal onto the loaded file. The
+		 * edits written partially when jEdit stopped are ignored.
+		 * @param buffer the buffer the file was loaded into
+		 * @return false if the journal does not match the loaded text,
+		 * the buffer may then have some of the edits
+		 */
+		public boolean replay(JEditBuffer buffer)
+		{
+			if(journal == null)
+				return true;
+			if(buffer.getLength() != header.length)
+			{
+				Log.log(Log.WARNING, this, journal + " does not start from "
+					+ file + ", it is not replayed");
+				return false;
+			}
+
+			DataInputStream in = null;
+			try
+			{
+				in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(journal)));
+				readHeader(in);
+				while(true)
+				{
+					byte[] data = readBatch(in);
+					if(data == null)
+						return true;
+					if(!apply(buffer, data))
+					{
+						Log.log(Log.WARNING, this, journal
+							+ " does not match " + file);
+						return false;
+					}
+				}
+			}
+			catch(IOException e)
+			{
+				Log.log(Log.ERROR, this, "Cannot read " + journal, e);
+				return false;
+			}
+			finally
+			{
+				IOUtilities.closeQuietly(in);
+			}
+		} //}}}
+
+		//{{{ Private members
+		private final File file;
+		private final File journal;
+		private final Header header;
+
+		private Recovery(File file, File journal, Header header)
+		{
+			this.file = file;
+			this.journal = journal;
+			this.header = header;
+		} //}}}
+	} //}}}
+
+	//{{{ Private members
+	private static final int MAGIC = 0x4A454A31;
+	private static final byte ORIGINAL = 0;
+	private static final byte SNAPSHOT = 1;
+	private static final byte INSERT = 1;
+	private static final byte REMOVE = 2;
+	/** Above this size, the edits not written yet are replaced by a snapshot. */
+	private static final int MAX_PENDING_SIZE = 4 * 1024 * 1024;
+	/** The size a journal can always reach before a snapshot is written. */
+	private static final long MIN_SNAPSHOT_SIZE = 256 * 1024;
+
+	//{{{ Instance variables
+	/** Held while the files are written, so that they are written in order. */
+	private final Object fileLock = new Object();
+
+	// the fields below are guarded by this
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream edits = new DataOutputStream(bytes);
+	private int editCount;
+	/** The length of the buffer minus its length before the edits. */
+	private int delta;
+	/** Incremented when the files are deleted. */
+	private long generation;
+	/** True if the next autosave writes a snapshot, the edits are not recorded. */
+	private boolean snapshotNeeded;
+	/** True if the journal file starts from the current base. */
+	private boolean started;
+	private byte base;
+	private long baseModTime;
+	private long baseFileLength;
+	private long journalSize;
+	//}}}
+
+	//{{{ dropEdits() method
+	private void dropEdits()
+	{
+		bytes.reset();
+		editCount = 0;
+		delta = 0;
+	} //}}}
+
+	//{{{ writeJournal() method
+	/**
+	 * Replaces the journal with a header and a batch of edits.
+	 * @return the size of the journal
+	 */
+	private static long writeJournal(File journal, Header header, byte[] data,
+		int count) throws IOException
+	{
+		File tmp = new File(journal.getParentFile(), journal.getName() + "tmp#");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(tmp)));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeByte(header.base);
+			out.writeLong(header.modTime);
+			out.writeLong(header.fileLength);
+			out.writeInt(header.length);
+			if(count != 0)
+				writeBatch(out, data, count);
+		}
+		finally
+		{
+			out.close();
+		}
+		move(tmp, journal);
+		return journal.length();
+	} //}}}
+
+	//{{{ appendBatch() method
+	/**
+	 * @return the number of bytes appended
+	 */
+	private static long appendBatch(File journal, byte[] data, int count)
+		throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(journal, true)));
+		try
+		{
+			writeBatch(out, data, count);
+		}
+		finally
+		{
+			out.close();
+		}
+		return out.size();
+	} //}}}
+
+	//{{{ writeBatch() method
+	private static void writeBatch(DataOutputStream out, byte[] data, int count)
+		throws IOException
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		out.writeInt(count);
+		out.writeInt(data.length);
+		out.writeLong(crc.getValue());
+		out.write(data);
+	} //}}}
+
+	//{{{ move() method
+	private static void move(File from, File to) throws IOException
+	{
+		try
+		{
+			Files.move(from.toPath(), to.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(AtomicMoveNotSupportedException e)
+		{
+			Files.move(from.toPath(), to.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+	} //}}}
+
+	//{{{ readHeader() methods
+	private static Header readHeader(File journal)
+	{
+		DataInputStream in = null;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(journal)));
+			return readHeader(in);
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.WARNING, AutosaveJournal.class,
+				"Cannot read " + journal + ": " + e);
+			return null;
+		}
+		finally
+		{
+			IOUtilities.closeQuietly(in);
+		}
+	}
+
+	private static Header readHeader(DataInputStream in) throws IOException
+	{
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not an autosave journal");
+		byte base = in.readByte();
+		long modTime = in.readLong();
+		long fileLength = in.readLong();
+		int length = in.readInt();
+		return new Header(base, modTime, fileLength, length);
+	} //}}}
+
+	//{{{ readBatch() method
+	/**
+	 * @return the edits of the next batch, or null if there are no
+	 * more complete batches
+	 */
+	private static byte[] readBatch(DataInputStream in) throws IOException
+	{
+		try
+		{
+			in.readInt();
+			int size = in.readInt();
+			long checksum = in.readLong();
+			if(size < 0)
+				return null;
+			byte[] data = new byte[size];
+			in.readFully(data);
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			return crc.getValue() == checksum ? data : null;
+		}
+		catch(EOFException e)
+		{
+			// written partially
+			return null;
+		}
+	} //}}}
+
+	//{{{ apply() method
+	/**
+	 * Applies a batch of edits.
+	 * @return false if an edit is outside of the buffer
+	 */
+	private static boolean apply(JEditBuffer buffer, byte[] data) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		while(in.available() != 0)
+		{
+			byte type = in.readByte();
+			int offset = in.readInt();
+			int length = in.readInt();
+			if(offset < 0 || length < 0)
+				return false;
+			if(type == INSERT)
+			{
+				if(offset > buffer.getLength())
+					return false;
+				char[] text = new char[length];
+				for(int i = 0; i < length; i++)
+					text[i] = in.readChar();
+				buffer.insert(offset, new String(text));
+			}
+			else if(type == REMOVE)
+			{
+				if(offset + length > buffer.getLength())
+					return false;
+				buffer.remove(offset, length);
+			}
+			else
+				return false;
+		}
+		return true;
+	} //}}}
+
+	//}}}
+
+	//{{{ Header class
+	/**
+	 * The file a journal starts from.
+	 */
+	private static class Header
+	{
+		final byte base;
+		final long modTime;
+		final long fileLength;
+		/** The length of the buffer loaded from the file. */
+		final int length;
+
+		Header(byte base, long modTime, long fileLength, int length)
+		{
+			this.base = base;
+			this.modTime = modTime;
+			this.fileLength = fileLength;
+			this.length = length;
+		}
+
+		boolean matches(File file)
+		{
+			return file.lastModified() == modTime && file.length() == fileLength;
+		}
+	} //}}}
+}
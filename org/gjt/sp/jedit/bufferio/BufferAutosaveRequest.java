@@ -49,14 +49,40 @@ public class BufferAutosaveRequest extends BufferIORequest
 	 */
 	public BufferAutosaveRequest(View view, Buffer buffer,
 		Object session, VFS vfs, String path)
+	{
+		this(view,buffer,session,vfs,path,null);
+	} //}}}
+
+	//{{{ BufferAutosaveRequest constructor
+	/**
+	 * Creates a new buffer I/O request, which only writes the edits made
+	 * since the previous autosave of the buffer to its journal.
+	 * @param view The view
+	 * @param buffer The buffer
+	 * @param session The VFS session
+	 * @param vfs The VFS
+	 * @param path The path of the autosave file
+	 * @param journal The journal of the buffer, or null to write the
+	 * whole buffer
+	 * @since jEdit 5.7pre1
+	 */
+	public BufferAutosaveRequest(View view, Buffer buffer,
+		Object session, VFS vfs, String path, AutosaveJournal journal)
 	{
 		super(view,buffer,session,vfs,path);
+		this.journal = journal;
 	} //}}}
 
 	//{{{ run() method
 	@Override
 	public void _run()
 	{
+		if(journal != null)
+		{
+			saveJournal();
+			return;
+		}
+
 		OutputStream out = null;
 
 		try
@@ -69,7 +95,6 @@ public class BufferAutosaveRequest extends BufferIORequest
 
 			try
 			{
-				buffer.readLock();
 				if(buffer.isDirty())
 					out = vfs._createOutputStream(session,path,view);
 				if(out != null) {
@@ -77,7 +102,9 @@ public class BufferAutosaveRequest extends BufferIORequest
 						"Saving autosave of file \"" +
 						buffer.getPath() + "\" to \"" +
 						path + '"');
-					write(buffer,out);
+					// the snapshot is written without locking
+					// the buffer, so edits are not blocked
+					write(buffer,buffer.snapshot(),out);
 			}
 			}
 			catch (FileNotFoundException e)
@@ -97,10 +124,6 @@ public class BufferAutosaveRequest extends BufferIORequest
 
 				cleanUpIncomplete(out);
 			}
-			finally
-			{
-				buffer.readUnlock();
-			}
 		}
 		finally
 		{
@@ -108,6 +131,46 @@ public class BufferAutosaveRequest extends BufferIORequest
 		}
 	} //}}}
 
+	//{{{ Private members
+	private final AutosaveJournal journal;
+
+	//{{{ saveJournal() method
+	private void saveJournal()
+	{
+		String[] args = { vfs.getFileName(path) };
+		setStatus(jEdit.getProperty("vfs.status.autosave",args));
+		setCancellable(true);
+
+		// the journal starts from the file as it was loaded or saved
+		File original = null;
+		if(!buffer.isUntitled() && !buffer.isNewFile())
+		{
+			original = new File(buffer.getPath());
+			if(original.lastModified() != buffer.getLastModified())
+				original = null;
+		}
+
+		try
+		{
+			if(journal.save(buffer,new File(path),original,
+				(snapshot, out) -> write(buffer,snapshot,out)))
+			{
+				Log.log(Log.DEBUG,this,"Saving autosave of file \""
+					+ buffer.getPath() + "\" to \"" + path + '"');
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR,this,e);
+			String[] pp = { e.toString() };
+			VFSManager.error(view,path,"ioerror.write-error",pp);
+		}
+	} //}}}
+
 	private void cleanUpIncomplete(Closeable out)
 	{
 		// Incomplete autosave file should not exist.
@@ -124,4 +187,5 @@ public class BufferAutosaveRequest extends BufferIORequest
 			}
 		}
 	}
+	//}}}
 }
@@ -38,6 +38,7 @@ import org.gjt.sp.jedit.Buffer;
 import org.gjt.sp.jedit.MiscUtilities;
 import org.gjt.sp.jedit.View;
 import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.buffer.BufferSnapshot;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 import org.gjt.sp.jedit.io.VFS;
 import org.gjt.sp.jedit.io.VFSManager;
@@ -345,9 +346,24 @@ public abstract class BufferIORequest extends IoTask
 		return seg;
 	} //}}}
 
-	//{{{ write() method
+	//{{{ write() methods
 	protected void write(Buffer buffer, OutputStream out)
 		throws IOException, InterruptedException
+	{
+		write(buffer, null, out);
+	}
+
+	/**
+	 * Writes the text of a buffer snapshot, the buffer is only used for
+	 * its properties and does not need to be locked.
+	 * @param buffer the buffer
+	 * @param snapshot the snapshot of the buffer, or null to read the
+	 * buffer itself
+	 * @param out the output stream
+	 * @since jEdit 5.7pre1
+	 */
+	protected void write(Buffer buffer, BufferSnapshot snapshot, OutputStream out)
+		throws IOException, InterruptedException
 	{
 		String encodingName
 			= buffer.getStringProperty(JEditBuffer.ENCODING);
@@ -360,7 +376,8 @@ public abstract class BufferIORequest extends IoTask
 		if(newline == null)
 			newline = System.getProperty("line.separator");
 
-		final int bufferLineCount = buffer.getLineCount();
+		final int bufferLineCount = snapshot == null ? buffer.getLineCount()
+			: snapshot.getLineCount();
 		setMaximum(bufferLineCount / PROGRESS_INTERVAL);
 		setValue(0);
 
@@ -370,7 +387,10 @@ public abstract class BufferIORequest extends IoTask
 			if(Thread.interrupted())
 				throw new InterruptedException();
 
-			buffer.getLineText(i,lineSegment);
+			if(snapshot == null)
+				buffer.getLineText(i,lineSegment);
+			else
+				snapshot.getLineText(i,lineSegment);
 			try
 			{
 				writer.write(lineSegment.array,
@@ -49,6 +49,7 @@ public class BufferInsertRequest extends BufferIORequest
 	public BufferInsertRequest(View view, Buffer buffer, Object session, VFS vfs, String path)
 	{
 		super(view,buffer,session,vfs,path);
+		setPriority(Priority.INTERACTIVE_IO);
 	} //}}}
 
 	//{{{ run() method
@@ -55,6 +55,7 @@ public class BufferLoadRequest extends BufferIORequest
 	public BufferLoadRequest(View view, Buffer buffer, Object session, VFS vfs, String path, boolean untitled)
 	{
 		super(view,buffer,session,vfs,path);
+		setPriority(Priority.INTERACTIVE_IO);
 		this.untitled = untitled;
 	} //}}}
 
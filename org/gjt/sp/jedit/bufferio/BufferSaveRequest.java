@@ -52,6 +52,7 @@ public class BufferSaveRequest extends BufferIORequest
 		Object session, VFS vfs, String path)
 	{
 		super(view,buffer,session,vfs,path);
+		setPriority(Priority.INTERACTIVE_IO);
 	} //}}}
 
 	//{{{ run() method
@@ -23,6 +23,14 @@ package org.gjt.sp.jedit.bufferio;
 
 import org.gjt.sp.util.Task;
 
+/**
+ * A task reading or writing files, which runs with the
+ * {@link Task.Priority#BACKGROUND_IO} priority unless it sets another one.
+ */
 public abstract class IoTask extends Task
 {
+	protected IoTask()
+	{
+		setPriority(Priority.BACKGROUND_IO);
+	}
 }
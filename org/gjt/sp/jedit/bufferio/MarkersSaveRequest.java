@@ -61,7 +61,7 @@ public class MarkersSaveRequest extends Task
 		this.vfs = vfs;
 		this.path = path;
 		this.markersPath = Buffer.getMarkersPath(vfs, path);
-
+		setPriority(Priority.BACKGROUND_IO);
 	} //}}}
 
 	//{{{ run() method
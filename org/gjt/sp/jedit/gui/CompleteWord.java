@@ -199,10 +199,9 @@ public class CompleteWord extends CompletionPopup
 	private static Completion[] getCompletions(final Buffer buffer, final String word,
 		final int caret)
 	{
-		// build a list of unique words in all buffers, or visible buffers,
+		// count the words in all buffers, or visible buffers,
 		// depending on completeFromAllBuffers
-		final Set<Completion> completions = new TreeSet<Completion>(new StandardUtilities
-			.StringCompare<Completion>());
+		Map<String, Integer> counts = new HashMap<>();
 
 		// only complete current buffer's keyword map
 		final KeywordMap keywordMap = buffer.getKeywordMapAtOffset(caret);
@@ -215,32 +214,24 @@ public class CompleteWord extends CompletionPopup
 				getVisibleBuffers();
 
 		for (Buffer b : sourceBuffers)
-		{
-			// only complete current buffer's keyword map
-			KeywordMap _keywordMap;
-			if(b == buffer)
-				_keywordMap = keywordMap;
-			else
-				_keywordMap = null;
+			getWords(b,word,noWordSep,counts);
 
-			int offset = (b == buffer ? caret : 0);
+		// the word being completed is not a completion
+		int caretLine = buffer.getLineOfOffset(caret);
+		int lineStart = buffer.getLineStartOffset(caretLine);
+		CharSequence line = buffer.getLineSegment(caretLine);
+		String caretWord = completeWord(line,caret - lineStart - word.length(),
+			noWordSep);
+		counts.computeIfPresent(caretWord, (w, count) -> count == 1 ? null : count - 1);
 
-			getCompletions(b,word,keywordMap,noWordSep,
-					offset,completions);
+		Map<String, Completion> completions = new HashMap<>();
+		for (Map.Entry<String, Integer> entry : counts.entrySet())
+		{
+			Completion completion = new Completion(entry.getKey(),false);
+			completion.count = entry.getValue();
+			completions.put(completion.text, completion);
 		}
 
-		Completion[] completionArray = completions.toArray(EMPTY_COMPLETION_ARRAY);
-
-		return completionArray;
-	} //}}}
-
-	//{{{ getCompletions() method
-	private static void getCompletions(Buffer buffer, String word,
-		KeywordMap keywordMap, String noWordSep, int caret,
-		Collection<Completion> completions)
-	{
-		int wordLen = word.length();
-
 		//{{{ try to find matching keywords
 		if(keywordMap != null)
 		{
@@ -248,66 +239,95 @@ public class CompleteWord extends CompletionPopup
 			for (String _keyword : keywords)
 			{
 				if (_keyword.regionMatches(keywordMap.getIgnoreCase(),
-							   0, word, 0, wordLen))
+							   0, word, 0, word.length()))
 				{
-					Completion keyword = new Completion(_keyword, true);
-					if (!completions.contains(keyword))
-						completions.add(keyword);
+					Completion keyword = completions.computeIfAbsent(_keyword,
+						k -> new Completion(k, true));
+					keyword.keyword = true;
 				}
 			}
 		} //}}}
 
-		//{{{ loop through all lines of current buffer
-		for(int i = 0; i < buffer.getLineCount(); i++)
-		{
-			CharSequence line = buffer.getLineSegment(i);
-			int start = buffer.getLineStartOffset(i);
+		getDistances(buffer,word,caretLine,noWordSep,completions);
 
-			// check for match at start of line
+		Completion[] completionArray = completions.values().toArray(EMPTY_COMPLETION_ARRAY);
+		Arrays.sort(completionArray);
+		return completionArray;
+	} //}}}
 
-			if (StandardUtilities.startsWith(line, word) &&
-			    caret != start + word.length())
+	//{{{ getWords() method
+	/**
+	 * Counts the words of a buffer starting with a prefix, from its
+	 * index if it has one.
+	 */
+	private static void getWords(Buffer buffer, String word, String noWordSep,
+		Map<String, Integer> counts)
+	{
+		WordIndex index = WordIndex.getIndex(buffer);
+		if(index != null)
+		{
+			Map<String, Integer> indexCounts = new HashMap<>();
+			if(index.getWords(word,indexCounts))
 			{
-				String _word = completeWord(line,0,noWordSep);
-				Completion comp = new Completion(_word,false);
-
-				// remove duplicates
-				if(!completions.contains(comp))
+				// the index may have other word characters
+				String indexNoWordSep = index.getNoWordSep();
+				for (Map.Entry<String, Integer> entry : indexCounts.entrySet())
 				{
-					completions.add(comp);
+					String _word = entry.getKey();
+					if(!indexNoWordSep.equals(noWordSep))
+						_word = completeWord(_word,0,noWordSep);
+					counts.merge(_word,entry.getValue(),Integer::sum);
 				}
+				return;
 			}
+		}
 
-			// check for match inside line
-			int len = line.length() - word.length();
-			for(int j = 0; j < len; j++)
+		//{{{ loop through all lines of the buffer
+		for(int i = 0; i < buffer.getLineCount(); i++)
+		{
+			WordIndex.forEachWord(buffer.getLineSegment(i),noWordSep,
+				(line, start, end) ->
 			{
-				char c = line.charAt(j);
-				if(!Character.isLetterOrDigit(c) && noWordSep.indexOf(c) == -1)
+				if(StandardUtilities.regionMatches(line,start,word,0,word.length()))
 				{
-					if (StandardUtilities.regionMatches(line,j + 1,word,0,wordLen)
-						&& caret != start + j + word.length() + 1)
-					{
-						String _word = completeWord(line,j + 1,noWordSep);
-						Completion comp = new Completion(_word,false);
-
-						// remove duplicates
-						if(!completions.contains(comp))
-						{
-							completions.add(comp);
-						}
-					}
+					String _word = line.subSequence(start,end).toString();
+					counts.merge(_word,1,Integer::sum);
 				}
-			}
+			});
 		} //}}}
 	} //}}}
 
+	//{{{ getDistances() method
+	/**
+	 * Sets the distance in lines to the caret of the completions found
+	 * in the lines around it.
+	 */
+	private static void getDistances(Buffer buffer, String word, int caretLine,
+		String noWordSep, Map<String, Completion> completions)
+	{
+		int first = Math.max(0, caretLine - NEARBY_LINES);
+		int last = Math.min(buffer.getLineCount() - 1, caretLine + NEARBY_LINES);
+		for(int i = first; i <= last; i++)
+		{
+			int distance = Math.abs(i - caretLine);
+			WordIndex.forEachWord(buffer.getLineSegment(i),noWordSep,
+				(line, start, end) ->
+			{
+				if(!StandardUtilities.regionMatches(line,start,word,0,word.length()))
+					return;
+				Completion completion = completions.get(
+					line.subSequence(start,end).toString());
+				if(completion != null && distance < completion.distance)
+					completion.distance = distance;
+			});
+		}
+	} //}}}
+
 	//{{{ completeWord() method
 	private static String completeWord(CharSequence line, int offset, String noWordSep)
 	{
-		// '+ 1' so that findWordEnd() doesn't pick up the space at the start
-		int wordEnd = TextUtilities.findWordEnd(line,offset + 1,noWordSep);
-		return line.subSequence(offset,wordEnd).toString();
+		return line.subSequence(offset,
+			WordIndex.getWordEnd(line,offset,noWordSep)).toString();
 	} //}}}
 
 	//{{{ Instance variables
@@ -315,13 +335,22 @@ public class CompleteWord extends CompletionPopup
 	private final Buffer buffer;
 	private String word;
 	private final String noWordSep;
+
+	/** The completions found in these lines around the caret come first. */
+	private static final int NEARBY_LINES = 100;
 	//}}}
 
 	//{{{ Completion class
-	private static class Completion
+	/**
+	 * A completion, they are sorted by distance to the caret, then by
+	 * number of occurrences.
+	 */
+	private static class Completion implements Comparable<Completion>
 	{
 		final String text;
-		final boolean keyword;
+		boolean keyword;
+		int count;
+		int distance = Integer.MAX_VALUE;
 
 		Completion(String text, boolean keyword)
 		{
@@ -329,6 +358,16 @@ public class CompleteWord extends CompletionPopup
 			this.keyword = keyword;
 		}
 
+		@Override
+		public int compareTo(Completion completion)
+		{
+			if(distance != completion.distance)
+				return Integer.compare(distance, completion.distance);
+			if(count != completion.count)
+				return Integer.compare(completion.count, count);
+			return StandardUtilities.compareStrings(text, completion.text, false);
+		}
+
 		public String toString()
 		{
 			return text;
@@ -47,6 +47,9 @@ public class TaskMonitor extends JPanel implements TaskListener
 {
 	private final TaskTableModel model;
 	private final JLabel remainingCount;
+	private final JLabel queueDepth;
+	/** Shows how long the tasks have been waiting. */
+	private final Timer timer;
 
 	//{{{ TaskMonitor constructor
 	public TaskMonitor()
@@ -54,7 +57,11 @@ public class TaskMonitor extends JPanel implements TaskListener
 		super(new BorderLayout());
 		JPanel panel = new JPanel(new BorderLayout());
 		remainingCount = new JLabel();
-		panel.add(remainingCount, BorderLayout.NORTH);
+		queueDepth = new JLabel();
+		JPanel counts = new JPanel(new GridLayout(2, 1));
+		counts.add(remainingCount);
+		counts.add(queueDepth);
+		panel.add(counts, BorderLayout.NORTH);
 
 		model = new TaskTableModel();
 		model.addTableModelListener(e ->
@@ -71,6 +78,11 @@ public class TaskMonitor extends JPanel implements TaskListener
 		JScrollPane scroll = new JScrollPane(table);
 		panel.add(scroll);
 		updateTasksCount();
+		timer = new Timer(1000, e ->
+		{
+			updateTasksCount();
+			table.repaint();
+		});
 
 		add(panel);
 	} //}}}
@@ -81,6 +93,7 @@ public class TaskMonitor extends JPanel implements TaskListener
 	{
 		TaskManager.instance.visit(model::addTask);
 		TaskManager.instance.addTaskListener(this);
+		timer.start();
 		super.addNotify();
 	} //}}}
 
@@ -89,6 +102,7 @@ public class TaskMonitor extends JPanel implements TaskListener
 	public void removeNotify()
 	{
 		TaskManager.instance.removeTaskListener(this);
+		timer.stop();
 		super.removeNotify();
 		model.removeAll();
 	} //}}}
@@ -104,6 +118,7 @@ public class TaskMonitor extends JPanel implements TaskListener
 	@Override
 	public void running(Task task)
 	{
+		ThreadUtilities.runInDispatchThread(this::updateTasksCount);
 		repaint();
 	} //}}}
 
@@ -140,6 +155,10 @@ public class TaskMonitor extends JPanel implements TaskListener
 	{
 		remainingCount.setText(jEdit.getProperty("taskmanager.remainingtasks.label",
 						new Object[]{model.getRowCount()}));
+		Object[] waiting = new Object[Task.Priority.values().length];
+		for (Task.Priority priority : Task.Priority.values())
+			waiting[priority.ordinal()] = TaskManager.instance.countWaitingTasks(priority);
+		queueDepth.setText(jEdit.getProperty("taskmanager.queue.label", waiting));
 	} //}}}
 
 	//{{{ TaskCellRenderer class
@@ -183,7 +202,14 @@ public class TaskMonitor extends JPanel implements TaskListener
 					progress.setValue((int) val);
 				}
 				progress.setToolTipText(task.getLabel());
-				progress.setString(task.getStatus());
+				if (task.getState() == SwingWorker.StateValue.PENDING)
+				{
+					progress.setString(jEdit.getProperty("taskmanager.waiting.label",
+						new Object[]{task.getWaitTime() / 1000L,
+						task.getStatus() == null ? task.getLabel() : task.getStatus()}));
+				}
+				else
+					progress.setString(task.getStatus());
 				return progress;
 			}
 			button.setEnabled(task.isCancellable());
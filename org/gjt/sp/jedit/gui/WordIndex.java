@@ -0,0 +1,442 @@
+/*
+ * WordIndex.java - Words of a buffer for word completion
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.gui;
+
+//{{{ Imports
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.EditBus;
+import org.gjt.sp.jedit.EditBus.EBHandler;
+import org.gjt.sp.jedit.buffer.BufferAdapter;
+import org.gjt.sp.jedit.buffer.BufferSnapshot;
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.msg.BufferUpdate;
+import org.gjt.sp.jedit.syntax.KeywordMap;
+import org.gjt.sp.jedit.syntax.TokenMarker;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * The words of a buffer with their number of occurrences, sorted so that
+ * the words starting with a prefix can be found quickly by
+ * {@link CompleteWord}.<p>
+ *
+ * The index is built from a snapshot of the buffer in a background
+ * thread when the buffer is loaded. It is then updated on each edit from
+ * the changed lines only. Edits of many lines, such as a reload, make it
+ * invalid until it is built again in the background.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class WordIndex extends BufferAdapter
+{
+	//{{{ init() method
+	/**
+	 * Starts indexing the buffers when they are loaded.
+	 */
+	public static void init()
+	{
+		EditBus.addToBus(new WordIndex.Handler());
+	} //}}}
+
+	//{{{ getIndex() method
+	/**
+	 * @return the index of a buffer, or null if it has none
+	 */
+	static WordIndex getIndex(Buffer buffer)
+	{
+		synchronized(indexes)
+		{
+			return indexes.get(buffer);
+		}
+	} //}}}
+
+	//{{{ getWords() method
+	/**
+	 * Adds the words starting with a prefix to a map, with their number
+	 * of occurrences.
+	 * @param prefix the prefix
+	 * @param counts the words and their number of occurrences
+	 * @return false if the index is not valid, the map is then unchanged
+	 */
+	synchronized boolean getWords(String prefix, Map<String, Integer> counts)
+	{
+		if(!valid)
+			return false;
+		NavigableMap<String, Count> matches = words.subMap(prefix, true,
+			prefix + Character.MAX_VALUE, false);
+		for(Map.Entry<String, Count> entry : matches.entrySet())
+			counts.merge(entry.getKey(), entry.getValue().value, Integer::sum);
+		return true;
+	} //}}}
+
+	//{{{ getNoWordSep() method
+	/**
+	 * @return the non alphanumeric characters of the indexed words
+	 */
+	synchronized String getNoWordSep()
+	{
+		return noWordSep;
+	} //}}}
+
+	//{{{ getNoWordSep() method
+	/**
+	 * @return the non alphanumeric characters that are word characters in
+	 * a buffer, for its main rule set
+	 */
+	static String getNoWordSep(JEditBuffer buffer)
+	{
+		String noWordSep = buffer.getStringProperty("noWordSep");
+		if(noWordSep == null)
+			noWordSep = "";
+		TokenMarker tokenMarker = buffer.getTokenMarker();
+		if(tokenMarker != null)
+		{
+			KeywordMap keywords = tokenMarker.getMainRuleSet().getKeywords();
+			if(keywords != null)
+				noWordSep += keywords.getNonAlphaNumericChars();
+		}
+		return noWordSep;
+	} //}}}
+
+	//{{{ getWordEnd() method
+	/**
+	 * @return the end of the word starting at an offset of a text, the
+	 * word characters being the letters, digits and the characters of
+	 * noWordSep
+	 */
+	static int getWordEnd(CharSequence text, int start, String noWordSep)
+	{
+		int end = start;
+		while(end < text.length() && isWordChar(text.charAt(end), noWordSep))
+			end++;
+		return end;
+	} //}}}
+
+	//{{{ WordConsumer interface
+	interface WordConsumer
+	{
+		/**
+		 * Called for a word of a line.
+		 * @param line the line
+		 * @param start the start of the word in the line
+		 * @param end the end of the word in the line
+		 */
+		void word(CharSequence line, int start, int end);
+	} //}}}
+
+	//{{{ forEachWord() method
+	/**
+	 * Calls a consumer for each word of a line.
+	 */
+	static void forEachWord(CharSequence line, String noWordSep, WordConsumer consumer)
+	{
+		int length = line.length();
+		int i = 0;
+		while(i < length)
+		{
+			if(isWordChar(line.charAt(i), noWordSep))
+			{
+				int end = getWordEnd(line, i, noWordSep);
+				consumer.word(line, i, end);
+				i = end;
+			}
+			else
+				i++;
+		}
+	} //}}}
+
+	//{{{ WordIndex constructor
+	/**
+	 * Creates an empty index, it is filled by {@link #build()}.
+	 */
+	WordIndex(JEditBuffer buffer)
+	{
+		this.buffer = buffer;
+	} //}}}
+
+	//{{{ isValid() method
+	/**
+	 * @return false if the index is being built
+	 */
+	synchronized boolean isValid()
+	{
+		return valid;
+	} //}}}
+
+	//{{{ build() method
+	/**
+	 * Builds the index in a background thread, it is invalid until then.
+	 */
+	synchronized void build()
+	{
+		valid = false;
+		words = new TreeMap<>();
+		noWordSep = getNoWordSep(buffer);
+		ThreadUtilities.runInBackground(new BuildTask(++generation, noWordSep));
+	} //}}}
+
+	//{{{ BufferListener implementation
+
+	//{{{ preContentInserted() method
+	@Override
+	public void preContentInserted(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		if(!updateLines(numLines))
+			return;
+		// the line is split, its words are added back by contentInserted().
+		// The text is already in the buffer, but not the line offsets yet
+		int start = buffer.getLineStartOffset(startLine);
+		int end = buffer.getLineEndOffset(startLine) - 1;
+		StringBuilder line = new StringBuilder(end - start);
+		line.append(buffer.getSegment(start, offset - start));
+		line.append(buffer.getSegment(offset + length, end - offset));
+		updateLine(line, -1);
+	} //}}}
+
+	//{{{ contentInserted() method
+	@Override
+	public void contentInserted(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		for(int i = 0; i <= numLines; i++)
+			updateLine(startLine + i, 1);
+	} //}}}
+
+	//{{{ preContentRemoved() method
+	@Override
+	public void preContentRemoved(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		if(!updateLines(numLines))
+			return;
+		for(int i = 0; i <= numLines; i++)
+			updateLine(startLine + i, -1);
+	} //}}}
+
+	//{{{ contentRemoved() method
+	@Override
+	public void contentRemoved(JEditBuffer buffer, int startLine, int offset,
+		int numLines, int length)
+	{
+		updateLine(startLine, 1);
+	} //}}}
+
+	//}}}
+
+	//{{{ Private members
+	/**
+	 * Above this number of lines, an edit is not applied to the index,
+	 * it is built again in the background.
+	 */
+	private static final int MAX_UPDATED_LINES = 1000;
+
+	private static final Map<Buffer, WordIndex> indexes = new HashMap<>();
+
+	private final JEditBuffer buffer;
+	private TreeMap<String, Count> words = new TreeMap<>();
+	private String noWordSep;
+	private boolean valid;
+	/** Incremented on each build, to ignore the outdated ones. */
+	private int generation;
+
+
+	//{{{ isWordChar() method
+	private static boolean isWordChar(char ch, String noWordSep)
+	{
+		return Character.isLetterOrDigit(ch) || noWordSep.indexOf(ch) != -1;
+	} //}}}
+
+	//{{{ addWords() method
+	private static void addWords(CharSequence line, String noWordSep,
+		TreeMap<String, Count> words, int delta)
+	{
+		forEachWord(line, noWordSep, (text, start, end) ->
+		{
+			String word = text.subSequence(start, end).toString();
+			Count count = words.get(word);
+			if(count == null)
+			{
+				if(delta < 0)
+					return;
+				count = new Count();
+				words.put(word, count);
+			}
+			count.value += delta;
+			if(count.value <= 0)
+				words.remove(word);
+		});
+	} //}}}
+
+	//{{{ updateLines() method
+	/**
+	 * Returns true if an edit of some lines is applied to the index,
+	 * otherwise the index is built again.
+	 */
+	private synchronized boolean updateLines(int numLines)
+	{
+		if(!valid)
+			return false;
+		if(numLines <= MAX_UPDATED_LINES)
+			return true;
+		build();
+		return false;
+	} //}}}
+
+	//{{{ updateLine() method
+	private void updateLine(int line, int delta)
+	{
+		updateLine(buffer.getLineSegment(line), delta);
+	}
+
+	private synchronized void updateLine(CharSequence line, int delta)
+	{
+		if(valid)
+			addWords(line, noWordSep, words, delta);
+	} //}}}
+
+	//{{{ install() method
+	/**
+	 * Called in the dispatch thread when the index was built.
+	 */
+	private void install(int generation, long version, TreeMap<String, Count> words)
+	{
+		try
+		{
+			buffer.readLock();
+			synchronized(this)
+			{
+				if(generation != this.generation)
+					return;
+				if(buffer.getVersion() != version)
+				{
+					// edited while the index was built
+					build();
+					return;
+				}
+				this.words = words;
+				valid = true;
+			}
+		}
+		finally
+		{
+			buffer.readUnlock();
+		}
+	} //}}}
+
+	//}}}
+
+	//{{{ Count class
+	private static class Count
+	{
+		int value;
+	} //}}}
+
+	//{{{ BuildTask class
+	private class BuildTask extends Task
+	{
+		private final int generation;
+		private final String noWordSep;
+
+		BuildTask(int generation, String noWordSep)
+		{
+			this.generation = generation;
+			this.noWordSep = noWordSep;
+			setLabel("Indexing the words of " + buffer);
+			setPriority(Priority.IDLE);
+		}
+
+		@Override
+		public void _run()
+		{
+			BufferSnapshot snapshot = buffer.snapshot();
+			TreeMap<String, Count> words = new TreeMap<>();
+			Segment segment = new Segment();
+			for(int i = 0; i < snapshot.getLineCount(); i++)
+			{
+				snapshot.getLineText(i, segment);
+				addWords(segment, noWordSep, words, 1);
+			}
+			ThreadUtilities.runInDispatchThread(() ->
+				install(generation, snapshot.getVersion(), words));
+		}
+	} //}}}
+
+	//{{{ Handler class
+	/**
+	 * Indexes the buffers when they are loaded, and forgets them when
+	 * they are closed.
+	 */
+	public static class Handler
+	{
+		private Handler()
+		{
+		}
+
+		//{{{ handleBufferUpdate() method
+		@EBHandler
+		public void handleBufferUpdate(BufferUpdate msg)
+		{
+			Buffer buffer = msg.getBuffer();
+			Object what = msg.getWhat();
+			if(what == BufferUpdate.LOADED)
+			{
+				WordIndex index;
+				synchronized(indexes)
+				{
+					index = indexes.get(buffer);
+					if(index == null)
+					{
+						index = new WordIndex(buffer);
+						indexes.put(buffer, index);
+						buffer.addBufferListener(index);
+					}
+				}
+				index.build();
+			}
+			else if(what == BufferUpdate.PROPERTIES_CHANGED)
+			{
+				WordIndex index = getIndex(buffer);
+				if(index != null && !getNoWordSep(buffer).equals(index.getNoWordSep()))
+					index.build();
+			}
+			else if(what == BufferUpdate.CLOSED)
+			{
+				WordIndex index;
+				synchronized(indexes)
+				{
+					index = indexes.remove(buffer);
+				}
+				if(index != null)
+					buffer.removeBufferListener(index);
+			}
+		} //}}}
+	} //}}}
+}
@@ -112,6 +112,7 @@ public class CopyFileWorker extends Task
 		behavior = Behavior.OVERWRITE;
 		this.latch = latch;
 		setLabel("Copy " + source + " to " + target);
+		setPriority(Priority.BACKGROUND_IO);
 	}
 
 	/**
@@ -146,6 +147,7 @@ public class CopyFileWorker extends Task
 		this.sources = sources;
 		this.target = target;
 		this.behavior = behavior;
+		setPriority(Priority.BACKGROUND_IO);
 	} //}}}
 
 	//{{{ _run() method
@@ -42,6 +42,7 @@ public class LocalFileSaveTask extends Task
 		this.file = file;
 		this.body = body;
 		this.charset = charset;
+		setPriority(Priority.BACKGROUND_IO);
 	}
 
 	/**
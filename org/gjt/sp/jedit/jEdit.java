@@ -52,8 +52,11 @@ import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.lang.reflect.InvocationTargetException;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.jedit.util.SystemManager;
@@ -63,6 +66,7 @@ import org.gjt.sp.jedit.bufferio.BufferIORequest;
 import org.gjt.sp.jedit.buffer.KillRing;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 import org.gjt.sp.jedit.buffer.FoldHandler;
+import org.gjt.sp.jedit.buffer.UndoManager;
 import org.gjt.sp.jedit.msg.*;
 import org.gjt.sp.jedit.gui.*;
 import org.gjt.sp.jedit.help.HelpViewer;
@@ -449,6 +453,8 @@ public class jEdit
 		GUIUtilities.init();
 
 		bufferSetManager = new BufferSetManager();
+		WordIndex.init();
+		bufferManager.startFileWatcher();
 		//}}}
 
 		//{{{ Initialize server
@@ -1039,6 +1045,8 @@ public class jEdit
 
 		Autosave.setInterval(getIntegerProperty("autosave",30));
 
+		initTaskScheduler();
+
 		saveCaret = getBooleanProperty("saveCaret");
 
 		UIDefaults defaults = UIManager.getDefaults();
@@ -1242,10 +1250,22 @@ public class jEdit
 	public static void addPluginJAR(String path)
 	{
 		PluginJAR jar = new PluginJAR(new File(path));
+		addPluginJAR(jar, PluginJAR.getPluginCache(jar), null);
+	}
+
+	/**
+	 * Loads a plugin JAR from a summary read beforehand.
+	 * @param jar The JAR
+	 * @param cache The summary, or null to load the JAR
+	 * @param pluginCache The startup cache, or null
+	 */
+	private static void addPluginJAR(PluginJAR jar, PluginJAR.PluginCacheEntry cache,
+		PluginCache pluginCache)
+	{
 		jars.addElement(jar);
-		if (jar.init())
+		if (jar.init(cache, pluginCache))
 		{
-			String jarName = MiscUtilities.getFileName(path);
+			String jarName = MiscUtilities.getFileName(jar.getPath());
 			jEdit.unsetProperty("plugin-blacklist."+jarName);
 			jEdit.unsetProperty("plugin." + jarName + ".disabled");
 			EditBus.send(new PluginUpdate(jar,PluginUpdate.LOADED,false));
@@ -1262,13 +1282,14 @@ public class jEdit
 		}
 	} //}}}
 
-	//{{{ addPluginJARsFromDirectory() method
+	//{{{ listPluginJARs() method
 	/**
-	 * Loads all plugins in a directory.
+	 * Adds the paths of the plugin JARs of a directory to a list.
 	 * @param directory The directory
-	 * @since jEdit 4.2pre1
+	 * @param paths The list
+	 * @since jEdit 5.7pre1
 	 */
-	private static void addPluginJARsFromDirectory(String directory)
+	private static void listPluginJARs(String directory, List<String> paths)
 	{
 		Log.log(Log.NOTICE,jEdit.class,"Loading plugins from "
 			+ directory);
@@ -1289,7 +1310,7 @@ public class jEdit
 			if (jEdit.getBooleanProperty("plugin-blacklist." + plugin))
 				continue;
 
-			addPluginJAR(path);
+			paths.add(path);
 		}
 	} //}}}
 
@@ -1762,7 +1783,8 @@ public class jEdit
 	 * already opened in jEdit, then this instance is returned.
 	 * Otherwise jEdit will not store a reference
 	 * to the returned Buffer object.
-	 * <p>This method is thread-safe.
+	 * <p>This method is thread-safe. Concurrent calls for the same
+	 * <code>path</code> return the same temporary buffer.
 	 *
 	 * @param view The view to open the file in
 	 * @param parent The parent directory of the file
@@ -1788,7 +1810,8 @@ public class jEdit
 	 * already opened in jEdit, then this instance is returned.
 	 * Otherwise jEdit will not store a reference
 	 * to the returned Buffer object.
-	 * <p>This method is thread-safe.
+	 * <p>This method is thread-safe. Concurrent calls for the same
+	 * <code>path</code> return the same temporary buffer.
 	 *
 	 * @param view The view to open the file in
 	 * @param parent The parent directory of the file
@@ -1865,13 +1888,44 @@ public class jEdit
 
 			if(bufferOptional.isPresent())
 				return bufferOptional.get();
+		}
+
+		// temporary buffers are not added to the buffer list, so they
+		// can be loaded without holding its lock, allowing several
+		// threads to load them at the same time. The callers loading the
+		// same path share one buffer.
+		CompletableFuture<Buffer> load = new CompletableFuture<>();
+		CompletableFuture<Buffer> runningLoad = temporaryLoads.putIfAbsent(path, load);
+		if(runningLoad != null)
+			return runningLoad.join();
 
+		try
+		{
 			Buffer buffer = new Buffer(path,newFile,true,props,untitled);
 			buffer.setBooleanProperty(Buffer.ENCODING_AUTODETECT, true);
 			if(!buffer.load(view,false))
-				return null;
+				buffer = null;
 			else
-				return buffer;
+			{
+				// the file may have been opened while it was loaded
+				synchronized(bufferManager.getBufferListLock())
+				{
+					Optional<Buffer> bufferOptional = bufferManager.getBuffer(path);
+					if(bufferOptional.isPresent())
+						buffer = bufferOptional.get();
+				}
+			}
+			load.complete(buffer);
+			return buffer;
+		}
+		catch(RuntimeException | Error e)
+		{
+			load.completeExceptionally(e);
+			throw e;
+		}
+		finally
+		{
+			temporaryLoads.remove(path, load);
 		}
 	} //}}}
 
@@ -3244,6 +3298,8 @@ public class jEdit
 
 	private static BufferSetManager bufferSetManager;
 	private static BufferManagerImpl bufferManager = new BufferManagerImpl();
+	/** The temporary buffers being loaded, by path. */
+	private static final Map<String, CompletableFuture<Buffer>> temporaryLoads = new ConcurrentHashMap<>();
 	private static ViewManagerImpl viewManager = new ViewManagerImpl();
 	private static EditPaneManager editPaneManager = new EditPaneManagerImpl(viewManager);
 	public static SystemManager systemManager = new SystemManager();
@@ -3504,6 +3560,9 @@ public class jEdit
 			jarCacheDirectory = MiscUtilities.constructPath(
 				settingsDirectory,"jars-cache");
 			new File(jarCacheDirectory).mkdirs();
+			ModeProvider.instance.setCacheDirectory(
+				new File(settingsDirectory,"modes-cache"));
+			UndoManager.deleteJournals(new File(settingsDirectory,"undo"));
 		}
 
 		//if(jEditHome == null)
@@ -3556,6 +3615,27 @@ public class jEdit
 		return Optional.of(text);
 	} //}}}
 
+	//{{{ initTaskScheduler() method
+	/**
+	 * Sets the number of background tasks of each priority that can run
+	 * at once.
+	 */
+	private static void initTaskScheduler()
+	{
+		TaskScheduler scheduler = ThreadUtilities.getScheduler();
+		for(Task.Priority priority : Task.Priority.values())
+		{
+			String name = "taskScheduler.limit." + priority.name().toLowerCase(Locale.ROOT);
+			scheduler.setLimit(priority, getIntegerProperty(name, scheduler.getLimit(priority)));
+		}
+		boolean virtualThreads = getBooleanProperty("taskScheduler.virtualThreads");
+		if(!scheduler.setVirtualThreads(virtualThreads))
+		{
+			Log.log(Log.WARNING, jEdit.class,
+				"Virtual threads are not available in this Java version");
+		}
+	} //}}}
+
 	//{{{ initSystemProperties() method
 	/**
 	 * Load system properties.
@@ -3648,10 +3728,11 @@ public class jEdit
 	 */
 	private static void initPlugins()
 	{
+		List<String> paths = new ArrayList<>();
 		if(jEditHome != null)
 		{
-			addPluginJARsFromDirectory(MiscUtilities.constructPath(
-				jEditHome,"jars"));
+			listPluginJARs(MiscUtilities.constructPath(
+				jEditHome,"jars"), paths);
 		}
 
 		if(settingsDirectory != null)
@@ -3659,12 +3740,68 @@ public class jEdit
 			File jarsDirectory = new File(settingsDirectory,"jars");
 			if(!jarsDirectory.exists())
 				jarsDirectory.mkdir();
-			addPluginJARsFromDirectory(jarsDirectory.getPath());
+			listPluginJARs(jarsDirectory.getPath(), paths);
 		}
+		logTime("plugin JARs listed");
+
+		PluginCache pluginCache = jarCacheDirectory == null ? null
+			: new PluginCache(new File(jarCacheDirectory, "plugins.cache"));
+		PluginJAR[] newJars = new PluginJAR[paths.size()];
+		for(int i = 0; i < newJars.length; i++)
+			newJars[i] = new PluginJAR(new File(paths.get(i)));
+
+		// reading the summaries, and opening the JARs that have none,
+		// change nothing so they are done in parallel. The plugins are
+		// then loaded in order, as they may replace each other
+		PluginJAR.PluginCacheEntry[] caches = new PluginJAR.PluginCacheEntry[newJars.length];
+		IntStream.range(0, newJars.length).parallel().forEach(i ->
+		{
+			PluginJAR jar = newJars[i];
+			PluginJAR.PluginCacheEntry cache = pluginCache == null ? null
+				: pluginCache.get(jar);
+			if(cache == null)
+				cache = PluginJAR.getPluginCache(jar);
+			if(cache == null)
+			{
+				try
+				{
+					jar.getZipFile();
+				}
+				catch(IOException e)
+				{
+					// reported when the plugin is loaded
+				}
+			}
+			caches[i] = cache;
+		});
+		logTime("plugin summaries read");
+
+		for(int i = 0; i < newJars.length; i++)
+			addPluginJAR(newJars[i], caches[i], pluginCache);
+		logTime("plugins loaded");
+
+		if(pluginCache != null)
+			pluginCache.save();
 
 		PluginJAR[] jars = getPluginJARs();
+		Map<String, PluginJAR> jarsByPath = new HashMap<>();
+		Map<String, PluginJAR> jarsByPlugin = new HashMap<>();
 		for (PluginJAR jar : jars)
-			jar.checkDependencies();
+		{
+			jarsByPath.putIfAbsent(jar.getPath(), jar);
+			if(jar.getPlugin() != null)
+				jarsByPlugin.putIfAbsent(jar.getPlugin().getClassName(), jar);
+		}
+		for (PluginJAR jar : jars)
+		{
+			// a plugin may be broken by the check of a previous one
+			jar.checkDependencies(jarsByPath::get, name ->
+			{
+				PluginJAR pluginJAR = jarsByPlugin.get(name);
+				return pluginJAR == null ? null : pluginJAR.getPlugin();
+			});
+		}
+		logTime("plugin dependencies checked");
 	} //}}}
 
 	//{{{ initUserProperties() method
@@ -60,6 +60,7 @@ public class BufferManagerImpl implements BufferManager
 	private int bufferCount;
 	private Buffer buffersFirst;
 	private Buffer buffersLast;
+	private FileWatcher fileWatcher;
 
 	public BufferManagerImpl()
 	{
@@ -178,6 +179,26 @@ public class BufferManagerImpl implements BufferManager
 	 * @since jEdit 4.2pre1
 	 */
 	public void checkBufferStatus(View view, boolean currentBuffer, boolean autoReload)
+	{
+		if(fileWatcher == null)
+		{
+			checkBufferStatus(view, currentBuffer, autoReload, buffer -> true);
+			return;
+		}
+
+		// only the changed files are checked, the others are polled
+		// in the background in case their change was not reported
+		FileWatcher watcher = fileWatcher;
+		checkBufferStatus(view, currentBuffer, autoReload, watcher::takeChanged);
+		watcher.poll(getBuffers(), () ->
+		{
+			if(!view.isClosed())
+				checkBufferStatus(view, currentBuffer, autoReload, watcher::takeChanged);
+		});
+	}
+
+	private void checkBufferStatus(View view, boolean currentBuffer, boolean autoReload,
+		Predicate<Buffer> check)
 	{
 		// still need to call the status check even if the option is
 		// off, so that the write protection is updated if it changes
@@ -203,6 +224,13 @@ public class BufferManagerImpl implements BufferManager
 				continue;
 			}
 
+			if(!check.test(buffer))
+			{
+				buffer = buffer.getNext();
+				i++;
+				continue;
+			}
+
 			states[i] = buffer.checkFileStatus(view);
 
 			switch(states[i])
@@ -240,6 +268,19 @@ public class BufferManagerImpl implements BufferManager
 			new FilesChangedDialog(view,states, autoReload);
 	} //}}}
 
+	//{{{ startFileWatcher() method
+	/**
+	 * Starts watching the files of the loaded buffers, so that
+	 * {@link #checkBufferStatus(View, boolean, boolean)} only checks the
+	 * buffers whose file changed.
+	 * @since jEdit 5.7pre1
+	 */
+	public void startFileWatcher()
+	{
+		if(fileWatcher == null)
+			fileWatcher = FileWatcher.create();
+	} //}}}
+
 	public void setSortBuffers(boolean sortBuffers)
 	{
 		this.sortBuffers = sortBuffers;
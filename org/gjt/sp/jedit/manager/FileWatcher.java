@@ -0,0 +1,320 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.manager;
+
+//{{{ Imports
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.EditBus;
+import org.gjt.sp.jedit.EditBus.EBHandler;
+import org.gjt.sp.jedit.io.FileVFS;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.msg.BufferUpdate;
+import org.gjt.sp.util.Log;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+//}}}
+
+/**
+ * Watches the files of the loaded local buffers for changes on disk, so
+ * that {@link BufferManagerImpl#checkBufferStatus} only checks the buffers
+ * whose file changed, instead of reading the status of every file in the
+ * event dispatch thread.<p>
+ *
+ * The directories of the buffers are registered in a {@link WatchService},
+ * whose events are read by a background thread. The buffers that cannot
+ * be watched, and the changes that are not reported, as on some network
+ * file systems, are found by polling the files in a background task, at
+ * most every <code>fileWatcher.pollInterval</code> seconds.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class FileWatcher
+{
+	//{{{ create() method
+	/**
+	 * @return a started file watcher, or null if the file system cannot
+	 * be watched
+	 */
+	static FileWatcher create()
+	{
+		try
+		{
+			FileWatcher watcher = new FileWatcher(
+				FileSystems.getDefault().newWatchService());
+			EditBus.addToBus(watcher);
+			return watcher;
+		}
+		catch(IOException | UnsupportedOperationException e)
+		{
+			Log.log(Log.WARNING, FileWatcher.class,
+				"Cannot watch the files, their status will be polled", e);
+			return null;
+		}
+	} //}}}
+
+	//{{{ takeChanged() method
+	/**
+	 * @return true if the file of a buffer may have changed since the last
+	 * call, its status must then be checked
+	 */
+	synchronized boolean takeChanged(Buffer buffer)
+	{
+		return changed.remove(buffer);
+	} //}}}
+
+	//{{{ poll() method
+	/**
+	 * Reads the status of the files of some buffers in a background task,
+	 * unless it was done recently.
+	 * @param buffers the buffers
+	 * @param whenChanged run in the dispatch thread if a file changed
+	 */
+	void poll(Collection<Buffer> buffers, Runnable whenChanged)
+	{
+		synchronized(this)
+		{
+			long interval = jEdit.getIntegerProperty("fileWatcher.pollInterval", 10) * 1000L;
+			if(polling || System.currentTimeMillis() - lastPoll < interval)
+				return;
+			polling = true;
+		}
+		ThreadUtilities.runInBackground(new PollTask(buffers, whenChanged));
+	} //}}}
+
+	//{{{ handleBufferUpdate() method
+	@EBHandler
+	public void handleBufferUpdate(BufferUpdate msg)
+	{
+		Object what = msg.getWhat();
+		if(what == BufferUpdate.LOADED || what == BufferUpdate.SAVED)
+			watch(msg.getBuffer());
+		else if(what == BufferUpdate.CLOSED)
+			unwatch(msg.getBuffer());
+	} //}}}
+
+	//{{{ Private members
+	private final WatchService watchService;
+	/** The watched directories. */
+	private final Map<Path, Directory> directories = new HashMap<>();
+	/** The directory of each watched buffer. */
+	private final Map<Buffer, Path> watched = new HashMap<>();
+	private final Set<Buffer> changed = new HashSet<>();
+	private boolean polling;
+	private long lastPoll;
+
+	//{{{ FileWatcher constructor
+	private FileWatcher(WatchService watchService)
+	{
+		this.watchService = watchService;
+		Thread thread = new Thread(this::run, "jEdit file watcher");
+		thread.setDaemon(true);
+		thread.start();
+	} //}}}
+
+	//{{{ watch() method
+	private synchronized void watch(Buffer buffer)
+	{
+		// the path changes when the buffer is saved under another name
+		unwatch(buffer);
+		if(!(buffer.getVFS() instanceof FileVFS) || buffer.isUntitled())
+			return;
+
+		Path path;
+		try
+		{
+			path = Paths.get(buffer.getSymlinkPath());
+		}
+		catch(InvalidPathException e)
+		{
+			return;
+		}
+		Path dir = path.getParent();
+		if(dir == null)
+			return;
+
+		Directory directory = directories.get(dir);
+		if(directory == null)
+		{
+			try
+			{
+				directory = new Directory(dir.register(watchService,
+					ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+			}
+			catch(IOException | UnsupportedOperationException | ClosedWatchServiceException e)
+			{
+				// the buffer is polled
+				Log.log(Log.DEBUG, this, "Cannot watch " + dir + ": " + e);
+				return;
+			}
+			directories.put(dir, directory);
+		}
+		directory.buffers.put(path.getFileName(), buffer);
+		watched.put(buffer, dir);
+	} //}}}
+
+	//{{{ unwatch() method
+	private synchronized void unwatch(Buffer buffer)
+	{
+		changed.remove(buffer);
+		Path dir = watched.remove(buffer);
+		if(dir == null)
+			return;
+		Directory directory = directories.get(dir);
+		directory.buffers.values().remove(buffer);
+		if(directory.buffers.isEmpty())
+		{
+			directory.key.cancel();
+			directories.remove(dir);
+		}
+	} //}}}
+
+	//{{{ run() method
+	/**
+	 * Reads the events of the watch service until it is closed.
+	 */
+	private void run()
+	{
+		try
+		{
+			while(true)
+			{
+				WatchKey key = watchService.take();
+				// the events of a key are read together, so a
+				// burst of writes to a file marks it only once
+				List<WatchEvent<?>> events = key.pollEvents();
+				synchronized(this)
+				{
+					Path dir = (Path) key.watchable();
+					Directory directory = directories.get(dir);
+					if(directory == null || directory.key != key)
+						continue;
+					for(WatchEvent<?> event : events)
+					{
+						if(event.kind() == OVERFLOW)
+						{
+							changed.addAll(directory.buffers.values());
+							continue;
+						}
+						Buffer buffer = directory.buffers.get((Path) event.context());
+						if(buffer != null)
+							changed.add(buffer);
+					}
+					if(!key.reset())
+					{
+						// the directory was deleted, its buffers
+						// are polled from now on
+						changed.addAll(directory.buffers.values());
+						watched.values().removeIf(dir::equals);
+						directories.remove(dir);
+					}
+				}
+			}
+		}
+		catch(InterruptedException | ClosedWatchServiceException e)
+		{
+			Log.log(Log.DEBUG, this, "File watcher stopped");
+		}
+	} //}}}
+
+	//}}}
+
+	//{{{ Directory class
+	private static class Directory
+	{
+		final WatchKey key;
+		/** The watched buffers, by file name. */
+		final Map<Path, Buffer> buffers = new HashMap<>();
+
+		Directory(WatchKey key)
+		{
+			this.key = key;
+		}
+	} //}}}
+
+	//{{{ PollTask class
+	/**
+	 * Reads the status of the files in a background thread, the buffers
+	 * whose status differs are marked as changed.
+	 */
+	private class PollTask extends Task
+	{
+		private final Collection<Buffer> buffers;
+		private final Runnable whenChanged;
+
+		PollTask(Collection<Buffer> buffers, Runnable whenChanged)
+		{
+			this.buffers = buffers;
+			this.whenChanged = whenChanged;
+			setLabel("Checking the status of " + buffers.size() + " files");
+			setPriority(Priority.IDLE);
+		}
+
+		@Override
+		public void _run()
+		{
+			List<Buffer> found = new ArrayList<>();
+			try
+			{
+				for(Buffer buffer : buffers)
+				{
+					if(!(buffer.getVFS() instanceof FileVFS) || buffer.isNewFile()
+						|| buffer.isPerformingIO() || buffer.isClosed())
+					{
+						continue;
+					}
+					File file = new File(buffer.getPath());
+					boolean readOnly = file.exists() && !file.canWrite();
+					if(file.lastModified() != buffer.getLastModified()
+						|| readOnly != buffer.isReadOnly())
+					{
+						found.add(buffer);
+					}
+				}
+			}
+			finally
+			{
+				synchronized(FileWatcher.this)
+				{
+					changed.addAll(found);
+					polling = false;
+					lastPoll = System.currentTimeMillis();
+				}
+			}
+			if(!found.isEmpty())
+				ThreadUtilities.runInDispatchThread(whenChanged);
+		}
+	} //}}}
+}
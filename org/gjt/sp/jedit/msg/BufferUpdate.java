@@ -25,6 +25,7 @@ package org.gjt.sp.jedit.msg;
 import org.gjt.sp.jedit.*;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -132,6 +133,21 @@ public class BufferUpdate extends EBMessage
 		return view;
 	} //}}}
 
+	//{{{ getCoalescingKey() method
+	/**
+	 * The dirty, markers and properties changes of a buffer only tell the
+	 * handlers to read the state of the buffer again, so several of them
+	 * are merged.
+	 * @since jEdit 5.7pre1
+	 */
+	@Override
+	public Object getCoalescingKey()
+	{
+		if (what == DIRTY_CHANGED || what == MARKERS_CHANGED || what == PROPERTIES_CHANGED)
+			return Arrays.asList(getSource(), what);
+		return null;
+	} //}}}
+
 	//{{{ paramString() method
 	@Override
 	public String paramString()
@@ -291,6 +291,7 @@ public class PluginManagerOptionPane extends AbstractOptionPane
 		UpdateMirrorsThread(boolean download)
 		{
 			this.download = download;
+			setPriority(Priority.BACKGROUND_IO);
 		}
 
 		//{{{ run() method
@@ -52,6 +52,9 @@ public class UndoPane extends AbstractOptionPane
 		undoCount = new JTextField(jEdit.getProperty("buffer.undoCount"));
 		addComponent(jEdit.getProperty("options.editing.undoCount"),undoCount);
 
+		undoMemory = new JTextField(jEdit.getProperty("buffer.undoMemory"));
+		addComponent(jEdit.getProperty("options.editing.undoMemory"),undoMemory);
+
 		// Reset Undo Manager On Save
 		resetUndoOnSave = new JCheckBox(jEdit.getProperty("options.general.resetUndo"));
 		resetUndoOnSave.setSelected(jEdit.getBooleanProperty("resetUndoOnSave"));
@@ -63,11 +66,13 @@ public class UndoPane extends AbstractOptionPane
 	protected void _save()
 	{
 		jEdit.setProperty("buffer.undoCount",undoCount.getText());
+		jEdit.setProperty("buffer.undoMemory",undoMemory.getText());
 		jEdit.setBooleanProperty("resetUndoOnSave", resetUndoOnSave.isSelected());
 	} //}}}
 
 	//{{{ Instance variables
 	private JTextField undoCount;
+	private JTextField undoMemory;
 	private JCheckBox resetUndoOnSave;
 	//}}}
 
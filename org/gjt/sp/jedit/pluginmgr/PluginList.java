@@ -67,6 +67,7 @@ class PluginList extends Task
 	PluginList(Runnable dispatchThreadTask)
 	{
 		this.dispatchThreadTask = dispatchThreadTask;
+		setPriority(Priority.BACKGROUND_IO);
 	} //}}}
 
 	//{{{ _run() method
@@ -208,6 +208,25 @@ public class BoyerMooreSearchMatcher extends SearchMatcher
 		return -1;
 	} //}}}
 
+	//{{{ copy() method
+	@Override
+	public SearchMatcher copy()
+	{
+		BoyerMooreSearchMatcher copy = new BoyerMooreSearchMatcher(
+			new String(pattern), ignoreCase, wholeWord);
+		copy.noWordSep = noWordSep;
+		return copy;
+	} //}}}
+
+	//{{{ getPattern() method
+	/**
+	 * @return the searched string, upper case if the case is ignored
+	 */
+	String getPattern()
+	{
+		return new String(pattern);
+	} //}}}
+
 	//{{{ toString() method
 	public String toString()
 	{
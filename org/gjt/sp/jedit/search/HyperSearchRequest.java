@@ -25,13 +25,23 @@ package org.gjt.sp.jedit.search;
 //{{{ Imports
 import javax.swing.tree.*;
 import javax.swing.*;
+import javax.swing.text.Segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.gjt.sp.jedit.textarea.Selection;
 import org.gjt.sp.jedit.textarea.JEditTextArea;
 import org.gjt.sp.jedit.Buffer;
 import org.gjt.sp.jedit.GUIUtilities;
 import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.Mode;
 import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.io.FileVFS;
+import org.gjt.sp.jedit.io.VFSManager;
+import org.gjt.sp.jedit.syntax.ModeProvider;
 import org.gjt.sp.util.*;
 //}}}
 
@@ -93,6 +103,12 @@ class HyperSearchRequest extends Task
 
 				searchInSelection(buffer);
 			}
+			else if(fileset instanceof DirectoryListSet && matcher.copy() != null)
+			{
+				int resultCount = searchInParallel(files,
+					((DirectoryListSet) fileset).getDirectory(), searchingCaption);
+				Log.log(Log.MESSAGE, this, resultCount +" OCCURENCES");
+			}
 			else
 			{
 				int current = 0;
@@ -179,9 +195,268 @@ class HyperSearchRequest extends Task
 	private final DefaultMutableTreeNode rootSearchNode;
 	private final Selection[] selection;
 	private final String searchString;
-	private DefaultMutableTreeNode selectNode;
+	private volatile DefaultMutableTreeNode selectNode;
+	private final Object modeLock = new Object();
 	//}}}
 
+	//{{{ searchInParallel() method
+	/**
+	 * Loads and searches the files in {@link SearchWorkers}.
+	 * The results are published in the order of the files, in batches,
+	 * while the search goes on. Local files that cannot match according
+	 * to the trigram index of the directory are skipped.
+	 */
+	private int searchInParallel(String[] files, String directory,
+		String searchingCaption) throws Exception
+	{
+		TrigramIndex index = null;
+		if(jEdit.getBooleanProperty("hypersearch.index")
+			&& VFSManager.getVFSForPath(directory) instanceof FileVFS)
+		{
+			index = TrigramIndex.getIndex(directory);
+		}
+		// searches shorter than a trigram only update the index
+		int[] trigrams = index == null ? null : TrigramIndex.getTrigrams(matcher);
+		TrigramIndex searchIndex = index;
+
+
+		SearchWorkers<DefaultMutableTreeNode> workers = new SearchWorkers<>(
+			"HyperSearch worker", files, matcher, (file, fileMatcher, reader) ->
+				searchFile(file, fileMatcher, reader, searchIndex, trigrams));
+
+		List<DefaultMutableTreeNode> batch = new ArrayList<>();
+		int current = 0;
+		int resultCount = 0;
+		long lastStatusTime = 0L;
+		boolean asked = false;
+		int maxResults = jEdit.getIntegerProperty("hypersearch.maxWarningResults");
+		try
+		{
+			while(current < files.length)
+			{
+				if(Thread.currentThread().isInterrupted())
+				{
+					Log.log(Log.MESSAGE, this, "Search stopped by user action (stop button)");
+					break;
+				}
+				if (!asked && resultCount > maxResults && maxResults != 0)
+				{
+					Log.log(Log.DEBUG, this, "Search in progress, " + resultCount +
+								 " occurrences found, asking the user to stop");
+					asked = true;
+					int ret = GUIUtilities.confirm(view, "hypersearch.tooManyResults",
+								       new Object[]{resultCount},
+								       JOptionPane.YES_NO_OPTION,
+								       JOptionPane.QUESTION_MESSAGE);
+					if (ret == JOptionPane.YES_OPTION)
+					{
+						Log.log(Log.MESSAGE, this, "Search stopped by user action");
+						break;
+					}
+				}
+
+				DefaultMutableTreeNode bufferNode;
+				try
+				{
+					bufferNode = workers.next();
+				}
+				catch(InterruptedException e)
+				{
+					Log.log(Log.MESSAGE, this, "Search stopped by user action (stop button)");
+					Thread.currentThread().interrupt();
+					break;
+				}
+				current++;
+
+				if(bufferNode != null)
+				{
+					resultCount += ((HyperSearchFileNode) bufferNode.getUserObject()).getCount();
+					batch.add(bufferNode);
+				}
+
+				long currentTime = System.currentTimeMillis();
+				if(currentTime - lastStatusTime > 250L)
+				{
+					setValue(current);
+					lastStatusTime = currentTime;
+					results.setSearchStatus(searchingCaption + files[current - 1]);
+					publish(batch);
+					batch = new ArrayList<>();
+				}
+			}
+		}
+		finally
+		{
+			workers.stop();
+			publish(batch);
+			if(index != null)
+				index.save();
+		}
+		return resultCount;
+	} //}}}
+
+	//{{{ searchFile() method
+	/**
+	 * Searches a file in a worker thread. Files that are not opened in
+	 * a buffer are read directly, a buffer will be created only if the
+	 * user opens one of the results.
+	 * @param index the trigram index of the directory, or null
+	 * @param trigrams the trigrams of the search, or null
+	 * @return the result node of the file, or null if there is no match
+	 */
+	private DefaultMutableTreeNode searchFile(String file, SearchMatcher matcher,
+		SearchFileReader reader, TrigramIndex index, int[] trigrams) throws Exception
+	{
+		if(Thread.currentThread().isInterrupted())
+			return null;
+
+		Buffer buffer = jEdit.getBufferManager().getBuffer(file).orElse(null);
+		if(buffer == null)
+		{
+			if(index == null)
+				return scanFile(file, matcher, reader);
+			if(trigrams != null && !index.mightContain(file, trigrams))
+				return null;
+			return indexFile(file, matcher, reader, index);
+		}
+
+		// Wait for the buffer to load
+		if(!buffer.isLoaded())
+			TaskManager.instance.waitForIoTasks();
+
+		HyperSearchFileNode hyperSearchFileNode = new HyperSearchFileNode(buffer.getPath());
+		DefaultMutableTreeNode bufferNode = new DefaultMutableTreeNode(hyperSearchFileNode);
+		int resultCount = doHyperSearch(buffer,0,buffer.getLength(),bufferNode,matcher);
+		hyperSearchFileNode.setCount(resultCount);
+		return resultCount == 0 ? null : bufferNode;
+	} //}}}
+
+	//{{{ indexFile() method
+	/**
+	 * Searches a local file, and updates its entry in the index if it
+	 * changed.
+	 */
+	private DefaultMutableTreeNode indexFile(String file, SearchMatcher matcher,
+		SearchFileReader reader, TrigramIndex index) throws Exception
+	{
+		File localFile = new File(file);
+		long modTime = localFile.lastModified();
+		long length = localFile.length();
+		Segment text = readFile(file, reader);
+		if(text == null)
+			return null;
+		if(!index.isUpToDate(file, modTime, length))
+			index.update(file, modTime, length, text);
+		return scanFile(file, matcher, text);
+	} //}}}
+
+	//{{{ readFile() method
+	private Segment readFile(String file, SearchFileReader reader)
+	{
+		try
+		{
+			return reader.read(file, view);
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, "Unable to read " + file, e);
+			return null;
+		}
+	} //}}}
+
+	//{{{ scanFile() methods
+	private DefaultMutableTreeNode scanFile(String file, SearchMatcher matcher,
+		SearchFileReader reader) throws Exception
+	{
+		Segment text = readFile(file, reader);
+		return text == null ? null : scanFile(file, matcher, text);
+	}
+
+	private DefaultMutableTreeNode scanFile(String file, SearchMatcher matcher,
+		Segment text) throws Exception
+	{
+		if(matcher.wholeWord)
+		{
+			String firstLine = new String(text.array, 0, lineEnd(text, 0));
+			Mode mode = ModeProvider.instance.getModeForFile(file, null, firstLine);
+			String noWordSep = null;
+			if(mode != null)
+			{
+				// modes are not loaded concurrently
+				synchronized(modeLock)
+				{
+					mode.loadIfNecessary();
+				}
+				noWordSep = (String) mode.getProperty("noWordSep");
+			}
+			matcher.setNoWordSep(noWordSep);
+		}
+
+		HyperSearchFileNode hyperSearchFileNode = new HyperSearchFileNode(file);
+		DefaultMutableTreeNode bufferNode = new DefaultMutableTreeNode(hyperSearchFileNode);
+		int resultCount = 0;
+		int offset = 0;
+		// line numbers are computed while going through the matches
+		int line = 0;
+		int lineStart = 0;
+		int scanned = 0;
+		HyperSearchResult lastResult = null;
+		for(int counter = 0; ; counter++)
+		{
+			boolean startOfLine = offset == 0 || text.array[offset - 1] == '\n';
+			SearchMatcher.Match match = matcher.nextMatch(
+				new SegmentCharSequence(text, offset, text.count - offset),
+				startOfLine, true, counter == 0, false);
+			if(match == null)
+				break;
+
+			int matchStart = offset + match.start;
+			for(; scanned < matchStart; scanned++)
+			{
+				if(text.array[scanned] == '\n')
+				{
+					line++;
+					lineStart = scanned + 1;
+				}
+			}
+			if(lastResult == null || lastResult.line != line)
+			{
+				String lineText = new String(text.array, lineStart,
+					lineEnd(text, lineStart) - lineStart);
+				lastResult = new HyperSearchResult(file, line, lineText);
+				bufferNode.add(new DefaultMutableTreeNode(lastResult, false));
+			}
+
+			lastResult.addOccur(matchStart, offset + match.end);
+
+			offset += match.end;
+			resultCount++;
+		}
+		hyperSearchFileNode.setCount(resultCount);
+		return resultCount == 0 ? null : bufferNode;
+	} //}}}
+
+	//{{{ lineEnd() method
+	private static int lineEnd(Segment text, int offset)
+	{
+		while(offset < text.count && text.array[offset] != '\n')
+			offset++;
+		return offset;
+	} //}}}
+
+	//{{{ publish() method
+	/**
+	 * Shows the given file nodes in the results while the search is
+	 * running. From there, the search node is only modified in the
+	 * dispatch thread.
+	 */
+	private void publish(List<DefaultMutableTreeNode> batch)
+	{
+		if(batch.isEmpty())
+			return;
+		ThreadUtilities.runInDispatchThread(() -> results.searchProgress(rootSearchNode, batch));
+	} //}}}
+
 	//{{{ searchInSelection() method
 	private int searchInSelection(Buffer buffer) throws Exception
 	{
@@ -230,7 +505,7 @@ class HyperSearchRequest extends Task
 		HyperSearchFileNode hyperSearchFileNode = new HyperSearchFileNode(buffer.getPath());
 		DefaultMutableTreeNode bufferNode = new DefaultMutableTreeNode(hyperSearchFileNode);
 
-		int resultCount = doHyperSearch(buffer,start,end,bufferNode);
+		int resultCount = doHyperSearch(buffer,start,end,bufferNode,matcher);
 		hyperSearchFileNode.setCount(resultCount);
 		if(resultCount != 0)
 			rootSearchNode.insert(bufferNode,rootSearchNode.getChildCount());
@@ -242,11 +517,15 @@ class HyperSearchRequest extends Task
 
 	//{{{ doHyperSearch() method
 	private int doHyperSearch(Buffer buffer, int start, int end,
-		DefaultMutableTreeNode bufferNode)
+		DefaultMutableTreeNode bufferNode, SearchMatcher matcher)
 	{
 		if(matcher.wholeWord)
 		{
-			buffer.setMode();
+			// modes are not loaded concurrently
+			synchronized(modeLock)
+			{
+				buffer.setMode();
+			}
 			String noWordSep = buffer.getStringProperty("noWordSep");
 			matcher.setNoWordSep(noWordSep);
 		}
@@ -96,7 +96,7 @@ public class HyperSearchResult implements HyperSearchNode
 
 	//{{{ Package-private members
 
-	//{{{ HyperSearchResult constructor
+	//{{{ HyperSearchResult constructors
 	HyperSearchResult(Buffer buffer, int line)
 	{
 		path = buffer.getPath();
@@ -108,6 +108,22 @@ public class HyperSearchResult implements HyperSearchNode
 
 		str = (line + 1) + ": " + buffer.getLineText(line)
 			.replace('\t',' ').trim();
+	}
+
+
+	/**
+	 * Creates a result for a file that is not opened in a buffer.
+	 * @param path the path of the file
+	 * @param line the line index
+	 * @param lineText the text of the line
+	 * @since jEdit 5.7pre1
+	 */
+	HyperSearchResult(String path, int line, String lineText)
+	{
+		this.path = path;
+		this.line = line;
+
+		str = (line + 1) + ": " + lineText.replace('\t',' ').trim();
 	} //}}}
 
 	//{{{ bufferOpened() method
@@ -279,6 +279,34 @@ public class HyperSearchResults extends JPanel implements DefaultFocusComponent
 		}
 	} //}}}
 
+	//{{{ searchProgress() method
+	/**
+	 * Shows results of a search that is still running. This must be
+	 * called from the dispatch thread.
+	 * @param searchNode the result node of the running search
+	 * @param fileNodes the new file nodes to append to it
+	 * @since jEdit 5.7pre1
+	 */
+	public void searchProgress(DefaultMutableTreeNode searchNode, List<DefaultMutableTreeNode> fileNodes)
+	{
+		if(searchNode.getParent() != resultTreeRoot)
+		{
+			if(!multiStatus)
+				resultTreeRoot.removeAllChildren();
+			resultTreeRoot.add(searchNode);
+			resultTreeModel.reload(resultTreeRoot);
+		}
+
+		int[] indices = new int[fileNodes.size()];
+		for (int i = 0; i < indices.length; i++)
+		{
+			indices[i] = searchNode.getChildCount();
+			searchNode.add(fileNodes.get(i));
+		}
+		resultTreeModel.nodesWereInserted(searchNode, indices);
+		resultTree.expandPath(new TreePath(searchNode.getPath()));
+	} //}}}
+
 	//{{{ searchDone() method
 	/**
 	 * @param searchNode the result node
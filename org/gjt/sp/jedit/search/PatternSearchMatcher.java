@@ -297,6 +297,28 @@ public class PatternSearchMatcher extends SearchMatcher
         return re;
     } //}}}
     
+	//{{{ copy() method
+	@Override
+	public SearchMatcher copy()
+	{
+		// a Pattern is immutable and can be shared between threads
+		if (re == null)
+			re = Pattern.compile(pattern, flags);
+		boolean ignoreCase = (flags & Pattern.CASE_INSENSITIVE) != 0;
+		PatternSearchMatcher copy = new PatternSearchMatcher(re, ignoreCase, wholeWord);
+		copy.noWordSep = noWordSep;
+		return copy;
+	} //}}}
+
+	//{{{ getPattern() method
+	/**
+	 * @return the regular expression
+	 */
+	String getPattern()
+	{
+		return pattern;
+	} //}}}
+
 	//{{{ toString() method
 	@Override
 	public String toString()
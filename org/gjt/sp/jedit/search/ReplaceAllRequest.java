@@ -0,0 +1,458 @@
+/*
+ * ReplaceAllRequest.java - Replace all in many files, run in a worker thread
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+//{{{ Imports
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.UIManager;
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.io.FileVFS;
+import org.gjt.sp.jedit.io.VFSManager;
+import org.gjt.sp.jedit.syntax.ModeProvider;
+import org.gjt.sp.util.IntegerArray;
+import org.gjt.sp.util.Log;
+import org.gjt.sp.util.SegmentCharSequence;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.TaskManager;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * Replaces all the occurrences of the search string in the files of a
+ * {@link DirectoryListSet} or an {@link AllBufferSet}, without blocking the
+ * user interface.<p>
+ *
+ * The files are searched by {@link SearchWorkers}. A file that is not
+ * opened is read directly, and only opened in a temporary buffer if it has
+ * an occurrence. The occurrences of each buffer and their replacements are
+ * staged; they are replaced in the dispatch thread, one
+ * {@link Buffer#replace(int[],int[],String[])} per buffer, when all the
+ * files were searched or when too many temporary buffers are staged. If
+ * the task is cancelled, the files of the batches that were not replaced
+ * yet are not changed.
+ *
+ * @since jEdit 5.7pre1
+ */
+class ReplaceAllRequest extends Task
+{
+	//{{{ ReplaceAllRequest constructor
+	/**
+	 * @param view the view
+	 * @param matcher the search matcher, which can be copied
+	 * @param fileset the files
+	 * @param dontOpenChangedFiles true to save the changed files instead
+	 * of opening them
+	 */
+	ReplaceAllRequest(View view, SearchMatcher matcher, SearchFileSet fileset,
+		boolean dontOpenChangedFiles)
+	{
+		this.view = view;
+		this.matcher = matcher;
+		this.fileset = fileset;
+		this.dontOpenChangedFiles = dontOpenChangedFiles;
+		// the search dialog may change them while the task runs
+		String replace = SearchAndReplace.getReplaceString();
+		this.replace = replace == null ? "" : replace;
+		regexp = SearchAndReplace.getRegexp();
+		smartCase = SearchAndReplace.getSmartCaseReplace()
+			&& SearchAndReplace.getIgnoreCase();
+		setLabel(jEdit.getProperty("replace-all-status",
+			new Object[] { SearchAndReplace.getSearchString() }));
+	} //}}}
+
+	//{{{ run() method
+	@Override
+	public void _run()
+	{
+		boolean done;
+		try
+		{
+			String[] files = fileset.getFiles(view);
+			if(files == null || files.length == 0)
+				return;
+			setMaximum(files.length);
+			done = replaceInParallel(files);
+		}
+		catch(Exception e)
+		{
+			Log.log(Log.ERROR,this,e);
+			ThreadUtilities.runInDispatchThread(() -> SearchAndReplace.handleError(view,e));
+			return;
+		}
+
+		if(!done)
+			Log.log(Log.MESSAGE, this, "Replace all stopped");
+		ThreadUtilities.runInDispatchThread(() ->
+		{
+			Object[] args = {occurCount, fileCount};
+			view.getStatus().setMessageAndClear(jEdit.getProperty(done
+				? "view.status.replace-all"
+				: "view.status.replace-all-cancelled", args));
+			if(occurCount == 0)
+				UIManager.getLookAndFeel().provideErrorFeedback(null);
+		});
+	} //}}}
+
+	//{{{ Private members
+
+	/**
+	 * Maximum number of temporary buffers staged before their
+	 * occurrences are replaced.
+	 */
+	private static final int MAX_STAGED_BUFFERS = 64;
+
+	//{{{ Instance variables
+	private final View view;
+	private final SearchMatcher matcher;
+	private final SearchFileSet fileset;
+	private final boolean dontOpenChangedFiles;
+	private final String replace;
+	private final boolean regexp;
+	private final boolean smartCase;
+	private final Object modeLock = new Object();
+	/** The replaced files and occurrences, only used in the dispatch thread. */
+	private int fileCount;
+	private int occurCount;
+	//}}}
+
+	//{{{ replaceInParallel() method
+	/**
+	 * Searches the files in {@link SearchWorkers}, and replaces the staged
+	 * occurrences in batches.
+	 * @return false if the task was cancelled or replacing failed
+	 */
+	private boolean replaceInParallel(String[] files) throws Exception
+	{
+		TrigramIndex index = null;
+		if(fileset instanceof DirectoryListSet && jEdit.getBooleanProperty("hypersearch.index"))
+		{
+			String directory = ((DirectoryListSet) fileset).getDirectory();
+			if(VFSManager.getVFSForPath(directory) instanceof FileVFS)
+				index = TrigramIndex.getIndex(directory);
+		}
+		int[] trigrams = index == null ? null : TrigramIndex.getTrigrams(matcher);
+		TrigramIndex searchIndex = index;
+
+		SearchWorkers<Staged> workers = new SearchWorkers<>(
+			"Replace All worker", files, matcher, (file, fileMatcher, reader) ->
+				stageFile(file, fileMatcher, reader, searchIndex, trigrams));
+
+		List<Staged> staged = new ArrayList<>();
+		int temporaryCount = 0;
+		int current = 0;
+		long lastStatusTime = 0L;
+		try
+		{
+			while(current < files.length)
+			{
+				if(Thread.currentThread().isInterrupted())
+					return false;
+
+				Staged buffer;
+				try
+				{
+					buffer = workers.next();
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				current++;
+				if(buffer != null)
+				{
+					staged.add(buffer);
+					if(buffer.buffer.isTemporary())
+						temporaryCount++;
+				}
+
+				// the temporary buffers are only kept until they
+				// are replaced
+				if(temporaryCount >= MAX_STAGED_BUFFERS)
+				{
+					if(!commitAndWait(staged))
+						return false;
+					staged = new ArrayList<>();
+					temporaryCount = 0;
+				}
+
+				long currentTime = System.currentTimeMillis();
+				if(currentTime - lastStatusTime > 250L)
+				{
+					setValue(current);
+					setStatus(files[current - 1]);
+					lastStatusTime = currentTime;
+				}
+			}
+		}
+		finally
+		{
+			workers.stop();
+		}
+		return commitAndWait(staged);
+	} //}}}
+
+	//{{{ stageFile() method
+	/**
+	 * Finds the occurrences of a file in a worker thread.
+	 * @param index the trigram index of the directory, or null
+	 * @param trigrams the trigrams of the search, or null
+	 * @return the staged buffer, or null if there is nothing to replace
+	 */
+	private Staged stageFile(String file, SearchMatcher matcher,
+		SearchFileReader reader, TrigramIndex index, int[] trigrams) throws Exception
+	{
+		if(Thread.currentThread().isInterrupted())
+			return null;
+
+		Buffer buffer = jEdit.getBufferManager().getBuffer(file).orElse(null);
+		if(buffer == null)
+		{
+			if(trigrams != null && !index.mightContain(file, trigrams))
+				return null;
+			// the untouched files never become buffers
+			if(!contains(file, matcher, reader))
+				return null;
+			buffer = jEdit.openTemporary(null,null,file,false);
+			if(buffer == null)
+				return null;
+		}
+
+		// Wait for the buffer to load
+		if(!buffer.isLoaded())
+			TaskManager.instance.waitForIoTasks();
+
+		if(!buffer.isEditable())
+			return null;
+		return stage(buffer, matcher);
+	} //}}}
+
+	//{{{ contains() method
+	/**
+	 * @return true if a file which is not opened has an occurrence
+	 */
+	private boolean contains(String file, SearchMatcher matcher,
+		SearchFileReader reader) throws InterruptedException
+	{
+		Segment text;
+		try
+		{
+			text = reader.read(file, view);
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, "Unable to read " + file, e);
+			return false;
+		}
+
+		if(matcher.wholeWord)
+		{
+			int lineEnd = 0;
+			while(lineEnd < text.count && text.array[lineEnd] != '\n')
+				lineEnd++;
+			Mode mode = ModeProvider.instance.getModeForFile(file, null,
+				new String(text.array, 0, lineEnd));
+			String noWordSep = null;
+			if(mode != null)
+			{
+				// modes are not loaded concurrently
+				synchronized(modeLock)
+				{
+					mode.loadIfNecessary();
+				}
+				noWordSep = (String) mode.getProperty("noWordSep");
+			}
+			matcher.setNoWordSep(noWordSep);
+		}
+		return matcher.nextMatch(new SegmentCharSequence(text),
+			true, true, true, false) != null;
+	} //}}}
+
+	//{{{ stage() method
+	/**
+	 * Finds the occurrences of a buffer and their replacements.
+	 * @return the staged buffer, or null if there is no occurrence
+	 */
+	private Staged stage(Buffer buffer, SearchMatcher matcher)
+		throws InterruptedException
+	{
+		if(matcher.wholeWord)
+			matcher.setNoWordSep(buffer.getStringProperty("noWordSep"));
+
+		IntegerArray offsets = new IntegerArray();
+		IntegerArray lengths = new IntegerArray();
+		List<String> replacements = new ArrayList<>();
+		long version;
+		try
+		{
+			buffer.readLock();
+
+			version = buffer.getVersion();
+			int end = buffer.getLength();
+			int offset = 0;
+			for(int counter = 0; ; counter++)
+			{
+				boolean startOfLine = buffer.getLineStartOffset(
+					buffer.getLineOfOffset(offset)) == offset;
+
+				CharSequence text = buffer.getSegment(offset, end - offset);
+				SearchMatcher.Match occur = matcher.nextMatch(text,
+					startOfLine, true, counter == 0, false);
+				if(occur == null)
+					break;
+
+				CharSequence found = text.subSequence(occur.start, occur.end);
+				String subst = regexp
+					? SearchAndReplace.regexpReplace(replace, occur, found)
+					: replace;
+				if(smartCase)
+					subst = SearchAndReplace.matchCase(subst, found);
+
+				offsets.add(offset + occur.start);
+				lengths.add(occur.end - occur.start);
+				replacements.add(subst);
+				offset += occur.end;
+			}
+		}
+		finally
+		{
+			buffer.readUnlock();
+		}
+
+		int count = replacements.size();
+		if(count == 0)
+			return null;
+		return new Staged(buffer, version,
+			Arrays.copyOf(offsets.getArray(), count),
+			Arrays.copyOf(lengths.getArray(), count),
+			replacements.toArray(new String[count]));
+	} //}}}
+
+	//{{{ commitAndWait() method
+	/**
+	 * Replaces a batch of staged occurrences in the dispatch thread.
+	 * @return false if replacing failed
+	 */
+	private boolean commitAndWait(List<Staged> staged)
+	{
+		if(staged.isEmpty())
+			return true;
+		boolean[] committed = new boolean[1];
+		ThreadUtilities.runInDispatchThreadAndWait(() -> committed[0] = commit(staged));
+		return committed[0];
+	} //}}}
+
+	//{{{ commit() method
+	/**
+	 * Replaces the staged occurrences in the dispatch thread.
+	 * @return false if replacing failed
+	 */
+	private boolean commit(List<Staged> staged)
+	{
+		view.showWaitCursor();
+		try
+		{
+			for(Staged file : staged)
+			{
+				Buffer buffer = file.buffer;
+				if(buffer.isClosed() || !buffer.isEditable())
+					continue;
+				if(buffer.getVersion() != file.version)
+				{
+					// the buffer was edited since it was searched
+					file = stage(buffer, matcher);
+					if(file == null)
+						continue;
+				}
+
+				// Leave buffer in a consistent state if
+				// an error occurs
+				try
+				{
+					buffer.beginCompoundEdit();
+					buffer.replace(file.offsets, file.lengths, file.replacements);
+				}
+				finally
+				{
+					buffer.endCompoundEdit();
+				}
+
+				fileCount++;
+				occurCount += file.replacements.length;
+				if(dontOpenChangedFiles)
+				{
+					buffer.save(null,null);
+				}
+				else
+				{
+					jEdit.commitTemporary(buffer);
+					jEdit.getBufferSetManager().addBuffer(view, buffer);
+				}
+			}
+		}
+		catch(Exception e)
+		{
+			SearchAndReplace.handleError(view,e);
+			return false;
+		}
+		finally
+		{
+			view.hideWaitCursor();
+		}
+		return true;
+	} //}}}
+
+	//}}}
+
+	//{{{ Staged class
+	/**
+	 * The occurrences found in a buffer, and their replacements.
+	 */
+	private static class Staged
+	{
+		final Buffer buffer;
+		/** The version of the buffer they were found in. */
+		final long version;
+		final int[] offsets;
+		final int[] lengths;
+		final String[] replacements;
+
+		Staged(Buffer buffer, long version, int[] offsets, int[] lengths,
+			String[] replacements)
+		{
+			this.buffer = buffer;
+			this.version = version;
+			this.offsets = offsets;
+			this.lengths = lengths;
+			this.replacements = replacements;
+		}
+	} //}}}
+}
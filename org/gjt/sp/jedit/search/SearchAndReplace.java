@@ -26,6 +26,8 @@ package org.gjt.sp.jedit.search;
 //{{{ Imports
 import org.gjt.sp.jedit.bsh.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 import javax.swing.JOptionPane;
 import org.gjt.sp.jedit.*;
@@ -847,7 +849,8 @@ loop:		for(;;)
 	 * Replaces all occurrences of the search string with the replacement
 	 * string.
 	 * @param view The view
-	 * @return the number of modified files
+	 * @return true if a file was modified, or if the files are replaced
+	 * in the background
 	 */
 	public static boolean replaceAll(View view)
 	{
@@ -857,10 +860,15 @@ loop:		for(;;)
 	//{{{ replaceAll() method
 	/**
 	 * Replaces all occurrences of the search string with the replacement
-	 * string.
+	 * string.<p>
+	 *
+	 * The files of a directory or all the buffers are replaced by a
+	 * background task, unless a macro is running or the replace string
+	 * is a BeanShell expression.
 	 * @param view The view
 	 * @param dontOpenChangedFiles Whether to open changed files or to autosave them quietly
-	 * @return the number of modified files
+	 * @return true if a file was modified, or if the files are replaced
+	 * in the background
 	 */
 	public static boolean replaceAll(View view, boolean dontOpenChangedFiles)
 	{
@@ -877,6 +885,30 @@ loop:		for(;;)
 
 		record(view,"replaceAll(view)",true,true);
 
+		if((fileset instanceof DirectoryListSet || fileset instanceof AllBufferSet)
+			&& !(beanshell && !replace.isEmpty())
+			&& !BeanShell.isScriptRunning()
+			&& jEdit.getBooleanProperty("search.replaceAll.background"))
+		{
+			try
+			{
+				SearchMatcher matcher = getSearchMatcher();
+				if(matcher == null)
+					return false;
+				if(matcher.copy() != null)
+				{
+					ThreadUtilities.runInBackground(new ReplaceAllRequest(
+						view,matcher,fileset,dontOpenChangedFiles));
+					return true;
+				}
+			}
+			catch(Exception e)
+			{
+				handleError(comp,e);
+				return false;
+			}
+		}
+
 		view.showWaitCursor();
 
 		boolean smartCaseReplace = getSmartCaseReplace();
@@ -1138,6 +1170,10 @@ loop:		while(path != null)
 		selection start will get moved.
 		this sucks, so we hack to avoid it. */
 		int start = s.getStart();
+		/* the replaced text is removed and inserted again at
+		once, so the end of the selection is kept from the end
+		of the buffer. */
+		int fromEnd = buffer.getLength() - s.getEnd();
 
 		int returnValue;
 
@@ -1149,7 +1185,7 @@ loop:		while(path != null)
 
 			textArea.removeFromSelection(s);
 			textArea.addToSelection(new Selection.Range(
-				start,s.getEnd()));
+				start,buffer.getLength() - fromEnd));
 		}
 		else if(s instanceof Selection.Rect)
 		{
@@ -1167,8 +1203,9 @@ loop:		while(path != null)
 					getColumnOnOtherLine(buffer,j,endCol),
 					smartCaseReplace, indexInBuffer, returnValue);
 			}
+			textArea.removeFromSelection(s);
 			textArea.addToSelection(new Selection.Rect(
-				start,s.getEnd()));
+				start,buffer.getLength() - fromEnd));
 		}
 		else
 			throw new RuntimeException("Unsupported: " + s);
@@ -1180,6 +1217,9 @@ loop:		while(path != null)
 	/**
 	 * Replaces all occurrences of the search string with the replacement
 	 * string.
+	 * The occurrences are found in the text before it changes, then
+	 * replaced by one {@link JEditBuffer#replace(int[],int[],String[])}
+	 * call.
 	 * @param view The view
 	 * @param buffer The buffer
 	 * @param start The start offset
@@ -1198,7 +1238,9 @@ loop:		while(path != null)
 			String noWordSep = buffer.getStringProperty("noWordSep");
 			matcher.setNoWordSep(noWordSep);
 		}
-		int occurCount = 0;
+		IntegerArray offsets = new IntegerArray();
+		IntegerArray lengths = new IntegerArray();
+		ArrayList<String> replacements = new ArrayList<>();
 
 		boolean endOfLine = (buffer.getLineEndOffset(
 			buffer.getLineOfOffset(end)) - 1 == end);
@@ -1218,55 +1260,59 @@ loop:	for(int counter = 0; ; counter++)
 			CharSequence found = text.subSequence(
 				occur.start, occur.end);
 
-			int length = replaceOne(view,buffer,occur,offset,
-				found,smartCaseReplace, indexInBuffer + indexInSelection + occurCount, indexInSelection + occurCount);
-			if(length == -1)
-				offset += occur.end;
-			else
+			int occurCount = replacements.size();
+			String subst = getReplacement(view,buffer,occur,found,
+				smartCaseReplace, indexInBuffer + indexInSelection + occurCount, indexInSelection + occurCount);
+			if(subst != null)
 			{
-				offset += occur.start + length;
-				end += (length - found.length());
-				occurCount++;
+				offsets.add(offset + occur.start);
+				lengths.add(occur.end - occur.start);
+				replacements.add(subst);
 			}
+			offset += occur.end;
 		}
 
+		int occurCount = replacements.size();
+		if(occurCount != 0)
+		{
+			buffer.replace(Arrays.copyOf(offsets.getArray(), occurCount),
+				Arrays.copyOf(lengths.getArray(), occurCount),
+				replacements.toArray(new String[occurCount]));
+		}
 		return occurCount;
 	} //}}}
 
-	//{{{ replaceOne() method
+	//{{{ getReplacement() method
 	/**
-	 * Replace one occurrence of the search string with the
-	 * replacement string.
+	 * Returns the replacement of one occurrence of the search string,
+	 * or null if it is not replaced.
 	 */
-	private static int replaceOne(View view, JEditBuffer buffer,
-		SearchMatcher.Match occur, int offset, CharSequence found,
+	private static String getReplacement(View view, JEditBuffer buffer,
+		SearchMatcher.Match occur, CharSequence found,
 		boolean smartCaseReplace, int indexInBuffer, int indexInSelection)
 		throws Exception
 	{
 		String subst = replaceOne(view,buffer,occur,found, indexInBuffer, indexInSelection);
-		if(smartCaseReplace && ignoreCase)
-		{
-			int strCase = TextUtilities.getStringCase(found);
-			if(strCase == TextUtilities.LOWER_CASE)
-				subst = subst.toLowerCase();
-			else if(strCase == TextUtilities.UPPER_CASE)
-				subst = subst.toUpperCase();
-			else if(strCase == TextUtilities.TITLE_CASE)
-				subst = TextUtilities.toTitleCase(subst);
-		}
-
-		if(subst != null)
-		{
-			int start = offset + occur.start;
-			int end = offset + occur.end;
+		if(subst != null && smartCaseReplace && ignoreCase)
+			subst = matchCase(subst,found);
+		return subst;
+	} //}}}
 
-			if (end - start > 0)
-				buffer.remove(start,end - start);
-			buffer.insert(start,subst);
-			return subst.length();
-		}
-		else
-			return -1;
+	//{{{ matchCase() method
+	/**
+	 * Returns the replacement in lower, upper or title case if the found
+	 * text is in this case.
+	 */
+	static String matchCase(String subst, CharSequence found)
+	{
+		int strCase = TextUtilities.getStringCase(found);
+		if(strCase == TextUtilities.LOWER_CASE)
+			return subst.toLowerCase();
+		else if(strCase == TextUtilities.UPPER_CASE)
+			return subst.toUpperCase();
+		else if(strCase == TextUtilities.TITLE_CASE)
+			return TextUtilities.toTitleCase(subst);
+		return subst;
 	} //}}}
 
 	//{{{ replaceOne() method
@@ -1279,7 +1325,7 @@ loop:	for(int counter = 0; ; counter++)
 			if(replaceMethod != null)
 				return regexpBeanShellReplace(view,buffer,occur, indexInBuffer, indexInSelection);
 			else
-				return regexpReplace(occur,found);
+				return regexpReplace(replace,occur,found);
 		}
 		else
 		{
@@ -1322,8 +1368,12 @@ loop:	for(int counter = 0; ; counter++)
 	} //}}}
 
 	//{{{ regexpReplace() method
-	private static String regexpReplace(SearchMatcher.Match occur,
-		CharSequence found) throws Exception
+	/**
+	 * Returns a replace string with its <code>$n</code> groups and escapes
+	 * replaced for one occurrence.
+	 */
+	static String regexpReplace(String replace, SearchMatcher.Match occur,
+		CharSequence found)
 	{
 		StringBuilder buf = new StringBuilder();
 
@@ -0,0 +1,241 @@
+/*
+ * SearchFileReader.java - Reads files searched in a directory
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+//{{{ Imports
+import java.awt.Component;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.BufferHistory;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.bufferio.BufferIORequest;
+import org.gjt.sp.jedit.io.AutoDetection;
+import org.gjt.sp.jedit.io.EncodingServer;
+import org.gjt.sp.jedit.io.FileVFS;
+import org.gjt.sp.jedit.io.VFS;
+import org.gjt.sp.jedit.io.VFSManager;
+import org.gjt.sp.util.IOUtilities;
+//}}}
+
+/**
+ * Reads the text of a file searched by HyperSearch without creating a
+ * {@link org.gjt.sp.jedit.Buffer} for it.<p>
+ *
+ * Local files are memory mapped, other ones are read from their VFS.
+ * The text is decoded into an array reused from one file to the next, and
+ * line separators are converted to <code>\n</code> so that offsets are the
+ * same as in a buffer. An instance must only be used by one thread.
+ *
+ * @since jEdit 5.7pre1
+ */
+class SearchFileReader
+{
+	//{{{ read() method
+	/**
+	 * Reads a file.
+	 * @param path the path of the file
+	 * @param comp the component used for VFS errors and sessions
+	 * @return the text of the file, only valid until the next call
+	 */
+	Segment read(String path, Component comp) throws IOException
+	{
+		VFS vfs = VFSManager.getVFSForPath(path);
+		if(vfs instanceof FileVFS && readMapped(path))
+			return normalize();
+
+		Object session = vfs.createVFSSessionSafe(path, comp);
+		if(session == null)
+			return null;
+		InputStream in = null;
+		try
+		{
+			in = vfs._createInputStream(session, path, false, comp);
+			if(in == null)
+				return null;
+			BufferedInputStream markedStream = AutoDetection.getMarkedStream(in);
+			if(AutoDetection.isGzipped(markedStream))
+			{
+				markedStream.reset();
+				markedStream = AutoDetection.getMarkedStream(new GZIPInputStream(markedStream));
+			}
+			markedStream.reset();
+			String encoding = detectEncoding(path, markedStream);
+			markedStream.reset();
+			in = markedStream;
+			readText(EncodingServer.getEncoding(encoding).getPermissiveTextReader(markedStream));
+			return normalize();
+		}
+		finally
+		{
+			IOUtilities.closeQuietly(in);
+			vfs._endVFSSession(session, comp);
+		}
+	} //}}}
+
+	//{{{ Private members
+	private char[] text = new char[BufferIORequest.IOBUFSIZE];
+	private int length;
+
+	//{{{ readMapped() method
+	/**
+	 * Decodes a memory mapped local file, if its encoding is a java
+	 * charset and it is not gzipped.
+	 */
+	private boolean readMapped(String path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if(size >= Integer.MAX_VALUE / 2)
+				return false;
+			ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+
+			byte[] sample = new byte[(int) Math.min(size, BufferIORequest.getByteIOBufferSize())];
+			bytes.get(sample).rewind();
+			BufferedInputStream markedStream = AutoDetection.getMarkedStream(
+				new ByteArrayInputStream(sample));
+			if(AutoDetection.isGzipped(markedStream))
+				return false;
+			markedStream.reset();
+
+			Charset charset;
+			try
+			{
+				charset = Charset.forName(detectEncoding(path, markedStream));
+			}
+			catch(IllegalArgumentException e)
+			{
+				// not a java charset
+				return false;
+			}
+
+			CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			length = 0;
+			ensureCapacity((int) (size * decoder.averageCharsPerByte()) + 1);
+			CharBuffer out = CharBuffer.wrap(text);
+			while(decoder.decode(bytes, out, true).isOverflow())
+				out = grow(out);
+			while(decoder.flush(out).isOverflow())
+				out = grow(out);
+			length = out.position();
+			return true;
+		}
+	} //}}}
+
+	//{{{ readText() method
+	private void readText(Reader reader) throws IOException
+	{
+		length = 0;
+		int len;
+		while(true)
+		{
+			if(length == text.length)
+				ensureCapacity(text.length * 2);
+			len = reader.read(text, length, text.length - length);
+			if(len == -1)
+				break;
+			length += len;
+		}
+	} //}}}
+
+	//{{{ normalize() method
+	/**
+	 * Converts \r\n and \r line separators to \n, like buffers do.
+	 */
+	private Segment normalize()
+	{
+		int count = 0;
+		boolean lastWasCR = false;
+		for(int i = 0; i < length; i++)
+		{
+			char ch = text[i];
+			if(ch == '\r')
+			{
+				text[count++] = '\n';
+				lastWasCR = true;
+			}
+			else
+			{
+				if(ch != '\n' || !lastWasCR)
+					text[count++] = ch;
+				lastWasCR = false;
+			}
+		}
+		length = count;
+		return new Segment(text, 0, length);
+	} //}}}
+
+	//{{{ detectEncoding() method
+	private static String detectEncoding(String path, BufferedInputStream markedStream)
+		throws IOException
+	{
+		String encoding = AutoDetection.getDetectedEncoding(markedStream);
+		if(encoding != null)
+			return encoding;
+		BufferHistory.Entry entry = BufferHistory.getEntry(path);
+		if(entry != null && entry.encoding != null)
+			return entry.encoding;
+		return jEdit.getProperty("buffer." + JEditBuffer.ENCODING,
+			System.getProperty("file.encoding"));
+	} //}}}
+
+	//{{{ grow() method
+	private CharBuffer grow(CharBuffer out)
+	{
+		length = out.position();
+		ensureCapacity(text.length * 2);
+		CharBuffer outN = CharBuffer.wrap(text);
+		outN.position(length);
+		return outN;
+	} //}}}
+
+	//{{{ ensureCapacity() method
+	private void ensureCapacity(int capacity)
+	{
+		if(capacity > text.length)
+		{
+			char[] textN = new char[capacity];
+			System.arraycopy(text, 0, textN, 0, length);
+			text = textN;
+		}
+	} //}}}
+
+	//}}}
+}
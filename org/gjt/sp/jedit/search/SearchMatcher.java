@@ -52,6 +52,18 @@ public abstract class SearchMatcher
 	public abstract Match nextMatch(CharSequence text, boolean start,
 		boolean end, boolean firstTime, boolean reverse) throws InterruptedException;
 
+	/**
+	 * Returns a new matcher with the same settings, that can be used from
+	 * another thread at the same time as this one.
+	 * @return the copy, or null if this matcher cannot be copied, which is
+	 * the default
+	 * @since jEdit 5.7pre1
+	 */
+	public SearchMatcher copy()
+	{
+		return null;
+	}
+
 	/**
 	 * @param noWordSep the chars that are considered as word chars for this search
 	 * @since jEdit 4.5pre1
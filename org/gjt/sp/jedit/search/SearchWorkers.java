@@ -0,0 +1,216 @@
+/*
+ * SearchWorkers.java - Searches files in background tasks
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+//{{{ Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * Searches the files of a multi-file search in worker tasks run by the
+ * {@link org.gjt.sp.util.TaskScheduler}, and gives the results in the order
+ * of the files.<p>
+ *
+ * The number of workers is the <code>hypersearch.threads</code> property.
+ * Each worker has its own copy of the matcher and its own file reader. The
+ * workers search a few files ahead of the result that is being read, and
+ * stop when all the files are searched or {@link #stop()} is called.
+ *
+ * @since jEdit 5.7pre1
+ */
+class SearchWorkers<T>
+{
+	//{{{ FileSearch interface
+	/**
+	 * Searches one file in a worker.
+	 */
+	@FunctionalInterface
+	interface FileSearch<T>
+	{
+		/**
+		 * @param file the path of the file
+		 * @param matcher the matcher of the worker
+		 * @param reader the file reader of the worker
+		 * @return the result of the file
+		 */
+		T search(String file, SearchMatcher matcher, SearchFileReader reader)
+			throws Exception;
+	} //}}}
+
+	//{{{ SearchWorkers constructor
+	/**
+	 * Starts the workers.
+	 * @param name the name of the workers, shown in the task monitor
+	 * @param files the files to search
+	 * @param matcher the search matcher, which is copied for each worker
+	 * @param search searches a file
+	 */
+	SearchWorkers(String name, String[] files, SearchMatcher matcher,
+		FileSearch<T> search)
+	{
+		this.files = files;
+		this.search = search;
+		results = new ArrayList<>(files.length);
+		for(int i = 0; i < files.length; i++)
+			results.add(new CompletableFuture<>());
+
+		int threads = jEdit.getIntegerProperty("hypersearch.threads",
+			Runtime.getRuntime().availableProcessors());
+		threads = Math.max(1, Math.min(threads, files.length));
+		workerCount = threads;
+		ahead = new Semaphore(threads * FILES_AHEAD_PER_WORKER);
+		for(int i = 0; i < threads; i++)
+		{
+			Worker worker = new Worker(matcher.copy());
+			worker.setLabel(name + " #" + i);
+			ThreadUtilities.runInBackground(worker);
+		}
+	} //}}}
+
+	//{{{ next() method
+	/**
+	 * Waits for the result of the next file.
+	 * @return the result of the file
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * @throws Exception the exception thrown by the search of the file
+	 */
+	T next() throws Exception
+	{
+		T value;
+		try
+		{
+			value = results.get(current).get();
+		}
+		catch(ExecutionException e)
+		{
+			consumed();
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception)
+				throw (Exception) cause;
+			throw e;
+		}
+		consumed();
+		return value;
+	} //}}}
+
+	//{{{ stop() method
+	/**
+	 * Stops the workers after the files they are searching.
+	 */
+	void stop()
+	{
+		stopped = true;
+		ahead.release(workerCount);
+	} //}}}
+
+	//{{{ Private members
+	/**
+	 * Maximum number of files searched ahead of the result that is being
+	 * read, per worker.
+	 */
+	private static final int FILES_AHEAD_PER_WORKER = 4;
+
+	private final String[] files;
+	private final FileSearch<T> search;
+	private final List<CompletableFuture<T>> results;
+	private final int workerCount;
+	/** The files which can be searched before their result is read. */
+	private final Semaphore ahead;
+	private final AtomicInteger nextFile = new AtomicInteger();
+	private volatile boolean stopped;
+	/** The index of the next result, only used by the reading thread. */
+	private int current;
+
+	//{{{ consumed() method
+	/**
+	 * Forgets the result that was read, and lets the workers search one
+	 * more file.
+	 */
+	private void consumed()
+	{
+		results.set(current++, null);
+		ahead.release();
+	} //}}}
+
+	//}}}
+
+	//{{{ Worker class
+	private class Worker extends Task
+	{
+		private final SearchMatcher matcher;
+		private final SearchFileReader reader = new SearchFileReader();
+
+		Worker(SearchMatcher matcher)
+		{
+			this.matcher = matcher;
+			// stopped with the search
+			setCancellable(false);
+		}
+
+		@Override
+		public void _run()
+		{
+			while(true)
+			{
+				try
+				{
+					ahead.acquire();
+				}
+				catch(InterruptedException e)
+				{
+					return;
+				}
+				if(stopped)
+					return;
+				int i = nextFile.getAndIncrement();
+				if(i >= files.length)
+					return;
+
+				CompletableFuture<T> result = results.get(i);
+				try
+				{
+					result.complete(search.search(files[i], matcher, reader));
+				}
+				catch(Exception | Error e)
+				{
+					result.completeExceptionally(e);
+				}
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return getLabel();
+		}
+	} //}}}
+}
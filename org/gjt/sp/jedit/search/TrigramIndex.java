@@ -0,0 +1,595 @@
+/*
+ * TrigramIndex.java - Trigram index of the files of a directory
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+//{{{ Imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.MiscUtilities;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.util.Log;
+import org.gjt.sp.util.StandardUtilities;
+//}}}
+
+/**
+ * An on-disk trigram index of the files of a directory, used by
+ * HyperSearch to skip the files that cannot match.<p>
+ *
+ * For each file, the index keeps its modification time, its length, and
+ * a bit set where the bit of every case folded trigram of the file is
+ * set. The bit set is sized from the number of trigrams so that a few
+ * trigrams of the search string are enough to rule out most files.
+ * Files whose entry is missing or outdated are always searched, and their
+ * entry is updated from the text read by the search.<p>
+ *
+ * The indexes are stored in the <code>search-index</code> directory of
+ * the settings directory, one file per searched directory.
+ *
+ * @since jEdit 5.7pre1
+ */
+class TrigramIndex
+{
+	//{{{ getIndex() method
+	/**
+	 * Returns the index of a directory, loading it if necessary.
+	 * @param directory the directory
+	 * @return the index, or null if there is no settings directory
+	 */
+	static TrigramIndex getIndex(String directory)
+	{
+		String settings = jEdit.getSettingsDirectory();
+		if(settings == null)
+			return null;
+
+		synchronized(indexes)
+		{
+			TrigramIndex index = indexes.get(directory);
+			if(index == null)
+			{
+				File file = new File(MiscUtilities.constructPath(settings, "search-index"),
+					getFileName(directory));
+				index = new TrigramIndex(directory, file);
+				index.load();
+				indexes.put(directory, index);
+			}
+			return index;
+		}
+	} //}}}
+
+	//{{{ mightContain() method
+	/**
+	 * Returns true if the file has to be searched: it is not indexed, it
+	 * changed since it was indexed, or it contains all the trigrams.
+	 * @param path the file path
+	 * @param trigrams the trigrams of the search, see {@link #getTrigrams(SearchMatcher)}
+	 */
+	boolean mightContain(String path, int[] trigrams)
+	{
+		Entry entry = entries.get(path);
+		if(entry == null)
+			return true;
+		File file = new File(path);
+		if(file.lastModified() != entry.modTime || file.length() != entry.length)
+			return true;
+		for (int trigram : trigrams)
+		{
+			if(!entry.contains(trigram))
+				return false;
+		}
+		return true;
+	} //}}}
+
+	//{{{ isUpToDate() method
+	/**
+	 * @return true if the file entry is up to date
+	 */
+	boolean isUpToDate(String path, long modTime, long length)
+	{
+		Entry entry = entries.get(path);
+		return entry != null && entry.modTime == modTime && entry.length == length;
+	} //}}}
+
+	//{{{ update() method
+	/**
+	 * Updates the entry of a file.
+	 * @param path the file path
+	 * @param modTime the modification time of the file before it was read
+	 * @param length the length of the file before it was read
+	 * @param text the text of the file
+	 */
+	void update(String path, long modTime, long length, Segment text)
+	{
+		entries.put(path, new Entry(modTime, length, text));
+		dirty = true;
+	} //}}}
+
+	//{{{ save() method
+	/**
+	 * Writes the index if it changed.
+	 */
+	void save()
+	{
+		if(!dirty)
+			return;
+		dirty = false;
+
+		File dir = file.getParentFile();
+		if(!dir.exists() && !dir.mkdirs())
+		{
+			Log.log(Log.ERROR, this, "Unable to create " + dir);
+			return;
+		}
+
+		// forget the deleted files
+		entries.keySet().removeIf(path -> !new File(path).exists());
+		Map<String, Entry> snapshot = new HashMap<>(entries);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeUTF(directory);
+			out.writeInt(snapshot.size());
+			for (Map.Entry<String, Entry> entry : snapshot.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				entry.getValue().write(out);
+			}
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, "Unable to write " + file, e);
+			file.delete();
+		}
+	} //}}}
+
+	//{{{ getTrigrams() methods
+	/**
+	 * Returns the trigrams every match of the matcher contains.
+	 * @param matcher the search matcher
+	 * @return the trigrams, or null if they cannot be computed
+	 */
+	static int[] getTrigrams(SearchMatcher matcher)
+	{
+		if(matcher instanceof BoyerMooreSearchMatcher)
+			return getTrigrams(List.of(((BoyerMooreSearchMatcher) matcher).getPattern()));
+		if(matcher instanceof PatternSearchMatcher)
+		{
+			List<String> literals = getRegexpLiterals(((PatternSearchMatcher) matcher).getPattern());
+			return literals == null ? null : getTrigrams(literals);
+		}
+		return null;
+	}
+
+	static int[] getTrigrams(List<String> literals)
+	{
+		List<Integer> trigrams = new ArrayList<>();
+		for (String literal : literals)
+		{
+			for (int i = 0; i + 2 < literal.length(); i++)
+				trigrams.add(trigram(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2)));
+		}
+		return trigrams.stream().mapToInt(Integer::intValue).distinct().toArray();
+	} //}}}
+
+	//{{{ getRegexpLiterals() method
+	/**
+	 * Returns literal strings that every match of the regular expression
+	 * contains. Only sequences of plain characters outside of groups and
+	 * character classes are considered.
+	 * @param regexp the regular expression
+	 * @return the literals, or null if the expression has top level alternatives,
+	 * quoted sections or comments, and nothing can be said about it
+	 */
+	static List<String> getRegexpLiterals(String regexp)
+	{
+		// white space and comments are ignored in comments mode
+		if(COMMENTS_FLAG.matcher(regexp).find())
+			return null;
+		List<String> literals = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int depth = 0;
+		// nested classes like [a-z&&[^aeiou]] are parts of the outer one
+		int classDepth = 0;
+		for (int i = 0; i < regexp.length(); i++)
+		{
+			char ch = regexp.charAt(i);
+			if(ch == '\\')
+			{
+				if(++i == regexp.length())
+					break;
+				char escaped = regexp.charAt(i);
+				if(escaped == 'Q')
+					return null;
+				if(!Character.isLetterOrDigit(escaped))
+				{
+					if(depth == 0 && classDepth == 0)
+					{
+						literal.append(escaped);
+						i = quantifier(regexp, i, literal, literals);
+					}
+				}
+				else
+				{
+					// a character class, a back reference or a
+					// character given by its code
+					i = escapeEnd(regexp, i);
+					if(classDepth == 0)
+					{
+						endLiteral(literal, literals);
+						if(depth == 0)
+							i = quantifier(regexp, i, null, literals);
+					}
+				}
+				continue;
+			}
+			if(classDepth != 0)
+			{
+				if(ch == '[')
+				{
+					classDepth++;
+					i = classStart(regexp, i);
+				}
+				else if(ch == ']' && --classDepth == 0 && depth == 0)
+					i = quantifier(regexp, i, null, literals);
+				continue;
+			}
+			switch(ch)
+			{
+			case '|':
+				if(depth == 0)
+					return null;
+				break;
+			case '[':
+				classDepth = 1;
+				endLiteral(literal, literals);
+				i = classStart(regexp, i);
+				break;
+			case '(':
+				depth++;
+				endLiteral(literal, literals);
+				break;
+			case ')':
+				depth--;
+				if(depth == 0)
+					i = quantifier(regexp, i, null, literals);
+				break;
+			case '.':
+				endLiteral(literal, literals);
+				if(depth == 0)
+					i = quantifier(regexp, i, null, literals);
+				break;
+			case '^': case '$':
+				endLiteral(literal, literals);
+				break;
+			case '*': case '+': case '?': case '{':
+				// only reached for a quantifier following a
+				// quantifier, like *? or ++
+				endLiteral(literal, literals);
+				break;
+			default:
+				if(depth == 0)
+				{
+					literal.append(ch);
+					i = quantifier(regexp, i, literal, literals);
+				}
+				break;
+			}
+		}
+		endLiteral(literal, literals);
+		return literals;
+	} //}}}
+
+	//{{{ trigram() method
+	/**
+	 * Returns a hash of the case folded trigram.
+	 */
+	static int trigram(char c1, char c2, char c3)
+	{
+		return ((fold(c1) * 31) + fold(c2)) * 31 + fold(c3);
+	} //}}}
+
+	//{{{ Private members
+	private static final int MAGIC = 0x4a544931; // "JTI1"
+	private static final Map<String, TrigramIndex> indexes = new HashMap<>();
+	private static final Pattern COMMENTS_FLAG = Pattern.compile("\\(\\?[a-zA-Z-]*x");
+
+	private final String directory;
+	private final File file;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile boolean dirty;
+
+	//{{{ TrigramIndex constructor
+	private TrigramIndex(String directory, File file)
+	{
+		this.directory = directory;
+		this.file = file;
+	} //}}}
+
+	//{{{ getFileName() method
+	private static String getFileName(String directory)
+	{
+		StringBuilder name = new StringBuilder();
+		for (byte b : StandardUtilities.md5(directory))
+			name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return name.append(".idx").toString();
+	} //}}}
+
+	//{{{ load() method
+	private void load()
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(file))))
+		{
+			if(in.readInt() != MAGIC || !directory.equals(in.readUTF()))
+				return;
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				String path = in.readUTF();
+				entries.put(path, new Entry(in));
+			}
+		}
+		catch(FileNotFoundException e)
+		{
+			// not indexed yet
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.ERROR, this, "Unable to read " + file, e);
+			entries.clear();
+		}
+	} //}}}
+
+	//{{{ quantifier() method
+	/**
+	 * Handles the quantifier following the atom ending at the given index.
+	 * An optional atom is removed from the literal, and a repeated one
+	 * ends it and starts the next one.
+	 * @return the index of the last character of the quantifier
+	 */
+	private static int quantifier(String regexp, int i, StringBuilder literal,
+		List<String> literals)
+	{
+		if(i + 1 == regexp.length())
+			return i;
+		char next = regexp.charAt(i + 1);
+		if(next == '?' || next == '*' || (next == '{' && !regexp.startsWith("{1", i + 1)))
+		{
+			if(literal != null)
+				literal.setLength(literal.length() - 1);
+			endLiteral(literal, literals);
+		}
+		else if(next == '+' || next == '{')
+		{
+			// the repeated atom both ends the literal and starts
+			// the next one
+			if(literal != null)
+			{
+				char last = literal.charAt(literal.length() - 1);
+				endLiteral(literal, literals);
+				literal.append(last);
+			}
+		}
+		else
+			return i;
+
+		// skip the quantifier
+		if(next == '{')
+		{
+			int end = regexp.indexOf('}', i + 1);
+			i = end == -1 ? regexp.length() - 1 : end;
+		}
+		else
+			i++;
+		// lazy or possessive modifier
+		if(i + 1 < regexp.length() && (regexp.charAt(i + 1) == '?' || regexp.charAt(i + 1) == '+'))
+			i++;
+		return i;
+	} //}}}
+
+	//{{{ classStart() method
+	/**
+	 * Skips the negation and a leading <code>]</code> of the character
+	 * class opened at the given index, since that <code>]</code> is a
+	 * member of the class and does not close it.
+	 * @return the index of the last character skipped
+	 */
+	private static int classStart(String regexp, int i)
+	{
+		if(i + 1 < regexp.length() && regexp.charAt(i + 1) == '^')
+			i++;
+		if(i + 1 < regexp.length() && regexp.charAt(i + 1) == ']')
+			i++;
+		return i;
+	} //}}}
+
+	//{{{ escapeEnd() method
+	/**
+	 * Returns the index of the last character of the escape sequence
+	 * whose letter or digit is at the given index, including its
+	 * argument, like the digits of <code>\u0041</code> or the name of
+	 * <code>\p{Lu}</code>. When in doubt, more characters are skipped,
+	 * since they are only left out of the literals.
+	 */
+	private static int escapeEnd(String regexp, int i)
+	{
+		int last = regexp.length() - 1;
+		char escaped = regexp.charAt(i);
+		switch(escaped)
+		{
+		case 'u':
+			return Math.min(i + 4, last);
+		case 'x':
+			if(i < last && regexp.charAt(i + 1) == '{')
+				return closing(regexp, i + 1, '}');
+			return Math.min(i + 2, last);
+		case 'c':
+			return Math.min(i + 1, last);
+		case 'p': case 'P': case 'N':
+			if(i < last && regexp.charAt(i + 1) == '{')
+				return closing(regexp, i + 1, '}');
+			// one letter property, like \pL
+			return Math.min(i + 1, last);
+		case 'k':
+			return closing(regexp, i + 1, '>');
+		case '0':
+			// up to three octal digits
+			int end = i;
+			while(end < last && end - i < 3 && regexp.charAt(end + 1) >= '0'
+				&& regexp.charAt(end + 1) <= '7')
+			{
+				end++;
+			}
+			return end;
+		default:
+			if(escaped >= '1' && escaped <= '9')
+			{
+				// back reference, the group number may have
+				// several digits
+				end = i;
+				while(end < last && Character.isDigit(regexp.charAt(end + 1)))
+					end++;
+				return end;
+			}
+			return i;
+		}
+	} //}}}
+
+	//{{{ closing() method
+	/**
+	 * @return the index of the given character from an index, or the
+	 * last index if it is not found
+	 */
+	private static int closing(String regexp, int from, char ch)
+	{
+		int end = regexp.indexOf(ch, from);
+		return end == -1 ? regexp.length() - 1 : end;
+	} //}}}
+
+	//{{{ endLiteral() method
+	private static void endLiteral(StringBuilder literal, List<String> literals)
+	{
+		if(literal == null)
+			return;
+		if(literal.length() >= 3)
+			literals.add(literal.toString());
+		literal.setLength(0);
+	} //}}}
+
+	//{{{ fold() method
+	private static int fold(char ch)
+	{
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	} //}}}
+
+	//{{{ Entry class
+	private static class Entry
+	{
+		final long modTime;
+		final long length;
+		final long[] bits;
+
+		Entry(long modTime, long length, Segment text)
+		{
+			this.modTime = modTime;
+			this.length = length;
+
+			int[] trigrams = new int[Math.max(0, text.count - 2)];
+			for (int i = 0; i < trigrams.length; i++)
+			{
+				int offset = text.offset + i;
+				trigrams[i] = trigram(text.array[offset],
+					text.array[offset + 1], text.array[offset + 2]);
+			}
+			Arrays.sort(trigrams);
+			int unique = 0;
+			for (int i = 0; i < trigrams.length; i++)
+			{
+				if(i == 0 || trigrams[i] != trigrams[i - 1])
+					unique++;
+			}
+			// 4 bits per trigram, a power of two to mask the hashes
+			int size = Integer.highestOneBit(Math.max(64, unique * BITS_PER_TRIGRAM - 1)) << 1;
+			bits = new long[size >>> 6];
+			for (int trigram : trigrams)
+				set(trigram);
+		}
+
+		Entry(DataInputStream in) throws IOException
+		{
+			modTime = in.readLong();
+			length = in.readLong();
+			bits = new long[in.readInt()];
+			for (int i = 0; i < bits.length; i++)
+				bits[i] = in.readLong();
+		}
+
+		void write(DataOutputStream out) throws IOException
+		{
+			out.writeLong(modTime);
+			out.writeLong(length);
+			out.writeInt(bits.length);
+			for (long word : bits)
+				out.writeLong(word);
+		}
+
+		boolean contains(int trigram)
+		{
+			int bit = index(trigram);
+			return (bits[bit >>> 6] & (1L << bit)) != 0;
+		}
+
+		private void set(int trigram)
+		{
+			int bit = index(trigram);
+			bits[bit >>> 6] |= 1L << bit;
+		}
+
+		private int index(int trigram)
+		{
+			// spread the bits of the hash before masking it
+			int h = trigram * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & ((bits.length << 6) - 1);
+		}
+
+		private static final int BITS_PER_TRIGRAM = 4;
+	} //}}}
+
+	//}}}
+}
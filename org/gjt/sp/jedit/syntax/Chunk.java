@@ -24,18 +24,17 @@
 package org.gjt.sp.jedit.syntax;
 
 //{{{ Imports
-import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.text.*;
 import java.awt.font.*;
 import java.awt.geom.*;
 import java.awt.*;
 import java.util.*;
-import java.lang.ref.SoftReference;
 import java.util.List;
 
 import org.gjt.sp.jedit.Debug;
 import org.gjt.sp.jedit.IPropertyManager;
+import org.gjt.sp.util.Log;
 //}}}
 
 /**
@@ -257,8 +256,26 @@ public class Chunk extends Token
 
 		preferredFonts = userFonts.toArray(EMPTY_FONT_ARRAY);
 
+		// in KB
+		long size = DEFAULT_GLYPH_CACHE_SIZE;
+		if (props != null && props.getProperty("view.glyphCacheSize") != null)
+		{
+			try
+			{
+				size = Long.parseLong(props.getProperty("view.glyphCacheSize"));
+			}
+			catch (NumberFormatException e)
+			{
+				Log.log(Log.WARNING, Chunk.class, "Invalid view.glyphCacheSize: " + e);
+			}
+		}
+		glyphCacheSize = Math.max(size, 64) * 1024;
+
 		// Clear cache, not to hold reference to old fonts which
 		// might become unused after properties changed.
+		GlyphCache<GlyphData> cache = glyphCache;
+		if (cache != null)
+			Log.log(Log.DEBUG, Chunk.class, cache);
 		glyphCache = null;
 	} //}}}
 
@@ -315,6 +332,17 @@ public class Chunk extends Token
 		return substFont;
 	} //}}}
 
+	//{{{ getGlyphCacheStatistics() method
+	/**
+	 * Returns the size and the hit ratio of the cache of laid out glyphs,
+	 * for tuning the <code>view.glyphCacheSize</code> property.
+	 * @since jEdit 5.7pre1
+	 */
+	public static String getGlyphCacheStatistics()
+	{
+		return String.valueOf(getGlyphCache());
+	} //}}}
+
 	//{{{ usedFontSubstitution() method
 	/**
 	 * Returns true if font substitution was used in the layout of this chunk.
@@ -531,12 +559,23 @@ public class Chunk extends Token
 			//              int baseIndex, Point2D.Float pt, int typo_flags, int slot);
 			// the reason for that is that Java is now processing the entire text to get a better bidi
 			// support. As we tokenize the text, and don't support bidi (yet), we don't care.
-			// So I copy the necessary chars to a temporary char array
-			chars = new char[length];
-			System.arraycopy(lineText.array, lineText.offset + offset, chars, 0, length);
-			GlyphKey cacheKey = new GlyphKey(chars, style.getFont(), fontRenderContext);
-			GlyphCache cache = getGlyphCache();
-			glyphData = cache.computeIfAbsent(cacheKey, key -> buildGlyphInfo(chars, fontRenderContext));
+			// So I copy the necessary chars to a temporary char array, when
+			// the glyphs of the text are not in the cache
+			Font font = style.getFont();
+			GlyphCache<GlyphData> cache = getGlyphCache();
+			GlyphCache.Entry<GlyphData> entry = cache.get(lineText.array,
+				lineText.offset + offset, length, font, fontRenderContext);
+			if(entry == null)
+			{
+				char[] text = new char[length];
+				System.arraycopy(lineText.array, lineText.offset + offset, text, 0, length);
+				GlyphData data = buildGlyphInfo(text, fontRenderContext);
+				entry = cache.put(text, font, fontRenderContext,
+					data, data.getEstimatedSize());
+			}
+			// the chunks having the same text share it
+			chars = entry.getText();
+			glyphData = entry.getValue();
 			width = glyphData.getWidth();
 		}
 		assert isInitialized();
@@ -564,20 +603,13 @@ public class Chunk extends Token
 	// which was an outclassing CPU bottleneck (profiled on jProfiler,
 	// Sun JDK 6, Windows XP).
 	//
-	// The capacity is roughly tuned so that the effect is clearly
-	// noticeable on very large random int table in C mode; like
-	// following:
-	//   int table000[100] = { 232, 190, 69, ..., 80, 246, 78 };
-	//   int table000[100] = { 69, 84, 206, ..., 160, 197, 161 };
-	//   ...
-	//   int table099[100] = { 219, 100, 60, ..., 100, 203, 8 };
-	//   int table100[100] = { 159, 189, 159, ..., 76, 9, 239, };
-	// and the additional heap usage is lower than 1 MB.
-	//
-	// Heap usage was measured as about 400 KB / 256 entries (JRE 7u3,
-	// Windows XP).
-	private static int glyphCacheCapacity = 256;
-	private static SoftReference<GlyphCache> glyphCache;
+	// It used to keep 256 entries, about 400 KB (JRE 7u3, Windows XP),
+	// which were all dropped together under memory pressure. Its size is
+	// now a budget in bytes, the default one keeps the tokens of many
+	// pages of source code.
+	private static final long DEFAULT_GLYPH_CACHE_SIZE = 4096;
+	private static long glyphCacheSize = DEFAULT_GLYPH_CACHE_SIZE * 1024;
+	private static volatile GlyphCache<GlyphData> glyphCache;
 	//}}}
 
 	//{{{ Instance variables
@@ -859,82 +891,18 @@ public class Chunk extends Token
 	} //}}}
 
 	//{{{ getGlyphCache() method
-	private static GlyphCache getGlyphCache()
+	private static GlyphCache<GlyphData> getGlyphCache()
 	{
-		if (glyphCache != null)
+		GlyphCache<GlyphData> cache = glyphCache;
+		if (cache == null)
 		{
-			GlyphCache cache = glyphCache.get();
-			if (cache != null)
-			{
-				return cache;
-			}
+			cache = new GlyphCache<>(glyphCacheSize);
+			glyphCache = cache;
 		}
-		GlyphCache newOne = new GlyphCache(glyphCacheCapacity);
-		glyphCache = new SoftReference<>(newOne);
-		return newOne;
+		return cache;
 	} //}}}
 
-	//{{{ class GlyphKey
-	private static class GlyphKey
-	{
-		public final char[] chars;
-		public final Font font;
-		public final FontRenderContext context;
-		private final int hashCode;
-
-		GlyphKey(@Nonnull char[] chars, @Nonnull Font font, @Nonnull FontRenderContext context)
-		{
-			this.chars = chars;
-			this.font = font;
-			this.context = context;
-			hashCode =  31 * (31 * Arrays.hashCode(chars) + font.hashCode()) + context.hashCode();
-		}
-
-		@Override
-		public final int hashCode()
-		{
-			return hashCode;
-		}
-
-		@Override
-		public final boolean equals(Object otherObject)
-		{
-			// should be called only from GlyphCache to
-			// compare with other keys, then explicit type
-			// checking and null checking are not necessary.
-			GlyphKey other = (GlyphKey)otherObject;
-			return Arrays.equals(chars, other.chars)
-				&& font.equals(other.font)
-				&& context.equals(other.context);
-		}
-
-		@Override
-		public final String toString()
-		{
-			return new String(chars);
-		}
-	} //}}}
-
-	//{{{ class GlyphCache
-	private static class GlyphCache extends LinkedHashMap<GlyphKey, GlyphData>
-	{
-		GlyphCache(int capacity)
-		{
-			// Avoid rehashing with known limit.
-			super(capacity + 1, 1.0f, true/*accessOrder*/);
-			this.capacity = capacity;
-		}
-
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<GlyphKey, GlyphData> eldest)
-		{
-			return size() > capacity;
-		}
-
-		private final int capacity;
-	} //}}}
-
-	//{{{ class GlyphCache
+	//{{{ class GlyphData
 	private static class GlyphData
 	{
 		private final GlyphVectorData[] glyphVectorData;
@@ -962,6 +930,24 @@ public class Chunk extends Token
 		{
 			return width;
 		}
+
+		/**
+		 * Returns the estimated heap size of the glyph vectors, which
+		 * keep the glyph codes, positions and character indices.
+		 */
+		public long getEstimatedSize()
+		{
+			long size = 32 + 4L * glyphVectorData.length;
+			for (GlyphVectorData data : glyphVectorData)
+			{
+				size += GLYPH_VECTOR_SIZE
+					+ GLYPH_SIZE * data.getGlyphVector().getNumGlyphs();
+			}
+			return size;
+		}
+
+		private static final int GLYPH_VECTOR_SIZE = 512;
+		private static final int GLYPH_SIZE = 24;
 	} //}}}
 
 	//{{{ class GlyphVectorData
@@ -0,0 +1,395 @@
+/*
+ * GlyphCache.java - The laid out glyphs of the painted tokens
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+//}}}
+
+/**
+ * The glyphs laid out for the text of the tokens, so that
+ * <code>Font.layoutGlyphVector()</code> is called once for each text, font
+ * and font render context while they are painted again and again.<p>
+ *
+ * There is a sub-cache for each font and render context. A text is found
+ * directly in the line it is painted from, without copying it; the text of
+ * an entry is copied once, and can be shared by all the tokens having this
+ * text. The entries have an estimated size in bytes; the least recently used
+ * ones are removed when their total size goes over the budget, and the
+ * sub-cache of a font goes away with its last entry.<p>
+ *
+ * The methods are thread-safe.
+ *
+ * @param <V> the laid out glyphs
+ * @since jEdit 5.7pre1
+ */
+class GlyphCache<V>
+{
+	/** The estimated size of an entry, without its text and value. */
+	static final int ENTRY_SIZE = 96;
+
+	//{{{ GlyphCache constructor
+	/**
+	 * @param budget the maximum size of the entries, in bytes
+	 */
+	GlyphCache(long budget)
+	{
+		this.budget = budget;
+		lru.next = lru;
+		lru.previous = lru;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Finds the glyphs of a text. This method does not allocate.
+	 * @param text an array containing the text
+	 * @param start the start of the text in the array
+	 * @param length the length of the text
+	 * @param font the font
+	 * @param context the font render context
+	 * @return the entry, or null if the glyphs must be laid out and
+	 * {@link #put put}
+	 */
+	synchronized Entry<V> get(char[] text, int start, int length,
+		Font font, FontRenderContext context)
+	{
+		FontCache<V> cache = getFontCache(font, context, false);
+		Entry<V> entry = null;
+		if(cache != null)
+		{
+			probe.set(text, start, length);
+			entry = cache.entries.get(probe);
+			probe.text = null;
+		}
+		if(entry == null)
+		{
+			misses++;
+			return null;
+		}
+		hits++;
+		entry.unlink();
+		entry.linkFirst(lru);
+		return entry;
+	} //}}}
+
+	//{{{ put() method
+	/**
+	 * Adds the glyphs of a text, and removes the least recently used
+	 * entries over the budget.
+	 * @param text the text, which is kept by the cache and must not be
+	 * changed anymore
+	 * @param font the font
+	 * @param context the font render context
+	 * @param value the glyphs
+	 * @param size the estimated size of the glyphs in bytes
+	 * @return the new entry, or the one added by another thread meanwhile
+	 */
+	synchronized Entry<V> put(char[] text, Font font, FontRenderContext context,
+		V value, long size)
+	{
+		FontCache<V> cache = getFontCache(font, context, true);
+		Entry<V> entry = new Entry<>(cache, text, value,
+			ENTRY_SIZE + 2L * text.length + size);
+		Entry<V> existing = cache.entries.putIfAbsent(entry, entry);
+		if(existing != null)
+			return existing;
+
+		entry.linkFirst(lru);
+		total += entry.size;
+		while(total > budget && lru.previous != entry)
+		{
+			remove(lru.previous);
+			evictions++;
+		}
+		return entry;
+	} //}}}
+
+	//{{{ clear() method
+	/**
+	 * Removes all the entries, the statistics are kept.
+	 */
+	synchronized void clear()
+	{
+		fonts.clear();
+		lru.next = lru;
+		lru.previous = lru;
+		total = 0;
+		lastCache = null;
+	} //}}}
+
+	//{{{ Statistics
+	synchronized long getHits()
+	{
+		return hits;
+	}
+
+	synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * @return the estimated size of the entries in bytes
+	 */
+	synchronized long getSize()
+	{
+		return total;
+	}
+
+	synchronized int getEntryCount()
+	{
+		int count = 0;
+		for(List<FontCache<V>> caches : fonts.values())
+		{
+			for(FontCache<V> cache : caches)
+				count += cache.entries.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of sub-caches, one for each font and font render
+	 * context
+	 */
+	synchronized int getFontCount()
+	{
+		int count = 0;
+		for(List<FontCache<V>> caches : fonts.values())
+			count += caches.size();
+		return count;
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public synchronized String toString()
+	{
+		long lookups = hits + misses;
+		return "GlyphCache[entries=" + getEntryCount()
+			+ ",fonts=" + getFontCount()
+			+ ",size=" + total / 1024 + "/" + budget / 1024 + " KB"
+			+ ",hits=" + hits
+			+ ",misses=" + misses
+			+ ",hitRatio=" + (lookups == 0 ? 0 : hits * 100 / lookups) + "%"
+			+ ",evictions=" + evictions + "]";
+	} //}}}
+
+	//{{{ Entry class
+	/**
+	 * The glyphs of a text.
+	 */
+	static class Entry<V> extends Key
+	{
+		private final FontCache<V> owner;
+		private final V value;
+		private final long size;
+		private Entry<V> next;
+		private Entry<V> previous;
+
+		Entry(FontCache<V> owner, char[] text, V value, long size)
+		{
+			set(text, 0, text.length);
+			this.owner = owner;
+			this.value = value;
+			this.size = size;
+		}
+
+		/**
+		 * @return the text, shared by the tokens having it
+		 */
+		char[] getText()
+		{
+			return text;
+		}
+
+		V getValue()
+		{
+			return value;
+		}
+
+		private void linkFirst(Entry<V> head)
+		{
+			previous = head;
+			next = head.next;
+			head.next.previous = this;
+			head.next = this;
+		}
+
+		private void unlink()
+		{
+			next.previous = previous;
+			previous.next = next;
+		}
+	} //}}}
+
+	//{{{ Private members
+	private final long budget;
+	private final Map<Font, List<FontCache<V>>> fonts = new HashMap<>();
+	/**
+	 * The head of a circular list of the entries, from the most recently
+	 * used one, <code>lru.next</code>, to the least recently used one,
+	 * <code>lru.previous</code>.
+	 */
+	private final Entry<V> lru = new Entry<>(null, new char[0], null, 0);
+	private final Key probe = new Key();
+	/** The last sub-cache found, the next token usually has its font. */
+	private FontCache<V> lastCache;
+	private long total;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	//{{{ getFontCache() method
+	private FontCache<V> getFontCache(Font font, FontRenderContext context,
+		boolean create)
+	{
+		if(lastCache != null && lastCache.font == font
+			&& lastCache.context == context)
+		{
+			return lastCache;
+		}
+
+		List<FontCache<V>> caches = fonts.get(font);
+		if(caches != null)
+		{
+			for(FontCache<V> cache : caches)
+			{
+				if(cache.context.equals(context))
+				{
+					lastCache = cache;
+					return cache;
+				}
+			}
+		}
+		if(!create)
+			return null;
+
+		if(caches == null)
+		{
+			caches = new ArrayList<>(1);
+			fonts.put(font, caches);
+		}
+		FontCache<V> cache = new FontCache<>(font, context);
+		caches.add(cache);
+		lastCache = cache;
+		return cache;
+	} //}}}
+
+	//{{{ remove() method
+	private void remove(Entry<V> entry)
+	{
+		entry.unlink();
+		total -= entry.size;
+		FontCache<V> cache = entry.owner;
+		cache.entries.remove(entry);
+		if(cache.entries.isEmpty())
+		{
+			// don't keep the fonts that are not used anymore
+			List<FontCache<V>> caches = fonts.get(cache.font);
+			caches.remove(cache);
+			if(caches.isEmpty())
+				fonts.remove(cache.font);
+			if(lastCache == cache)
+				lastCache = null;
+		}
+	} //}}}
+
+	//}}}
+
+	//{{{ Key class
+	/**
+	 * A text in an array. The key used to find an entry points to the line
+	 * painted, instead of copying the text.
+	 */
+	private static class Key
+	{
+		char[] text;
+		int start;
+		int length;
+		int hashCode;
+
+		void set(char[] text, int start, int length)
+		{
+			this.text = text;
+			this.start = start;
+			this.length = length;
+			int hash = 1;
+			for(int i = start, end = start + length; i < end; i++)
+				hash = 31 * hash + text[i];
+			hashCode = hash;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			// only compared with other keys of the sub-caches
+			Key other = (Key) obj;
+			if(hashCode != other.hashCode || length != other.length)
+				return false;
+			for(int i = 0; i < length; i++)
+			{
+				if(text[start + i] != other.text[other.start + i])
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public String toString()
+		{
+			return new String(text, start, length);
+		}
+	} //}}}
+
+	//{{{ FontCache class
+	/**
+	 * The entries of a font and font render context.
+	 */
+	private static class FontCache<V>
+	{
+		final Font font;
+		final FontRenderContext context;
+		final Map<Key, Entry<V>> entries = new HashMap<>();
+
+		FontCache(Font font, FontRenderContext context)
+		{
+			this.font = font;
+			this.context = context;
+		}
+	} //}}}
+}
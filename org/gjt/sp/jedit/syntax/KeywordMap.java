@@ -23,13 +23,20 @@
 package org.gjt.sp.jedit.syntax;
 
 import javax.swing.text.Segment;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 
 /**
  * A <code>KeywordMap</code> is similar to a hashtable in that it maps keys
  * to values. However, the `keys' are Swing segments. This allows lookups of
- * text substrings without the overhead of creating a new string object.
+ * text substrings without the overhead of creating a new string object.<p>
+ *
+ * On the first lookup after keywords were added, the keywords are compiled
+ * into a perfect hash table, so that a lookup hashes the text once and
+ * compares it to at most one keyword.
  *
  * @author Slava Pestov, Mike Dillon
  * @version $Id$
@@ -44,8 +51,6 @@ public class KeywordMap
 	public KeywordMap(boolean ignoreCase)
 	{
 		this(ignoreCase, 52);
-		this.ignoreCase = ignoreCase;
-		noWordSep = new StringBuilder();
 	} //}}}
 
 	//{{{ KeywordMap constructor
@@ -60,6 +65,7 @@ public class KeywordMap
 		this.mapLength = mapLength;
 		this.ignoreCase = ignoreCase;
 		map = new Keyword[mapLength];
+		noWordSep = new StringBuilder();
 	} //}}}
 
 	//{{{ lookup() method
@@ -73,20 +79,18 @@ public class KeywordMap
 	{
 		if(length == 0)
 			return Token.NULL;
-		Keyword k = map[getSegmentMapKey(text, offset, length)];
-		while(k != null)
+		PerfectHash hash = perfectHash;
+		if(hash == null)
 		{
-			if(length != k.keyword.length)
-			{
-				k = k.next;
-				continue;
-			}
-			if(SyntaxUtilities.regionMatches(ignoreCase,text,offset,
-				k.keyword))
-				return k.id;
-			k = k.next;
+			// keywords are not added anymore once the mode is
+			// loaded, but several threads may tokenize at the same
+			// time, the hash is built again if they race here
+			hash = new PerfectHash(map, ignoreCase);
+			perfectHash = hash;
 		}
-		return Token.NULL;
+		if(offset + length > text.offset + text.count)
+			return Token.NULL;
+		return hash.lookup(text.array, offset, length);
 	} //}}}
 
 	//{{{ add() method
@@ -129,6 +133,7 @@ loop:
 		}
 
 		map[key] = new Keyword(keyword,id,map[key]);
+		perfectHash = null;
 	} //}}}
 
 	//{{{ getNonAlphaNumericChars() method
@@ -183,6 +188,7 @@ loop:
 	public void setIgnoreCase(boolean ignoreCase)
 	{
 		this.ignoreCase = ignoreCase;
+		perfectHash = null;
 	} //}}}
 
 	//{{{ add() method
@@ -209,7 +215,9 @@ loop:
 	private final int mapLength;
 	private final Keyword[] map;
 	private boolean ignoreCase;
-	private StringBuilder noWordSep;
+	private final StringBuilder noWordSep;
+	/** Built from the map on the first lookup after a change. */
+	private volatile PerfectHash perfectHash;
 	//}}}
 
 	//{{{ getStringMapKey() method
@@ -221,6 +229,10 @@ loop:
 	} //}}}
 
 	//{{{ getSegmentMapKey() method
+	/**
+	 * @deprecated not used by lookups anymore.
+	 */
+	@Deprecated
 	protected int getSegmentMapKey(Segment s, int off, int len)
 	{
 		return (Character.toUpperCase(s.array[off]) +
@@ -244,4 +256,221 @@ loop:
 		public byte id;
 		public Keyword next;
 	} //}}}
+
+	//{{{ PerfectHash class
+	/**
+	 * A collision free hash table of the keywords, built with the hash
+	 * and displace method: the keywords are first hashed into small
+	 * buckets, and for each bucket a displacement is searched so that
+	 * the second hash of its keywords, displaced, falls in free slots.
+	 * Keywords are stored case folded if the map ignores case.
+	 */
+	private static class PerfectHash
+	{
+		//{{{ PerfectHash constructor
+		PerfectHash(Keyword[] map, boolean ignoreCase)
+		{
+			this.ignoreCase = ignoreCase;
+
+			// the last added keyword wins, it is the first one
+			// in its chain
+			Map<String, Byte> ids = new HashMap<>();
+			List<char[]> keys = new ArrayList<>();
+			for(Keyword k : map)
+			{
+				for(; k != null; k = k.next)
+				{
+					char[] key = k.keyword.clone();
+					if(ignoreCase)
+					{
+						for(int i = 0; i < key.length; i++)
+							key[i] = Character.toUpperCase(key[i]);
+					}
+					if(ids.putIfAbsent(new String(key), k.id) == null)
+						keys.add(key);
+				}
+			}
+
+			int min = Integer.MAX_VALUE;
+			int max = 0;
+			for(char[] key : keys)
+			{
+				min = Math.min(min, key.length);
+				max = Math.max(max, key.length);
+			}
+			minLength = min;
+			maxLength = max;
+
+			int n = keys.size();
+			int slots = Integer.highestOneBit(Math.max(2, n + n / 4) - 1) << 1;
+			int buckets = Integer.highestOneBit(Math.max(1, n / 4));
+			for(;; slots <<= 1)
+			{
+				for(int seed = 1; seed <= MAX_SEEDS; seed++)
+				{
+					if(build(keys, ids, seed, buckets, slots))
+						return;
+				}
+			}
+		} //}}}
+
+		//{{{ lookup() method
+		byte lookup(char[] text, int offset, int length)
+		{
+			if(length < minLength || length > maxLength)
+				return Token.NULL;
+
+			int h1 = seed * 0x85EBCA6B ^ 0x811C9DC5;
+			int h2 = seed;
+			int end = offset + length;
+			for(int i = offset; i < end; i++)
+			{
+				char c = text[i];
+				if(ignoreCase)
+					c = Character.toUpperCase(c);
+				h1 = (h1 ^ c) * 0x01000193;
+				h2 = (h2 + c) * 0x9E3779B1;
+			}
+			h1 = mix(h1 + length);
+			h2 = mix(h2);
+			int slot = getSlot(h1, h2, displacements[h1 & bucketMask]);
+
+			char[] key = keys[slot];
+			if(key == null || key.length != length)
+				return Token.NULL;
+			for(int i = 0; i < length; i++)
+			{
+				char c = text[offset + i];
+				if(ignoreCase)
+					c = Character.toUpperCase(c);
+				if(c != key[i])
+					return Token.NULL;
+			}
+			return ids[slot];
+		} //}}}
+
+		//{{{ Private members
+		/** Seeds tried before making the table larger. */
+		private static final int MAX_SEEDS = 8;
+
+		private final boolean ignoreCase;
+		private final int minLength;
+		private final int maxLength;
+		private int seed;
+		private int bucketMask;
+		private int slotMask;
+		private int[] displacements;
+		private char[][] keys;
+		private byte[] ids;
+
+		//{{{ build() method
+		private boolean build(List<char[]> keyList, Map<String, Byte> idMap,
+			int seed, int buckets, int slots)
+		{
+			this.seed = seed;
+			bucketMask = buckets - 1;
+			slotMask = slots - 1;
+
+			int n = keyList.size();
+			int[] h1 = new int[n];
+			int[] h2 = new int[n];
+			int[] bucketSizes = new int[buckets];
+			for(int i = 0; i < n; i++)
+			{
+				char[] key = keyList.get(i);
+				int a = seed * 0x85EBCA6B ^ 0x811C9DC5;
+				int b = seed;
+				for(char c : key)
+				{
+					a = (a ^ c) * 0x01000193;
+					b = (b + c) * 0x9E3779B1;
+				}
+				h1[i] = mix(a + key.length);
+				h2[i] = mix(b);
+				bucketSizes[h1[i] & bucketMask]++;
+			}
+
+			// keys sorted by bucket, larger buckets first since they
+			// are the hardest to place
+			int[] bucketStarts = new int[buckets + 1];
+			for(int i = 0; i < buckets; i++)
+				bucketStarts[i + 1] = bucketStarts[i] + bucketSizes[i];
+			int[] sorted = new int[n];
+			int[] fill = Arrays.copyOf(bucketStarts, buckets);
+			for(int i = 0; i < n; i++)
+				sorted[fill[h1[i] & bucketMask]++] = i;
+			Integer[] order = new Integer[buckets];
+			for(int i = 0; i < buckets; i++)
+				order[i] = i;
+			Arrays.sort(order, (x, y) -> bucketSizes[y] - bucketSizes[x]);
+
+			displacements = new int[buckets];
+			keys = new char[slots][];
+			ids = new byte[slots];
+			int[] placed = new int[n];
+			for(int bucket : order)
+			{
+				int start = bucketStarts[bucket];
+				int size = bucketSizes[bucket];
+				if(size == 0)
+					break;
+				int d = 0;
+				while(!place(sorted, start, size, h1, h2, d, placed))
+				{
+					if(++d == slots)
+						return false;
+				}
+				displacements[bucket] = d;
+				for(int i = 0; i < size; i++)
+				{
+					char[] key = keyList.get(sorted[start + i]);
+					keys[placed[i]] = key;
+					ids[placed[i]] = idMap.get(new String(key));
+				}
+			}
+			return true;
+		} //}}}
+
+		//{{{ place() method
+		/**
+		 * Computes the slots of the keys of a bucket with a displacement,
+		 * returns false if one is taken.
+		 */
+		private boolean place(int[] sorted, int start, int size, int[] h1, int[] h2,
+			int d, int[] placed)
+		{
+			for(int i = 0; i < size; i++)
+			{
+				int key = sorted[start + i];
+				int slot = getSlot(h1[key], h2[key], d);
+				if(keys[slot] != null)
+					return false;
+				for(int j = 0; j < i; j++)
+				{
+					if(placed[j] == slot)
+						return false;
+				}
+				placed[i] = slot;
+			}
+			return true;
+		} //}}}
+
+		//{{{ getSlot() method
+		private int getSlot(int h1, int h2, int d)
+		{
+			// the step is odd, so all the slots are reached
+			return (h2 + d * ((h1 >>> 16) | 1)) & slotMask;
+		} //}}}
+
+		//{{{ mix() method
+		private static int mix(int h)
+		{
+			h ^= h >>> 16;
+			h *= 0x85EBCA6B;
+			h ^= h >>> 13;
+			return h;
+		} //}}}
+
+		//}}}
+	} //}}}
 }
@@ -0,0 +1,439 @@
+/*
+ * ModeCache.java - Parsed edit modes stored in a binary form
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import org.gjt.sp.util.IOUtilities;
+import org.gjt.sp.util.Log;
+//}}}
+
+/**
+ * A directory of parsed mode files, so that a mode is loaded without
+ * creating an XML parser, reading the DTD and parsing the XML again.<p>
+ *
+ * The elements, attributes and text of a mode file are recorded while it is
+ * parsed, with the default attributes of the DTD, and written to a compact
+ * binary file named after the SHA-1 of the mode file. When the same mode
+ * file is loaded again, they are given to the {@link XModeHandler} in the
+ * same order. The rule sets, keywords and properties built from them are
+ * then the same, including the delegates to other modes, which can only be
+ * resolved when the mode is loaded.
+ *
+ * @since jEdit 5.7pre1
+ */
+class ModeCache
+{
+	//{{{ ModeCache constructor
+	/**
+	 * @param directory the directory of the cache files, it is created
+	 * when the first one is written
+	 */
+	ModeCache(File directory)
+	{
+		this.directory = directory;
+	} //}}}
+
+	//{{{ replay() method
+	/**
+	 * Sends the recorded content of a mode file to a handler.
+	 * @param grammar the mode file
+	 * @param handler the handler
+	 * @return false if the mode file is not in the cache, the handler
+	 * did not receive anything then
+	 * @throws SAXException if the handler throws it
+	 */
+	boolean replay(byte[] grammar, ContentHandler handler) throws SAXException
+	{
+		File file = getFile(grammar);
+		if(file == null || !file.exists())
+			return false;
+
+		List<Object> events;
+		try
+		{
+			events = read(Files.readAllBytes(file.toPath()));
+		}
+		catch(IOException | RuntimeException e)
+		{
+			Log.log(Log.WARNING, this, "Cannot read " + file + ": " + e);
+			return false;
+		}
+		if(events == null)
+			return false;
+
+		handler.startDocument();
+		for(int i = 0; i < events.size(); i++)
+		{
+			Object event = events.get(i);
+			if(event instanceof StartElement)
+			{
+				StartElement start = (StartElement) event;
+				handler.startElement("", start.name, start.name, start.attributes);
+			}
+			else if(event instanceof EndElement)
+			{
+				String name = ((EndElement) event).name;
+				handler.endElement("", name, name);
+			}
+			else
+			{
+				char[] text = (char[]) event;
+				handler.characters(text, 0, text.length);
+			}
+		}
+		handler.endDocument();
+		return true;
+	} //}}}
+
+	//{{{ record() method
+	/**
+	 * @param handler the handler receiving the parsed content
+	 * @return a handler that records the content of a mode file before
+	 * giving it to the handler, to be written by {@link #save}
+	 */
+	Recorder record(ContentHandler handler)
+	{
+		return new Recorder(handler);
+	} //}}}
+
+	//{{{ save() method
+	/**
+	 * Writes the recorded content of a mode file.
+	 * @param grammar the mode file
+	 * @param recorder the recorder it was parsed with
+	 */
+	void save(byte[] grammar, Recorder recorder)
+	{
+		File file = getFile(grammar);
+		if(file == null)
+			return;
+
+		File tmp = null;
+		try
+		{
+			if(!directory.exists() && !directory.mkdirs())
+				throw new IOException("Cannot create " + directory);
+			tmp = File.createTempFile("mode", ".tmp", directory);
+			Files.write(tmp.toPath(), recorder.toByteArray());
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.WARNING, this, "Cannot write " + file + ": " + e);
+			if(tmp != null)
+				tmp.delete();
+		}
+	} //}}}
+
+	//{{{ Recorder class
+	/**
+	 * Gives the parsed content of a mode file to a handler, and records it.
+	 */
+	static class Recorder extends XMLFilterImpl
+	{
+		//{{{ Recorder constructor
+		Recorder(ContentHandler handler)
+		{
+			setContentHandler(handler);
+			try
+			{
+				out.writeInt(MAGIC);
+			}
+			catch(IOException e)
+			{
+				throw new AssertionError(e);
+			}
+		} //}}}
+
+		//{{{ startElement() method
+		@Override
+		public void startElement(String uri, String localName, String qName,
+			Attributes atts) throws SAXException
+		{
+			try
+			{
+				flushText();
+				out.writeByte(START_ELEMENT);
+				writeString(qName);
+				out.writeShort(atts.getLength());
+				for(int i = 0; i < atts.getLength(); i++)
+				{
+					writeString(atts.getQName(i));
+					writeString(atts.getValue(i));
+				}
+			}
+			catch(IOException e)
+			{
+				throw new SAXException(e);
+			}
+			super.startElement(uri, localName, qName, atts);
+		} //}}}
+
+		//{{{ endElement() method
+		@Override
+		public void endElement(String uri, String localName, String qName)
+			throws SAXException
+		{
+			try
+			{
+				flushText();
+				out.writeByte(END_ELEMENT);
+				writeString(qName);
+			}
+			catch(IOException e)
+			{
+				throw new SAXException(e);
+			}
+			super.endElement(uri, localName, qName);
+		} //}}}
+
+		//{{{ characters() method
+		@Override
+		public void characters(char[] ch, int start, int length)
+			throws SAXException
+		{
+			// the parser may split a text, the handler appends the parts
+			text.append(ch, start, length);
+			super.characters(ch, start, length);
+		} //}}}
+
+		//{{{ toByteArray() method
+		byte[] toByteArray() throws IOException
+		{
+			flushText();
+			out.writeByte(END);
+			return bytes.toByteArray();
+		} //}}}
+
+		//{{{ Private members
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private final StringBuilder text = new StringBuilder();
+		/** The index of each string already written. */
+		private final Map<String, Integer> strings = new HashMap<>();
+
+		//{{{ flushText() method
+		private void flushText() throws IOException
+		{
+			if(text.length() == 0)
+				return;
+			out.writeByte(CHARACTERS);
+			byte[] utf8 = text.toString().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(utf8.length);
+			out.write(utf8);
+			text.setLength(0);
+		} //}}}
+
+		//{{{ writeString() method
+		/**
+		 * Writes a string the first time, then its index.
+		 */
+		private void writeString(String str) throws IOException
+		{
+			Integer index = strings.get(str);
+			if(index != null)
+			{
+				out.writeInt(index);
+				return;
+			}
+			strings.put(str, strings.size());
+			out.writeInt(-1);
+			byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(utf8.length);
+			out.write(utf8);
+		} //}}}
+
+		//}}}
+	} //}}}
+
+	//{{{ Private members
+	/** Change it when the format changes. */
+	private static final int MAGIC = 0x584D4401;
+	private static final int END = 0;
+	private static final int START_ELEMENT = 1;
+	private static final int END_ELEMENT = 2;
+	private static final int CHARACTERS = 3;
+
+	/** The default attributes are recorded, so the DTD is in the key. */
+	private static byte[] dtd;
+
+	private final File directory;
+
+	//{{{ getFile() method
+	/**
+	 * @return the cache file of a mode file, or null if there is no SHA-1
+	 */
+	private File getFile(byte[] grammar)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(getDTD());
+			digest.update(grammar);
+			StringBuilder name = new StringBuilder();
+			for(byte b : digest.digest())
+				name.append(Character.forDigit((b >> 4) & 0xF, 16))
+					.append(Character.forDigit(b & 0xF, 16));
+			return new File(directory, name + ".xmode");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			return null;
+		}
+	} //}}}
+
+	//{{{ getDTD() method
+	private static synchronized byte[] getDTD()
+	{
+		if(dtd == null)
+		{
+			dtd = new byte[0];
+			InputStream in = XModeHandler.class.getResourceAsStream("xmode.dtd");
+			if(in != null)
+			{
+				try
+				{
+					dtd = in.readAllBytes();
+				}
+				catch(IOException e)
+				{
+					Log.log(Log.ERROR, ModeCache.class, e);
+				}
+				finally
+				{
+					IOUtilities.closeQuietly(in);
+				}
+			}
+		}
+		return dtd;
+	} //}}}
+
+	//{{{ read() method
+	/**
+	 * @return the events of a cache file: {@link StartElement},
+	 * {@link EndElement} and char arrays, or null if it has another format
+	 */
+	private static List<Object> read(byte[] data) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		if(in.readInt() != MAGIC)
+			return null;
+
+		List<String> strings = new ArrayList<>();
+		List<Object> events = new ArrayList<>();
+		while(true)
+		{
+			int type = in.readByte();
+			switch(type)
+			{
+			case END:
+				return events;
+			case START_ELEMENT:
+				String name = readString(in, strings);
+				AttributesImpl attributes = new AttributesImpl();
+				int count = in.readShort();
+				for(int i = 0; i < count; i++)
+				{
+					String qName = readString(in, strings);
+					attributes.addAttribute("", qName, qName, "CDATA",
+						readString(in, strings));
+				}
+				events.add(new StartElement(name, attributes));
+				break;
+			case END_ELEMENT:
+				events.add(new EndElement(readString(in, strings)));
+				break;
+			case CHARACTERS:
+				byte[] utf8 = new byte[in.readInt()];
+				in.readFully(utf8);
+				events.add(new String(utf8, StandardCharsets.UTF_8).toCharArray());
+				break;
+			default:
+				throw new IOException("Unknown event " + type);
+			}
+		}
+	} //}}}
+
+	//{{{ readString() method
+	private static String readString(DataInputStream in, List<String> strings)
+		throws IOException
+	{
+		int index = in.readInt();
+		if(index != -1)
+			return strings.get(index);
+		byte[] utf8 = new byte[in.readInt()];
+		in.readFully(utf8);
+		String str = new String(utf8, StandardCharsets.UTF_8);
+		strings.add(str);
+		return str;
+	} //}}}
+
+	//}}}
+
+	//{{{ StartElement class
+	private static class StartElement
+	{
+		final String name;
+		final Attributes attributes;
+
+		StartElement(String name, Attributes attributes)
+		{
+			this.name = name;
+			this.attributes = attributes;
+		}
+	} //}}}
+
+	//{{{ EndElement class
+	private static class EndElement
+	{
+		final String name;
+
+		EndElement(String name)
+		{
+			this.name = name;
+		}
+	} //}}}
+}
@@ -55,6 +55,7 @@ public class ModeProvider
 	public static ModeProvider instance = new ModeProvider();
 
 	private final LinkedHashMap<String, Mode> modes = new LinkedHashMap<>(250);
+	private ModeCache cache;
 
 	//{{{ removeAll() method
 	public void removeAll()
@@ -354,6 +355,18 @@ public class ModeProvider
 		loadMode(mode);
 	} //}}}
 
+	//{{{ setCacheDirectory() method
+	/**
+	 * Sets the directory where the parsed mode files are kept, so that
+	 * they are loaded faster the next time.
+	 * @param directory the directory, or null to parse the modes each time
+	 * @since jEdit 5.7pre1
+	 */
+	public void setCacheDirectory(File directory)
+	{
+		cache = directory == null ? null : new ModeCache(directory);
+	} //}}}
+
 	//{{{ loadMode() method
 	public void loadMode(Mode mode, XModeHandler xmh)
 	{
@@ -361,53 +374,64 @@ public class ModeProvider
 
 		Log.log(Log.NOTICE,this,"Loading edit mode " + fileName);
 
-		XMLReader parser;
+		mode.setTokenMarker(xmh.getTokenMarker());
+
+		byte[] grammar;
 		try
 		{
-			parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+			grammar = readGrammar(fileName);
 		}
-		catch (SAXException | ParserConfigurationException saxe)
+		catch (IOException e)
 		{
-			Log.log(Log.ERROR, this, saxe);
+			error(fileName, e);
 			return;
 		}
-		mode.setTokenMarker(xmh.getTokenMarker());
 
-		InputStream grammar;
+		ModeCache cache = this.cache;
+		try
+		{
+			if (cache != null && cache.replay(grammar, xmh))
+			{
+				mode.setProperties(xmh.getModeProperties());
+				return;
+			}
+		}
+		catch (Throwable e)	// NOPMD
+		{
+			error(fileName, e);
+			return;
+		}
 
+		XMLReader parser;
 		try
 		{
-			grammar = new BufferedInputStream(
-					new FileInputStream(fileName));
+			parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
 		}
-		catch (FileNotFoundException e1)
+		catch (SAXException | ParserConfigurationException saxe)
 		{
-			InputStream resource = ModeProvider.class.getResourceAsStream(fileName);
-			if (resource == null)
-				error(fileName, e1);
-			grammar = new BufferedInputStream(resource);
+			Log.log(Log.ERROR, this, saxe);
+			return;
 		}
 
 		try
 		{
-			InputSource isrc = new InputSource(grammar);
+			InputSource isrc = new InputSource(new ByteArrayInputStream(grammar));
 			isrc.setSystemId("jedit.jar");
-			parser.setContentHandler(xmh);
+			ModeCache.Recorder recorder = cache == null ? null : cache.record(xmh);
+			parser.setContentHandler(recorder == null ? xmh : recorder);
 			parser.setDTDHandler(xmh);
 			parser.setEntityResolver(xmh);
 			parser.setErrorHandler(xmh);
 			parser.parse(isrc);
 
 			mode.setProperties(xmh.getModeProperties());
+			if (recorder != null)
+				cache.save(grammar, recorder);
 		}
 		catch (Throwable e)	// NOPMD
 		{
 			error(fileName, e);
 		}
-		finally
-		{
-			IOUtilities.closeQuietly(grammar);
-		}
 	} //}}}
 
 	//{{{ loadMode() method
@@ -434,6 +458,34 @@ public class ModeProvider
 		loadMode(mode, xmh);
 	} //}}}
 
+	//{{{ readGrammar() method
+	/**
+	 * Reads a mode file, from the disk or from the jEdit classes.
+	 */
+	private static byte[] readGrammar(String fileName) throws IOException
+	{
+		InputStream grammar;
+		try
+		{
+			grammar = new FileInputStream(fileName);
+		}
+		catch (FileNotFoundException e)
+		{
+			grammar = ModeProvider.class.getResourceAsStream(fileName);
+			if (grammar == null)
+				throw e;
+		}
+
+		try
+		{
+			return grammar.readAllBytes();
+		}
+		finally
+		{
+			IOUtilities.closeQuietly(grammar);
+		}
+	} //}}}
+
 	//{{{ error() method
 	protected void error(String file, Throwable e)
 	{
@@ -27,6 +27,8 @@ package org.gjt.sp.jedit.syntax;
 import javax.annotation.Nonnull;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static org.gjt.sp.util.StandardUtilities.castUnchecked;
@@ -134,6 +136,7 @@ public class ParserRuleSet
 	//{{{ addRule() method
 	public void addRule(ParserRule parserRule)
 	{
+		compiledRules = null;
 		ruleCount++;
 		allRules.add(parserRule);
 		if (parserRule.upHashChars == null)
@@ -204,6 +207,31 @@ public class ParserRuleSet
 		return mixed;
 	} //}}}
 
+	//{{{ getCompiledRules() method
+	/**
+	 * Returns the rules that can match at a position, in the order of
+	 * {@link #getRules(char)}, but without the rules that cannot match
+	 * a text starting with the character at this position and the
+	 * following one. The rules are looked up in tables built on the
+	 * first call, the array must not be modified.
+	 * @param key the character at the position
+	 * @param next the following character, or -1 at the end of the line
+	 * @since jEdit 5.7pre1
+	 */
+	ParserRule[] getCompiledRules(char key, int next)
+	{
+		CompiledRules compiled = compiledRules;
+		if (compiled == null)
+		{
+			// rules are not added anymore once the mode is loaded,
+			// several threads building the tables at the same time
+			// build the same ones
+			compiled = new CompiledRules();
+			compiledRules = compiled;
+		}
+		return compiled.getRules(key, next);
+	} //}}}
+
 	//{{{ getRuleCount() method
 	public int getRuleCount()
 	{
@@ -237,6 +265,7 @@ public class ParserRuleSet
 	public void setIgnoreCase(boolean b)
 	{
 		ignoreCase = b;
+		compiledRules = null;
 	} //}}}
 
 	//{{{ getKeywords() method
@@ -340,6 +369,7 @@ public class ParserRuleSet
 
 	//{{{ Private members
 	private static final ParserRuleSet[] standard;
+	private static final ParserRule[] NO_RULES = new ParserRule[0];
 	/**
 	 * The base size for the rule array, after that value, chars are less frequent.
 	 */
@@ -367,6 +397,8 @@ public class ParserRuleSet
 	private final List<ParserRule> allRules;
 	private List<ParserRule>[] ruleArray;
 	private final List<ParserRule> rulesForNull;
+	/** Built from the rules on the first lookup after a change. */
+	private volatile CompiledRules compiledRules;
 
 	private final List<ParserRuleSet> imports;
 
@@ -386,5 +418,139 @@ public class ParserRuleSet
 	private String noWordSep;
 
 	private boolean builtIn;
+
+	//{{{ CompiledRules class
+	/**
+	 * The rules to try for each character. When a character has several
+	 * rules, they are also sorted by the following character, like in a
+	 * trie of the two first characters of the rules.
+	 */
+	private class CompiledRules
+	{
+		/**
+		 * Above this number of rules for a character, they are also
+		 * sorted by the following character.
+		 */
+		private static final int MAX_RULES = 4;
+
+		/**
+		 * The rules for each char below its length - 1, the last
+		 * element is for the other chars.
+		 */
+		private final ParserRule[][] rules;
+		/**
+		 * The rules by following char, built the first time a
+		 * character with more than MAX_RULES rules is looked up.
+		 */
+		private final AtomicReferenceArray<ParserRule[][]> nextRules;
+
+		//{{{ CompiledRules constructor
+		CompiledRules()
+		{
+			ParserRule[] others = rulesForNull.toArray(NO_RULES);
+			rules = new ParserRule[Math.max(ruleArray.length, BASE_CACHE) + 1][];
+			nextRules = new AtomicReferenceArray<>(BASE_CACHE);
+			List<ParserRule> candidates = new ArrayList<>();
+			for (int i = 0; i < rules.length - 1; i++)
+			{
+				List<ParserRule> rulesForKey = i < ruleArray.length ? ruleArray[i] : null;
+				if (i >= BASE_CACHE && rulesForKey == null)
+				{
+					rules[i] = others;
+					continue;
+				}
+				candidates.clear();
+				if (rulesForKey != null)
+					candidates.addAll(rulesForKey);
+				candidates.addAll(rulesForNull);
+				if (i >= BASE_CACHE)
+				{
+					// less frequent characters are not worth
+					// the time needed to check the rules
+					rules[i] = candidates.toArray(NO_RULES);
+					continue;
+				}
+
+				rules[i] = filter(candidates, String.valueOf((char) i));
+			}
+			rules[rules.length - 1] = others;
+		} //}}}
+
+		//{{{ getRules() method
+		ParserRule[] getRules(char key, int next)
+		{
+			if (key >= rules.length - 1)
+				return rules[rules.length - 1];
+			if (next == -1 || key >= BASE_CACHE || rules[key].length <= MAX_RULES)
+				return rules[key];
+			ParserRule[][] table = nextRules.get(key);
+			if (table == null)
+			{
+				table = new ParserRule[BASE_CACHE + 1][];
+				List<ParserRule> candidates = Arrays.asList(rules[key]);
+				for (int i = 0; i < BASE_CACHE; i++)
+					table[i] = filter(candidates, new String(new char[] { key, (char) i }));
+				table[BASE_CACHE] = rules[key];
+				nextRules.set(key, table);
+			}
+			return table[Math.min(next, BASE_CACHE)];
+		} //}}}
+
+		//{{{ filter() method
+		private ParserRule[] filter(List<ParserRule> candidates, String prefix)
+		{
+			List<ParserRule> filtered = new ArrayList<>();
+			for (ParserRule rule : candidates)
+			{
+				if (canStartWith(rule, prefix))
+					filtered.add(rule);
+			}
+			return filtered.isEmpty() ? NO_RULES : filtered.toArray(NO_RULES);
+		} //}}}
+
+		//{{{ canStartWith() method
+		/**
+		 * Returns false if the rule cannot match a text starting with
+		 * the given prefix.
+		 */
+		private boolean canStartWith(ParserRule rule, String prefix)
+		{
+			if ((rule.action & ParserRule.REGEXP) != 0)
+			{
+				if (rule.startRegexp == null)
+					return true;
+				try
+				{
+					// like in TokenMarker, the text starts at
+					// the rule position. If the match fails
+					// without reading past the prefix, no
+					// longer text can match.
+					Matcher matcher = rule.startRegexp.matcher(prefix);
+					return matcher.lookingAt() || matcher.hitEnd();
+				}
+				catch (RuntimeException e)
+				{
+					return true;
+				}
+			}
+
+			if (rule.start == null)
+				return true;
+			// like SyntaxUtilities.regionMatches()
+			for (int i = 0; i < prefix.length() && i < rule.start.length; i++)
+			{
+				char c1 = prefix.charAt(i);
+				char c2 = rule.start[i];
+				if (ignoreCase)
+				{
+					c1 = Character.toUpperCase(c1);
+					c2 = Character.toUpperCase(c2);
+				}
+				if (c1 != c2)
+					return false;
+			}
+			return true;
+		} //}}}
+	} //}}}
 	//}}}
 }
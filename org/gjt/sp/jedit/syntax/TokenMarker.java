@@ -52,7 +52,16 @@ public class TokenMarker
 
 	//{{{ TokenMarker constructor
 	public TokenMarker()
-	{} //}}}
+	{
+		// the parser state is kept in instance variables, so every
+		// thread parses with its own instance
+		parsers = ThreadLocal.withInitial(() -> new TokenMarker(null));
+	}
+
+	private TokenMarker(ThreadLocal<TokenMarker> parsers)
+	{
+		this.parsers = parsers;
+	} //}}}
 
 	//{{{ addRuleSet() method
 	public void addRuleSet(ParserRuleSet rules)
@@ -87,12 +96,23 @@ public class TokenMarker
 	//{{{ markTokens() method
 	/**
 	 * Do not call this method directly; call Buffer.markTokens() instead.
+	 * Since jEdit 5.7pre1, it can be called by several threads at the same
+	 * time, to tokenize buffers using the same mode.
 	 *
 	 * @param prevContext the context of the previous line, it can be null
 	 * @param tokenHandler the token handler
 	 * @param line a segment containing the content of the line
 	 */
-	public synchronized LineContext markTokens(LineContext prevContext,
+	public LineContext markTokens(LineContext prevContext,
+		TokenHandler tokenHandler, Segment line)
+	{
+		return parsers.get().parse(mainRuleSet, prevContext, tokenHandler, line);
+	} //}}}
+
+	//{{{ Private members
+
+	//{{{ parse() method
+	private LineContext parse(ParserRuleSet mainRuleSet, LineContext prevContext,
 		TokenHandler tokenHandler, Segment line)
 	{
 		//{{{ Set up some instance variables
@@ -108,7 +128,7 @@ public class TokenMarker
 
 		if(prevContext == null)
 		{
-			context.rules = getMainRuleSet();
+			context.rules = mainRuleSet;
 			context.escapeRule = context.rules.getEscapeRule();
 		}
 		else
@@ -160,8 +180,8 @@ main_loop:	for(pos = line.offset; pos < lineLength; pos++)
 
 			//{{{ check every rule
 			char ch = line.array[pos];
-			List<ParserRule> rules = context.rules.getRules(ch);
-			for (ParserRule rule : rules)
+			int next = pos + 1 < lineLength ? line.array[pos + 1] : -1;
+			for (ParserRule rule : context.rules.getCompiledRules(ch, next))
 			{
 				// stop checking rules if there was a match
 				if (handleRuleStart(rule))
@@ -265,14 +285,15 @@ unwind:		while(context.parent != null)
 		return context;
 	} //}}}
 
-	//{{{ Private members
-
 	//{{{ Instance variables
 	private final Map<String, ParserRuleSet> ruleSets = new Hashtable<>(64);
 	private ParserRuleSet mainRuleSet;
+	/** The per thread instances used to parse, null in those instances. */
+	private final ThreadLocal<TokenMarker> parsers;
 
 	// Instead of passing these around to each method, we just store them
-	// as instance variables. Note that this is not thread-safe.
+	// as instance variables. Note that this is not thread-safe, hence
+	// the per thread parsers.
 	private TokenHandler tokenHandler;
 	/** The line from which we will mark the tokens. */
 	private Segment line;
@@ -939,17 +960,21 @@ unwind:		while(context.parent != null)
 		//{{{ intern() method
 		public LineContext intern()
 		{
-			WeakReference<LineContext> ref = intern.get(this);
-			if(ref != null)
+			// lines are tokenized by several threads
+			synchronized(intern)
 			{
-				LineContext obj = ref.get();
-				if(obj != null)
+				WeakReference<LineContext> ref = intern.get(this);
+				if(ref != null)
 				{
-					return obj;
+					LineContext obj = ref.get();
+					if(obj != null)
+					{
+						return obj;
+					}
 				}
+				intern.put(this, new WeakReference<LineContext>(this));
+				return this;
 			}
-			intern.put(this, new WeakReference<LineContext>(this));
-			return this;
 		} //}}}
 
 		//{{{ hashCode() method
@@ -90,6 +90,17 @@ class BufferHandler implements BufferListener
 		}
 	} //}}}
 
+	//{{{ lineContextsChanged() method
+	@Override
+	public void lineContextsChanged(JEditBuffer buffer, int start, int end)
+	{
+		if(textArea.getDisplayManager() == displayManager && !buffer.isLoading())
+		{
+			textArea.chunkCache.invalidateChunksFromPhys(start);
+			textArea.invalidateLineRange(start, end);
+		}
+	} //}}}
+
 	//{{{ contentInserted() method
 	@Override
 	public void contentInserted(JEditBuffer buffer, int startLine, int offset, int numLines, int length)
@@ -26,6 +26,7 @@ package org.gjt.sp.jedit.textarea;
 //{{{ Imports
 import java.util.*;
 
+import javax.swing.Timer;
 import javax.swing.text.TabExpander;
 
 import org.gjt.sp.jedit.buffer.JEditBuffer;
@@ -53,6 +54,8 @@ class ChunkCache
 		outFull = new ArrayList<>();
 		outFullPhysicalLine = -1;
 		tokenHandler = new DisplayTokenHandler();
+		warmUpTokenHandler = new DisplayTokenHandler();
+		warmedFirstLine = warmedLastLine = -1;
 	} //}}}
 
 	//{{{ getMaxHorizontalScrollWidth() method
@@ -164,6 +167,7 @@ class ChunkCache
 	{
 		this.buffer = buffer;
 		lastScreenLine = lastScreenLineP = -1;
+		warmedFirstLine = warmedLastLine = -1;
 	} //}}}
 
 	//{{{ scrollDown() method
@@ -231,8 +235,25 @@ class ChunkCache
 		invalidateAll();
 		outFullPhysicalLine = -1;
 		outFull.clear();
+		warmedFirstLine = warmedLastLine = -1;
 	}
 
+	//{{{ warmUpLater() method
+	/**
+	 * Lays out the page before and the page after the visible lines once
+	 * the text area stops scrolling, so that the glyphs of their tokens
+	 * are in the glyph cache when they are painted.
+	 */
+	void warmUpLater()
+	{
+		if(warmUpTimer == null)
+		{
+			warmUpTimer = new Timer(WARM_UP_DELAY, e -> warmUp());
+			warmUpTimer.setRepeats(false);
+		}
+		warmUpTimer.restart();
+	} //}}}
+
 	//{{{ invalidateChunksFromPhys() method
 	void invalidateChunksFromPhys(int physicalLine)
 	{
@@ -554,6 +575,14 @@ class ChunkCache
 	private boolean needFullRepaint;
 
 	private final DisplayTokenHandler tokenHandler;
+
+	/** The delay after the last paint before warming up, in ms. */
+	private static final int WARM_UP_DELAY = 200;
+	private final DisplayTokenHandler warmUpTokenHandler;
+	private Timer warmUpTimer;
+	/** The visible physical lines when the last warm up was done. */
+	private int warmedFirstLine;
+	private int warmedLastLine;
 	//}}}
 
 	//{{{ getLineInfosForPhysicalLine() method
@@ -825,11 +854,68 @@ class ChunkCache
 					? textArea.wrapMargin : 0.0f, buffer.getLineStartOffset(physicalLine));
 
 			outFull.clear();
-			buffer.markTokens(physicalLine,tokenHandler);
+			buffer.markDisplayTokens(physicalLine,tokenHandler);
 			outFullPhysicalLine = physicalLine;
 		}
 	} //}}}
 
+	//{{{ warmUp() method
+	private void warmUp()
+	{
+		if(buffer == null || buffer.isLoading() || !textArea.isShowing())
+			return;
+		int firstLine = textArea.getFirstPhysicalLine();
+		int lastLine = textArea.getLastPhysicalLine();
+		if(firstLine == warmedFirstLine && lastLine == warmedLastLine)
+			return;
+		warmedFirstLine = firstLine;
+		warmedLastLine = lastLine;
+
+		long time = System.nanoTime();
+		DisplayManager displayManager = textArea.getDisplayManager();
+		List<Chunk> out = new ArrayList<>();
+		int pageLines = textArea.getVisibleLines();
+		int line = lastLine;
+		for(int i = 0; i < pageLines; i++)
+		{
+			line = displayManager.getNextVisibleLine(line);
+			if(line == -1)
+				break;
+			warmUpLine(line, out);
+		}
+		line = firstLine;
+		for(int i = 0; i < pageLines; i++)
+		{
+			line = displayManager.getPrevVisibleLine(line);
+			if(line == -1)
+				break;
+			warmUpLine(line, out);
+		}
+
+		if(Debug.CHUNK_CACHE_DEBUG)
+		{
+			Log.log(Log.DEBUG, this, "warm up took " + (System.nanoTime() - time)
+				+ " ns, " + Chunk.getGlyphCacheStatistics());
+		}
+	} //}}}
+
+	//{{{ warmUpLine() method
+	/**
+	 * Lays out a line without keeping its chunks.
+	 */
+	private void warmUpLine(int physicalLine, List<Chunk> out)
+	{
+		TextAreaPainter painter = textArea.getPainter();
+		out.clear();
+		warmUpTokenHandler.init(painter.getStyles(),
+				painter.getFontRenderContext(),
+				textArea.getTabExpander(), out,
+				textArea.softWrap
+				? textArea.wrapMargin : 0.0f, buffer.getLineStartOffset(physicalLine));
+		buffer.markDisplayTokens(physicalLine, warmUpTokenHandler);
+		out.clear();
+	} //}}}
+
 	//}}}
 
 	//{{{ LineInfo class
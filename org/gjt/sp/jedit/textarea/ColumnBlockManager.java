@@ -0,0 +1,548 @@
+/*
+ * ColumnBlockManager.java - The column blocks of elastic tabstops
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+//{{{ Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+//}}}
+
+/**
+ * The column blocks of a buffer using elastic tabstops, and the widths of
+ * their cells.<p>
+ *
+ * The tabs of each line are kept, and the blocks of each column are stored
+ * in a {@link ColumnBlockTree}. The buffer tells the manager about each
+ * edit, like it tells its line manager: only the edited lines are read
+ * again and only the blocks around them are rebuilt, the following blocks
+ * being moved. The widths of the cells are measured when the tab stops are
+ * first needed, and then only for the edited lines; the other cells of a
+ * block are looked at again only when its widest cell is narrowed or
+ * removed.<p>
+ *
+ * After an edit, {@link #getChangedStartLine()} and
+ * {@link #getChangedEndLine()} give the lines whose tab stops may have
+ * moved, so that the text areas lay out and repaint only them.<p>
+ *
+ * The buffer read lock is taken before the lock of the manager.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class ColumnBlockManager
+{
+	//{{{ Measurer interface
+	/**
+	 * Measures the text of the cells. The widths are measured again when
+	 * a measurer which is not equal to the previous one is used.
+	 */
+	public interface Measurer
+	{
+		/**
+		 * @param text the text of a cell, without its tab
+		 * @return its width
+		 */
+		float getWidth(Segment text);
+	} //}}}
+
+	//{{{ ColumnBlockManager constructor
+	/**
+	 * Finds the column blocks of a buffer.
+	 * @param buffer the buffer
+	 */
+	public ColumnBlockManager(JEditBuffer buffer)
+	{
+		this.buffer = buffer;
+		buffer.readLock();
+		try
+		{
+			int lineCount = buffer.getLineCount();
+			lines = new ArrayList<>(lineCount);
+			int columns = 0;
+			for(int line = 0; line < lineCount; line++)
+			{
+				Cells cells = readCells(line);
+				lines.add(cells);
+				columns = Math.max(columns, cells.tabs.length);
+			}
+
+			for(int column = 0; column < columns; column++)
+			{
+				ColumnBlockTree tree = new ColumnBlockTree();
+				trees.add(tree);
+				int start = -1;
+				for(int line = 0; line <= lineCount; line++)
+				{
+					boolean inBlock = line < lineCount
+						&& lines.get(line).tabs.length > column;
+					if(inBlock && start == -1)
+						start = line;
+					else if(!inBlock && start != -1)
+					{
+						tree.add(new ColumnBlock(column, start, line - 1));
+						start = -1;
+					}
+				}
+			}
+		}
+		finally
+		{
+			buffer.readUnlock();
+		}
+	} //}}}
+
+	//{{{ contentInserted() method
+	/**
+	 * Called by the buffer when text was inserted, after its line manager.
+	 * @param startLine the first line
+	 * @param numLines the number of lines inserted
+	 */
+	public synchronized void contentInserted(int startLine, int numLines)
+	{
+		update(startLine, startLine, startLine + numLines);
+	} //}}}
+
+	//{{{ contentRemoved() method
+	/**
+	 * Called by the buffer when text was removed, after its line manager.
+	 * @param startLine the first line
+	 * @param numLines the number of lines removed
+	 */
+	public synchronized void contentRemoved(int startLine, int numLines)
+	{
+		update(startLine, startLine + numLines, startLine);
+	} //}}}
+
+	//{{{ getChangedStartLine() method
+	/**
+	 * @return the first line whose tab stops may have moved with the last
+	 * edit
+	 */
+	public synchronized int getChangedStartLine()
+	{
+		return changedStartLine;
+	} //}}}
+
+	//{{{ getChangedEndLine() method
+	/**
+	 * @return the last line whose tab stops may have moved with the last
+	 * edit
+	 */
+	public synchronized int getChangedEndLine()
+	{
+		return changedEndLine;
+	} //}}}
+
+	//{{{ getColumnBlock() method
+	/**
+	 * @param line a line
+	 * @param column a column
+	 * @return the block of the column containing the line, or null
+	 */
+	public ColumnBlock getColumnBlock(int line, int column)
+	{
+		buffer.readLock();
+		try
+		{
+			synchronized(this)
+			{
+				return column < trees.size() ? trees.get(column).find(line) : null;
+			}
+		}
+		finally
+		{
+			buffer.readUnlock();
+		}
+	} //}}}
+
+	//{{{ getTabWidth() method
+	/**
+	 * Returns the space a tab takes after its cell, so that it reaches
+	 * the end of the widest cell of its column block.
+	 * @param line the line of the tab
+	 * @param offset the offset of the tab in the line
+	 * @param measurer measures the cells
+	 * @return the width between the end of the cell and the tab stop, or
+	 * -1 if there is no tab at this offset
+	 */
+	public float getTabWidth(int line, int offset, Measurer measurer)
+	{
+		buffer.readLock();
+		try
+		{
+			synchronized(this)
+			{
+				if(!measurer.equals(this.measurer))
+				{
+					this.measurer = measurer;
+					generation++;
+				}
+				int column = Arrays.binarySearch(lines.get(line).tabs, offset);
+				if(column < 0)
+					return -1;
+				ColumnBlock block = trees.get(column).find(line);
+				return getWidth(block) - getCellWidth(line, column);
+			}
+		}
+		finally
+		{
+			buffer.readUnlock();
+		}
+	} //}}}
+
+	//{{{ invalidateWidths() method
+	/**
+	 * Measures all the cells again when the tab stops are next needed,
+	 * for example because the font changed.
+	 */
+	public synchronized void invalidateWidths()
+	{
+		generation++;
+	} //}}}
+
+	//{{{ getColumnBlocks() method
+	/**
+	 * @param column a column
+	 * @return the blocks of the column, in line order
+	 */
+	public synchronized List<ColumnBlock> getColumnBlocks(int column)
+	{
+		List<ColumnBlock> blocks = new ArrayList<>();
+		if(column < trees.size())
+			trees.get(column).getBlocks(blocks);
+		return blocks;
+	} //}}}
+
+	//{{{ getColumnCount() method
+	/**
+	 * @return the number of columns having blocks
+	 */
+	public synchronized int getColumnCount()
+	{
+		return trees.size();
+	} //}}}
+
+	//{{{ Private members
+	private static final int[] NO_TABS = {};
+	private static final float[] NO_WIDTHS = {};
+	/** The cells of the lines without tabs, which are shared. */
+	private static final Cells NO_CELLS = new Cells(NO_TABS);
+
+	private final JEditBuffer buffer;
+	/** The cells of each line. */
+	private final List<Cells> lines;
+	/** The blocks of each column. */
+	private final List<ColumnBlockTree> trees = new ArrayList<>();
+	private final Segment seg = new Segment();
+	private final List<ColumnBlock> removed = new ArrayList<>();
+	private Measurer measurer;
+	/** Incremented when all the widths are measured again. */
+	private int generation;
+	private int changedStartLine = -1;
+	private int changedEndLine = -1;
+
+	//{{{ update() method
+	/**
+	 * Reads edited lines again and rebuilds the blocks around them.
+	 * @param first the first edited line
+	 * @param lastOld the last edited line, before the edit
+	 * @param lastNew the last edited line, after the edit
+	 */
+	private void update(int first, int lastOld, int lastNew)
+	{
+		List<Cells> edited = lines.subList(first, lastOld + 1);
+		Cells[] oldCells = edited.toArray(new Cells[0]);
+		edited.clear();
+		Cells[] newCells = new Cells[lastNew - first + 1];
+		int columns = 0;
+		for(int i = 0; i < newCells.length; i++)
+		{
+			newCells[i] = readCells(first + i);
+			columns = Math.max(columns, newCells[i].tabs.length);
+		}
+		lines.addAll(first, Arrays.asList(newCells));
+
+		while(trees.size() < columns)
+			trees.add(new ColumnBlockTree());
+
+		changedStartLine = first;
+		changedEndLine = lastNew;
+		for(int column = 0; column < trees.size(); column++)
+			updateColumn(column, first, lastOld, lastNew, oldCells);
+
+		while(!trees.isEmpty() && trees.get(trees.size() - 1).isEmpty())
+			trees.remove(trees.size() - 1);
+	} //}}}
+
+	//{{{ updateColumn() method
+	/**
+	 * Rebuilds the blocks of a column overlapping or next to the edited
+	 * lines. The blocks before them are kept, the blocks after them are
+	 * moved.
+	 */
+	private void updateColumn(int column, int first, int lastOld, int lastNew,
+		Cells[] oldCells)
+	{
+		ColumnBlockTree tree = trees.get(column);
+		removed.clear();
+		tree.removeRange(first - 1, lastOld + 1, removed);
+		int delta = lastNew - lastOld;
+		if(delta != 0)
+			tree.shift(lastOld + 1, delta);
+
+		// the blocks that continue before and after the edited lines,
+		// their lines are not moved yet
+		ColumnBlock before = null;
+		ColumnBlock after = null;
+		if(!removed.isEmpty())
+		{
+			if(removed.get(0).startLine < first)
+				before = removed.get(0);
+			ColumnBlock last = removed.get(removed.size() - 1);
+			if(last.endLine > lastOld)
+				after = last;
+		}
+
+		int start = before == null ? -1 : before.startLine;
+		for(int line = first; line <= lastNew; line++)
+		{
+			if(lines.get(line).tabs.length > column)
+			{
+				if(start == -1)
+					start = line;
+			}
+			else if(start != -1)
+			{
+				addBlock(tree, column, start, line - 1, before, null,
+					first, lastOld, lastNew, oldCells);
+				before = null;
+				start = -1;
+			}
+		}
+		if(after != null)
+		{
+			if(start == -1)
+				start = lastNew + 1;
+			addBlock(tree, column, start, after.endLine + delta, before, after,
+				first, lastOld, lastNew, oldCells);
+		}
+		else if(start != -1)
+		{
+			addBlock(tree, column, start, lastNew, before, null,
+				first, lastOld, lastNew, oldCells);
+		}
+	} //}}}
+
+	//{{{ addBlock() method
+	/**
+	 * Adds a rebuilt block, and finds whether its width changed.
+	 * @param before the old block continued by this one before the
+	 * edited lines, or null
+	 * @param after the old block continued by this one after the edited
+	 * lines, or null
+	 */
+	private void addBlock(ColumnBlockTree tree, int column, int start, int end,
+		ColumnBlock before, ColumnBlock after,
+		int first, int lastOld, int lastNew, Cells[] oldCells)
+	{
+		int delta = lastNew - lastOld;
+		// a block next to the edited lines which is not changed
+		if(before != null && after == null && end == first - 1
+			&& before.endLine == end)
+		{
+			tree.add(before);
+			return;
+		}
+		if(before == null && after != null && start == lastNew + 1
+			&& after.startLine == lastOld + 1)
+		{
+			after.startLine += delta;
+			after.endLine += delta;
+			tree.add(after);
+			return;
+		}
+
+		ColumnBlock block = new ColumnBlock(column, start, end);
+		tree.add(block);
+		boolean beforeMeasured = before != null && before.generation == generation;
+		boolean afterMeasured = after != null && after.generation == generation;
+		// the width is only needed now to know which lines to repaint
+		if(measurer == null || !beforeMeasured && !afterMeasured)
+			return;
+
+		float width = 0;
+		if(before != null && before == after)
+		{
+			width = getRemainingWidth(before, true, first, lastOld, oldCells,
+				start, first - 1, lastNew + 1, end);
+		}
+		else
+		{
+			if(before != null)
+			{
+				// the old block may continue after the edited lines, in
+				// another block
+				width = getRemainingWidth(before, before.endLine <= lastOld,
+					first, lastOld, oldCells, start, first - 1, 0, -1);
+			}
+			if(after != null)
+			{
+				width = Math.max(width, getRemainingWidth(after,
+					after.startLine >= first, first, lastOld, oldCells,
+					0, -1, lastNew + 1, end));
+			}
+		}
+		for(int line = Math.max(start, first); line <= Math.min(end, lastNew); line++)
+			width = Math.max(width, getCellWidth(line, column));
+		block.width = width;
+		block.generation = generation;
+
+		if(beforeMeasured && before.width != width
+			|| afterMeasured && after.width != width)
+		{
+			changedStartLine = Math.min(changedStartLine, start);
+			changedEndLine = Math.max(changedEndLine, end);
+		}
+	} //}}}
+
+	//{{{ getRemainingWidth() method
+	/**
+	 * Returns the width of the widest cell of the remaining lines of an
+	 * old block, given in new line numbers. If they are all the lines of
+	 * the old block except the edited ones, it is the width of the old
+	 * block when none of the removed cells was the widest.
+	 */
+	private float getRemainingWidth(ColumnBlock block, boolean whole,
+		int first, int lastOld, Cells[] oldCells,
+		int start1, int end1, int start2, int end2)
+	{
+		if(whole && block.generation == generation)
+		{
+			boolean narrower = true;
+			int from = Math.max(first, block.startLine);
+			int to = Math.min(lastOld, block.endLine);
+			for(int line = from; line <= to && narrower; line++)
+			{
+				Cells cells = oldCells[line - first];
+				// NaN when not measured
+				narrower = cells.generation == generation
+					&& cells.widths[block.column] < block.width;
+			}
+			if(narrower)
+				return block.width;
+		}
+
+		float width = 0;
+		for(int line = start1; line <= end1; line++)
+			width = Math.max(width, getCellWidth(line, block.column));
+		for(int line = start2; line <= end2; line++)
+			width = Math.max(width, getCellWidth(line, block.column));
+		return width;
+	} //}}}
+
+	//{{{ getWidth() method
+	/**
+	 * @return the width of the widest cell of a block
+	 */
+	private float getWidth(ColumnBlock block)
+	{
+		if(block.generation != generation)
+		{
+			float width = 0;
+			for(int line = block.startLine; line <= block.endLine; line++)
+				width = Math.max(width, getCellWidth(line, block.column));
+			block.width = width;
+			block.generation = generation;
+		}
+		return block.width;
+	} //}}}
+
+	//{{{ getCellWidth() method
+	private float getCellWidth(int line, int column)
+	{
+		Cells cells = lines.get(line);
+		if(cells.generation != generation)
+		{
+			Arrays.fill(cells.widths, Float.NaN);
+			cells.generation = generation;
+		}
+		float width = cells.widths[column];
+		if(Float.isNaN(width))
+		{
+			int start = column == 0 ? 0 : cells.tabs[column - 1] + 1;
+			buffer.getLineText(line, start, seg);
+			seg.count = cells.tabs[column] - start;
+			width = measurer.getWidth(seg);
+			cells.widths[column] = width;
+		}
+		return width;
+	} //}}}
+
+	//{{{ readCells() method
+	private Cells readCells(int line)
+	{
+		buffer.getLineText(line, seg);
+		int count = 0;
+		for(int i = 0; i < seg.count; i++)
+		{
+			if(seg.array[seg.offset + i] == '\t')
+				count++;
+		}
+		if(count == 0)
+			return NO_CELLS;
+
+		int[] tabs = new int[count];
+		count = 0;
+		for(int i = 0; i < seg.count; i++)
+		{
+			if(seg.array[seg.offset + i] == '\t')
+				tabs[count++] = i;
+		}
+		return new Cells(tabs);
+	} //}}}
+
+	//}}}
+
+	//{{{ Cells class
+	/**
+	 * The tabs ending the cells of a line, and the widths of the cells.
+	 */
+	private static class Cells
+	{
+		/** The offsets of the tabs in the line. */
+		final int[] tabs;
+		/** NaN when not measured. */
+		final float[] widths;
+		/** The widths are valid if it is the generation of the manager. */
+		int generation = -1;
+
+		Cells(int[] tabs)
+		{
+			this.tabs = tabs;
+			widths = tabs.length == 0 ? NO_WIDTHS : new float[tabs.length];
+		}
+	} //}}}
+}
@@ -0,0 +1,273 @@
+/*
+ * ColumnBlockTree.java - The column blocks of a column, by line range
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+//{{{ Imports
+import java.util.List;
+//}}}
+
+/**
+ * An interval tree of the column blocks of one column, keyed by their line
+ * ranges, which never overlap.<p>
+ *
+ * The blocks are the nodes of a treap, ordered by start line. Moving the
+ * blocks after an edited line is done in <code>O(log n)</code>: the line
+ * delta is added to the root of the subtree holding them, and passed down
+ * to the children of a block only when the block is visited. So the line
+ * range of a block is only valid when it was just found in the tree.
+ *
+ * @see ColumnBlockManager
+ * @since jEdit 5.7pre1
+ */
+class ColumnBlockTree
+{
+	//{{{ find() method
+	/**
+	 * @return the block containing the line, or null
+	 */
+	ColumnBlock find(int line)
+	{
+		ColumnBlock node = root;
+		while(node != null)
+		{
+			push(node);
+			if(line < node.startLine)
+				node = node.left;
+			else if(line > node.endLine)
+				node = node.right;
+			else
+				return node;
+		}
+		return null;
+	} //}}}
+
+	//{{{ add() method
+	/**
+	 * Adds a block, which must not overlap the blocks of the tree.
+	 */
+	void add(ColumnBlock block)
+	{
+		block.left = block.right = null;
+		block.delta = 0;
+		block.priority = nextPriority();
+		split(root, block.startLine);
+		ColumnBlock after = splitRight;
+		root = merge(merge(splitLeft, block), after);
+	} //}}}
+
+	//{{{ removeRange() method
+	/**
+	 * Removes the blocks overlapping a line range.
+	 * @param firstLine the first line
+	 * @param lastLine the last line
+	 * @param removed receives the removed blocks, in line order
+	 */
+	void removeRange(int firstLine, int lastLine, List<ColumnBlock> removed)
+	{
+		split(root, firstLine);
+		ColumnBlock before = splitLeft;
+		ColumnBlock from = splitRight;
+
+		// the last block starting before the range may overlap it
+		ColumnBlock last = last(before);
+		if(last != null && last.endLine >= firstLine)
+		{
+			split(before, last.startLine);
+			before = splitLeft;
+			removed.add(last);
+			last.left = last.right = null;
+		}
+
+		split(from, lastLine + 1);
+		ColumnBlock after = splitRight;
+		collect(splitLeft, removed);
+		root = merge(before, after);
+	} //}}}
+
+	//{{{ shift() method
+	/**
+	 * Moves the blocks starting from a line.
+	 * @param fromLine the first line moved
+	 * @param delta the number of lines they are moved by
+	 */
+	void shift(int fromLine, int delta)
+	{
+		split(root, fromLine);
+		ColumnBlock before = splitLeft;
+		ColumnBlock after = splitRight;
+		move(after, delta);
+		root = merge(before, after);
+	} //}}}
+
+	//{{{ getBlocks() method
+	/**
+	 * @param blocks receives the blocks, in line order
+	 */
+	void getBlocks(List<ColumnBlock> blocks)
+	{
+		getBlocks(root, blocks);
+	} //}}}
+
+	//{{{ isEmpty() method
+	boolean isEmpty()
+	{
+		return root == null;
+	} //}}}
+
+	//{{{ Private members
+	private ColumnBlock root;
+	/** The state of the xorshift generator of the priorities. */
+	private int seed = 0x2545F491;
+	// the result of split(), to avoid allocating
+	private ColumnBlock splitLeft;
+	private ColumnBlock splitRight;
+
+	//{{{ nextPriority() method
+	private int nextPriority()
+	{
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	} //}}}
+
+	//{{{ move() method
+	private static void move(ColumnBlock node, int delta)
+	{
+		if(node != null)
+		{
+			node.startLine += delta;
+			node.endLine += delta;
+			node.delta += delta;
+		}
+	} //}}}
+
+	//{{{ push() method
+	/**
+	 * Passes the pending line delta of a block to its children.
+	 */
+	private static void push(ColumnBlock node)
+	{
+		if(node.delta != 0)
+		{
+			move(node.left, node.delta);
+			move(node.right, node.delta);
+			node.delta = 0;
+		}
+	} //}}}
+
+	//{{{ split() method
+	/**
+	 * Splits a subtree into the blocks starting before a line, stored in
+	 * <code>splitLeft</code>, and the others, in <code>splitRight</code>.
+	 */
+	private void split(ColumnBlock node, int line)
+	{
+		if(node == null)
+		{
+			splitLeft = splitRight = null;
+			return;
+		}
+		push(node);
+		if(node.startLine < line)
+		{
+			split(node.right, line);
+			node.right = splitLeft;
+			splitLeft = node;
+		}
+		else
+		{
+			split(node.left, line);
+			node.left = splitRight;
+			splitRight = node;
+		}
+	} //}}}
+
+	//{{{ merge() method
+	/**
+	 * @return the union of two subtrees, the blocks of the first one
+	 * being before those of the second one
+	 */
+	private static ColumnBlock merge(ColumnBlock left, ColumnBlock right)
+	{
+		if(left == null)
+			return right;
+		if(right == null)
+			return left;
+		if(left.priority > right.priority)
+		{
+			push(left);
+			left.right = merge(left.right, right);
+			return left;
+		}
+		else
+		{
+			push(right);
+			right.left = merge(left, right.left);
+			return right;
+		}
+	} //}}}
+
+	//{{{ last() method
+	private static ColumnBlock last(ColumnBlock node)
+	{
+		if(node == null)
+			return null;
+		push(node);
+		while(node.right != null)
+		{
+			node = node.right;
+			push(node);
+		}
+		return node;
+	} //}}}
+
+	//{{{ collect() method
+	/**
+	 * Takes the blocks of a subtree out of it.
+	 */
+	private static void collect(ColumnBlock node, List<ColumnBlock> blocks)
+	{
+		if(node == null)
+			return;
+		push(node);
+		ColumnBlock right = node.right;
+		collect(node.left, blocks);
+		node.left = node.right = null;
+		blocks.add(node);
+		collect(right, blocks);
+	} //}}}
+
+	//{{{ getBlocks() method
+	private static void getBlocks(ColumnBlock node, List<ColumnBlock> blocks)
+	{
+		if(node == null)
+			return;
+		push(node);
+		getBlocks(node.left, blocks);
+		blocks.add(node);
+		getBlocks(node.right, blocks);
+	} //}}}
+
+	//}}}
+}
@@ -22,9 +22,11 @@ package org.gjt.sp.jedit.textarea;
 
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
-import java.util.Vector;
 
+import javax.swing.text.Segment;
 import javax.swing.text.TabExpander;
 
 /** A Swing TabExpander for Elastic Tabstops. */
@@ -33,6 +35,7 @@ public class ElasticTabstopsTabExpander implements TabExpander
 {
 	private final TextArea textArea;
 	private final TextAreaPainter painter;
+	private TextLayoutMeasurer measurer;
 
 	//{{{ ElasticTabstopsTabExpander() method
 	public ElasticTabstopsTabExpander(TextArea textArea)
@@ -47,54 +50,66 @@ public class ElasticTabstopsTabExpander implements TabExpander
 	{
 		float _tabSize = 0;
 		JEditBuffer buffer = textArea.getBuffer();
-		if(buffer.getBooleanProperty("elasticTabstops")&& buffer.getColumnBlock()!=null)
+		ColumnBlockManager columnBlockManager = buffer.getColumnBlockManager();
+		if(buffer.getBooleanProperty("elasticTabstops")&& columnBlockManager!=null)
 		{
 			int line = buffer.getLineOfOffset(tabOffset);
-			_tabSize = getTabSize(buffer.getColumnBlock().getColumnBlock(line, tabOffset),line);
+			_tabSize = columnBlockManager.getTabWidth(line,
+				tabOffset - buffer.getLineStartOffset(line), getMeasurer());
 			if(_tabSize<0)
 			{
-				throw new IllegalArgumentException("Unaccounted tab at line "+ buffer.getLineOfOffset(tabOffset)+" at index "+tabOffset);
+				throw new IllegalArgumentException("Unaccounted tab at line "+ line+" at index "+tabOffset);
 			}
 		}
 		//keep minimum tab size of  textArea.tabSize
 		_tabSize+= textArea.tabSize;
 		return (x+_tabSize);
 	}//}}}
-	
-	//{{{ getTabSize() method
-	private float getTabSize(ColumnBlock columnBlock, int line) 
+
+	//{{{ getMeasurer() method
+	private ColumnBlockManager.Measurer getMeasurer()
 	{
-		float ret = -5;
-		if(columnBlock!=null)
-		{	
-			Vector<ColumnBlockLine> lines = columnBlock.getLines();
-			if(columnBlock.areTabSizesDirty())
-			{
-				float colBlockWidth = -1;
-				JEditBuffer buffer = textArea.getBuffer();
-				for(int i= 0;i<lines.size();i++)
-				{
-					ColumnBlockLine colBlockLine = lines.elementAt(i);
-					int startOffset = colBlockLine.getColumnStartIndex()+ buffer.getLineStartOffset(colBlockLine.getLine());
-					String str = buffer.getText(startOffset,colBlockLine.getColumnEndIndex()-colBlockLine.getColumnStartIndex());
-					float width = 0;
-					if(!str.isEmpty())
-					{	
-						TextLayout layout = new TextLayout(str, painter.getFont(), painter.getFontRenderContext());
-						width = layout.getAdvance();
-					}
-					colBlockLine.lineLength = width;
-					//colBlockLine.lineLength = textArea.painter.getFontMetrics().stringWidth(str);
-					if((colBlockWidth<0)||(colBlockLine.lineLength>colBlockWidth))
-					{
-						colBlockWidth = colBlockLine.lineLength;
-					}
-				}
-				columnBlock.columnBlockWidth = colBlockWidth;
-				columnBlock.setTabSizeDirtyStatus(false, false);
-			}
-			ret = columnBlock.columnBlockWidth- lines.get(line-columnBlock.startLine).lineLength;
-		}	
-		return ret;
+		Font font = painter.getFont();
+		FontRenderContext frc = painter.getFontRenderContext();
+		if(measurer == null || !measurer.font.equals(font) || !measurer.frc.equals(frc))
+			measurer = new TextLayoutMeasurer(font, frc);
+		return measurer;
+	}//}}}
+
+	//{{{ TextLayoutMeasurer class
+	/** Measures the cells with the font of the text area. */
+	private static class TextLayoutMeasurer implements ColumnBlockManager.Measurer
+	{
+		private final Font font;
+		private final FontRenderContext frc;
+
+		TextLayoutMeasurer(Font font, FontRenderContext frc)
+		{
+			this.font = font;
+			this.frc = frc;
+		}
+
+		@Override
+		public float getWidth(Segment text)
+		{
+			if(text.count == 0)
+				return 0;
+			return new TextLayout(text.toString(), font, frc).getAdvance();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof TextLayoutMeasurer))
+				return false;
+			TextLayoutMeasurer measurer = (TextLayoutMeasurer)obj;
+			return font.equals(measurer.font) && frc.equals(measurer.frc);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return font.hashCode() * 31 + frc.hashCode();
+		}
 	}//}}}
 }
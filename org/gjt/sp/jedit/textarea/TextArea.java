@@ -4868,9 +4868,10 @@ loop:		for(int i = lineNo - 1; i >= 0; i--)
 			{
 				turnOnElasticTabstops();
 			}
-			if(buffer.getColumnBlock() != null)
+			ColumnBlockManager columnBlockManager = buffer.getColumnBlockManager();
+			if(columnBlockManager != null)
 			{
-				buffer.getColumnBlock().setTabSizeDirtyStatus(true, true);
+				columnBlockManager.invalidateWidths();
 			}
 		}
 		else
@@ -908,6 +908,8 @@ public class TextAreaPainter extends JComponent implements TabExpander
 
 			if(Debug.PAINT_TIMER && numLines >= 1)
 				Log.log(Log.DEBUG,this,"repainting " + numLines + " lines took " + prepareTime + "/" + linesTime + " ns");
+
+			textArea.chunkCache.warmUpLater();
 		}
 
 		textArea.updateMaxHorizontalScrollWidth();
@@ -1242,7 +1244,7 @@ public class TextAreaPainter extends JComponent implements TabExpander
 				(fm.getLeading()+1) - fm.getDescent();
 
 			DefaultTokenHandler tokenHandler = new DefaultTokenHandler();
-			textArea.getBuffer().markTokens(physicalLine, tokenHandler);
+			textArea.getBuffer().markDisplayTokens(physicalLine, tokenHandler);
 			Token token = tokenHandler.getTokens();
 
 			int lineStart = textArea.getLineStartOffset(physicalLine);
@@ -494,6 +494,7 @@ public class TextAreaTransferHandler extends TransferHandler
 			super();
 			this.textArea = textArea;
 			this.url = url;
+			setPriority(Priority.INTERACTIVE_IO);
 		}
 		public void _run()
 		{
@@ -27,11 +27,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 
 import java.text.DateFormat;
 
 import java.util.*;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
@@ -53,6 +56,11 @@ import static java.text.DateFormat.MEDIUM;
  *
  * Logging of exception tracebacks is supported.<p>
  *
+ * The events are added to a bounded buffer without waiting, and formatted
+ * and written by a background thread. If the buffer is full, the events
+ * are dropped, and their number is logged when there is room again, see
+ * {@link #getDroppedCount()}.<p>
+ *
  * This class can also optionally redirect standard output and error
  * to the log, see {@link #init}.
  *
@@ -153,33 +161,37 @@ public class Log
 	 */
 	public static void setLogWriter(Writer stream)
 	{
-		if(Log.stream == null && stream != null)
+		synchronized(LOCK)
 		{
-			try
+			writeRecords();
+			if(Log.stream == null && stream != null)
 			{
-				if(wrap)
+				try
 				{
-					for(int i = logLineCount; i < log.length; i++)
+					if(wrap)
+					{
+						for(int i = logLineCount; i < log.length; i++)
+						{
+							stream.write(log[i]);
+							stream.write(lineSep);
+						}
+					}
+					for(int i = 0; i < logLineCount; i++)
 					{
 						stream.write(log[i]);
 						stream.write(lineSep);
 					}
+
+					stream.flush();
 				}
-				for(int i = 0; i < logLineCount; i++)
+				catch(Exception e)		// NOPMD
 				{
-					stream.write(log[i]);
-					stream.write(lineSep);
+					// do nothing, who cares -- well, PMD will call you on it.
 				}
-
-				stream.flush();
-			}
-			catch(Exception e)		// NOPMD
-			{
-				// do nothing, who cares -- well, PMD will call you on it.
 			}
-		}
 
-		Log.stream = stream;
+			Log.stream = stream;
+		}
 	} //}}}
 
 	//{{{ get/setBeepOnOutput method
@@ -204,34 +216,37 @@ public class Log
 	
 	public static void setMaxLines(int newMax)
 	{
-		if (newMax == MAXLINES)
-			return;
-		
-		// find last non-null entry in log array
-		int lineCount = 0;
-		for (int i = 0; i < log.length; i++) 
+		synchronized(LOCK)
 		{
-			if (log[i] == null)
-				break;
-			++lineCount;
-		}
+			if (newMax == MAXLINES)
+				return;
 		
-		// copy entries from log to newLog
-		String[] newLog = new String[newMax];
-		if (newMax > lineCount)
-		{
-			System.arraycopy(log, 0, newLog, 0, lineCount);
-		}
-		else
-		{
-			// lineCount > newMax
-			System.arraycopy(log, lineCount - newMax, newLog, 0, newMax);
-			logLineCount = newMax;
-		}
+			// find last non-null entry in log array
+			int lineCount = 0;
+			for (int i = 0; i < log.length; i++) 
+			{
+				if (log[i] == null)
+					break;
+				++lineCount;
+			}
+		
+			// copy entries from log to newLog
+			String[] newLog = new String[newMax];
+			if (newMax > lineCount)
+			{
+				System.arraycopy(log, 0, newLog, 0, lineCount);
+			}
+			else
+			{
+				// lineCount > newMax
+				System.arraycopy(log, lineCount - newMax, newLog, 0, newMax);
+				logLineCount = newMax;
+			}
 		
-		MAXLINES = newMax;
-		log = newLog;
-		listModel.update(lineCount, true);
+			MAXLINES = newMax;
+			log = newLog;
+			listModel.update(lineCount, true);
+		}
 	}
 	
 	public static int getMaxLinex()
@@ -241,24 +256,43 @@ public class Log
 
 	//{{{ flushStream() method
 	/**
-	 * Flushes the log stream.
+	 * Writes the events logged so far and flushes the log stream, before
+	 * returning.
 	 * @since jEdit 2.6pre5
+	 * @see #flushStreamLater()
 	 */
 	public static void flushStream()
 	{
-		if(stream != null)
+		synchronized(LOCK)
 		{
-			try
-			{
-				stream.flush();
-			}
-			catch(IOException io)
-			{
-				io.printStackTrace(realErr);
-			}
+			writeRecords();
+			flushStreamImpl();
 		}
 	} //}}}
 
+	//{{{ flushStreamLater() method
+	/**
+	 * Flushes the log stream in the background thread writing the log,
+	 * once the events logged so far are written.
+	 * @since jEdit 5.7pre1
+	 */
+	public static void flushStreamLater()
+	{
+		flushRequested = true;
+		LockSupport.unpark(writer);
+	} //}}}
+
+	//{{{ getDroppedCount() method
+	/**
+	 * @return the number of events that were not logged because they
+	 * were logged faster than they could be written
+	 * @since jEdit 5.7pre1
+	 */
+	public static long getDroppedCount()
+	{
+		return buffer.getDropped();
+	} //}}}
+
 	//{{{ closeStream() method
 	/**
 	 * Closes the log stream. Should be done before your program exits.
@@ -266,16 +300,20 @@ public class Log
 	 */
 	public static void closeStream()
 	{
-		if(stream != null)
+		synchronized(LOCK)
 		{
-			try
-			{
-				stream.close();
-				stream = null;
-			}
-			catch(IOException io)
+			writeRecords();
+			if(stream != null)
 			{
-				io.printStackTrace(realErr);
+				try
+				{
+					stream.close();
+					stream = null;
+				}
+				catch(IOException io)
+				{
+					io.printStackTrace(realErr);
+				}
 			}
 		}
 	} //}}}
@@ -311,7 +349,8 @@ public class Log
 
 	//{{{ log() method
 	/**
-	 * Logs a message. This method is thread-safe.<p>
+	 * Logs a message. This method is thread-safe, and does not wait for
+	 * the message to be written.<p>
 	 *
 	 * The following code sends a typical debugging message to the activity
 	 * log:
@@ -334,46 +373,17 @@ public class Log
 	 */
 	public static void log(int urgency, Object source, Object message)
 	{
-		String _source;
-		if(source == null)
-		{
-			_source = Thread.currentThread().getName();
-			if(_source == null)
-			{
-				_source = Thread.currentThread().getClass().getName();
-			}
-		}
-		else if(source instanceof Class)
-			_source = ((Class<?>)source).getName();
-		else
-			_source = source.getClass().getName();
-		int index = _source.lastIndexOf('.');
-		if(index != -1)
-			_source = _source.substring(index+1);
-
 		if(message instanceof Throwable)
+			addThrowable(urgency,(Throwable)message);
+		else if(!(message instanceof String))
 		{
-			_logException(urgency,source,(Throwable)message);
+			// the object may change before it is written
+			message = String.valueOf(message);
 		}
-		else
+		if(buffer.offer(urgency,source,Thread.currentThread().getName(),
+			System.currentTimeMillis(),message) && writerWaiting)
 		{
-			String _message = String.valueOf(message);
-			// If multiple threads log stuff, we don't want
-			// the output to get mixed up
-			synchronized(LOCK)
-			{
-				StringTokenizer st = new StringTokenizer(
-					_message,"\r\n");
-				int lineCount = 0;
-				boolean oldWrap = wrap;
-				while(st.hasMoreTokens())
-				{
-					lineCount++;
-					_log(urgency,_source,st.nextToken()
-						.replace('\t',' '));
-				}
-				listModel.update(lineCount,oldWrap);
-			}
+			LockSupport.unpark(writer);
 		}
 	} //}}}
 
@@ -392,6 +402,16 @@ public class Log
 	private static final LogListModel listModel;
 	private static final DateFormat timeFormat;
 	private static final int MAX_THROWABLES = 10;
+	/** The number of events written at once. */
+	private static final int BATCH_SIZE = 256;
+	private static final LogBuffer buffer;
+	private static final Thread writer;
+	private static volatile boolean writerWaiting;
+	private static volatile boolean flushRequested;
+	/** The number of dropped events already reported. */
+	private static long reportedDrops;
+	/** The number of lines written by writeRecords(). */
+	private static int writtenLines;
 	public static final List<Throwable> throwables;
 	// initialized externally through setBeepOnOutput method
 	private static boolean beepOnOutput = false;
@@ -414,6 +434,13 @@ public class Log
 		
 		timeFormat = DateFormat.getTimeInstance(MEDIUM);
 		throwables = Collections.synchronizedList(new ArrayList<Throwable>(MAX_THROWABLES));
+
+		buffer = new LogBuffer(8192);
+		writer = new Thread(Log::runWriter, "jEdit log writer");
+		writer.setDaemon(true);
+		writer.start();
+		// the events logged just before exiting are written
+		Runtime.getRuntime().addShutdownHook(new Thread(Log::flushStream));
 	} //}}}
 
 	//{{{ createPrintStream() method
@@ -423,12 +450,9 @@ public class Log
 		return new LogPrintStream(urgency, source);
 	} //}}}
 
-	//{{{ _logException() method
-	private static void _logException(final int urgency,
-		final Object source,
-		final Throwable message)
+	//{{{ addThrowable() method
+	private static void addThrowable(int urgency, Throwable throwable)
 	{
-		PrintStream out = createPrintStream(urgency,source);
 		if (urgency >= level)
 		{
 			synchronized (throwables)
@@ -437,21 +461,120 @@ public class Log
 				{
 					throwables.remove(0);
 				}
-				throwables.add(message);
+				throwables.add(throwable);
 			}
 		}
-		synchronized(LOCK)
+	} //}}}
+
+	//{{{ runWriter() method
+	/**
+	 * Writes the events as they are logged.
+	 */
+	private static void runWriter()
+	{
+		while(true)
+		{
+			synchronized(LOCK)
+			{
+				writeRecords();
+				if(flushRequested)
+				{
+					flushRequested = false;
+					flushStreamImpl();
+				}
+			}
+			writerWaiting = true;
+			// an event logged after this check wakes the writer up
+			if(buffer.isEmpty() && !flushRequested)
+				LockSupport.parkNanos(1000000000L);
+			writerWaiting = false;
+		}
+	} //}}}
+
+	//{{{ writeRecords() method
+	/**
+	 * Writes the logged events. It is called with the lock held, so
+	 * that a single thread takes events from the buffer.
+	 */
+	private static void writeRecords()
+	{
+		while(true)
+		{
+			boolean oldWrap = wrap;
+			writtenLines = 0;
+			int count = buffer.drain(Log::writeRecord,BATCH_SIZE);
+			long dropped = buffer.getDropped();
+			// reported once the writer caught up
+			if(count < BATCH_SIZE && dropped != reportedDrops)
+			{
+				_log(WARNING,"Log",Thread.currentThread().getName(),
+					System.currentTimeMillis(),(dropped - reportedDrops)
+					+ " events were dropped, they were logged too fast");
+				reportedDrops = dropped;
+			}
+			listModel.update(writtenLines,oldWrap);
+			if(count < BATCH_SIZE)
+				return;
+		}
+	} //}}}
+
+	//{{{ writeRecord() method
+	private static void writeRecord(int urgency, Object source, String thread,
+		long time, Object message)
+	{
+		String _source;
+		if(source == null)
+			_source = thread;
+		else if(source instanceof Class)
+			_source = ((Class<?>)source).getName();
+		else
+			_source = source.getClass().getName();
+		int index = _source.lastIndexOf('.');
+		if(index != -1)
+			_source = _source.substring(index+1);
+
+		String _message;
+		if(message instanceof Throwable)
 		{
-			message.printStackTrace(out);
+			StringWriter trace = new StringWriter();
+			((Throwable)message).printStackTrace(new PrintWriter(trace));
+			_message = trace.toString();
+		}
+		else
+			_message = (String)message;
+
+		StringTokenizer st = new StringTokenizer(_message,"\r\n");
+		while(st.hasMoreTokens())
+		{
+			_log(urgency,_source,thread,time,st.nextToken()
+				.replace('\t',' '));
+		}
+	} //}}}
+
+	//{{{ flushStreamImpl() method
+	private static void flushStreamImpl()
+	{
+		if(stream != null)
+		{
+			try
+			{
+				stream.flush();
+			}
+			catch(IOException io)
+			{
+				io.printStackTrace(realErr);
+			}
 		}
 	} //}}}
 
 	//{{{ _log() method
-	private static void _log(int urgency, String source, String message)
+	private static void _log(int urgency, String source, String thread,
+		long time, String message)
 	{
-		String fullMessage = timeFormat.format(new Date()) + " ["+Thread.currentThread().getName()+"] [" + urgencyToString(urgency) + "] " + source
+		String fullMessage = timeFormat.format(new Date(time)) + " ["+thread+"] [" + urgencyToString(urgency) + "] " + source
 			+ ": " + message;
 
+		writtenLines++;
 		try
 		{
 			log[logLineCount] = fullMessage;
@@ -481,9 +604,9 @@ public class Log
 
 			if (beepOnOutput)
 			{
-				long time = System.currentTimeMillis();
+				long now = System.currentTimeMillis();
 				
-				if (time - lastBeepTime > 1000)
+				if (now - lastBeepTime > 1000)
 				{
 					javax.swing.UIManager.getLookAndFeel().provideErrorFeedback(null); 
 					lastBeepTime = System.currentTimeMillis();
@@ -0,0 +1,195 @@
+/*
+ * LogBuffer.java - Log records waiting to be written
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.util;
+
+//{{{ Imports
+import java.util.concurrent.atomic.AtomicLong;
+//}}}
+
+/**
+ * A bounded queue of log records, which any thread can add to without
+ * locking or waiting, and a single thread at a time takes from.<p>
+ *
+ * The records are stored in preallocated slots of a ring. Each slot has a
+ * sequence number telling whether it is free for the record of a position,
+ * or holds it. When the ring is full, the records are dropped and counted.
+ * The last quarter of the ring is kept for warnings and errors, so that
+ * they are not dropped because of many debug records.
+ *
+ * @since jEdit 5.7pre1
+ */
+class LogBuffer
+{
+	//{{{ LogBuffer constructor
+	/**
+	 * @param capacity the number of slots, a power of two
+	 */
+	LogBuffer(int capacity)
+	{
+		if(Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Not a power of two: " + capacity);
+		slots = new Slot[capacity];
+		for(int i = 0; i < capacity; i++)
+			slots[i] = new Slot(i);
+		mask = capacity - 1;
+		reserved = capacity / 4;
+	} //}}}
+
+	//{{{ offer() method
+	/**
+	 * Adds a record, unless the ring is full. This method is thread-safe
+	 * and never blocks.
+	 * @return false if the record was dropped
+	 */
+	boolean offer(int urgency, Object source, String thread, long time,
+		Object message)
+	{
+		long position = tail.get();
+		while(true)
+		{
+			Slot slot = slots[(int) position & mask];
+			long sequence = slot.sequence;
+			if(sequence == position)
+			{
+				if(urgency < Log.WARNING
+					&& position - head >= slots.length - reserved)
+				{
+					dropped.incrementAndGet();
+					return false;
+				}
+				if(tail.compareAndSet(position, position + 1))
+				{
+					slot.urgency = urgency;
+					slot.source = source;
+					slot.thread = thread;
+					slot.time = time;
+					slot.message = message;
+					// publishes the fields to the reader
+					slot.sequence = position + 1;
+					return true;
+				}
+				position = tail.get();
+			}
+			else if(sequence < position)
+			{
+				// the slot still holds the record of the
+				// previous round
+				dropped.incrementAndGet();
+				return false;
+			}
+			else
+				position = tail.get();
+		}
+	} //}}}
+
+	//{{{ RecordHandler interface
+	interface RecordHandler
+	{
+		void record(int urgency, Object source, String thread, long time,
+			Object message);
+	} //}}}
+
+	//{{{ drain() method
+	/**
+	 * Takes the records in the order they were added. It must not be
+	 * called by two threads at the same time.
+	 * @param handler called for each record
+	 * @param max the maximum number of records taken
+	 * @return the number of records taken
+	 */
+	int drain(RecordHandler handler, int max)
+	{
+		int count = 0;
+		long position = head;
+		while(count < max)
+		{
+			Slot slot = slots[(int) position & mask];
+			if(slot.sequence != position + 1)
+				break;
+			int urgency = slot.urgency;
+			Object source = slot.source;
+			String thread = slot.thread;
+			long time = slot.time;
+			Object message = slot.message;
+			slot.source = null;
+			slot.thread = null;
+			slot.message = null;
+			// the record is copied, the slot is free for the
+			// next round
+			slot.sequence = position + slots.length;
+			position++;
+			head = position;
+			count++;
+			handler.record(urgency, source, thread, time, message);
+		}
+		return count;
+	} //}}}
+
+	//{{{ isEmpty() method
+	boolean isEmpty()
+	{
+		return slots[(int) head & mask].sequence != head + 1;
+	} //}}}
+
+	//{{{ getDropped() method
+	/**
+	 * @return the number of records dropped since the buffer was created
+	 */
+	long getDropped()
+	{
+		return dropped.get();
+	} //}}}
+
+	//{{{ Private members
+	private final Slot[] slots;
+	private final int mask;
+	/** The number of slots kept for warnings and errors. */
+	private final int reserved;
+	/** The position of the next record added. */
+	private final AtomicLong tail = new AtomicLong();
+	/** The position of the next record taken. */
+	private volatile long head;
+	private final AtomicLong dropped = new AtomicLong();
+
+	//{{{ Slot class
+	private static class Slot
+	{
+		/**
+		 * Equal to the position of the record it is free for, or
+		 * to this position plus one once the record is added.
+		 */
+		volatile long sequence;
+		int urgency;
+		Object source;
+		String thread;
+		long time;
+		Object message;
+
+		Slot(long sequence)
+		{
+			this.sequence = sequence;
+		}
+	} //}}}
+
+	//}}}
+}
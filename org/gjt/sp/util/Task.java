@@ -21,6 +21,7 @@
 
 package org.gjt.sp.util;
 
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
 /**
@@ -47,6 +48,12 @@ public abstract class Task implements Runnable, ProgressObserver
 
 	private volatile boolean cancellable = true;
 
+	private volatile Priority priority = Priority.CPU;
+
+	/** The times when the task was queued and started, in nanoseconds. */
+	private volatile long waitingSince;
+	private volatile long startedAt;
+
 	//{{{ Task Constructor
 	protected Task()
 	{
@@ -57,6 +64,7 @@ public abstract class Task implements Runnable, ProgressObserver
 	@Override
 	public final void run()
 	{
+		startedAt = System.nanoTime();
 		state = SwingWorker.StateValue.STARTED;
 		TaskManager.instance.fireRunning(this);
 		try
@@ -140,6 +148,51 @@ public abstract class Task implements Runnable, ProgressObserver
 		this.cancellable = cancellable;
 	}
 
+	/**
+	 * @return the priority class of the task
+	 * @since jEdit 5.7pre1
+	 */
+	public Priority getPriority()
+	{
+		return priority;
+	}
+
+	/**
+	 * Sets the priority class of the task, before it is started.
+	 * @param priority the priority, {@link Priority#CPU} by default
+	 * @since jEdit 5.7pre1
+	 */
+	public void setPriority(Priority priority)
+	{
+		this.priority = priority;
+	}
+
+	//{{{ getWaitTime() method
+	/**
+	 * @return the number of milliseconds the task waited, or is waiting,
+	 * before it started
+	 * @since jEdit 5.7pre1
+	 */
+	public long getWaitTime()
+	{
+		long waitingSince = this.waitingSince;
+		if(waitingSince == 0L)
+			return 0L;
+		long startedAt = this.startedAt;
+		long end = startedAt == 0L ? System.nanoTime() : startedAt;
+		return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(end - waitingSince));
+	} //}}}
+
+	//{{{ setWaiting() method
+	/**
+	 * Called when the task is given to the {@link TaskScheduler}.
+	 */
+	void setWaiting()
+	{
+		waitingSince = System.nanoTime();
+		startedAt = 0L;
+	} //}}}
+
 	//{{{ cancel() method
 	/**
 	 * Cancel the task
@@ -155,4 +208,22 @@ public abstract class Task implements Runnable, ProgressObserver
 	{
 		return "Task[" + state + ',' + status + ',' + value + '/' + maximum + ']';
 	}
+
+	//{{{ Priority enum
+	/**
+	 * The priority classes of the tasks. The waiting tasks of a class are
+	 * started before those of the next classes.
+	 * @since jEdit 5.7pre1
+	 */
+	public enum Priority
+	{
+		/** I/O the user is waiting for, like opening a file. */
+		INTERACTIVE_IO,
+		/** I/O done in the background, like autosaving. */
+		BACKGROUND_IO,
+		/** Computations, like a search. */
+		CPU,
+		/** Work started only when no other task waits. */
+		IDLE
+	} //}}}
 }
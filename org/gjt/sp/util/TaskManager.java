@@ -78,6 +78,18 @@ public class TaskManager
 		return size;
 	}
 
+	/**
+	 * Return the number of tasks of a priority waiting to be started.
+	 *
+	 * @param priority the priority
+	 * @return the number of waiting tasks
+	 * @since jEdit 5.7pre1
+	 */
+	public int countWaitingTasks(Task.Priority priority)
+	{
+		return ThreadUtilities.getScheduler().getWaitingCount(priority);
+	}
+
 	public void addTaskListener(TaskListener listener)
 	{
 		if (!listeners.contains(listener))
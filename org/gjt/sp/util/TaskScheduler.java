@@ -0,0 +1,246 @@
+/*
+ * TaskScheduler.java - Runs the tasks by priority with bounded threads
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.util;
+
+//{{{ Imports
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.gjt.sp.util.Task.Priority;
+//}}}
+
+/**
+ * Runs the background tasks of jEdit, with a limit of running tasks for
+ * each {@link Task.Priority}.<p>
+ *
+ * The waiting tasks of a higher priority are started first. The idle tasks
+ * are only started when no other task waits. The I/O tasks can run in
+ * virtual threads, when the Java runtime has them.<p>
+ *
+ * A task started by another task is not limited, since the other task may
+ * be waiting for it and would never give its thread back.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class TaskScheduler
+{
+	//{{{ TaskScheduler constructor
+	/**
+	 * @param threadFactory the factory of the threads
+	 */
+	public TaskScheduler(ThreadFactory threadFactory)
+	{
+		threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+			new SynchronousQueue<>(), threadFactory);
+		int processors = Runtime.getRuntime().availableProcessors();
+		limits[Priority.INTERACTIVE_IO.ordinal()] = 4;
+		limits[Priority.BACKGROUND_IO.ordinal()] = 2;
+		limits[Priority.CPU.ordinal()] = Math.max(2, processors);
+		limits[Priority.IDLE.ordinal()] = 1;
+		for(int i = 0; i < limits.length; i++)
+			queues.add(new ArrayDeque<>());
+	} //}}}
+
+	//{{{ execute() method
+	/**
+	 * Starts a task, or queues it until a task of its priority finishes.
+	 * @param task the task
+	 */
+	public void execute(Task task)
+	{
+		task.setWaiting();
+		Priority priority = task.getPriority();
+		synchronized(this)
+		{
+			if(Boolean.TRUE.equals(inWorker.get()))
+			{
+				running[priority.ordinal()]++;
+				start(task, priority);
+				return;
+			}
+			queues.get(priority.ordinal()).add(task);
+		}
+		schedule();
+	} //}}}
+
+	//{{{ getLimit() method
+	/**
+	 * @return the number of tasks of a priority that can run at once
+	 */
+	public synchronized int getLimit(Priority priority)
+	{
+		return limits[priority.ordinal()];
+	} //}}}
+
+	//{{{ setLimit() method
+	/**
+	 * Sets the number of tasks of a priority that can run at once.
+	 * @param priority the priority
+	 * @param limit the number of tasks, at least 1
+	 */
+	public void setLimit(Priority priority, int limit)
+	{
+		synchronized(this)
+		{
+			limits[priority.ordinal()] = Math.max(1, limit);
+		}
+		schedule();
+	} //}}}
+
+	//{{{ setVirtualThreads() method
+	/**
+	 * Runs the I/O tasks in virtual threads, which do not use a platform
+	 * thread while blocked.
+	 * @param virtualThreads true to use virtual threads
+	 * @return false if the Java runtime has no virtual threads
+	 */
+	public synchronized boolean setVirtualThreads(boolean virtualThreads)
+	{
+		if(!virtualThreads)
+		{
+			ioThreads = null;
+			return true;
+		}
+		if(ioThreads != null)
+			return true;
+		try
+		{
+			ioThreads = (ExecutorService) Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			return true;
+		}
+		catch(ReflectiveOperationException e)
+		{
+			return false;
+		}
+	} //}}}
+
+	//{{{ getWaitingCount() method
+	/**
+	 * @return the number of waiting tasks of a priority
+	 */
+	public synchronized int getWaitingCount(Priority priority)
+	{
+		return queues.get(priority.ordinal()).size();
+	} //}}}
+
+	//{{{ getRunningCount() method
+	/**
+	 * @return the number of running tasks of a priority
+	 */
+	public synchronized int getRunningCount(Priority priority)
+	{
+		return running[priority.ordinal()];
+	} //}}}
+
+	//{{{ Private members
+	private static final ThreadLocal<Boolean> inWorker = new ThreadLocal<>();
+
+	private final ExecutorService threads;
+	/** The executor of the I/O tasks if they use virtual threads. */
+	private ExecutorService ioThreads;
+	private final int[] limits = new int[Priority.values().length];
+	private final int[] running = new int[limits.length];
+	private final List<ArrayDeque<Task>> queues = new ArrayList<>(limits.length);
+
+	//{{{ schedule() method
+	/**
+	 * Starts the waiting tasks that are under the limit of their priority.
+	 */
+	private void schedule()
+	{
+		List<Task> started = new ArrayList<>();
+		List<Priority> priorities = new ArrayList<>();
+		synchronized(this)
+		{
+			for(Priority priority : Priority.values())
+			{
+				int i = priority.ordinal();
+				if(priority == Priority.IDLE && isWaiting())
+					break;
+				while(running[i] < limits[i] && !queues.get(i).isEmpty())
+				{
+					started.add(queues.get(i).poll());
+					priorities.add(priority);
+					running[i]++;
+				}
+			}
+		}
+		for(int i = 0; i < started.size(); i++)
+			start(started.get(i), priorities.get(i));
+	} //}}}
+
+	//{{{ isWaiting() method
+	/**
+	 * @return true if a task which is not idle waits
+	 */
+	private boolean isWaiting()
+	{
+		for(int i = 0; i < Priority.IDLE.ordinal(); i++)
+		{
+			if(!queues.get(i).isEmpty())
+				return true;
+		}
+		return false;
+	} //}}}
+
+	//{{{ start() method
+	private void start(Task task, Priority priority)
+	{
+		ExecutorService executor = threads;
+		synchronized(this)
+		{
+			if(ioThreads != null && (priority == Priority.INTERACTIVE_IO
+				|| priority == Priority.BACKGROUND_IO))
+			{
+				executor = ioThreads;
+			}
+		}
+		executor.execute(() ->
+		{
+			inWorker.set(Boolean.TRUE);
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				inWorker.remove();
+				synchronized(this)
+				{
+					running[priority.ordinal()]--;
+				}
+				schedule();
+			}
+		});
+	} //}}}
+
+	//}}}
+}
@@ -26,16 +26,14 @@ package org.gjt.sp.util;
 import java.awt.EventQueue;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 //}}}
 
 /**
  * The threadpool of jEdit.
- * It uses a ExecutorService from the java.util.concurrent package.
+ * It uses a {@link TaskScheduler}, which runs a bounded number of tasks of
+ * each {@link Task.Priority} at once.
  * You can run {@link Task} or {@link Runnable} in it, Runnables will be
  * encapsulated in Task and displayed in the Task Monitor. 
  *
@@ -174,8 +172,7 @@ public class ThreadUtilities
 		{
 			task = TaskManager.decorate(runnable);
 		}
-		TaskManager.instance.fireWaiting(task);
-		threadPool.execute(task);
+		runInBackground(task);
 	}
 
 	/**
@@ -186,7 +183,17 @@ public class ThreadUtilities
 	public static void runInBackground(Task task)
 	{
 		TaskManager.instance.fireWaiting(task);
-		threadPool.execute(task);
+		scheduler.execute(task);
+	} //}}}
+
+	//{{{ getScheduler() method
+	/**
+	 * @return the scheduler of the background tasks
+	 * @since jEdit 5.7pre1
+	 */
+	public static TaskScheduler getScheduler()
+	{
+		return scheduler;
 	} //}}}
 
 	private ThreadUtilities()
@@ -215,15 +222,7 @@ public class ThreadUtilities
 	} //}}}
 
 
-	private static final ExecutorService threadPool;
-
-	private static final int CORE_POOL_SIZE = 4;
-
-	static
-	{
-		threadPool = Executors.newCachedThreadPool(new JEditThreadFactory());
-		((ThreadPoolExecutor) threadPool).setCorePoolSize(CORE_POOL_SIZE);
-	}
+	private static final TaskScheduler scheduler = new TaskScheduler(new JEditThreadFactory());
 
 	//{{{ MyRunnable class
 	private static class CountDownLatchRunnable implements Runnable
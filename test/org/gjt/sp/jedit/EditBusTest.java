@@ -0,0 +1,119 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EditBusTest
+{
+	private final Receiver receiver = new Receiver();
+
+	@After
+	public void tearDown()
+	{
+		EditBus.removeFromBus(receiver);
+	}
+
+	@Test
+	public void handlersOfSuperTypes()
+	{
+		EditBus.addToBus(receiver);
+		EditBus.send(new TestMessage("a", null));
+		EditBus.send(new SubMessage("b"));
+		assertEquals(List.of("exact a", "any a", "any b"), receiver.received);
+
+		EditBus.removeFromBus(receiver);
+		EditBus.send(new TestMessage("c", null));
+		assertEquals(3, receiver.received.size());
+	}
+
+	@Test
+	public void coalescedMessages() throws Exception
+	{
+		EditBus.addToBus(receiver);
+		TestMessage last = new TestMessage("c", "key");
+		// sent during one event, otherwise they could be sent between
+		EventQueue.invokeAndWait(() ->
+		{
+			EditBus.sendCoalesced(new TestMessage("a", "key"));
+			EditBus.sendCoalesced(new TestMessage("b", null));
+			EditBus.sendCoalesced(last);
+		});
+		EventQueue.invokeAndWait(() -> {});
+		assertEquals(List.of("exact c", "any c", "exact b", "any b"), receiver.received);
+		assertSame(last, receiver.messages.get(0));
+	}
+
+	public static class Receiver
+	{
+		final List<String> received = new ArrayList<>();
+		final List<EBMessage> messages = new ArrayList<>();
+
+		@EditBus.EBHandler(exact = true)
+		public void handleTestMessage(TestMessage msg)
+		{
+			received.add("exact " + msg.getSource());
+			messages.add(msg);
+		}
+
+		@EditBus.EBHandler
+		public void handleMessage(EBMessage msg)
+		{
+			// other tests may still send messages on the bus
+			if(msg instanceof TestMessage)
+				received.add("any " + msg.getSource());
+		}
+	}
+
+	public static class TestMessage extends EBMessage
+	{
+		private final Object key;
+
+		TestMessage(String source, Object key)
+		{
+			super(source);
+			this.key = key;
+		}
+
+		@Override
+		public Object getCoalescingKey()
+		{
+			return key;
+		}
+	}
+
+	public static class SubMessage extends TestMessage
+	{
+		SubMessage(String source)
+		{
+			super(source, null);
+		}
+	}
+}
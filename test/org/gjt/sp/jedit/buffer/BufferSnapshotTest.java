@@ -0,0 +1,106 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.LargeFileMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Segment;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class BufferSnapshotTest
+{
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		buffer = new JEditBuffer(new HashMap<>());
+		buffer.insert(0, "Hello world\nHow are you ?\n\nFine");
+	}
+
+	@Test
+	public void lines()
+	{
+		BufferSnapshot snapshot = buffer.snapshot();
+		assertEquals(buffer.getLength(), snapshot.length());
+		assertEquals(buffer.getLineCount(), snapshot.getLineCount());
+		for (int i = 0; i < buffer.getLineCount(); i++)
+		{
+			assertEquals(buffer.getLineText(i), snapshot.getLineText(i));
+			assertEquals(buffer.getLineStartOffset(i), snapshot.getLineStartOffset(i));
+			assertEquals(buffer.getLineEndOffset(i), snapshot.getLineEndOffset(i));
+		}
+		for (int i = 0; i <= buffer.getLength(); i++)
+			assertEquals(buffer.getLineOfOffset(i), snapshot.getLineOfOffset(i));
+	}
+
+	@Test
+	public void immutable()
+	{
+		BufferSnapshot snapshot = buffer.snapshot();
+		assertSame(snapshot, buffer.snapshot());
+		long version = buffer.getVersion();
+		buffer.insert(0, "Oh\n");
+		buffer.insert(10, "\n");
+		assertTrue(buffer.getVersion() > version);
+		assertEquals(version, snapshot.getVersion());
+		assertEquals("Hello world\nHow are you ?\n\nFine", snapshot.toString());
+		assertEquals(4, snapshot.getLineCount());
+		BufferSnapshot newSnapshot = buffer.snapshot();
+		assertNotSame(snapshot, newSnapshot);
+		assertEquals(buffer.getText(), newSnapshot.toString());
+	}
+
+	@Test
+	public void switchToGapBuffer()
+	{
+		buffer.setLargeFileMode(LargeFileMode.limited);
+		BufferSnapshot snapshot = buffer.snapshot();
+		buffer.setLargeFileMode(LargeFileMode.full);
+		buffer.insert(0, "changed");
+		assertEquals("Hello world\nHow are you ?\n\nFine", snapshot.toString());
+		assertEquals("changedHello world\nHow are you ?\n\nFine", buffer.getText());
+	}
+
+	@Test
+	public void pieces()
+	{
+		PieceTableContentManager contentManager = new PieceTableContentManager();
+		String text = "0123456789";
+		contentManager._setContent(text.toCharArray(), text.length());
+		contentManager.insert(5, "abc");
+		contentManager.remove(1, 2);
+		BufferSnapshot snapshot = new BufferSnapshot(0L, contentManager.getSnapshot(),
+			new int[] { contentManager.getLength() + 1 });
+		contentManager.insert(0, "changed");
+		assertEquals("034abc56789", snapshot.toString());
+		assertEquals('a', snapshot.charAt(3));
+		assertEquals("4abc5", snapshot.subSequence(2, 7).toString());
+		Segment seg = new Segment();
+		snapshot.getText(3, 3, seg);
+		assertEquals("abc", seg.toString());
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.Segment;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FoldHandlerTest
+{
+	private static final String TEXT =
+		"root:\n" +
+		"  child: {{{\n" +
+		"\n" +
+		"    grandchild\n" +
+		"  \n" +
+		"\t\n" +
+		"  sibling }}}\n" +
+		"\tcontinued {{{ {{{\n" +
+		"\n" +
+		"end }}}\n" +
+		"  \n" +
+		"\n";
+
+	@BeforeClass
+	public static void setUpKillRing()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+	}
+
+	@Test
+	public void indentLevels()
+	{
+		assertSameLevels(TEXT, new IndentFoldHandler());
+	}
+
+	@Test
+	public void explicitLevels()
+	{
+		assertSameLevels(TEXT, new ExplicitFoldHandler());
+	}
+
+	@Test
+	public void batchAfterEdit()
+	{
+		JEditBuffer buffer = createBuffer(TEXT, new IndentFoldHandler());
+		buffer.getFoldLevel(buffer.getLineCount() - 1);
+		buffer.remove(buffer.getLineStartOffset(3), 4);
+		buffer.insert(buffer.getLineStartOffset(8), "      deeper\n");
+		// updates the levels of the blank lines before the edit
+		buffer.getFoldLevel(buffer.getLineCount() - 1);
+		assertArrayEquals(getLevels(createBuffer(buffer.getText(),
+			lineByLine(new IndentFoldHandler()))), getLevels(buffer));
+	}
+
+	@Test
+	public void computeAhead() throws Exception
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			text.append(i % 3 == 0 ? "key:\n" : i % 7 == 0 ? "\n" : "  value\n");
+		text.append("    last");
+		JEditBuffer buffer = createBuffer(text.toString(), new IndentFoldHandler());
+		int lastLine = buffer.getLineCount() - 1;
+		CountDownLatch computed = new CountDownLatch(1);
+		buffer.addBufferListener(new BufferAdapter()
+		{
+			@Override
+			public void foldLevelChanged(JEditBuffer buffer, int start, int end)
+			{
+				if (end == lastLine)
+					computed.countDown();
+			}
+		});
+
+		SwingUtilities.invokeAndWait(() -> buffer.getFoldLevel(10));
+		assertTrue(computed.await(30, TimeUnit.SECONDS));
+		int[][] levels = new int[1][];
+		SwingUtilities.invokeAndWait(() -> levels[0] = getLevels(buffer));
+		assertArrayEquals(getLevels(createBuffer(text.toString(),
+			lineByLine(new IndentFoldHandler()))), levels[0]);
+	}
+
+	private static void assertSameLevels(String text, FoldHandler foldHandler)
+	{
+		int[] expected = getLevels(createBuffer(text, lineByLine(foldHandler)));
+		assertArrayEquals(expected, getLevels(createBuffer(text, foldHandler)));
+
+		JEditBuffer buffer = createBuffer(text, foldHandler);
+		int lineCount = buffer.getLineCount();
+		for (int start = 0; start < lineCount; start++)
+		{
+			int[] levels = new int[lineCount - start];
+			int previousLevel = start == 0 ? 0 : expected[start - 1];
+			assertEquals(levels.length, foldHandler.getFoldLevels(buffer,
+				start, previousLevel, levels, levels.length, new Segment()));
+			for (int i = 0; i < levels.length; i++)
+				assertEquals("line " + (start + i), expected[start + i], levels[i]);
+		}
+	}
+
+	private static int[] getLevels(JEditBuffer buffer)
+	{
+		int[] levels = new int[buffer.getLineCount()];
+		for (int i = 0; i < levels.length; i++)
+			levels[i] = buffer.getFoldLevel(i);
+		return levels;
+	}
+
+	private static JEditBuffer createBuffer(String text, FoldHandler foldHandler)
+	{
+		JEditBuffer buffer = new JEditBuffer(new HashMap<>());
+		buffer.setIntegerProperty("tabSize", 4);
+		buffer.insert(0, text);
+		buffer.setFoldHandler(foldHandler);
+		return buffer;
+	}
+
+	/**
+	 * @return a fold handler computing the levels one line at a time
+	 */
+	private static FoldHandler lineByLine(FoldHandler foldHandler)
+	{
+		return new FoldHandler("line-by-line")
+		{
+			@Override
+			public int getFoldLevel(JEditBuffer buffer, int lineIndex, Segment seg)
+			{
+				return foldHandler.getFoldLevel(buffer, lineIndex, seg);
+			}
+		};
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.syntax.TokenMarker;
+import org.gjt.sp.util.IntegerArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LineManagerTest
+{
+	private static final int LINES = 100;
+
+	private LineManager lineManager;
+	private TokenMarker.LineContext context;
+
+	@Before
+	public void setUp()
+	{
+		lineManager = new LineManager();
+		IntegerArray endOffsets = new IntegerArray();
+		for (int i = 0; i < LINES; i++)
+			endOffsets.add(i * 10 + 9);
+		lineManager._contentInserted(endOffsets);
+		context = new TokenMarker.LineContext();
+		for (int i = 0; i < LINES; i++)
+			lineManager.updateLineContext(i, context);
+		assertEquals(-1, lineManager.getFirstInvalidLineContext());
+	}
+
+	@Test
+	public void unchangedContextValidatesFollowingLines()
+	{
+		lineManager.contentInserted(10, 105, 0, 1, new IntegerArray());
+		assertEquals(10, lineManager.getFirstInvalidLineContext());
+		lineManager.updateLineContext(10, context);
+		assertEquals(-1, lineManager.getFirstInvalidLineContext());
+	}
+
+	@Test
+	public void changedContext()
+	{
+		lineManager.contentInserted(10, 105, 0, 1, new IntegerArray());
+		TokenMarker.LineContext other = new TokenMarker.LineContext();
+		lineManager.updateLineContext(10, other);
+		assertEquals(11, lineManager.getFirstInvalidLineContext());
+		lineManager.updateLineContext(11, context);
+		assertEquals(-1, lineManager.getFirstInvalidLineContext());
+	}
+
+	@Test
+	public void insertedLines()
+	{
+		IntegerArray endOffsets = new IntegerArray();
+		endOffsets.add(3);
+		endOffsets.add(6);
+		lineManager.contentInserted(10, 105, 2, 6, endOffsets);
+		assertEquals(LINES + 2, lineManager.getLineCount());
+		// the inserted lines hold copies of other contexts
+		lineManager.updateLineContext(10, context);
+		assertEquals(11, lineManager.getFirstInvalidLineContext());
+		lineManager.updateLineContext(11, context);
+		assertEquals(12, lineManager.getFirstInvalidLineContext());
+		lineManager.updateLineContext(12, context);
+		assertEquals(-1, lineManager.getFirstInvalidLineContext());
+	}
+
+	@Test
+	public void severalEdits()
+	{
+		lineManager.contentInserted(10, 105, 0, 1, new IntegerArray());
+		lineManager.contentRemoved(50, 505, 5, 50);
+		assertEquals(LINES - 5, lineManager.getLineCount());
+		for (int i = 10; i < 50; i++)
+		{
+			lineManager.updateLineContext(i, context);
+			assertEquals(i + 1, lineManager.getFirstInvalidLineContext());
+		}
+		lineManager.updateLineContext(50, context);
+		assertEquals(-1, lineManager.getFirstInvalidLineContext());
+	}
+
+	@Test
+	public void untrustedLines()
+	{
+		lineManager.setFirstInvalidLineContext(0);
+		lineManager.contentInserted(10, 105, 0, 1, new IntegerArray());
+		assertEquals(0, lineManager.getFirstInvalidLineContext());
+		for (int i = 0; i < LINES; i++)
+		{
+			lineManager.updateLineContext(i, context);
+			assertEquals(i + 1 == LINES ? -1 : i + 1, lineManager.getFirstInvalidLineContext());
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Segment;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PieceTableContentManagerTest
+{
+	private PieceTableContentManager contentManager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		contentManager = new PieceTableContentManager();
+	}
+
+	@Test
+	public void setContent()
+	{
+		String input = "Hello world\nHow are you ?";
+		contentManager._setContent(input.toCharArray(), input.length());
+		assertEquals(input.length(), contentManager.getLength());
+		assertEquals(input, contentManager.getText(0, contentManager.getLength()));
+		assertEquals(input, contentManager.getSegment(0, contentManager.getLength()).toString());
+		Segment segment = new Segment();
+		contentManager.getText(0, 11, segment);
+		assertEquals("Hello world", segment.toString());
+		assertEquals(1, contentManager.getPieceCount());
+	}
+
+	@Test
+	public void insertInside()
+	{
+		String input = "Hello world";
+		contentManager._setContent(input.toCharArray(), input.length());
+		contentManager.insert(5, ",");
+		contentManager.insert(6, " dear");
+		assertEquals("Hello, dear world", contentManager.getText(0, contentManager.getLength()));
+		Segment segment = new Segment();
+		contentManager.getText(3, 6, segment);
+		assertEquals("lo, de", segment.toString());
+		CharSequence charSequence = contentManager.getSegment(3, 6);
+		assertEquals(6, charSequence.length());
+		assertEquals("lo, de", charSequence.toString());
+	}
+
+	@Test
+	public void typingExtendsPiece()
+	{
+		contentManager._setContent("abc".toCharArray(), 3);
+		for (int i = 0; i < 100; i++)
+			contentManager.insert(1 + i, "x");
+		assertEquals(3, contentManager.getPieceCount());
+		assertEquals(103, contentManager.getLength());
+	}
+
+	@Test
+	public void remove()
+	{
+		String input = "Hello world\nHow are you ?";
+		contentManager._setContent(input.toCharArray(), input.length());
+		contentManager.remove(5, 6);
+		assertEquals("Hello\nHow are you ?", contentManager.getText(0, contentManager.getLength()));
+		contentManager.remove(0, contentManager.getLength());
+		assertEquals(0, contentManager.getLength());
+		assertEquals("", contentManager.getText(0, 0));
+		assertEquals("", contentManager.getSegment(0, 0).toString());
+	}
+
+	@Test
+	public void randomEdits()
+	{
+		Random random = new Random(42L);
+		StringBuilder expected = new StringBuilder("The quick brown fox\njumps over the lazy dog\n");
+		contentManager._setContent(expected.toString().toCharArray(), expected.length());
+		for (int i = 0; i < 5000; i++)
+		{
+			int offset = random.nextInt(expected.length() + 1);
+			if (random.nextBoolean() || expected.length() == 0)
+			{
+				String str = Integer.toString(i);
+				contentManager.insert(offset, str);
+				expected.insert(offset, str);
+			}
+			else
+			{
+				int len = random.nextInt(Math.min(10, expected.length() - offset) + 1);
+				contentManager.remove(offset, len);
+				expected.delete(offset, offset + len);
+			}
+			if (i % 100 == 0)
+			{
+				int start = random.nextInt(expected.length() + 1);
+				int len = random.nextInt(expected.length() - start + 1);
+				String sub = expected.substring(start, start + len);
+				assertEquals(sub, contentManager.getText(start, len));
+				assertEquals(sub, contentManager.getSegment(start, len).toString());
+				Segment segment = new Segment();
+				contentManager.getText(start, len, segment);
+				assertEquals(sub, segment.toString());
+			}
+		}
+		assertEquals(expected.length(), contentManager.getLength());
+		assertEquals(expected.toString(), contentManager.getText(0, contentManager.getLength()));
+	}
+}
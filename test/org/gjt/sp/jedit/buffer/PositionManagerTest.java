@@ -0,0 +1,128 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Position;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PositionManagerTest
+{
+	private PositionManager positionManager;
+
+	@Before
+	public void setUp()
+	{
+		positionManager = new PositionManager();
+	}
+
+	@Test
+	public void insertMovesPositionsAtAndAfterOffset()
+	{
+		Position before = positionManager.createPosition(4);
+		Position at = positionManager.createPosition(5);
+		Position after = positionManager.createPosition(9);
+		positionManager.contentInserted(5, 3);
+		assertEquals(4, before.getOffset());
+		assertEquals(8, at.getOffset());
+		assertEquals(12, after.getOffset());
+	}
+
+	@Test
+	public void removeMovesRemovedPositionsToOffset()
+	{
+		Position before = positionManager.createPosition(4);
+		Position inside = positionManager.createPosition(6);
+		Position end = positionManager.createPosition(8);
+		Position after = positionManager.createPosition(9);
+		positionManager.contentRemoved(5, 3);
+		assertEquals(4, before.getOffset());
+		assertEquals(5, inside.getOffset());
+		assertEquals(5, end.getOffset());
+		assertEquals(6, after.getOffset());
+	}
+
+	@Test
+	public void positionsAtSameOffsetAreShared()
+	{
+		Position first = positionManager.createPosition(3);
+		Position second = positionManager.createPosition(3);
+		assertEquals(1, positionManager.getPositionCount());
+		positionManager.contentInserted(0, 2);
+		assertEquals(5, first.getOffset());
+		assertEquals(5, second.getOffset());
+	}
+
+	@Test
+	public void randomEditsMatchAbsoluteOffsets()
+	{
+		Random random = new Random(1L);
+		int length = 1000;
+		List<Position> positions = new ArrayList<>();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+		{
+			int operation = random.nextInt(3);
+			if (operation == 0)
+			{
+				int offset = random.nextInt(length + 1);
+				positions.add(positionManager.createPosition(offset));
+				expected.add(offset);
+			}
+			else if (operation == 1)
+			{
+				int offset = random.nextInt(length + 1);
+				int inserted = 1 + random.nextInt(20);
+				positionManager.contentInserted(offset, inserted);
+				length += inserted;
+				for (int j = 0; j < expected.size(); j++)
+				{
+					if (expected.get(j) >= offset)
+						expected.set(j, expected.get(j) + inserted);
+				}
+			}
+			else
+			{
+				int offset = random.nextInt(length);
+				int removed = 1 + random.nextInt(Math.min(20, length - offset));
+				positionManager.contentRemoved(offset, removed);
+				length -= removed;
+				for (int j = 0; j < expected.size(); j++)
+				{
+					int position = expected.get(j);
+					if (position > offset + removed)
+						expected.set(j, position - removed);
+					else if (position > offset)
+						expected.set(j, offset);
+				}
+			}
+		}
+		for (int i = 0; i < positions.size(); i++)
+			assertEquals("position " + i, (int) expected.get(i), positions.get(i).getOffset());
+	}
+}
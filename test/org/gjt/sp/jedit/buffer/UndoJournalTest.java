@@ -0,0 +1,203 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UndoJournalTest
+{
+	/** Random bytes are not compressed. */
+	private static final int RECORD_LENGTH = 64 * 1024;
+	private static final int RECORD_COUNT = 40;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void compactReleasedRecords() throws IOException, InterruptedException
+	{
+		UndoJournal journal = new UndoJournal(folder.getRoot());
+		List<Bytes> data = new ArrayList<>();
+		List<UndoJournal.Record> records = write(journal, data);
+		journal.waitForWriter();
+		long size = journal.getFileSize();
+		assertTrue(size >= (long) RECORD_COUNT * RECORD_LENGTH);
+		for (Bytes bytes : data)
+			assertTrue(bytes.written);
+
+		for (int i = 0; i < 30; i++)
+			journal.release(records.get(i));
+		journal.waitForWriter();
+		assertTrue(journal.getFileSize() < size * 3 / 4);
+		assertEquals(1, journalFiles().length);
+		for (int i = 30; i < RECORD_COUNT; i++)
+			assertArrayEquals(data.get(i).data, read(journal, records.get(i)));
+
+		// written after the compacted records
+		Bytes last = new Bytes(new byte[RECORD_LENGTH]);
+		UndoJournal.Record record = journal.write(last);
+		assertArrayEquals(last.data, read(journal, record));
+		assertArrayEquals(data.get(RECORD_COUNT - 1).data,
+			read(journal, records.get(RECORD_COUNT - 1)));
+		journal.close();
+		journal.waitForWriter();
+		assertEquals(0, journalFiles().length);
+	}
+
+	@Test
+	public void deleteFileWithoutRecords() throws IOException, InterruptedException
+	{
+		UndoJournal journal = new UndoJournal(folder.getRoot());
+		List<UndoJournal.Record> records = write(journal, new ArrayList<>());
+		for (UndoJournal.Record record : records)
+			journal.release(record);
+		journal.waitForWriter();
+		assertEquals(0L, journal.getFileSize());
+		assertEquals(0, journalFiles().length);
+
+		// read before it is written
+		Bytes bytes = new Bytes(new byte[] {1, 2, 3});
+		UndoJournal.Record record = journal.write(bytes);
+		assertArrayEquals(bytes.data, read(journal, record));
+		journal.waitForWriter();
+		assertTrue(bytes.written);
+		assertEquals(1, journalFiles().length);
+		journal.close();
+	}
+
+	@Test
+	public void deleteOrphans() throws IOException, InterruptedException
+	{
+		UndoJournal journal = new UndoJournal(folder.getRoot());
+		journal.write(new Bytes(new byte[] {1, 2, 3}));
+		journal.waitForWriter();
+		File orphan = folder.newFile("undo42.journal");
+		File other = folder.newFile("other.txt");
+		assertEquals(2, journalFiles().length);
+
+		UndoJournal.deleteOrphans(folder.getRoot());
+		assertFalse(orphan.exists());
+		assertTrue(other.exists());
+		// the file of the open journal is locked
+		assertEquals(1, journalFiles().length);
+		journal.close();
+	}
+
+	@Test
+	public void keepRecordsAfterWriteFailure() throws InterruptedException
+	{
+		UndoJournal journal = new UndoJournal(folder.getRoot());
+		UndoJournal.Record failed = journal.write(new Bytes(new byte[0])
+		{
+			@Override
+			public void pack(DataOutputStream out) throws IOException
+			{
+				throw new IOException("disk full");
+			}
+		});
+		Bytes bytes = new Bytes(new byte[] {1, 2, 3});
+		journal.waitForWriter();
+		UndoJournal.Record record = journal.write(bytes);
+		journal.waitForWriter();
+		assertFalse(bytes.written);
+		try
+		{
+			read(journal, record);
+			fail();
+		}
+		catch (IOException e)
+		{
+			// kept by the packer
+		}
+		journal.release(failed);
+		journal.release(record);
+		journal.close();
+	}
+
+	private static List<UndoJournal.Record> write(UndoJournal journal, List<Bytes> data)
+	{
+		Random random = new Random(42);
+		List<UndoJournal.Record> records = new ArrayList<>();
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			byte[] bytes = new byte[RECORD_LENGTH];
+			random.nextBytes(bytes);
+			Bytes packer = new Bytes(bytes);
+			data.add(packer);
+			records.add(journal.write(packer));
+		}
+		return records;
+	}
+
+	private static byte[] read(UndoJournal journal, UndoJournal.Record record)
+		throws IOException
+	{
+		try (DataInputStream in = journal.read(record))
+		{
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			assertEquals(-1, in.read());
+			return data;
+		}
+	}
+
+	private File[] journalFiles()
+	{
+		return folder.getRoot().listFiles((dir, name) -> name.endsWith(".journal"));
+	}
+
+	private static class Bytes implements UndoJournal.Packer
+	{
+		final byte[] data;
+		volatile boolean written;
+
+		Bytes(byte[] data)
+		{
+			this.data = data;
+		}
+
+		@Override
+		public void pack(DataOutputStream out) throws IOException
+		{
+			out.writeInt(data.length);
+			out.write(data);
+		}
+
+		@Override
+		public void written()
+		{
+			written = true;
+		}
+	}
+}
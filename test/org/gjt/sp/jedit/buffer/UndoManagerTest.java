@@ -0,0 +1,288 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.textarea.TextArea;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.text.Position;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class UndoManagerTest
+{
+	private static final int MEMORY_LIMIT = 16000;
+	private static final String PADDING = " abcdefghijklmnopqrstuvwxyz 0123456789";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private JEditBuffer buffer;
+	private TextArea textArea;
+
+	@BeforeClass
+	public static void setUpKillRing()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+	}
+
+	@Before
+	public void setUp()
+	{
+		buffer = new JEditBuffer(new HashMap<>());
+		buffer.setUndoLimit(1000);
+		buffer.undoMgr.setMemoryLimit(MEMORY_LIMIT);
+		buffer.undoMgr.setJournalDirectory(folder.getRoot());
+		textArea = mock(TextArea.class);
+	}
+
+	@After
+	public void tearDown()
+	{
+		buffer.close();
+	}
+
+	@Test
+	public void undoAndRedoPackedEdits() throws InterruptedException
+	{
+		List<String> texts = new ArrayList<>();
+		texts.add(buffer.getText());
+		for (int i = 0; i < 100; i++)
+		{
+			buffer.beginCompoundEdit();
+			buffer.insert(0, "line " + i + PADDING + '\n');
+			buffer.insert(buffer.getLength(), "end " + i + PADDING + '\n');
+			buffer.endCompoundEdit();
+			texts.add(buffer.getText());
+			if (i % 3 == 0)
+			{
+				buffer.remove(0, 3);
+				texts.add(buffer.getText());
+			}
+		}
+		assertTrue(buffer.undoMgr.getMemorySize() <= MEMORY_LIMIT);
+		buffer.undoMgr.waitForJournal();
+		File[] files = folder.getRoot().listFiles();
+		assertNotNull(files);
+		assertEquals(1, files.length);
+
+		for (int i = texts.size() - 2; i >= 0; i--)
+		{
+			buffer.undo(textArea);
+			assertEquals(texts.get(i), buffer.getText());
+		}
+		for (int i = 1; i < texts.size(); i++)
+		{
+			buffer.redo(textArea);
+			assertEquals(texts.get(i), buffer.getText());
+		}
+
+		buffer.close();
+		assertEquals(0, folder.getRoot().listFiles().length);
+	}
+
+	@Test
+	public void releaseDroppedEdits() throws InterruptedException
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			buffer.beginCompoundEdit();
+			buffer.insert(0, "line " + i + PADDING + '\n');
+			buffer.insert(buffer.getLength(), "end " + i + PADDING + '\n');
+			buffer.endCompoundEdit();
+		}
+		buffer.undoMgr.waitForJournal();
+		assertEquals(1, folder.getRoot().listFiles().length);
+
+		for (int i = 0; i < 100; i++)
+			buffer.undo(textArea);
+		assertEquals("", buffer.getText());
+		// the redos are dropped
+		buffer.insert(0, "x");
+		buffer.undoMgr.waitForJournal();
+		assertEquals(0, folder.getRoot().listFiles().length);
+	}
+
+	@Test
+	public void undoPackedReplaceAll() throws InterruptedException
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			text.append("foo bar\n");
+		buffer.insert(0, text.toString());
+		buffer.setDirty(false);
+
+		buffer.beginCompoundEdit();
+		for (int i = 0; i < 1000; i++)
+		{
+			buffer.remove(i * 8, 3);
+			buffer.insert(i * 8, "baz");
+		}
+		buffer.endCompoundEdit();
+		// the replace all is not one of the most recent edits anymore
+		for (int i = 0; i < 20; i++)
+		{
+			buffer.insert(0, "x");
+			buffer.remove(0, 1);
+		}
+		assertTrue(buffer.isDirty());
+		buffer.undoMgr.waitForJournal();
+		assertEquals(1, folder.getRoot().listFiles().length);
+
+		for (int i = 0; i < 41; i++)
+			buffer.undo(textArea);
+		assertEquals(text.toString(), buffer.getText());
+		assertFalse(buffer.isDirty());
+		buffer.redo(textArea);
+		assertTrue(buffer.isDirty());
+		assertTrue(buffer.getText().startsWith("baz bar\nbaz bar\n"));
+	}
+
+	@Test
+	public void keepRecentEdits() throws InterruptedException
+	{
+		StringBuilder text = new StringBuilder();
+		while (text.length() <= MEMORY_LIMIT)
+			text.append(PADDING);
+		buffer.insert(0, text.toString());
+		buffer.undoMgr.waitForJournal();
+		assertTrue(buffer.undoMgr.getMemorySize() > MEMORY_LIMIT);
+		assertEquals(0, folder.getRoot().listFiles().length);
+
+		// packed once it is old enough
+		for (int i = 0; i < 20; i++)
+		{
+			buffer.remove(0, 1);
+			buffer.insert(0, "x");
+		}
+		buffer.undoMgr.waitForJournal();
+		assertTrue(buffer.undoMgr.getMemorySize() <= MEMORY_LIMIT);
+		assertEquals(1, folder.getRoot().listFiles().length);
+
+		for (int i = 0; i < 41; i++)
+			buffer.undo(textArea);
+		assertEquals("", buffer.getText());
+		buffer.redo(textArea);
+		assertEquals(text.toString(), buffer.getText());
+	}
+
+	@Test
+	public void unlimitedMemory()
+	{
+		buffer.undoMgr.setMemoryLimit(Long.MAX_VALUE);
+		for (int i = 0; i < 400; i++)
+			buffer.insert(0, "line " + i + PADDING + '\n');
+		assertTrue(buffer.undoMgr.getMemorySize() > MEMORY_LIMIT);
+		assertEquals(0, folder.getRoot().listFiles().length);
+	}
+
+	@Test
+	public void undoBulkReplace()
+	{
+		buffer.insert(0, "foo bar\nfoo foo\nbaz\n");
+		buffer.setDirty(false);
+		Position bar = buffer.createPosition(4);
+		Position baz = buffer.createPosition(16);
+		int[] events = new int[2];
+		buffer.addBufferListener(new BufferAdapter()
+		{
+			@Override
+			public void contentInserted(JEditBuffer buffer, int startLine, int offset,
+				int numLines, int length)
+			{
+				events[0]++;
+			}
+
+			@Override
+			public void contentRemoved(JEditBuffer buffer, int startLine, int offset,
+				int numLines, int length)
+			{
+				events[1]++;
+			}
+		});
+
+		buffer.replace(new int[] { 0, 8, 12 }, new int[] { 3, 3, 4 },
+			new String[] { "x", "a\nb", "" });
+		assertEquals("x bar\na\nb baz\n", buffer.getText());
+		assertEquals(4, buffer.getLineCount());
+		assertEquals(8, buffer.getLineStartOffset(2));
+		assertEquals(2, bar.getOffset());
+		assertEquals(10, baz.getOffset());
+		assertEquals(1, events[0]);
+		assertEquals(1, events[1]);
+
+		buffer.undo(textArea);
+		assertEquals("foo bar\nfoo foo\nbaz\n", buffer.getText());
+		assertEquals(4, buffer.getLineCount());
+		assertFalse(buffer.isDirty());
+		assertEquals(16, baz.getOffset());
+
+		buffer.redo(textArea);
+		assertEquals("x bar\na\nb baz\n", buffer.getText());
+		assertTrue(buffer.isDirty());
+	}
+
+	@Test
+	public void undoPackedBulkReplace()
+	{
+		StringBuilder text = new StringBuilder();
+		int[] offsets = new int[1000];
+		int[] lengths = new int[1000];
+		String[] replacements = new String[1000];
+		for (int i = 0; i < 1000; i++)
+		{
+			offsets[i] = text.length();
+			lengths[i] = 3;
+			replacements[i] = i % 2 == 0 ? "baz" : "quux";
+			text.append("foo bar\n");
+		}
+		buffer.insert(0, text.toString());
+		buffer.replace(offsets, lengths, replacements);
+		String replaced = buffer.getText();
+		for (int i = 0; i < 100; i++)
+		{
+			buffer.beginCompoundEdit();
+			buffer.insert(0, "line " + i + PADDING + '\n');
+			buffer.insert(buffer.getLength(), "end " + i + PADDING + '\n');
+			buffer.endCompoundEdit();
+		}
+		assertTrue(buffer.undoMgr.getMemorySize() <= MEMORY_LIMIT);
+
+		for (int i = 0; i < 100; i++)
+			buffer.undo(textArea);
+		assertEquals(replaced, buffer.getText());
+		buffer.undo(textArea);
+		assertEquals(text.toString(), buffer.getText());
+		buffer.redo(textArea);
+		assertEquals(replaced, buffer.getText());
+	}
+}
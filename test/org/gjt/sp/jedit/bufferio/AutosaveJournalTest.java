@@ -0,0 +1,155 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bufferio;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.buffer.KillRing;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class AutosaveJournalTest
+{
+	private static final AutosaveJournal.SnapshotWriter WRITER = (snapshot, out) ->
+		out.write(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File original;
+	private File autosaveFile;
+	private JEditBuffer buffer;
+	private AutosaveJournal journal;
+
+	@BeforeClass
+	public static void setUpKillRing()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+	}
+
+	@Before
+	public void setUp() throws IOException
+	{
+		original = folder.newFile("file.txt");
+		Files.write(original.toPath(), "first line\nsecond line\n".getBytes(StandardCharsets.UTF_8));
+		autosaveFile = new File(folder.getRoot(), "#file.txt#");
+		buffer = load(original);
+		journal = new AutosaveJournal();
+		buffer.addBufferListener(journal);
+	}
+
+	@Test
+	public void replayOntoOriginal() throws Exception
+	{
+		buffer.insert(0, "new ");
+		buffer.remove(15, 7);
+		assertFalse(journal.save(buffer, autosaveFile, original, WRITER));
+		buffer.insert(buffer.getLength(), "third line\n");
+		assertFalse(journal.save(buffer, autosaveFile, original, WRITER));
+		assertFalse(autosaveFile.exists());
+
+		AutosaveJournal.Recovery recovery = AutosaveJournal.getRecovery(autosaveFile, original);
+		assertNotNull(recovery);
+		assertEquals(original, recovery.getFile());
+		JEditBuffer recovered = load(recovery.getFile());
+		assertTrue(recovery.replay(recovered));
+		assertEquals(buffer.getText(), recovered.getText());
+	}
+
+	@Test
+	public void replayOntoSnapshot() throws Exception
+	{
+		buffer.insert(0, "untitled ");
+		assertTrue(journal.save(buffer, autosaveFile, null, WRITER));
+		buffer.insert(3, "abc");
+		buffer.remove(0, 1);
+		assertFalse(journal.save(buffer, autosaveFile, null, WRITER));
+
+		AutosaveJournal.Recovery recovery = AutosaveJournal.getRecovery(autosaveFile, null);
+		assertNotNull(recovery);
+		assertEquals(autosaveFile, recovery.getFile());
+		JEditBuffer recovered = load(recovery.getFile());
+		assertTrue(recovery.replay(recovered));
+		assertEquals(buffer.getText(), recovered.getText());
+	}
+
+	@Test
+	public void ignorePartialBatch() throws Exception
+	{
+		buffer.insert(0, "kept ");
+		journal.save(buffer, autosaveFile, original, WRITER);
+		String saved = buffer.getText();
+		try (FileOutputStream out = new FileOutputStream(AutosaveJournal.getFile(autosaveFile), true))
+		{
+			out.write(new byte[] { 0, 0, 0, 1, 0, 0, 1, 0, 42 });
+		}
+
+		AutosaveJournal.Recovery recovery = AutosaveJournal.getRecovery(autosaveFile, original);
+		JEditBuffer recovered = load(recovery.getFile());
+		assertTrue(recovery.replay(recovered));
+		assertEquals(saved, recovered.getText());
+	}
+
+	@Test
+	public void snapshotWhenOriginalChanged() throws Exception
+	{
+		buffer.insert(0, "a");
+		journal.save(buffer, autosaveFile, original, WRITER);
+		Files.write(original.toPath(), "changed on disk\n".getBytes(StandardCharsets.UTF_8));
+		assertNull(AutosaveJournal.getRecovery(autosaveFile, original));
+
+		buffer.insert(0, "b");
+		assertTrue(journal.save(buffer, autosaveFile, original, WRITER));
+		AutosaveJournal.Recovery recovery = AutosaveJournal.getRecovery(autosaveFile, original);
+		assertEquals(autosaveFile, recovery.getFile());
+		assertEquals(buffer.getText(), load(recovery.getFile()).getText());
+	}
+
+	@Test
+	public void deleteWhenSaved() throws Exception
+	{
+		buffer.insert(0, "a");
+		journal.save(buffer, autosaveFile, null, WRITER);
+		journal.delete(autosaveFile, true);
+		assertFalse(autosaveFile.exists());
+		assertFalse(AutosaveJournal.getFile(autosaveFile).exists());
+		assertNull(AutosaveJournal.getRecovery(autosaveFile, original));
+	}
+
+	private static JEditBuffer load(File file) throws IOException
+	{
+		JEditBuffer buffer = new JEditBuffer(new HashMap<>());
+		buffer.insert(0, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		return buffer;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.gui;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.buffer.KillRing;
+import org.gjt.sp.jedit.textarea.TextArea;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class WordIndexTest
+{
+	private JEditBuffer buffer;
+	private WordIndex index;
+
+	@BeforeClass
+	public static void setUpKillRing()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+	}
+
+	@Before
+	public void setUp() throws InterruptedException
+	{
+		buffer = new JEditBuffer(new HashMap<>());
+		buffer.insert(0, "foo bar foo\nfoobar baz\n\nfood_1 f\n");
+		index = new WordIndex(buffer);
+		buffer.addBufferListener(index);
+		index.build();
+		waitForIndex();
+	}
+
+	@Test
+	public void getWords()
+	{
+		Map<String, Integer> words = new HashMap<>();
+		assertTrue(index.getWords("foo", words));
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("foo", 2);
+		expected.put("foobar", 1);
+		expected.put("food", 1);
+		assertEquals(expected, words);
+	}
+
+	@Test
+	public void forEachWord()
+	{
+		StringBuilder words = new StringBuilder();
+		WordIndex.forEachWord("a_b, c.d  e_", "_",
+			(line, start, end) -> words.append(line, start, end).append('|'));
+		assertEquals("a_b|c|d|e_|", words.toString());
+	}
+
+	@Test
+	public void edits()
+	{
+		Random random = new Random(1L);
+		String[] texts = { "foo", " ", "\n", "fob\nfox ", "f", "o" };
+		for (int i = 0; i < 500; i++)
+		{
+			if (random.nextBoolean() || buffer.getLength() == 0)
+			{
+				buffer.insert(random.nextInt(buffer.getLength() + 1),
+					texts[random.nextInt(texts.length)]);
+			}
+			else
+			{
+				int offset = random.nextInt(buffer.getLength());
+				int length = Math.min(random.nextInt(8), buffer.getLength() - offset);
+				buffer.remove(offset, length);
+			}
+		}
+
+		Map<String, Integer> words = new HashMap<>();
+		assertTrue(index.getWords("f", words));
+		assertEquals(countWords("f"), words);
+	}
+
+	@Test
+	public void replaceAndUndo()
+	{
+		buffer.setUndoLimit(100);
+		buffer.remove(0, buffer.getLength());
+		buffer.insert(0, "alpha foo beta\ngamma foo delta\nfoo end\n");
+		buffer.replace(new int[] { 6, 21, 31 }, new int[] { 3, 3, 3 },
+			new String[] { "bar", "b\nar", "" });
+		assertEquals("alpha bar beta\ngamma b\nar delta\n end\n", buffer.getText());
+		assertIndexed();
+
+		TextArea textArea = mock(TextArea.class);
+		buffer.undo(textArea);
+		assertEquals("alpha foo beta\ngamma foo delta\nfoo end\n", buffer.getText());
+		assertIndexed();
+
+		buffer.redo(textArea);
+		assertEquals("alpha bar beta\ngamma b\nar delta\n end\n", buffer.getText());
+		assertIndexed();
+	}
+
+	@Test
+	public void rebuiltAfterLargeEdit() throws InterruptedException
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++)
+			text.append("fig").append(i % 10).append('\n');
+		buffer.insert(0, text.toString());
+		assertFalse(index.isValid());
+		waitForIndex();
+
+		Map<String, Integer> words = new HashMap<>();
+		assertTrue(index.getWords("fig", words));
+		assertEquals(countWords("fig"), words);
+		assertEquals(200, (int) words.get("fig0"));
+	}
+
+	private void assertIndexed()
+	{
+		Map<String, Integer> words = new HashMap<>();
+		assertTrue(index.getWords("", words));
+		assertEquals(countWords(""), words);
+	}
+
+	private Map<String, Integer> countWords(String prefix)
+	{
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < buffer.getLineCount(); i++)
+		{
+			WordIndex.forEachWord(buffer.getLineSegment(i), index.getNoWordSep(),
+				(line, start, end) ->
+				{
+					String word = line.subSequence(start, end).toString();
+					if (word.startsWith(prefix))
+						counts.merge(word, 1, Integer::sum);
+				});
+		}
+		return counts;
+	}
+
+	private void waitForIndex() throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + 10000;
+		while (!index.isValid() && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertTrue(index.isValid());
+	}
+}
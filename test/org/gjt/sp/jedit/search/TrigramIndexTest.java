@@ -0,0 +1,136 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.search;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest
+{
+	@Test
+	public void plainRegexp()
+	{
+		assertEquals(List.of("hello world"), TrigramIndex.getRegexpLiterals("hello world"));
+	}
+
+	@Test
+	public void optionalCharacters()
+	{
+		assertEquals(List.of("colo", "ring"), TrigramIndex.getRegexpLiterals("colou?ring"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("abcd*e"));
+		assertEquals(List.of("abc", "bcde"), TrigramIndex.getRegexpLiterals("abcd{0,2}bcde"));
+	}
+
+	@Test
+	public void repeatedCharacters()
+	{
+		assertEquals(List.of("abc", "cde"), TrigramIndex.getRegexpLiterals("abc+de"));
+		assertEquals(List.of("abc", "cde"), TrigramIndex.getRegexpLiterals("abc{1,3}de"));
+	}
+
+	@Test
+	public void escapes()
+	{
+		assertEquals(List.of("a.b", "foo"), TrigramIndex.getRegexpLiterals("a\\.b\\sfoo"));
+		assertNull(TrigramIndex.getRegexpLiterals("\\Qa|b\\E"));
+	}
+
+	@Test
+	public void escapesWithArgument()
+	{
+		assertEquals(List.of("BCD"), TrigramIndex.getRegexpLiterals("\\u0041BCD"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("\\p{Lu}abc"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("\\pLabc"));
+		assertEquals(List.of("BCD"), TrigramIndex.getRegexpLiterals("\\x41BCD"));
+		assertEquals(List.of("BCD"), TrigramIndex.getRegexpLiterals("\\x{41}BCD"));
+		assertEquals(List.of("BCD"), TrigramIndex.getRegexpLiterals("\\0101BCD"));
+		assertEquals(List.of("xyz"), TrigramIndex.getRegexpLiterals("\\cAxyz"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("(?<n>x)\\k<n>abc"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("(x)\\12abc"));
+		assertEquals(List.of(), TrigramIndex.getRegexpLiterals("[\\c]abc]"));
+	}
+
+	@Test
+	public void escapesFollowedByQuantifier()
+	{
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("\\d{2}abc"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals(".{2,3}abc"));
+		assertEquals(List.of("abc"), TrigramIndex.getRegexpLiterals("\\p{Lu}{2}abc"));
+	}
+
+	@Test
+	public void literalsAreMatched()
+	{
+		String[][] matches = {
+			{ "\\u0041BCD", "ABCD" }, { "\\p{Lu}abc", "Xabc" },
+			{ "\\x41BCD", "ABCD" }, { "\\0101BCD", "ABCD" },
+			{ "\\cAxyz", "\u0001xyz" }, { "(?<n>x)\\k<n>abc", "xxabc" },
+			{ "\\d{2}abc", "12abc" }, { "[\\c]abc]", "b" },
+			{ "[a-z&&[^aeiou]]foo", "xfoo" }, { "[[a-z]]xyz", "axyz" },
+			{ "[]a]xyz", "]xyz" }, { "[^]a]xyz", "bxyz" }
+		};
+		for (String[] match : matches)
+		{
+			assertTrue(match[0], Pattern.compile(match[0]).matcher(match[1]).matches());
+			for (String literal : TrigramIndex.getRegexpLiterals(match[0]))
+				assertTrue(match[0] + " " + literal, match[1].contains(literal));
+		}
+	}
+
+	@Test
+	public void groupsAndClasses()
+	{
+		assertEquals(List.of("foo", "bar"), TrigramIndex.getRegexpLiterals("foo(x|y)bar"));
+		assertEquals(List.of("foo", "bar"), TrigramIndex.getRegexpLiterals("foo[)(|]+bar"));
+		assertEquals(List.of("bar"), TrigramIndex.getRegexpLiterals("(foo)?bar.*"));
+	}
+
+	@Test
+	public void nestedClasses()
+	{
+		assertEquals(List.of("foo"), TrigramIndex.getRegexpLiterals("[a-z&&[^aeiou]]foo"));
+		assertEquals(List.of("xyz"), TrigramIndex.getRegexpLiterals("[[a-z]]xyz"));
+		assertEquals(List.of("xyz"), TrigramIndex.getRegexpLiterals("[a[\\]]]xyz"));
+		assertEquals(List.of("xyz"), TrigramIndex.getRegexpLiterals("[]a]xyz"));
+		assertEquals(List.of("xyz"), TrigramIndex.getRegexpLiterals("[^]a]xyz"));
+	}
+
+	@Test
+	public void alternatives()
+	{
+		assertNull(TrigramIndex.getRegexpLiterals("foo|bar"));
+		assertNull(TrigramIndex.getRegexpLiterals("(?x) foo # comment"));
+	}
+
+	@Test
+	public void caseFolding()
+	{
+		assertEquals(TrigramIndex.trigram('a', 'B', 'c'), TrigramIndex.trigram('A', 'b', 'C'));
+		assertArrayEquals(TrigramIndex.getTrigrams(List.of("abcd")),
+			TrigramIndex.getTrigrams(List.of("ABCD")));
+		assertEquals(0, TrigramIndex.getTrigrams(List.of("ab")).length);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+import org.junit.Test;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GlyphCacheTest
+{
+	private static final Font PLAIN = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final Font BOLD = new Font(Font.MONOSPACED, Font.BOLD, 12);
+	private static final FontRenderContext CONTEXT = new FontRenderContext(null, false, false);
+
+	@Test
+	public void findsTextInsideLine()
+	{
+		GlyphCache<String> cache = new GlyphCache<>(1 << 20);
+		char[] line = "int foo = bar;".toCharArray();
+		assertNull(cache.get(line, 4, 3, PLAIN, CONTEXT));
+		GlyphCache.Entry<String> entry = cache.put("foo".toCharArray(), PLAIN, CONTEXT, "glyphs", 100);
+
+		assertSame(entry, cache.get(line, 4, 3, PLAIN, CONTEXT));
+		assertSame(entry, cache.get("foo".toCharArray(), 0, 3, PLAIN, CONTEXT));
+		assertEquals("glyphs", entry.getValue());
+		assertNull(cache.get(line, 10, 3, PLAIN, CONTEXT));
+		assertNull(cache.get(line, 4, 3, BOLD, CONTEXT));
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void keepsEntryAddedFirst()
+	{
+		GlyphCache<String> cache = new GlyphCache<>(1 << 20);
+		GlyphCache.Entry<String> first = cache.put("foo".toCharArray(), PLAIN, CONTEXT, "first", 100);
+		assertSame(first, cache.put("foo".toCharArray(), PLAIN, CONTEXT, "second", 100));
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedOverBudget()
+	{
+		long entrySize = GlyphCache.ENTRY_SIZE + 2 + 100;
+		GlyphCache<String> cache = new GlyphCache<>(3 * entrySize);
+		cache.put("a".toCharArray(), PLAIN, CONTEXT, "a", 100);
+		cache.put("b".toCharArray(), PLAIN, CONTEXT, "b", 100);
+		cache.put("c".toCharArray(), BOLD, CONTEXT, "c", 100);
+		assertEquals(3 * entrySize, cache.getSize());
+		assertEquals(2, cache.getFontCount());
+
+		// "a" is used again, so "b" is the least recently used one
+		assertNotNull(cache.get("a".toCharArray(), 0, 1, PLAIN, CONTEXT));
+		cache.put("d".toCharArray(), BOLD, CONTEXT, "d", 100);
+		assertNull(cache.get("b".toCharArray(), 0, 1, PLAIN, CONTEXT));
+		assertNotNull(cache.get("a".toCharArray(), 0, 1, PLAIN, CONTEXT));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(3 * entrySize, cache.getSize());
+
+		// the sub-cache of a font goes away with its last entry
+		assertNotNull(cache.get("c".toCharArray(), 0, 1, BOLD, CONTEXT));
+		assertNotNull(cache.get("d".toCharArray(), 0, 1, BOLD, CONTEXT));
+		cache.put("e".toCharArray(), BOLD, CONTEXT, "e", 100);
+		assertNull(cache.get("a".toCharArray(), 0, 1, PLAIN, CONTEXT));
+		assertEquals(1, cache.getFontCount());
+		assertEquals(3, cache.getEntryCount());
+	}
+}
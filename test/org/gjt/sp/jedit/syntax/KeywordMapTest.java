@@ -0,0 +1,130 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+import org.junit.Test;
+
+import javax.swing.text.Segment;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeywordMapTest
+{
+	@Test
+	public void lookup()
+	{
+		KeywordMap map = new KeywordMap(false);
+		map.add("public", Token.KEYWORD1);
+		map.add("int", Token.KEYWORD3);
+		map.add("null", Token.LITERAL2);
+		assertEquals(Token.KEYWORD1, lookup(map, "public"));
+		assertEquals(Token.KEYWORD3, lookup(map, "int"));
+		assertEquals(Token.LITERAL2, lookup(map, "null"));
+		assertEquals(Token.NULL, lookup(map, "Public"));
+		assertEquals(Token.NULL, lookup(map, "in"));
+		assertEquals(Token.NULL, lookup(map, "ints"));
+		assertEquals(Token.NULL, lookup(map, "nul"));
+		assertEquals(Token.NULL, lookup(map, "lnul"));
+	}
+
+	@Test
+	public void lookupInText()
+	{
+		KeywordMap map = new KeywordMap(false);
+		map.add("int", Token.KEYWORD3);
+		Segment text = new Segment("xx int i;".toCharArray(), 2, 7);
+		assertEquals(Token.KEYWORD3, map.lookup(text, 3, 3));
+		assertEquals(Token.NULL, map.lookup(text, 3, 2));
+		// past the end of the segment
+		text.count = 3;
+		assertEquals(Token.NULL, map.lookup(text, 3, 3));
+	}
+
+	@Test
+	public void lookupIgnoreCase()
+	{
+		KeywordMap map = new KeywordMap(true);
+		map.add("SELECT", Token.KEYWORD1);
+		map.add("from", Token.KEYWORD1);
+		assertEquals(Token.KEYWORD1, lookup(map, "select"));
+		assertEquals(Token.KEYWORD1, lookup(map, "SeLeCt"));
+		assertEquals(Token.KEYWORD1, lookup(map, "FROM"));
+		assertEquals(Token.NULL, lookup(map, "where"));
+	}
+
+	@Test
+	public void lookupEmpty()
+	{
+		KeywordMap map = new KeywordMap(false);
+		assertEquals(Token.NULL, lookup(map, "int"));
+		assertEquals(Token.NULL, lookup(map, ""));
+	}
+
+	@Test
+	public void lookupManyKeywords()
+	{
+		KeywordMap map = new KeywordMap(true);
+		for (int i = 0; i < 10000; i++)
+			map.add("keyword" + i, (byte) (1 + i % 10));
+		for (int i = 0; i < 10000; i++)
+		{
+			assertEquals((byte) (1 + i % 10), lookup(map, "KEYWORD" + i));
+			assertEquals(Token.NULL, lookup(map, "keyword" + i + 'x'));
+		}
+	}
+
+	@Test
+	public void addAfterLookup()
+	{
+		KeywordMap map = new KeywordMap(false);
+		map.add("int", Token.KEYWORD3);
+		assertEquals(Token.NULL, lookup(map, "long"));
+		map.add("long", Token.KEYWORD3);
+		assertEquals(Token.KEYWORD3, lookup(map, "long"));
+		assertEquals(Token.KEYWORD3, lookup(map, "int"));
+	}
+
+	@Test
+	public void addSameKeyword()
+	{
+		KeywordMap map = new KeywordMap(true);
+		map.add("abc", Token.KEYWORD1);
+		map.add("ABC", Token.KEYWORD2);
+		assertEquals(Token.KEYWORD2, lookup(map, "abc"));
+	}
+
+	@Test
+	public void setIgnoreCase()
+	{
+		KeywordMap map = new KeywordMap(false);
+		map.add("abc", Token.KEYWORD1);
+		assertEquals(Token.NULL, lookup(map, "ABC"));
+		map.setIgnoreCase(true);
+		assertEquals(Token.KEYWORD1, lookup(map, "ABC"));
+	}
+
+	private static byte lookup(KeywordMap map, String word)
+	{
+		Segment text = new Segment(word.toCharArray(), 0, word.length());
+		return map.lookup(text, 0, word.length());
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModeCacheTest
+{
+	private static final String GRAMMAR = "<?xml version=\"1.0\"?>\n"
+		+ "<MODE><RULES IGNORE_CASE=\"TRUE\">\n"
+		+ "<SPAN TYPE=\"COMMENT1\"><BEGIN>/*</BEGIN><END>*/</END></SPAN>\n"
+		+ "<KEYWORDS><KEYWORD1>&lt;é&amp;</KEYWORD1><KEYWORD1>if</KEYWORD1></KEYWORDS>\n"
+		+ "</RULES></MODE>\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replaysRecordedContent() throws Exception
+	{
+		byte[] grammar = GRAMMAR.getBytes(StandardCharsets.UTF_8);
+		ModeCache cache = new ModeCache(folder.getRoot());
+		Events parsed = new Events();
+		assertFalse(cache.replay(grammar, parsed));
+
+		ModeCache.Recorder recorder = cache.record(parsed);
+		XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+		parser.setContentHandler(recorder);
+		parser.parse(new InputSource(new ByteArrayInputStream(grammar)));
+		cache.save(grammar, recorder);
+
+		Events replayed = new Events();
+		assertTrue(new ModeCache(folder.getRoot()).replay(grammar, replayed));
+		assertEquals(parsed.toString(), replayed.toString());
+		assertTrue(replayed.toString().contains("[<é&]"));
+
+		byte[] changed = GRAMMAR.replace("if", "else").getBytes(StandardCharsets.UTF_8);
+		assertFalse(cache.replay(changed, new Events()));
+	}
+
+	/**
+	 * Writes the events in a string, the texts of an element being joined.
+	 */
+	private static class Events extends DefaultHandler
+	{
+		private final StringBuilder events = new StringBuilder();
+		private final StringBuilder text = new StringBuilder();
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attrs)
+		{
+			flush();
+			events.append('<').append(qName);
+			for (int i = 0; i < attrs.getLength(); i++)
+				events.append(' ').append(attrs.getQName(i)).append('=').append(attrs.getValue(i));
+			events.append('>');
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName)
+		{
+			flush();
+			events.append("</").append(qName).append('>');
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length)
+		{
+			text.append(ch, start, length);
+		}
+
+		private void flush()
+		{
+			if (text.length() != 0)
+				events.append('[').append(text).append(']');
+			text.setLength(0);
+		}
+
+		@Override
+		public String toString()
+		{
+			return events.toString();
+		}
+	}
+}
@@ -0,0 +1,383 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.util.Log;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.swing.text.Segment;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tokenizes a sample text and the mode file itself with every bundled mode,
+ * and compares a digest of the tokens and line contexts with the one
+ * recorded in TokenMarkerGoldenTest.tokens.<p>
+ *
+ * The mode files are parsed once, with xmode.dtd from the source tree since
+ * it is only in the jEdit jar and not in the classes the tests run with.
+ * The modes are then loaded from the parsed content, in the catalog order.
+ * A delegate to another mode loads it from its parsed content too, and
+ * never parses a file while another one is being parsed.<p>
+ *
+ * If a mode is changed on purpose, the digests are recorded again by
+ * running the main method of this class from the jEdit directory.
+ */
+public class TokenMarkerGoldenTest
+{
+	private static final File DIRECTORY = new File("test/org/gjt/sp/jedit/syntax");
+	private static final File GOLDEN = new File(DIRECTORY, "TokenMarkerGoldenTest.tokens");
+	private static final File MODES = new File("modes");
+	private static final File DTD = new File("org/gjt/sp/jedit/syntax/xmode.dtd");
+
+	private static final Map<String, String> modeFiles = new LinkedHashMap<>();
+	/** The SAX events of each mode file. */
+	private static final Map<String, List<Object>> grammars = new HashMap<>();
+
+	@BeforeClass
+	public static void loadModes() throws Exception
+	{
+		if (!modeFiles.isEmpty())
+			return;
+		DefaultHandler handler = new DefaultHandler()
+		{
+			@Override
+			public InputSource resolveEntity(String publicId, String systemId)
+			{
+				return new InputSource(new StringReader(""));
+			}
+
+			@Override
+			public void startElement(String uri, String localName, String qName,
+				Attributes attrs)
+			{
+				if (!"MODE".equals(qName))
+					return;
+				GoldenMode mode = new GoldenMode(attrs.getValue("NAME"));
+				String file = new File(MODES, attrs.getValue("FILE")).getPath();
+				mode.setProperty("file", file);
+				ModeProvider.instance.addMode(mode);
+				modeFiles.put(mode.getName(), file);
+			}
+		};
+		SAXParserFactory.newInstance().newSAXParser().parse(new File(MODES, "catalog"), handler);
+
+		for (Map.Entry<String, String> entry : modeFiles.entrySet())
+		{
+			Recorder recorder = new Recorder();
+			try
+			{
+				SAXParserFactory.newInstance().newSAXParser().parse(
+					new File(entry.getValue()), recorder);
+			}
+			catch (SAXException | IOException e)
+			{
+				Log.log(Log.ERROR, TokenMarkerGoldenTest.class, entry.getValue() + ": " + e);
+				continue;
+			}
+			grammars.put(entry.getKey(), recorder.events);
+		}
+	}
+
+	@Test
+	public void allModes() throws IOException
+	{
+		Map<String, String> expected = new LinkedHashMap<>();
+		for (String line : Files.readAllLines(GOLDEN.toPath(), StandardCharsets.UTF_8))
+		{
+			// some mode names have spaces
+			int space = line.lastIndexOf(' ');
+			expected.put(line.substring(0, space), line.substring(space + 1));
+		}
+
+		List<String> failures = new ArrayList<>();
+		Map<String, String> digests = getDigests();
+		for (Map.Entry<String, String> entry : digests.entrySet())
+		{
+			String digest = expected.get(entry.getKey());
+			if (digest != null && !digest.equals(entry.getValue()))
+				failures.add(entry.getKey());
+		}
+		assertTrue("Tokens changed for modes " + failures, failures.isEmpty());
+		assertTrue("Not all modes were checked", digests.keySet().containsAll(expected.keySet()));
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		loadModes();
+		try (PrintWriter out = new PrintWriter(GOLDEN, "UTF-8"))
+		{
+			for (Map.Entry<String, String> entry : getDigests().entrySet())
+				out.println(entry.getKey() + ' ' + entry.getValue());
+		}
+	}
+
+	private static Map<String, String> getDigests() throws IOException
+	{
+		String sample = read(new File(DIRECTORY, "TokenMarkerGoldenTest.txt"));
+		Map<String, String> digests = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : modeFiles.entrySet())
+		{
+			TokenMarker tokenMarker = ModeProvider.instance.getMode(entry.getKey()).getTokenMarker();
+			if (tokenMarker == null)
+				continue;
+			String text = sample + read(new File(entry.getValue()));
+			digests.put(entry.getKey(), Long.toHexString(digest(tokenMarker, text)));
+		}
+		return digests;
+	}
+
+	/**
+	 * Loads a mode like ModeProvider.loadMode(), from the parsed content
+	 * of its file.
+	 */
+	private static void load(GoldenMode mode) throws SAXException
+	{
+		XModeHandler xmh = new XModeHandler(mode.getName())
+		{
+			@Override
+			protected void error(String msg, Object subst)
+			{
+				Log.log(Log.ERROR, this, msg + ": " + subst);
+			}
+
+			@Override
+			protected TokenMarker getTokenMarker(String modeName)
+			{
+				Mode delegate = ModeProvider.instance.getMode(modeName);
+				return delegate == null ? null : delegate.getTokenMarker();
+			}
+		};
+		mode.setTokenMarker(xmh.getTokenMarker());
+		List<Object> events = grammars.get(mode.getName());
+		if (events == null)
+			return;
+		replay(events, xmh);
+		mode.setProperties(xmh.getModeProperties());
+	}
+
+	private static void replay(List<Object> events, ContentHandler handler) throws SAXException
+	{
+		handler.startDocument();
+		for (Object event : events)
+		{
+			if (event instanceof StartElement)
+			{
+				StartElement start = (StartElement) event;
+				handler.startElement("", start.name, start.name, start.attributes);
+			}
+			else if (event instanceof String)
+			{
+				String name = (String) event;
+				handler.endElement("", name, name);
+			}
+			else
+			{
+				char[] text = (char[]) event;
+				handler.characters(text, 0, text.length);
+			}
+		}
+		handler.endDocument();
+	}
+
+	private static long digest(TokenMarker tokenMarker, String text)
+	{
+		DigestTokenHandler handler = new DigestTokenHandler();
+		char[] chars = text.toCharArray();
+		Segment segment = new Segment(chars, 0, 0);
+		TokenMarker.LineContext context = null;
+		// the contexts are interned in a weak map, they are kept like
+		// in a buffer so that the tokens do not depend on the GC
+		List<TokenMarker.LineContext> contexts = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < chars.length; i++)
+		{
+			if (chars[i] != '\n')
+				continue;
+			segment.offset = start;
+			segment.count = i - start;
+			context = tokenMarker.markTokens(context, handler, segment);
+			contexts.add(context);
+			start = i + 1;
+		}
+		return handler.digest;
+	}
+
+	private static String read(File file) throws IOException
+	{
+		String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+			.replace("\r", "");
+		return text.endsWith("\n") ? text : text + '\n';
+	}
+
+	/**
+	 * A mode loaded from the parsed content of its file. XModeHandler
+	 * loads again the modes a mode delegates to, they are then loaded
+	 * the same way.
+	 */
+	private static class GoldenMode extends Mode
+	{
+		private TokenMarker marker;
+
+		GoldenMode(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		public TokenMarker getTokenMarker()
+		{
+			loadIfNecessary();
+			return marker;
+		}
+
+		@Override
+		public void setTokenMarker(TokenMarker marker)
+		{
+			super.setTokenMarker(marker);
+			this.marker = marker;
+		}
+
+		@Override
+		public void loadIfNecessary()
+		{
+			if (marker != null)
+				return;
+			try
+			{
+				load(this);
+			}
+			catch (SAXException e)
+			{
+				Log.log(Log.ERROR, this, e);
+			}
+		}
+	}
+
+	/**
+	 * Records the elements and texts of a mode file. The end of an element
+	 * is recorded as its name, and a text as a char array.
+	 */
+	private static class Recorder extends DefaultHandler
+	{
+		final List<Object> events = new ArrayList<>();
+
+		@Override
+		public InputSource resolveEntity(String publicId, String systemId) throws IOException
+		{
+			// a new stream each time, the parser closes it
+			InputSource source = new InputSource(new FileInputStream(DTD));
+			source.setSystemId(DTD.toURI().toString());
+			return source;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attrs)
+		{
+			events.add(new StartElement(qName, new AttributesImpl(attrs)));
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName)
+		{
+			events.add(qName);
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length)
+		{
+			char[] text = new char[length];
+			System.arraycopy(ch, start, text, 0, length);
+			events.add(text);
+		}
+	}
+
+	private static class StartElement
+	{
+		final String name;
+		final Attributes attributes;
+
+		StartElement(String name, Attributes attributes)
+		{
+			this.name = name;
+			this.attributes = attributes;
+		}
+	}
+
+	private static class DigestTokenHandler implements TokenHandler
+	{
+		long digest = 0xcbf29ce484222325L;
+
+		@Override
+		public void handleToken(Segment seg, byte id, int offset, int length,
+			TokenMarker.LineContext context)
+		{
+			add(id);
+			add(offset);
+			add(length);
+		}
+
+		@Override
+		public void setLineContext(TokenMarker.LineContext lineContext)
+		{
+			for (TokenMarker.LineContext context = lineContext; context != null;
+				context = context.parent)
+			{
+				add(context.rules.getName().hashCode());
+				ParserRule rule = context.inRule;
+				if (rule != null)
+				{
+					add(rule.action);
+					add(rule.token);
+					if (rule.start != null)
+						add(new String(rule.start).hashCode());
+				}
+			}
+		}
+
+		private void add(int value)
+		{
+			digest = (digest ^ value) * 0x100000001b3L;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.buffer.KillRing;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ColumnBlockManagerTest
+{
+	private static final ColumnBlockManager.Measurer MEASURER = text -> text.count;
+
+	private JEditBuffer buffer;
+
+	@BeforeClass
+	public static void setUpKillRing()
+	{
+		KillRing.getInstance().propertiesChanged(100);
+	}
+
+	@Before
+	public void setUp()
+	{
+		buffer = new JEditBuffer(new HashMap<>());
+		buffer.insert(0, "a\tbb\tc\n" +
+			"aaa\tb\n" +
+			"no tabs\n" +
+			"x\ty\tz\tw\n" +
+			"xx\tyyyy\tz\n");
+		buffer.indentUsingElasticTabstops();
+		buffer.setElasticTabstopsOn(true);
+	}
+
+	@Test
+	public void blocks()
+	{
+		ColumnBlockManager manager = buffer.getColumnBlockManager();
+		assertEquals(3, manager.getColumnCount());
+		assertBlocks(manager.getColumnBlocks(0), 0, 1, 3, 4);
+		assertBlocks(manager.getColumnBlocks(1), 0, 0, 3, 4);
+		assertBlocks(manager.getColumnBlocks(2), 3, 3);
+		assertEquals(1, manager.getColumnBlock(4, 1).getColumn());
+		assertNull(manager.getColumnBlock(2, 0));
+	}
+
+	@Test
+	public void tabWidths()
+	{
+		ColumnBlockManager manager = buffer.getColumnBlockManager();
+		assertEquals(2, manager.getTabWidth(0, 1, MEASURER), 0);
+		assertEquals(0, manager.getTabWidth(1, 3, MEASURER), 0);
+		assertEquals(3, manager.getTabWidth(3, 3, MEASURER), 0);
+		assertEquals(-1, manager.getTabWidth(0, 0, MEASURER), 0);
+	}
+
+	@Test
+	public void typingInCell()
+	{
+		ColumnBlockManager manager = buffer.getColumnBlockManager();
+		manager.getTabWidth(3, 1, MEASURER);
+
+		// not wider than the widest cell
+		buffer.insert(buffer.getLineStartOffset(3), "x");
+		assertEquals(3, manager.getChangedStartLine());
+		assertEquals(3, manager.getChangedEndLine());
+		assertEquals(0, manager.getTabWidth(3, 2, MEASURER), 0);
+		assertEquals(0, manager.getTabWidth(4, 2, MEASURER), 0);
+
+		// wider: the whole block moves
+		buffer.insert(buffer.getLineStartOffset(3), "x");
+		assertEquals(3, manager.getChangedStartLine());
+		assertEquals(4, manager.getChangedEndLine());
+		assertEquals(1, manager.getTabWidth(4, 2, MEASURER), 0);
+		assertSameAsNew();
+	}
+
+	@Test
+	public void splitAndJoin()
+	{
+		buffer.insert(buffer.getLineStartOffset(1), "\n");
+		assertSameAsNew();
+		buffer.remove(buffer.getLineStartOffset(1), 1);
+		assertSameAsNew();
+		buffer.remove(buffer.getLineStartOffset(2), buffer.getLineLength(2) + 1);
+		assertSameAsNew();
+		buffer.insert(0, "\t\t\t\t\n");
+		assertSameAsNew();
+	}
+
+	@Test
+	public void randomEdits()
+	{
+		Random random = new Random(42);
+		String chars = "\t\tab\n";
+		for(int i = 0; i < 500; i++)
+		{
+			// measure some tabs so that the widths are kept
+			ColumnBlockManager manager = buffer.getColumnBlockManager();
+			int line = random.nextInt(buffer.getLineCount());
+			String text = buffer.getLineText(line);
+			for(int j = 0; j < text.length(); j++)
+			{
+				if(text.charAt(j) == '\t')
+					manager.getTabWidth(line, j, MEASURER);
+			}
+
+			int offset = random.nextInt(buffer.getLength() + 1);
+			if(random.nextBoolean() && offset < buffer.getLength())
+			{
+				int length = Math.min(1 + random.nextInt(6), buffer.getLength() - offset);
+				buffer.remove(offset, length);
+			}
+			else
+			{
+				StringBuilder insert = new StringBuilder();
+				for(int j = random.nextInt(5); j >= 0; j--)
+					insert.append(chars.charAt(random.nextInt(chars.length())));
+				buffer.insert(offset, insert.toString());
+			}
+			assertSameAsNew();
+		}
+	}
+
+	private void assertSameAsNew()
+	{
+		ColumnBlockManager manager = buffer.getColumnBlockManager();
+		ColumnBlockManager expected = new ColumnBlockManager(buffer);
+		assertEquals(expected.getColumnCount(), manager.getColumnCount());
+		for(int column = 0; column < expected.getColumnCount(); column++)
+		{
+			assertEquals(expected.getColumnBlocks(column).toString(),
+				toLines(manager.getColumnBlocks(column)), toLines(expected.getColumnBlocks(column)));
+		}
+		for(int line = 0; line < buffer.getLineCount(); line++)
+		{
+			String text = buffer.getLineText(line);
+			for(int j = 0; j < text.length(); j++)
+			{
+				if(text.charAt(j) == '\t')
+				{
+					assertEquals(expected.getTabWidth(line, j, MEASURER),
+						manager.getTabWidth(line, j, MEASURER), 0);
+				}
+			}
+		}
+	}
+
+	private static String toLines(List<ColumnBlock> blocks)
+	{
+		StringBuilder buf = new StringBuilder();
+		for(ColumnBlock block : blocks)
+			buf.append(block.getStartLine()).append('-').append(block.getEndLine()).append(' ');
+		return buf.toString();
+	}
+
+	private static void assertBlocks(List<ColumnBlock> blocks, int... lines)
+	{
+		assertEquals(lines.length / 2, blocks.size());
+		for(int i = 0; i < blocks.size(); i++)
+		{
+			assertEquals(lines[2 * i], blocks.get(i).getStartLine());
+			assertEquals(lines[2 * i + 1], blocks.get(i).getEndLine());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogBufferTest
+{
+	@Test
+	public void keepsOrder()
+	{
+		LogBuffer buffer = new LogBuffer(8);
+		List<Object> messages = new ArrayList<>();
+		for (int round = 0; round < 3; round++)
+		{
+			for (int i = 0; i < 5; i++)
+				assertTrue(buffer.offer(Log.NOTICE, null, "main", 0L, round + "-" + i));
+			assertEquals(5, buffer.drain((urgency, source, thread, time, message) ->
+				messages.add(message), 100));
+		}
+		assertEquals(15, messages.size());
+		assertEquals("0-0", messages.get(0));
+		assertEquals("2-4", messages.get(14));
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void dropsWhenFull()
+	{
+		LogBuffer buffer = new LogBuffer(8);
+		// the last quarter is kept for warnings and errors
+		for (int i = 0; i < 6; i++)
+			assertTrue(buffer.offer(Log.DEBUG, null, "main", 0L, "debug"));
+		assertFalse(buffer.offer(Log.DEBUG, null, "main", 0L, "debug"));
+		assertTrue(buffer.offer(Log.ERROR, null, "main", 0L, "error"));
+		assertTrue(buffer.offer(Log.ERROR, null, "main", 0L, "error"));
+		assertFalse(buffer.offer(Log.ERROR, null, "main", 0L, "error"));
+		assertEquals(2L, buffer.getDropped());
+		assertEquals(3, buffer.drain((urgency, source, thread, time, message) -> {}, 3));
+		assertTrue(buffer.offer(Log.DEBUG, null, "main", 0L, "debug"));
+	}
+
+	@Test
+	public void concurrentWriters() throws InterruptedException
+	{
+		LogBuffer buffer = new LogBuffer(1024);
+		int threads = 4;
+		int perThread = 20000;
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++)
+		{
+			int id = t;
+			new Thread(() ->
+			{
+				for (int i = 0; i < perThread; i++)
+					buffer.offer(Log.ERROR, null, "t" + id, i, null);
+				done.countDown();
+			}).start();
+		}
+		long[] last = new long[threads];
+		java.util.Arrays.fill(last, -1L);
+		long[] received = new long[1];
+		LogBuffer.RecordHandler handler = (urgency, source, thread, time, message) ->
+		{
+			int id = thread.charAt(1) - '0';
+			// the records of a thread are taken in order
+			assertTrue(time > last[id]);
+			last[id] = time;
+			received[0]++;
+		};
+		while (done.getCount() > 0)
+			buffer.drain(handler, 100);
+		buffer.drain(handler, Integer.MAX_VALUE);
+		assertEquals((long) threads * perThread, received[0] + buffer.getDropped());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSchedulerTest
+{
+	@Test
+	public void limitsRunningTasks() throws InterruptedException
+	{
+		TaskScheduler scheduler = new TaskScheduler(Executors.defaultThreadFactory());
+		scheduler.setLimit(Task.Priority.CPU, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++)
+			scheduler.execute(new TestTask(Task.Priority.CPU, release, done, null));
+
+		waitUntil(() -> scheduler.getRunningCount(Task.Priority.CPU) == 1);
+		assertEquals(2, scheduler.getWaitingCount(Task.Priority.CPU));
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		waitUntil(() -> scheduler.getRunningCount(Task.Priority.CPU) == 0);
+		assertEquals(0, scheduler.getWaitingCount(Task.Priority.CPU));
+	}
+
+	@Test
+	public void startsHigherPrioritiesFirst() throws InterruptedException
+	{
+		TaskScheduler scheduler = new TaskScheduler(Executors.defaultThreadFactory());
+		for (Task.Priority priority : Task.Priority.values())
+			scheduler.setLimit(priority, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(5);
+		List<Task.Priority> started = new CopyOnWriteArrayList<>();
+		// keeps the only CPU slot until released
+		scheduler.execute(new TestTask(Task.Priority.CPU, release, done, started));
+		waitUntil(() -> scheduler.getRunningCount(Task.Priority.CPU) == 1);
+		scheduler.execute(new TestTask(Task.Priority.CPU, null, done, started));
+		scheduler.execute(new TestTask(Task.Priority.CPU, null, done, started));
+		scheduler.execute(new TestTask(Task.Priority.IDLE, null, done, started));
+		// the idle task waits for the CPU tasks
+		assertEquals(1, scheduler.getWaitingCount(Task.Priority.IDLE));
+		scheduler.execute(new TestTask(Task.Priority.INTERACTIVE_IO, null, done, started));
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		// the idle task may start with the last CPU task, which
+		// no longer waits
+		assertTrue(started.indexOf(Task.Priority.IDLE) >= 3);
+	}
+
+	@Test
+	public void nestedTasksAreNotLimited() throws InterruptedException
+	{
+		TaskScheduler scheduler = new TaskScheduler(Executors.defaultThreadFactory());
+		scheduler.setLimit(Task.Priority.BACKGROUND_IO, 1);
+		CountDownLatch done = new CountDownLatch(1);
+		Task parent = new Task()
+		{
+			@Override
+			public void _run()
+			{
+				CountDownLatch child = new CountDownLatch(1);
+				scheduler.execute(new TestTask(Task.Priority.BACKGROUND_IO, null, child, null));
+				try
+				{
+					if (child.await(10, TimeUnit.SECONDS))
+						done.countDown();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		parent.setPriority(Task.Priority.BACKGROUND_IO);
+		scheduler.execute(parent);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	private static void waitUntil(java.util.function.BooleanSupplier condition)
+		throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + 10000L;
+		while (!condition.getAsBoolean())
+		{
+			assertTrue("Timeout", System.currentTimeMillis() < end);
+			Thread.sleep(10L);
+		}
+	}
+
+	private static class TestTask extends Task
+	{
+		private final CountDownLatch release;
+		private final CountDownLatch done;
+		private final List<Priority> started;
+
+		TestTask(Priority priority, CountDownLatch release, CountDownLatch done,
+			List<Priority> started)
+		{
+			setPriority(priority);
+			this.release = release;
+			this.done = done;
+			this.started = started;
+		}
+
+		@Override
+		public void _run()
+		{
+			if (started != null)
+				started.add(getPriority());
+			try
+			{
+				if (release != null)
+					release.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		}
+	}
+}